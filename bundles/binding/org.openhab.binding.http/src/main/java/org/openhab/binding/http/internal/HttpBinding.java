@@ -31,18 +31,30 @@ package org.openhab.binding.http.internal;
 import static org.apache.commons.lang.StringUtils.isNotBlank;
 import static org.openhab.binding.http.internal.HttpGenericBindingProvider.CHANGED_COMMAND_KEY;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.http.HttpBindingProvider;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.items.ContactItem;
 import org.openhab.core.library.items.NumberItem;
@@ -60,6 +72,7 @@ import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
 import org.openhab.core.types.Type;
 import org.openhab.core.types.TypeParser;
+import org.openhab.io.net.http.HttpResponse;
 import org.openhab.io.net.http.HttpUtil;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
@@ -85,7 +98,31 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	/** the interval to find new refresh candidates (defaults to 1000 milliseconds)*/ 
 	private int granularity = 1000;
 	
-	private Map<String, Long> lastUpdateMap = new HashMap<String, Long>();
+	/** the number of threads which execute the requests of the in-binding items (defaults to 5) */
+	private int threads = 5;
+	
+	/** the maximum number of responses which are kept for conditional requests */
+	private static final int MAX_CACHED_RESPONSES = 256;
+	
+	private Map<String, Long> lastUpdateMap = new ConcurrentHashMap<String, Long>();
+	
+	/** the response body each item has last been updated with successfully */
+	private Map<String, String> lastResponseMap = new ConcurrentHashMap<String, String>();
+	
+	/** the keys of the requests which are currently executed */
+	private Set<String> runningRequests = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	/** the last responses which carried an ETag or Last-Modified header, by their request key */
+	private Map<String, HttpResponse> responseCache = Collections.synchronizedMap(
+		new LinkedHashMap<String, HttpResponse>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, HttpResponse> eldest) {
+				return size() > MAX_CACHED_RESPONSES;
+			}
+		});
+	
+	private ExecutorService requestExecutor;
 	
 	/** RegEx to extract a parse a function String <code>'(.*?)\((.*)\)'</code> */
 	private static final Pattern EXTRACT_FUNCTION_PATTERN = Pattern.compile("(.*?)\\((.*)\\)");
@@ -107,6 +144,30 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 		setProperlyConfigured(true);
 	}
 	
+	@Override
+	public void deactivate() {
+		shutdownRequestExecutor();
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		super.bindingChanged(provider, itemName);
+		// the transformation might have changed, so the next response must not be skipped
+		lastResponseMap.remove(itemName);
+	}
+	
+	/**
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		super.allBindingsChanged(provider);
+		lastResponseMap.clear();
+	}
+	
 	/**
      * @{inheritDoc}
      */
@@ -138,103 +199,211 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 	
 	/**
 	 * @{inheritDoc}
+	 * <p>
+	 * Collects the items which are due for a refresh and executes their requests on a pool
+	 * of threads, so that a slow server does not delay the refresh of all other items. Items 
+	 * which are due at the same time and request the same url with the same headers share a 
+	 * single request. Items whose request is still running are refreshed on a later run.
 	 */
 	@Override
 	public void execute() {
 		
+		Map<String, RefreshRequest> dueRequests = new LinkedHashMap<String, RefreshRequest>();
+		long now = System.currentTimeMillis();
+		
 		for (HttpBindingProvider provider : providers) {
 			for (String itemName : provider.getInBindingItemNames()) {
 				
-				String url = provider.getUrl(itemName);
-				url = String.format(url, Calendar.getInstance().getTime());
-
-				Properties headers = provider.getHttpHeaders(itemName);
 				int refreshInterval = provider.getRefreshInterval(itemName);
-				String transformation = provider.getTransformation(itemName);
 				
 				Long lastUpdateTimeStamp = lastUpdateMap.get(itemName);
 				if (lastUpdateTimeStamp == null) {
 					lastUpdateTimeStamp = 0L;
 				}
 				
-				long age = System.currentTimeMillis() - lastUpdateTimeStamp;
+				long age = now - lastUpdateTimeStamp;
 				boolean needsUpdate = age >= refreshInterval;
 				
 				if (needsUpdate) {
 					
-					String response = null;
+					String url = provider.getUrl(itemName);
+					url = String.format(url, Calendar.getInstance().getTime());
+					Properties headers = provider.getHttpHeaders(itemName);
 					
-					// Check if special URL is used and data should get from
-					// cache rather than directly from server
-					CacheConfig cacheItem = itemCache.get(url);
-
-					if (cacheItem != null) {
-
-						long cacheAge = System.currentTimeMillis() - cacheItem.lastUpdate;
-						boolean cacheNeedsUpdate = cacheAge >= cacheItem.updateInterval;
-
-						if (cacheNeedsUpdate) {
-
-							// update and store data on cache
-							logger.debug("updating cache for '{}' ('{}')", url, cacheItem.url);
-							cacheItem.data = HttpUtil.executeUrl("GET", cacheItem.url, null, null, null, timeout);
-
-							if (cacheItem.data != null)
-								cacheItem.lastUpdate = System.currentTimeMillis();
-						}
-
-						logger.debug("item '{}' is fetched from cache", itemName);
-						response = cacheItem.data;
-						
-					} else {
-						
-						logger.debug("item '{}' is about to be refreshed now", itemName);
-						
-						response = HttpUtil.executeUrl("GET", url, headers, null, null, timeout);
+					String requestKey = url;
+					if (headers != null && !headers.isEmpty()) {
+						requestKey += new TreeMap<Object, Object>(headers);
+					}
+					if (runningRequests.contains(requestKey)) {
+						logger.trace("request for item '{}' is still running", itemName);
+						continue;
 					}
 					
-					if(response==null) {
-						logger.error("No response received from '{}'", url);
-					} else {
-						String transformedResponse;
-						
-						try {
-							String[] parts = splitTransformationConfig(transformation);
-							String transformationType = parts[0];
-							String transformationFunction = parts[1];
-							
-							TransformationService transformationService = 
-								TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
-							if (transformationService != null) {
-								transformedResponse = transformationService.transform(transformationFunction, response);
-							} else {
-								transformedResponse = response;
-								logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
-							}
-						}
-						catch (TransformationException te) {
-							logger.error("transformation throws exception [transformation="
-									+ transformation + ", response=" + response + "]", te);
-							
-							// in case of an error we return the response without any
-							// transformation
-							transformedResponse = response;
-						}
-						
-						logger.debug("transformed response is '{}'", transformedResponse);
-						
-						Class<? extends Item> itemType = provider.getItemType(itemName);
-						State state = createState(itemType, transformedResponse);
-						
-						if (state != null) {
-							eventPublisher.postUpdate(itemName, state);
-						}
+					RefreshRequest request = dueRequests.get(requestKey);
+					if (request == null) {
+						request = new RefreshRequest(requestKey, url, headers);
+						dueRequests.put(requestKey, request);
 					}
+					request.providers.add(provider);
+					request.itemNames.add(itemName);
 					
-					lastUpdateMap.put(itemName, System.currentTimeMillis());
+					lastUpdateMap.put(itemName, now);
 				}					
 			}
 		}
+		
+		for (RefreshRequest request : dueRequests.values()) {
+			runningRequests.add(request.key);
+			try {
+				getRequestExecutor().execute(request);
+			} catch (RuntimeException e) {
+				runningRequests.remove(request.key);
+				logger.warn("couldn't schedule request for '{}': {}", request.url, e.getMessage());
+			}
+		}
+	}
+	
+	/**
+	 * Requests the given url. If the url is configured as a cache item, the cached 
+	 * data is returned and refreshed if necessary. Otherwise a conditional request is 
+	 * executed, if a previous response carried an ETag or Last-Modified header.
+	 * 
+	 * @param requestKey the key of the url and headers
+	 * @param url the url to request
+	 * @param headers the request headers
+	 * @return the response or <code>null</code>, if the request failed. If the server
+	 * answered a conditional request with 304 (Not Modified), the returned response
+	 * carries the body of the previous one.
+	 */
+	private HttpResponse fetch(String requestKey, String url, Properties headers) {
+		
+		// Check if special URL is used and data should get from
+		// cache rather than directly from server
+		CacheConfig cacheItem = itemCache.get(url);
+
+		if (cacheItem != null) {
+			
+			synchronized (cacheItem) {
+				long cacheAge = System.currentTimeMillis() - cacheItem.lastUpdate;
+				boolean cacheNeedsUpdate = cacheAge >= cacheItem.updateInterval;
+	
+				if (cacheNeedsUpdate) {
+	
+					// update and store data on cache
+					logger.debug("updating cache for '{}' ('{}')", url, cacheItem.url);
+					cacheItem.data = HttpUtil.executeUrl("GET", cacheItem.url, null, null, null, timeout);
+	
+					if (cacheItem.data != null)
+						cacheItem.lastUpdate = System.currentTimeMillis();
+				}
+	
+				logger.debug("'{}' is fetched from cache", url);
+				return cacheItem.data != null ? new HttpResponse(200, cacheItem.data, null, null) : null;
+			}
+		}
+		
+		logger.debug("'{}' is about to be refreshed now", url);
+
+		HttpResponse previous = responseCache.get(requestKey);
+		String eTag = previous != null ? previous.getETag() : null;
+		String lastModified = previous != null ? previous.getLastModified() : null;
+		HttpResponse response = HttpUtil.executeConditionalGet(url, headers, timeout, eTag, lastModified);
+		
+		if (response == null) {
+			return null;
+		}
+		if (response.isNotModified() && previous != null) {
+			return new HttpResponse(response.getStatusCode(), previous.getBody(), previous.getETag(), previous.getLastModified());
+		}
+		if (response.getETag() != null || response.getLastModified() != null) {
+			responseCache.put(requestKey, response);
+		} else {
+			responseCache.remove(requestKey);
+		}
+		return response;
+	}
+	
+	/**
+	 * Transforms the given response and posts it as an update of the given item. If the
+	 * server reported that the response has not been modified and the item has already been
+	 * updated successfully with the very same response before, no update is posted.
+	 * 
+	 * @param provider the binding provider of the item
+	 * @param itemName the item to update
+	 * @param response the response body
+	 * @param notModified true, if the server answered with 304 (Not Modified)
+	 */
+	private void processResponse(HttpBindingProvider provider, String itemName, String response, boolean notModified) {
+		if (notModified && response.equals(lastResponseMap.get(itemName))) {
+			logger.trace("response for item '{}' has not been modified", itemName);
+			return;
+		}
+		
+		boolean transformed = false;
+		
+		String transformation = provider.getTransformation(itemName);
+		String transformedResponse;
+		
+		try {
+			String[] parts = splitTransformationConfig(transformation);
+			String transformationType = parts[0];
+			String transformationFunction = parts[1];
+			
+			TransformationService transformationService = 
+				TransformationHelper.getTransformationService(HttpActivator.getContext(), transformationType);
+			if (transformationService != null) {
+				transformedResponse = transformationService.transform(transformationFunction, response);
+				transformed = true;
+			} else {
+				transformedResponse = response;
+				logger.warn("couldn't transform response because transformationService of type '{}' is unavailable", transformationType);
+			}
+		}
+		catch (TransformationException te) {
+			logger.error("transformation throws exception [transformation="
+					+ transformation + ", response=" + response + "]", te);
+			
+			// in case of an error we return the response without any
+			// transformation
+			transformedResponse = response;
+		}
+		
+		logger.debug("transformed response is '{}'", transformedResponse);
+		
+		Class<? extends Item> itemType = provider.getItemType(itemName);
+		State state = createState(itemType, transformedResponse);
+		
+		if (state != null) {
+			eventPublisher.postUpdate(itemName, state);
+		}
+		
+		// only a successfully transformed response may be skipped later on
+		if (transformed && state != null) {
+			lastResponseMap.put(itemName, response);
+		} else {
+			lastResponseMap.remove(itemName);
+		}
+	}
+	
+	private synchronized ExecutorService getRequestExecutor() {
+		if (requestExecutor == null) {
+			requestExecutor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "HTTP Refresh Service #" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return requestExecutor;
+	}
+	
+	private synchronized void shutdownRequestExecutor() {
+		if (requestExecutor != null) {
+			requestExecutor.shutdown();
+			requestExecutor = null;
+		}
 	}
 	
 	/**
@@ -358,6 +527,13 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 				granularity = Integer.parseInt(granularityString);
 			}
 			
+			String threadsString = (String) config.get("threads");
+			if (StringUtils.isNotBlank(threadsString)) {
+				threads = Integer.parseInt(threadsString);
+				// the pool is created again with the new size on the next refresh
+				shutdownRequestExecutor();
+			}
+			
 			// Parse page cache config
 			
 			@SuppressWarnings("unchecked")
@@ -368,7 +544,8 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 
 				// the config-key enumeration contains additional keys that we
 				// don't want to process here ...
-				if ("service.pid".equals(key)) {
+				if ("service.pid".equals(key) || "timeout".equals(key) 
+						|| "granularity".equals(key) || "threads".equals(key)) {
 					continue;
 				}
 
@@ -411,6 +588,46 @@ public class HttpBinding extends AbstractActiveBinding<HttpBindingProvider> impl
 
 	}
 	
+	/**
+	 * A request which is shared by all items that are due for a refresh and
+	 * request the same url with the same headers.
+	 */
+	private class RefreshRequest implements Runnable {
+		
+		final String key;
+		
+		final String url;
+		
+		final Properties headers;
+		
+		final List<HttpBindingProvider> providers = new ArrayList<HttpBindingProvider>();
+		
+		final List<String> itemNames = new ArrayList<String>();
+		
+		RefreshRequest(String key, String url, Properties headers) {
+			this.key = key;
+			this.url = url;
+			this.headers = headers;
+		}
+		
+		public void run() {
+			try {
+				HttpResponse response = fetch(key, url, headers);
+				if (response == null || response.getBody() == null) {
+					logger.error("No response received from '{}'", url);
+					return;
+				}
+				for (int i = 0; i < itemNames.size(); i++) {
+					processResponse(providers.get(i), itemNames.get(i), response.getBody(), response.isNotModified());
+				}
+			} catch (RuntimeException e) {
+				logger.error("refreshing items " + itemNames + " failed", e);
+			} finally {
+				runningRequests.remove(key);
+			}
+		}
+	}
+	
 	/**
 	 * Internal data structure for data cache purposes
 	 * 
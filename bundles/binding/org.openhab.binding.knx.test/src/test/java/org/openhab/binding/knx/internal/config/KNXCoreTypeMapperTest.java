@@ -31,14 +31,25 @@ package org.openhab.binding.knx.internal.config;
 import static junit.framework.Assert.assertNotNull;
 import static org.junit.Assert.assertEquals;
 
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 import org.openhab.binding.knx.internal.dpt.KNXCoreTypeMapper;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.IncreaseDecreaseType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.library.types.StopMoveType;
+import org.openhab.core.library.types.UpDownType;
 import org.openhab.core.types.Type;
 
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.datapoint.CommandDP;
 import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.dptxlator.DPTXlator;
+import tuwien.auto.calimero.dptxlator.TranslatorTypes;
+import tuwien.auto.calimero.exception.KNXException;
 import tuwien.auto.calimero.exception.KNXFormatException;
 
 public class KNXCoreTypeMapperTest {
@@ -66,6 +77,61 @@ public class KNXCoreTypeMapperTest {
 		assertEquals("5", type.toString());
 	}
 	
+	@Test
+	public void testBooleanMapping() throws KNXFormatException {
+		assertEquals(OnOffType.OFF, typeMapper.toType(createDP("1.001"), new byte[] { 0x00 }));
+		assertEquals(OnOffType.ON, typeMapper.toType(createDP("1.001"), new byte[] { 0x01 }));
+		assertEquals(IncreaseDecreaseType.DECREASE, typeMapper.toType(createDP("1.007"), new byte[] { 0x00 }));
+		assertEquals(IncreaseDecreaseType.INCREASE, typeMapper.toType(createDP("1.007"), new byte[] { 0x01 }));
+		assertEquals(UpDownType.UP, typeMapper.toType(createDP("1.008"), new byte[] { 0x00 }));
+		assertEquals(UpDownType.DOWN, typeMapper.toType(createDP("1.008"), new byte[] { 0x01 }));
+		assertEquals(StopMoveType.STOP, typeMapper.toType(createDP("1.010"), new byte[] { 0x00 }));
+		assertEquals(StopMoveType.MOVE, typeMapper.toType(createDP("1.010"), new byte[] { 0x01 }));
+		assertEquals(OpenClosedType.CLOSED, typeMapper.toType(createDP("1.019"), new byte[] { 0x00 }));
+		assertEquals(OpenClosedType.OPEN, typeMapper.toType(createDP("1.019"), new byte[] { 0x01 }));
+	}
+
+	@Test
+	public void test8BitMappingMatchesTranslator() throws KNXException {
+		for (int i = 0; i < 256; i++) {
+			byte[] data = new byte[] { (byte) i };
+			assertEquals(toDecimal("5.001", data), typeMapper.toType(createDP("5.001"), data).toString());
+			assertEquals(Integer.toString(i * 100 / 255), typeMapper.toType(createDP("5.004"), data).toString());
+			assertEquals(toDecimal("5.010", data), typeMapper.toType(createDP("5.010"), data).toString());
+		}
+	}
+
+	@Test
+	public void test2ByteFloatMappingMatchesTranslator() throws KNXException {
+		for (int i = 0; i < 0x10000; i++) {
+			byte[] data = new byte[] { (byte) (i >> 8), (byte) i };
+			assertEquals(toDecimal("9.001", data), typeMapper.toType(createDP("9.001"), data).toString());
+		}
+	}
+
+	@Test
+	public void test4ByteFloatMappingMatchesTranslator() throws KNXException {
+		Random random = new Random(0);
+		for (int i = 0; i < 10000; i++) {
+			int bits = random.nextInt();
+			if (Float.isNaN(Float.intBitsToFloat(bits)) || Float.isInfinite(Float.intBitsToFloat(bits))) {
+				continue;
+			}
+			byte[] data = new byte[] { (byte) (bits >> 24), (byte) (bits >> 16), (byte) (bits >> 8), (byte) bits };
+			assertEquals(toDecimal("14.056", data), typeMapper.toType(createDP("14.056"), data).toString());
+		}
+	}
+	
+	/**
+	 * Translates the data with a calimero translator, as the type mapper did before it 
+	 * decoded the common datapoint types directly.
+	 */
+	private String toDecimal(String dpt, byte[] data) throws KNXException {
+		DPTXlator translator = TranslatorTypes.createTranslator(0, dpt);
+		translator.setData(data);
+		return DecimalType.valueOf(translator.getValue().split(" ")[0]).toString();
+	}
+
 	private Datapoint createDP(String dpt) throws KNXFormatException {
 		return new CommandDP(new GroupAddress("1/2/3"), "test", 0, dpt);
 	}
@@ -131,6 +131,45 @@ public class KNXGenericBindingProviderTest {
 		assertEquals(false, provider.isCommandGA(new GroupAddress("4/2/12")));
 	}
 
+	@Test
+	public void testGroupAddressLookup() throws BindingConfigParseException, KNXFormatException {
+		
+		provider.processBindingConfiguration("text", item1, "<4/2/10+0/2/10, 5.006:4/2/11");
+		provider.processBindingConfiguration("text", item2, "0/2/10");
+
+		// method under Test
+		List<String> itemNames = new ArrayList<String>();
+		for (String itemName : provider.getListeningItemNames(new GroupAddress("0/2/10"))) {
+			itemNames.add(itemName);
+		}
+		assertEquals(2, itemNames.size());
+		assertTrue(itemNames.contains("item1"));
+		assertTrue(itemNames.contains("item2"));
+		
+		Iterator<Datapoint> datapoints = provider.getDatapoints("item1", new GroupAddress("0/2/10")).iterator();
+		assertEquals(new GroupAddress("4/2/10"), datapoints.next().getMainAddress());
+		assertEquals(false, datapoints.hasNext());
+		
+		assertEquals(false, provider.getDatapoints("item2", new GroupAddress("4/2/11")).iterator().hasNext());
+		assertEquals(false, provider.getListeningItemNames(new GroupAddress("1/1/1")).iterator().hasNext());
+	}
+
+	@Test
+	public void testGroupAddressLookupAfterRemoval() throws BindingConfigParseException, KNXFormatException {
+		
+		provider.processBindingConfiguration("text", item1, "4/2/10");
+		assertEquals(true, provider.isCommandGA(new GroupAddress("4/2/10")));
+		
+		// method under Test
+		provider.removeConfigurations("text");
+		assertEquals(false, provider.isCommandGA(new GroupAddress("4/2/10")));
+		assertEquals(false, provider.getListeningItemNames(new GroupAddress("4/2/10")).iterator().hasNext());
+		
+		provider.processBindingConfiguration("text", item2, "+4/2/10");
+		assertEquals(false, provider.isCommandGA(new GroupAddress("4/2/10")));
+		assertEquals("item2", provider.getListeningItemNames(new GroupAddress("4/2/10")).iterator().next());
+	}
+
 	@Test
 	public void testReadFlagWithDPT() throws BindingConfigParseException, KNXFormatException {
 		
@@ -30,11 +30,8 @@ package org.openhab.binding.knx.internal.bus;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang.IllegalClassException;
@@ -56,7 +53,6 @@ import tuwien.auto.calimero.DetachEvent;
 import tuwien.auto.calimero.GroupAddress;
 import tuwien.auto.calimero.datapoint.Datapoint;
 import tuwien.auto.calimero.exception.KNXException;
-import tuwien.auto.calimero.exception.KNXIllegalArgumentException;
 import tuwien.auto.calimero.process.ProcessCommunicator;
 import tuwien.auto.calimero.process.ProcessEvent;
 import tuwien.auto.calimero.process.ProcessListener;
@@ -87,19 +83,16 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	private List<String> ignoreEventList = new ArrayList<String>();
 
 	/**
-	 * keeps track of all datapoints for which we should send a read request to the KNX bus
+	 * schedules the telegrams we send to the KNX bus, i.e. the read requests for all datapoints
+	 * which should be initialized and the commands
 	 */
-	private Map<Datapoint, Integer> datapointsToInitialize = Collections.synchronizedMap(new HashMap<Datapoint, Integer>());
-	
-
-	/** the datapoint initializer, which runs in a separate thread */
-	private DatapointInitializer initializer = new DatapointInitializer();
+	private KNXBusScheduler busScheduler = new KNXBusScheduler();
 	
 
 	public void activate(ComponentContext componentContext) {
 		KNXConnection.addConnectionEstablishedListener(this);
-		initializer = new DatapointInitializer();
-		initializer.start();
+		busScheduler = new KNXBusScheduler();
+		busScheduler.start();
 	}
 
 	public void deactivate(ComponentContext componentContext) {
@@ -108,7 +101,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			provider.removeBindingChangeListener(this);
 		}
 		providers.clear();
-		initializer.setInterrupted(true);
+		busScheduler.stop();
 		KNXConnection.disconnect();
 	}
 	
@@ -161,6 +154,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			if (pc != null) {
 				for (Datapoint datapoint : datapoints) {
 					try {
+						busScheduler.commandSent();
 						pc.write(datapoint, toDPTValue(value, datapoint.getDPT()));
 						logger.debug("Wrote value '{}' to datapoint '{}'", value, datapoint);
 					} catch (KNXException e) {
@@ -252,7 +246,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
 				if(datapoint.getName().equals(itemName)) {
-					datapointsToInitialize.put(datapoint, 0);
+					busScheduler.scheduleRead(datapoint);
 				}
 			}
 		}
@@ -265,7 +259,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		if (provider instanceof KNXBindingProvider) {
 			KNXBindingProvider knxProvider = (KNXBindingProvider) provider;
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				busScheduler.scheduleRead(datapoint);
 			}
 		}
 	}
@@ -278,7 +272,7 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 	public void connectionEstablished() {
 		for (KNXBindingProvider knxProvider : providers) {
 			for (Datapoint datapoint : knxProvider.getReadableDatapoints()) {
-				datapointsToInitialize.put(datapoint, 0);
+				busScheduler.scheduleRead(datapoint);
 			}
 		}
 	}
@@ -394,98 +388,4 @@ public class KNXBinding extends AbstractBinding<KNXBindingProvider>
 		return null;
 	}
 
-	/**
-	 * The DatapointInitializer runs as a separate thread. Whenever new KNX bindings are added, it takes care that read
-	 * requests are sent to all new datapoints, which support this request. By this, the initial status can be
-	 * determined and one does not have to stay in an "undefined" state until the first telegram is sent on the NX bus
-	 * for this datapoint. As there might be hundreds of datapoints added at the same time and we do not want to flood
-	 * the KNX bus with read requests, we wait a configurable period of milliseconds between two requests. As a result,
-	 * this might be quite long running and thus is executed in its own thread.
-	 * 
-	 * @author Kai Kreuzer
-	 * @since 0.3.0
-	 * 
-	 */
-	private class DatapointInitializer extends Thread {
-		
-		private boolean interrupted = false;
-		
-		public DatapointInitializer() {
-			super("KNX datapoint initializer");
-		}
-
-		public void setInterrupted(boolean interrupted) {
-			this.interrupted = interrupted;
-		}
-
-		@Override
-		public void run() {
-			// as long as no interrupt is requested, continue running
-			while (!interrupted && !KNXConnection.shutdown) {
-				if (datapointsToInitialize.size() > 0) {
-					// we first clone the map, so that it stays unmodified
-					HashMap<Datapoint,Integer> clonedMap =
-						new HashMap<Datapoint, Integer>(datapointsToInitialize);
-					initializeDatapoints(clonedMap);
-				}
-				// just wait before looping again
-				try {
-					sleep(1000L);
-				} catch (InterruptedException e) {
-					interrupted = true;
-				}
-			}
-		}
-
-		private void initializeDatapoints(HashMap<Datapoint,Integer> clonedMap) {
-			for (Datapoint datapoint : clonedMap.keySet()) {
-				try {
-					ProcessCommunicator pc = KNXConnection.getCommunicator();
-					if (pc != null) {
-						logger.debug("Sending read request to KNX for item {}", datapoint.getName());
-						pc.read(datapoint);
-					}
-					datapointsToInitialize.remove(datapoint);
-				} catch (KNXException e) {
-					logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				} catch (KNXIllegalArgumentException e) {
-					logger.warn("Error sending KNX read request for '{}': {}", new String[] { datapoint.getName(), e.getMessage() });
-					increaseReadLimitCounter(datapoint);
-				}
-
-				int retriesLimit = KNXConnection.getReadRetriesLimit();
-				// it is possible that a key contained in the clonedMap disappeared
-				// from the original datapointMap!
-				int retriesCounter = datapointsToInitialize.get(datapoint) != null ? 
-									 datapointsToInitialize.get(datapoint) : Integer.MIN_VALUE;
-				if (retriesLimit < retriesCounter) {
-					datapointsToInitialize.remove(datapoint);
-					logger.debug("Giving up initialization of item {} - retries ({}) exeeded.", datapoint.getName(), retriesLimit);
-				}
-
-				long readingPause = KNXConnection.getReadingPause();
-				if (readingPause > 0) {
-					try {
-						sleep(readingPause);
-					} catch (InterruptedException e) {
-						logger.debug("KNX reading pause has been interrupted: {}", e.getMessage());
-					}
-				}
-				if(KNXConnection.shutdown) {
-					return;
-				}
-			}
-		}
-
-		private synchronized void increaseReadLimitCounter(Datapoint datapoint) {
-			if (datapointsToInitialize.containsKey(datapoint)) {
-				Integer counter = datapointsToInitialize.get(datapoint);
-				datapointsToInitialize.put(datapoint, counter + 1);
-			}
-		}		
-		
-	}
-	
-
 }
@@ -0,0 +1,333 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.knx.internal.bus;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.binding.knx.internal.connection.KNXConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.datapoint.Datapoint;
+import tuwien.auto.calimero.exception.KNXException;
+import tuwien.auto.calimero.exception.KNXIllegalArgumentException;
+import tuwien.auto.calimero.process.ProcessCommunicator;
+
+/**
+ * Schedules the telegrams which the KNX binding sends to the bus. All telegrams share a
+ * common budget, which is managed as a token bucket: the bucket is refilled with one token
+ * per configured reading pause (see {@link KNXConnection#getReadingPause()}) and every
+ * telegram takes one token out of it.
+ * <p>
+ * Commands take priority: they are sent right away and only take their token, even if the
+ * bucket runs into debt by this. Read requests for initializing datapoints are queued and
+ * only sent if a token is available, so that they use the bus capacity which is left over
+ * by the commands. Read requests which failed are retried after all other pending ones.
+ *
+ * @since 1.4.0
+ */
+public class KNXBusScheduler {
+
+	private static final Logger logger = LoggerFactory.getLogger(KNXBusScheduler.class);
+
+	/** the interval in milliseconds over which the bus utilization is measured */
+	private static final long MEASUREMENT_INTERVAL = 10000L;
+
+	/** the datapoints to send a read request for, together with the number of failed attempts */
+	private final Map<Datapoint, Integer> pendingReads = new LinkedHashMap<Datapoint, Integer>();
+
+	/** the number of available tokens, negative if commands exceeded the budget */
+	private double tokens = 1;
+
+	private long lastRefill = System.nanoTime();
+
+	private long measurementStart = System.nanoTime();
+	private int measurementTelegrams = 0;
+	private double telegramRate = 0;
+
+	private final AtomicLong commandCount = new AtomicLong();
+	private final AtomicLong readCount = new AtomicLong();
+	private final AtomicLong failedReadCount = new AtomicLong();
+	private final AtomicLong discardedReadCount = new AtomicLong();
+
+	private volatile boolean running = false;
+
+	private Thread reader;
+
+	/**
+	 * Starts the thread which sends the queued read requests.
+	 */
+	public synchronized void start() {
+		running = true;
+		reader = new Thread(new Reader(), "KNX datapoint initializer");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Stops the thread which sends the queued read requests and discards the pending ones.
+	 */
+	public synchronized void stop() {
+		running = false;
+		synchronized (pendingReads) {
+			pendingReads.clear();
+			pendingReads.notifyAll();
+		}
+		if (reader != null) {
+			reader.interrupt();
+			reader = null;
+		}
+		logger.debug("KNX bus scheduler stopped: {}", getStatistics());
+	}
+
+	/**
+	 * Queues a read request for the given datapoint. If a request for the datapoint is already
+	 * pending, its failed attempts are reset.
+	 *
+	 * @param datapoint the datapoint to read
+	 */
+	public void scheduleRead(Datapoint datapoint) {
+		synchronized (pendingReads) {
+			pendingReads.put(datapoint, 0);
+			pendingReads.notifyAll();
+		}
+	}
+
+	/**
+	 * Takes a token out of the bucket for a command, which is sent to the bus right away.
+	 * If there are no tokens available, the bucket runs into debt by at most one second
+	 * of bus budget, which delays the pending read requests accordingly.
+	 */
+	public synchronized void commandSent() {
+		long now = System.nanoTime();
+		refill(now);
+		long pause = KNXConnection.getReadingPause();
+		if (pause > 0) {
+			tokens = Math.max(tokens - 1, -Math.max(1, 1000 / pause));
+		}
+		countTelegram(now);
+		commandCount.incrementAndGet();
+	}
+
+	/**
+	 * Takes a token out of the bucket for a read request, if there is one available.
+	 *
+	 * @return 0, if the read request can be sent, otherwise the time in milliseconds to wait
+	 * until the next token will be available
+	 */
+	private synchronized long reserveReadToken() {
+		long now = System.nanoTime();
+		refill(now);
+		if (tokens >= 1) {
+			tokens -= 1;
+			countTelegram(now);
+			return 0;
+		}
+		return Math.max(1, (long) Math.ceil((1 - tokens) * KNXConnection.getReadingPause()));
+	}
+
+	/**
+	 * Adds the tokens which accrued since the last refill. The bucket holds at most a quarter
+	 * of a second of bus budget, but always at least one token.
+	 */
+	private void refill(long now) {
+		long pause = KNXConnection.getReadingPause();
+		if (pause > 0) {
+			double elapsed = TimeUnit.NANOSECONDS.toMicros(now - lastRefill) / 1000d;
+			tokens = Math.min(Math.max(1, 250 / pause), tokens + elapsed / pause);
+		} else {
+			tokens = 1;
+		}
+		lastRefill = now;
+	}
+
+	private void countTelegram(long now) {
+		updateMeasurement(now);
+		measurementTelegrams++;
+	}
+
+	private void updateMeasurement(long now) {
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(now - measurementStart);
+		if (elapsed >= MEASUREMENT_INTERVAL) {
+			telegramRate = measurementTelegrams * 1000d / elapsed;
+			measurementTelegrams = 0;
+			measurementStart = now;
+		}
+	}
+
+	/**
+	 * @return the number of read requests which are waiting to be sent
+	 */
+	public int getPendingReadCount() {
+		synchronized (pendingReads) {
+			return pendingReads.size();
+		}
+	}
+
+	/**
+	 * @return the number of commands which have been sent to the bus
+	 */
+	public long getCommandCount() {
+		return commandCount.get();
+	}
+
+	/**
+	 * @return the number of read requests which have been answered successfully
+	 */
+	public long getReadCount() {
+		return readCount.get();
+	}
+
+	/**
+	 * @return the number of read requests which failed
+	 */
+	public long getFailedReadCount() {
+		return failedReadCount.get();
+	}
+
+	/**
+	 * @return the number of datapoints which have been given up after too many failed read requests
+	 */
+	public long getDiscardedReadCount() {
+		return discardedReadCount.get();
+	}
+
+	/**
+	 * @return the number of telegrams per second which have been sent during the last
+	 * measurement interval
+	 */
+	public synchronized double getTelegramRate() {
+		updateMeasurement(System.nanoTime());
+		return telegramRate;
+	}
+
+	/**
+	 * @return the percentage of the bus budget which has been used during the last
+	 * measurement interval, 0 if the budget is unlimited
+	 */
+	public double getBusUtilization() {
+		long pause = KNXConnection.getReadingPause();
+		return pause > 0 ? getTelegramRate() * pause / 10d : 0;
+	}
+
+	/**
+	 * @return a human readable summary of the scheduler metrics
+	 */
+	public String getStatistics() {
+		return "pendingReads=" + getPendingReadCount() + ", reads=" + getReadCount()
+			+ ", failedReads=" + getFailedReadCount() + ", discardedReads=" + getDiscardedReadCount()
+			+ ", commands=" + getCommandCount() + ", telegramRate=" + String.format("%.1f", getTelegramRate())
+			+ "/s, busUtilization=" + String.format("%.0f", getBusUtilization()) + "%";
+	}
+
+	/**
+	 * Sends a read request for the given datapoint and removes it from the pending ones,
+	 * if it has been answered or the number of failed attempts exceeded the configured limit.
+	 */
+	private void read(Datapoint datapoint) {
+		try {
+			ProcessCommunicator pc = KNXConnection.getCommunicator();
+			if (pc != null) {
+				logger.debug("Sending read request to KNX for item {}", datapoint.getName());
+				pc.read(datapoint);
+				readCount.incrementAndGet();
+			}
+			synchronized (pendingReads) {
+				pendingReads.remove(datapoint);
+			}
+		} catch (KNXException e) {
+			logger.warn("Cannot read value for item '{}' from KNX bus: {}", new String[] { datapoint.getName(), e.getMessage() });
+			readFailed(datapoint);
+		} catch (KNXIllegalArgumentException e) {
+			logger.warn("Error sending KNX read request for '{}': {}", new String[] { datapoint.getName(), e.getMessage() });
+			readFailed(datapoint);
+		}
+	}
+
+	private void readFailed(Datapoint datapoint) {
+		failedReadCount.incrementAndGet();
+		int retriesLimit = KNXConnection.getReadRetriesLimit();
+		synchronized (pendingReads) {
+			// the datapoint might have been removed in the meantime
+			Integer retries = pendingReads.remove(datapoint);
+			if (retries != null) {
+				if (retries + 1 > retriesLimit) {
+					discardedReadCount.incrementAndGet();
+					logger.debug("Giving up initialization of item {} - retries ({}) exeeded.", datapoint.getName(), retriesLimit);
+				} else {
+					// re-insert the datapoint, so that it is retried after all other pending ones
+					pendingReads.put(datapoint, retries + 1);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Sends the queued read requests as long as the scheduler is running. As there might be
+	 * hundreds of datapoints added at the same time and every read request waits for its
+	 * response, this is executed in its own thread.
+	 */
+	private class Reader implements Runnable {
+
+		public void run() {
+			while (running) {
+				try {
+					Datapoint datapoint;
+					synchronized (pendingReads) {
+						while (running && pendingReads.isEmpty()) {
+							pendingReads.wait();
+						}
+						if (!running) {
+							return;
+						}
+						datapoint = pendingReads.keySet().iterator().next();
+					}
+
+					long wait;
+					while ((wait = reserveReadToken()) > 0) {
+						Thread.sleep(wait);
+					}
+
+					read(datapoint);
+
+					if (logger.isDebugEnabled() && getPendingReadCount() == 0) {
+						logger.debug("All KNX read requests have been sent: {}", getStatistics());
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+	}
+
+}
@@ -28,8 +28,14 @@
  */
 package org.openhab.binding.knx.internal.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 
 import org.openhab.binding.knx.config.KNXBindingProvider;
@@ -100,6 +106,15 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 	/** the binding type to register for as a binding config reader */
 	public static final String KNX_BINDING_TYPE = "knx";
 	
+	/** 
+	 * the items and datapoints by the group addresses they are bound to, which is used to process incoming 
+	 * telegrams; it is built on first use after the binding configurations have changed
+	 */
+	private volatile Map<GroupAddress, GroupAddressBinding> groupAddressIndex = null;
+	
+	/** guards the creation and invalidation of the {@link #groupAddressIndex} */
+	private final Object groupAddressIndexLock = new Object();
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -124,38 +139,30 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		super.processBindingConfiguration(context, item, bindingConfig);
 		
 		addBindingConfig(item, parseBindingConfigString(item, bindingConfig));
+		invalidateGroupAddressIndex();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeConfigurations(String context) {
+		super.removeConfigurations(context);
+		invalidateGroupAddressIndex();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	public Iterable<Datapoint> getDatapoints(final String itemName, final GroupAddress groupAddress) {
-		synchronized(bindingConfigs) {
-			try {
-				Iterable<KNXBindingConfig> configList = Iterables.filter(Iterables.concat(bindingConfigs.values()), KNXBindingConfig.class);
-				Iterable<KNXBindingConfigItem> configItemList = Iterables.filter(Iterables.concat(configList), KNXBindingConfigItem.class);
-				
-				Iterable<KNXBindingConfigItem> bindingConfigs = Iterables.filter(configItemList,
-						new Predicate<KNXBindingConfigItem>() {
-							public boolean apply(KNXBindingConfigItem input) {
-								return input.itemName.equals(itemName) && input.allDataPoints.contains(groupAddress);
-							}
-						});
-				
-				Iterable<Datapoint> datapoints = Iterables.transform(bindingConfigs, 
-					new Function<KNXBindingConfigItem, Datapoint>() {
-						public Datapoint apply(KNXBindingConfigItem configItem) {
-							return configItem.mainDataPoint;
-						}
-					});
-				
+		GroupAddressBinding binding = getGroupAddressIndex().get(groupAddress);
+		if (binding != null) {
+			List<Datapoint> datapoints = binding.datapoints.get(itemName);
+			if (datapoints != null) {
 				return datapoints;
 			}
-			catch(NoSuchElementException e) {
-				return null;
-			}
 		}
+		return Collections.emptyList();
 	}
 
 	/**
@@ -197,56 +204,70 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
 	public Iterable<String> getListeningItemNames(final GroupAddress groupAddress) {
-		synchronized(bindingConfigs) {
-			Iterable<KNXBindingConfig> configList = Iterables.filter(Iterables.concat(bindingConfigs.values()), KNXBindingConfig.class);
-			Iterable<KNXBindingConfigItem> configItemList = Iterables.filter(Iterables.concat(configList), KNXBindingConfigItem.class);
-			Iterable<KNXBindingConfigItem> filteredBindingConfigs = Iterables.filter(configItemList,
-					new Predicate<KNXBindingConfigItem>() {
-						public boolean apply(KNXBindingConfigItem input) {
-							if(input==null) {
-								return false;
-							}
-							return input.allDataPoints.contains(groupAddress);
-						}
-					});
-			return Iterables.transform(filteredBindingConfigs, new Function<KNXBindingConfigItem, String>() {
-				public String apply(KNXBindingConfigItem from) {
-					if(from==null) {
-						return null;
-					}
-					return from.itemName;
-				}
-			});
+		GroupAddressBinding binding = getGroupAddressIndex().get(groupAddress);
+		if (binding != null) {
+			return binding.itemNames;
 		}
+		return Collections.emptyList();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public boolean isCommandGA(final GroupAddress groupAddress) {
-		synchronized(bindingConfigs) {
-			for (BindingConfig config : bindingConfigs.values()) {
-				KNXBindingConfig knxConfig = (KNXBindingConfig) config;
-				for (KNXBindingConfigItem configItem : knxConfig) {
-					if (configItem.allDataPoints.contains(groupAddress)) {
-						if(configItem.mainDataPoint instanceof CommandDP) {
-							if(configItem.mainDataPoint.getMainAddress().equals(groupAddress)) {
-								// the first GA in a CommandDP is always a command GA
-								return true;
-							} else {
-								return false;
-							}
-						} else {
-							// it is a StateDP, so the GA cannot be a command GA
-							return false;
-						}
+		GroupAddressBinding binding = getGroupAddressIndex().get(groupAddress);
+		return binding != null && binding.commandGA;
+	}
+	
+	/**
+	 * Returns the items and datapoints by the group addresses they are bound to. The index is
+	 * built on the first call after the binding configurations have changed, all further calls
+	 * return it without any locking.
+	 * 
+	 * @return the binding information by group address
+	 */
+	private Map<GroupAddress, GroupAddressBinding> getGroupAddressIndex() {
+		Map<GroupAddress, GroupAddressBinding> index = groupAddressIndex;
+		if (index == null) {
+			synchronized (groupAddressIndexLock) {
+				index = groupAddressIndex;
+				if (index == null) {
+					index = buildGroupAddressIndex();
+					groupAddressIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+	
+	private Map<GroupAddress, GroupAddressBinding> buildGroupAddressIndex() {
+		Map<GroupAddress, GroupAddressBinding> index = new HashMap<GroupAddress, GroupAddressBinding>();
+		for (BindingConfig config : bindingConfigs.values()) {
+			KNXBindingConfig knxConfig = (KNXBindingConfig) config;
+			for (KNXBindingConfigItem configItem : knxConfig) {
+				for (Object datapoint : configItem.allDataPoints.getDatapoints()) {
+					GroupAddress groupAddress = ((Datapoint) datapoint).getMainAddress();
+					GroupAddressBinding binding = index.get(groupAddress);
+					if (binding == null) {
+						// the first datapoint a GA is assigned to decides whether it is a command GA;
+						// this is only the case for the first GA in a CommandDP
+						boolean commandGA = configItem.mainDataPoint instanceof CommandDP 
+								&& configItem.mainDataPoint.getMainAddress().equals(groupAddress);
+						binding = new GroupAddressBinding(commandGA);
+						index.put(groupAddress, binding);
 					}
+					binding.add(configItem.itemName, configItem.mainDataPoint);
 				}
 			}
 		}
-		return false;
+		return index;
+	}
+	
+	private void invalidateGroupAddressIndex() {
+		synchronized (groupAddressIndexLock) {
+			groupAddressIndex = null;
+		}
 	}
 	
 	/**
@@ -415,4 +436,28 @@ public class KNXGenericBindingProvider extends AbstractGenericBindingProvider im
 		public Datapoint readableDataPoint = null;
 		public DatapointMap allDataPoints = new DatapointMap();
 	}
+	
+	/**
+	 * This is an internal data structure which holds the items and main datapoints of all
+	 * binding configurations a single group address is assigned to.
+	 */
+	/* default */ static class GroupAddressBinding {
+		public final boolean commandGA;
+		public final List<String> itemNames = new ArrayList<String>();
+		public final Map<String, List<Datapoint>> datapoints = new LinkedHashMap<String, List<Datapoint>>();
+		
+		public GroupAddressBinding(boolean commandGA) {
+			this.commandGA = commandGA;
+		}
+		
+		public void add(String itemName, Datapoint datapoint) {
+			itemNames.add(itemName);
+			List<Datapoint> itemDatapoints = datapoints.get(itemName);
+			if (itemDatapoints == null) {
+				itemDatapoints = new ArrayList<Datapoint>();
+				datapoints.put(itemName, itemDatapoints);
+			}
+			itemDatapoints.add(datapoint);
+		}
+	}
 }
@@ -34,6 +34,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.knx.config.KNXTypeMapper;
@@ -85,6 +86,9 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 	/** stores the default KNX DPT to use for each openHAB type */
 	static private Map<Class<? extends Type>, String> defaultDptMap;
 	
+	/** caches a translator for each KNX datapoint type, as creating a translator is expensive */
+	private final Map<String, DPTXlator> translators = new ConcurrentHashMap<String, DPTXlator>();
+	
 	static {
 		dptTypeMap = new HashMap<String, Class<? extends Type>>();
 		dptTypeMap.put(DPTXlatorBoolean.DPT_UPDOWN.getID(), UpDownType.class);
@@ -150,13 +154,24 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 	}
 
 	public Type toType(Datapoint datapoint, byte[] data) {
+		logger.trace("toType datapoint DPT = {}", datapoint.getDPT());
+		
+		Type type = decode(datapoint.getDPT(), data);
+		if(type!=null) {
+			return type;
+		}
+		
 		try {
-			DPTXlator translator = TranslatorTypes.createTranslator(datapoint.getMainNumber(), datapoint.getDPT());
-			translator.setData(data);
-			String value = translator.getValue();
-			String id = translator.getType().getID();
-			logger.trace("toType datapoint DPT = " + datapoint.getDPT());
-			logger.trace("toType datapoint getMainNumver = " + datapoint.getMainNumber());
+			DPTXlator translator = getTranslator(datapoint);
+			String value;
+			String id;
+			// translators are not thread-safe, but they are shared by all datapoints of the same type
+			synchronized(translator) {
+				translator.setData(data);
+				value = translator.getValue();
+				id = translator.getType().getID();
+			}
+			logger.trace("toType datapoint getMainNumber = {}", datapoint.getMainNumber());
 			if(datapoint.getMainNumber()==9) id = "9.001"; // we do not care about the unit of a value, so map everything to 9.001
 			if(datapoint.getMainNumber()==14) id = "14.001"; // we do not care about the unit of a value, so map everything to 14.001
 			Class<? extends Type> typeClass = toTypeClass(id);
@@ -184,6 +199,107 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 		return null;
 	}
 	
+	/**
+	 * Returns the cached translator for the type of the given datapoint, or creates
+	 * a new one if there is none yet.
+	 * 
+	 * @param datapoint the datapoint to return the translator for
+	 * @return the translator for the datapoint type
+	 * @throws KNXException if no translator can be created for the datapoint type
+	 */
+	private DPTXlator getTranslator(Datapoint datapoint) throws KNXException {
+		DPTXlator translator = translators.get(datapoint.getDPT());
+		if(translator==null) {
+			translator = TranslatorTypes.createTranslator(datapoint.getMainNumber(), datapoint.getDPT());
+			translators.put(datapoint.getDPT(), translator);
+		}
+		return translator;
+	}
+	
+	/**
+	 * Decodes the data of the most common datapoint types (1.x, 5.x, 9.x and 14.x) straight
+	 * into an openHAB type, without going through a translator and its string representation.
+	 * The results are the same as the ones of the calimero translators.
+	 * 
+	 * @param dptId the datapoint type id
+	 * @param data the data of the telegram
+	 * @return the openHAB type or <code>null</code>, if the datapoint type cannot be decoded directly
+	 */
+	static private Type decode(String dptId, byte[] data) {
+		if(dptId==null || data==null || data.length==0) {
+			return null;
+		}
+		switch(getMainNumber(dptId)) {
+			case 1:
+				boolean bit = (data[0] & 0x01) != 0;
+				Class<? extends Type> typeClass = dptTypeMap.get(dptId);
+				if(typeClass==OnOffType.class) return bit ? OnOffType.ON : OnOffType.OFF;
+				if(typeClass==UpDownType.class) return bit ? UpDownType.DOWN : UpDownType.UP;
+				if(typeClass==IncreaseDecreaseType.class) return bit ? IncreaseDecreaseType.INCREASE : IncreaseDecreaseType.DECREASE;
+				if(typeClass==OpenClosedType.class) return bit ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+				if(typeClass==StopMoveType.class) return bit ? StopMoveType.MOVE : StopMoveType.STOP;
+				return null;
+			case 5:
+				int value = data[0] & 0xFF;
+				if(dptId.equals(DPTXlator8BitUnsigned.DPT_SCALING.getID())) return new PercentType(Math.round(value * 100f / 255));
+				if(dptId.equals(DPTXlator8BitUnsigned.DPT_PERCENT_U8.getID())) return new PercentType(value * 100 / 255);
+				if(dptTypeMap.get(dptId)==DecimalType.class) return new DecimalType(value);
+				return null;
+			case 9:
+				if(data.length < 2) {
+					return null;
+				}
+				// 2-octet float: sign bit, 4 bit exponent and 11 bit mantissa (two's complement) with a resolution of 0.01
+				int mantissa = ((data[0] & 0x80) << 24 | (data[0] & 0x07) << 28 | (data[1] & 0xFF) << 20) >> 20;
+				int exponent = (data[0] & 0x78) >> 3;
+				return toDecimalType((float) (((1 << exponent) * mantissa) * 0.01d));
+			case 14:
+				if(data.length < 4) {
+					return null;
+				}
+				// 4-octet IEEE 754 float
+				int bits = (data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF);
+				return toDecimalType(Float.intBitsToFloat(bits));
+			default:
+				return null;
+		}
+	}
+	
+	/**
+	 * Converts a float value into a {@link DecimalType} with the same decimal representation
+	 * as the value had in the string of the calimero translator.
+	 * 
+	 * @param value the float value
+	 * @return the value as a {@link DecimalType} or <code>null</code>, if the value is not a number
+	 */
+	static private DecimalType toDecimalType(float value) {
+		if(Float.isNaN(value) || Float.isInfinite(value)) {
+			return null;
+		}
+		return new DecimalType(Float.toString(value));
+	}
+	
+	/**
+	 * Returns the main number of a datapoint type id, e.g. 9 for "9.001".
+	 * 
+	 * @param dptId the datapoint type id
+	 * @return the main number or -1, if the id does not start with a number
+	 */
+	static private int getMainNumber(String dptId) {
+		int mainNumber = 0;
+		for(int i = 0; i < dptId.length(); i++) {
+			char c = dptId.charAt(i);
+			if(c=='.') {
+				return i > 0 ? mainNumber : -1;
+			}
+			if(c < '0' || c > '9') {
+				return -1;
+			}
+			mainNumber = mainNumber * 10 + (c - '0');
+		}
+		return -1;
+	}
+	
 	/**
 	 * Converts a datapoint type id into an openHAB type class
 	 * 
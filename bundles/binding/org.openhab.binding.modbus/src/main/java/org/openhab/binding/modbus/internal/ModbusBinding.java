@@ -28,12 +28,21 @@
  */
 package org.openhab.binding.modbus.internal;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -80,11 +89,32 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	/** slaves update interval in milliseconds, defaults to 200ms */
 	public static int pollInterval = 200;
 
+	/** maximum number of connections which are polled at the same time, defaults to 4 */
+	private static int pollThreads = 4;
+
+	/** the items bound to each slave by the slave name, <code>null</code> if it has to be rebuilt */
+	private volatile Map<String, Map<String, ModbusBindingConfig>> slaveItems = null;
+
+	/** the read blocks grouped by the connection they are read from, <code>null</code> if it has to be rebuilt */
+	private volatile List<List<ModbusReadBlock>> pollPlan = null;
+
+	/**
+	 * counts the changes of the bindings and of the configuration, so that an index which has been
+	 * rebuilt while they changed is not published; guarded by {@link #generationLock}
+	 */
+	private volatile int slaveItemsGeneration = 0;
+	private volatile int pollPlanGeneration = 0;
+
+	private final Object generationLock = new Object();
+
+	private ExecutorService executor;
+
 	
 	public void activate() {
 	}
 
 	public void deactivate() {
+		shutdownExecutor();
 	}
 	
 	
@@ -115,57 +145,113 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 
 	/**
 	 * Posts update event to OpenHAB bus for "holding" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
+	 * @param config binding configuration of the item
 	 * @param registers data received from slave device in the last pollInterval
 	 * @param itemName item to update
 	 */
-	protected void internalUpdateItem(String slaveName, InputRegister[] registers,
+	protected void internalUpdateItem(ModbusBindingConfig config, InputRegister[] registers,
 			String itemName) {
-		for (ModbusBindingProvider provider : providers) {
-			if (provider.providesBindingFor(itemName)) {
-				ModbusBindingConfig config = provider.getConfig(itemName);
-				if (config.slaveName.equals(slaveName)) {
-					InputRegister value = registers[config.readRegister];
-					if (config.getItem() instanceof SwitchItem) {
-						if (value.getValue() == 0 && (provider.getConfig(itemName).getItemState() != OnOffType.OFF)) {
-							eventPublisher.postUpdate(itemName, OnOffType.OFF);
-						} else if (value.getValue() != 0 && (provider.getConfig(itemName).getItemState() != OnOffType.ON)) {
-							eventPublisher.postUpdate(itemName, OnOffType.ON);							
-						}
-					} else {
-					DecimalType newState = new DecimalType(value.getValue());
-					if (!newState.equals(provider.getConfig(itemName).getItemState()))
-						eventPublisher.postUpdate(itemName, newState);
-					}
-				}
+		InputRegister value = registers[config.readRegister];
+		if (config.getItem() instanceof SwitchItem) {
+			if (value.getValue() == 0 && (config.getItemState() != OnOffType.OFF)) {
+				eventPublisher.postUpdate(itemName, OnOffType.OFF);
+			} else if (value.getValue() != 0 && (config.getItemState() != OnOffType.ON)) {
+				eventPublisher.postUpdate(itemName, OnOffType.ON);							
 			}
+		} else {
+			DecimalType newState = new DecimalType(value.getValue());
+			if (!newState.equals(config.getItemState()))
+				eventPublisher.postUpdate(itemName, newState);
 		}
 	}
 
 	/**
 	 * Posts update event to OpenHAB bus for "coil" type slaves
-	 * @param binding ModbusBinding to get item configuration from BindingProviding
-	 * @param registers data received from slave device in the last pollInterval
-	 * @param item item to update
+	 * @param config binding configuration of the item
+	 * @param coils data received from slave device in the last pollInterval
+	 * @param itemName item to update
 	 */
-	protected void internalUpdateItem(String slaveName, BitVector coils,
+	protected void internalUpdateItem(ModbusBindingConfig config, BitVector coils,
 			String itemName) {
-		for (ModbusBindingProvider provider : providers) {
-			if (provider.providesBindingFor(itemName)) {
-				ModbusBindingConfig config = provider.getConfig(itemName);
-				if (config.slaveName.equals(slaveName)) {
-					boolean state = coils.getBit(config.readRegister);
-					State currentState = provider.getConfig(itemName).getItemState();
-					State newState = provider.getConfig(itemName).translateBoolean2State(state);
-					if (!newState.equals(currentState)) {
-						eventPublisher.postUpdate(itemName, newState);
+		boolean state = coils.getBit(config.readRegister);
+		State currentState = config.getItemState();
+		State newState = config.translateBoolean2State(state);
+		if (!newState.equals(currentState)) {
+			eventPublisher.postUpdate(itemName, newState);
+		}
+	}
+
+	/**
+	 * Returns the items bound to a slave, together with their binding configuration.
+	 * The index is rebuilt lazily after the bindings changed, and only published if they did not
+	 * change again in the meantime.
+	 * @param slaveName slave name from cfg file
+	 * @return the binding configurations by item name
+	 */
+	Map<String, ModbusBindingConfig> getSlaveItems(String slaveName) {
+		Map<String, Map<String, ModbusBindingConfig>> index = slaveItems;
+		if (index == null) {
+			int generation = slaveItemsGeneration;
+			index = new HashMap<String, Map<String, ModbusBindingConfig>>();
+			for (ModbusBindingProvider provider : providers) {
+				for (String itemName : provider.getItemNames()) {
+					ModbusBindingConfig config = provider.getConfig(itemName);
+					if (config == null) {
+						continue;
+					}
+					Map<String, ModbusBindingConfig> items = index.get(config.slaveName);
+					if (items == null) {
+						items = new LinkedHashMap<String, ModbusBindingConfig>();
+						index.put(config.slaveName, items);
 					}
+					items.put(itemName, config);
+				}
+			}
+			synchronized (generationLock) {
+				if (generation == slaveItemsGeneration) {
+					slaveItems = index;
 				}
 			}
 		}
+		Map<String, ModbusBindingConfig> items = index.get(slaveName);
+		return items != null ? items : Collections.<String, ModbusBindingConfig>emptyMap();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		super.bindingChanged(provider, itemName);
+		invalidateSlaveItems();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		super.allBindingsChanged(provider);
+		invalidateSlaveItems();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void removeBindingProvider(ModbusBindingProvider provider) {
+		super.removeBindingProvider(provider);
+		invalidateSlaveItems();
 	}
 	
 
+	private void invalidateSlaveItems() {
+		synchronized (generationLock) {
+			slaveItemsGeneration++;
+			slaveItems = null;
+		}
+	}
+
 	/**
 	 * Returns names of all the items, registered with this binding
 	 * @return list of item names
@@ -183,16 +269,107 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	
 	
 	/**
-	 * updates all slaves from the modbusSlaves
+	 * updates all slaves from the modbusSlaves. Slaves using different connections
+	 * are polled concurrently, slaves sharing a connection one after another.
 	 */
 	@Override
 	protected void execute() {
-		Collection<ModbusSlave> slaves = new HashSet<ModbusSlave>();
-		synchronized (slaves) {
-			slaves.addAll(modbusSlaves.values());
+		List<List<ModbusReadBlock>> plan = getPollPlan();
+		if (plan.size() <= 1 || pollThreads <= 1) {
+			for (List<ModbusReadBlock> blocks : plan) {
+				update(blocks);
+			}
+			return;
 		}
-		for (ModbusSlave slave : slaves) {
-			slave.update(this);
+
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(plan.size());
+		for (final List<ModbusReadBlock> blocks : plan) {
+			tasks.add(new Callable<Object>() {
+				public Object call() {
+					update(blocks);
+					return null;
+				}
+			});
+		}
+		try {
+			// wait for all connections, so that a slow slave is not polled again before it answered
+			getExecutor().invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void update(List<ModbusReadBlock> blocks) {
+		for (ModbusReadBlock block : blocks) {
+			block.update(this);
+		}
+	}
+
+	/**
+	 * Groups the configured slaves by their connection and merges the slaves of each
+	 * connection into read blocks. The plan is rebuilt lazily after the configuration changed,
+	 * and only published if it did not change again in the meantime.
+	 * @return the read blocks grouped by connection
+	 */
+	private List<List<ModbusReadBlock>> getPollPlan() {
+		List<List<ModbusReadBlock>> plan = pollPlan;
+		if (plan == null) {
+			int generation = pollPlanGeneration;
+			Map<String, List<ModbusSlave>> connections = new LinkedHashMap<String, List<ModbusSlave>>();
+			for (ModbusSlave slave : modbusSlaves.values()) {
+				List<ModbusSlave> slaves = connections.get(slave.getConnectionKey());
+				if (slaves == null) {
+					slaves = new ArrayList<ModbusSlave>();
+					connections.put(slave.getConnectionKey(), slaves);
+				}
+				slaves.add(slave);
+			}
+			plan = new ArrayList<List<ModbusReadBlock>>(connections.size());
+			for (Map.Entry<String, List<ModbusSlave>> connection : connections.entrySet()) {
+				List<ModbusReadBlock> blocks = ModbusReadBlock.createBlocks(connection.getValue());
+				plan.add(blocks);
+				for (ModbusReadBlock block : blocks) {
+					if (block.getSlaves().size() > 1) {
+						logger.debug("Reading {} slaves of connection '{}' with a single request [start={}, length={}]",
+							new Object[] { block.getSlaves().size(), connection.getKey(), block.getStart(), block.getLength() });
+					}
+				}
+			}
+			synchronized (generationLock) {
+				if (generation == pollPlanGeneration) {
+					pollPlan = plan;
+				}
+			}
+		}
+		return plan;
+	}
+
+	private void invalidatePollPlan() {
+		synchronized (generationLock) {
+			pollPlanGeneration++;
+			pollPlan = null;
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newFixedThreadPool(pollThreads, new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "Modbus poller #" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	private synchronized void shutdownExecutor() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
 		}
 	}
 	
@@ -201,6 +378,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 	public void updated(Dictionary<String, ?> config) throws ConfigurationException {
 		// remove all known items if configuration changed
 		modbusSlaves.clear();
+		invalidatePollPlan();
 
 		if (config != null) {
 			Enumeration<String> keys = config.keys();
@@ -219,6 +397,12 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 						if (StringUtils.isNotBlank((String) config.get(key))) {
 							pollInterval = Integer.valueOf((String) config.get(key));
 						}
+					} else if ("pollthreads".equals(key)) {
+						if (StringUtils.isNotBlank((String) config.get(key))) {
+							pollThreads = Integer.valueOf((String) config.get(key));
+							// the pool is recreated with the new size on the next poll
+							shutdownExecutor();
+						}
 					} else if ("writemultipleregisters".equals(key)) {
 						ModbusSlave.setWriteMultipleRegisters(Boolean.valueOf(config.get(key).toString()));
 					} else {
@@ -283,6 +467,7 @@ public class ModbusBinding extends AbstractActiveBinding<ModbusBindingProvider>
 			for (ModbusSlave slave : modbusSlaves.values()) {
 				slave.connect();
 			}
+			invalidatePollPlan();
 
 			setProperlyConfigured(true);
 		}
@@ -0,0 +1,213 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.wimpi.modbus.procimg.InputRegister;
+import net.wimpi.modbus.util.BitVector;
+
+import org.openhab.binding.modbus.ModbusBindingProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A range of data which is read from a Modbus device with a single request. Slaves which
+ * share a connection, have the same unit id and type and whose ranges are adjacent or 
+ * overlap are merged into one block, as long as the block does not exceed the number of
+ * coils or registers a single request can read. The data read for the block is then 
+ * split up between its slaves.
+ *
+ * @since 1.4.0
+ */
+public class ModbusReadBlock {
+
+	private static final Logger logger = LoggerFactory.getLogger(ModbusReadBlock.class);
+
+	/** the maximum number of registers a single request can read (FC03, FC04) */
+	static final int MAX_REGISTERS = 125;
+
+	/** the maximum number of coils or discrete inputs a single request can read (FC01, FC02) */
+	static final int MAX_BITS = 2000;
+
+	private final List<ModbusSlave> slaves = new ArrayList<ModbusSlave>();
+
+	private final String type;
+	private final int id;
+	private final int start;
+	private int end;
+
+	ModbusReadBlock(ModbusSlave slave) {
+		this.slaves.add(slave);
+		this.type = slave.getType();
+		this.id = slave.getId();
+		this.start = slave.getStart();
+		this.end = slave.getStart() + slave.getLength();
+	}
+
+	/**
+	 * Merges the given slaves into read blocks. The slaves must share a connection.
+	 * 
+	 * @param slaves the slaves to merge
+	 * @return the read blocks, which together read the data of all slaves
+	 */
+	static List<ModbusReadBlock> createBlocks(Collection<ModbusSlave> slaves) {
+		List<ModbusSlave> sorted = new ArrayList<ModbusSlave>(slaves);
+		Collections.sort(sorted, new Comparator<ModbusSlave>() {
+			public int compare(ModbusSlave s1, ModbusSlave s2) {
+				int result = String.valueOf(s1.getType()).compareTo(String.valueOf(s2.getType()));
+				if (result == 0) {
+					result = s1.getId() - s2.getId();
+				}
+				if (result == 0) {
+					result = s1.getStart() - s2.getStart();
+				}
+				return result;
+			}
+		});
+
+		List<ModbusReadBlock> blocks = new ArrayList<ModbusReadBlock>();
+		ModbusReadBlock block = null;
+		for (ModbusSlave slave : sorted) {
+			if (block == null || !block.merge(slave)) {
+				block = new ModbusReadBlock(slave);
+				blocks.add(block);
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Adds the given slave to this block, if its range is adjacent to or overlaps the range
+	 * of this block and the merged range can still be read with a single request.
+	 * 
+	 * @param slave the slave to add
+	 * @return true, if the slave has been added
+	 */
+	boolean merge(ModbusSlave slave) {
+		if (type == null || !type.equals(slave.getType()) || id != slave.getId()) {
+			return false;
+		}
+		if (slave.getStart() < start || slave.getStart() > end) {
+			return false;
+		}
+		int mergedEnd = Math.max(end, slave.getStart() + slave.getLength());
+		if (mergedEnd - start > getMaxLength()) {
+			return false;
+		}
+		slaves.add(slave);
+		end = mergedEnd;
+		return true;
+	}
+
+	/**
+	 * Reads the data of this block and updates the items of all its slaves.
+	 * 
+	 * @param binding the binding to update the items with
+	 */
+	void update(ModbusBinding binding) {
+		ModbusSlave first = slaves.get(0);
+		if (slaves.size() == 1) {
+			first.update(binding);
+			return;
+		}
+
+		if (!first.connect()) {
+			first.resetConnection();
+			logger.info("ModbusSlave not connected");
+			return;
+		}
+
+		try {
+			Object data = first.read(start, end - start);
+			for (ModbusSlave slave : slaves) {
+				slave.setStorage(slice(data, slave.getStart() - start, slave.getLength()));
+				slave.updateItems(binding);
+			}
+		} catch (Exception e) {
+			first.resetConnection();
+			logger.info("ModbusSlave error getting responce from slaves {}", getSlaveNames());
+		}
+	}
+
+	/**
+	 * @return the slaves whose data is read by this block
+	 */
+	List<ModbusSlave> getSlaves() {
+		return slaves;
+	}
+
+	int getStart() {
+		return start;
+	}
+
+	int getLength() {
+		return end - start;
+	}
+
+	private int getMaxLength() {
+		if (ModbusBindingProvider.TYPE_COIL.equals(type) || ModbusBindingProvider.TYPE_DISCRETE.equals(type)) {
+			return MAX_BITS;
+		}
+		return MAX_REGISTERS;
+	}
+
+	private String getSlaveNames() {
+		List<String> names = new ArrayList<String>(slaves.size());
+		for (ModbusSlave slave : slaves) {
+			names.add(slave.getName());
+		}
+		return names.toString();
+	}
+
+	/**
+	 * Copies the part of the data which belongs to a single slave.
+	 */
+	private static Object slice(Object data, int offset, int length) {
+		if (data instanceof BitVector) {
+			BitVector bits = (BitVector) data;
+			BitVector result = new BitVector(length);
+			for (int i = 0; i < length; i++) {
+				result.setBit(i, bits.getBit(offset + i));
+			}
+			return result;
+		}
+		if (data instanceof InputRegister[]) {
+			InputRegister[] result = new InputRegister[length];
+			System.arraycopy((InputRegister[]) data, offset, result, 0, length);
+			return result;
+		}
+		return data;
+	}
+
+}
@@ -53,6 +53,8 @@ public class ModbusSerialSlave extends ModbusSlave {
 
 	private static final Logger logger = LoggerFactory.getLogger(ModbusSerialSlave.class);
 
+	private static final String SERIAL_KEY = "serial";
+
 	private static String port = null;
 	private static int baud = 9600;
 	public void setPort(String port) {
@@ -123,4 +125,12 @@ public class ModbusSerialSlave extends ModbusSlave {
 		connection = null;
 	}
 
+	/**
+	 * All serial slaves share a single connection
+	 */
+	@Override
+	String getConnectionKey() {
+		return SERIAL_KEY;
+	}
+
 }
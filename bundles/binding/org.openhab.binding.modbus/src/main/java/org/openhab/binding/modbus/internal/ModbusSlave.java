@@ -28,7 +28,7 @@
  */
 package org.openhab.binding.modbus.internal;
 
-import java.util.Collection;
+import java.util.Map;
 
 import net.wimpi.modbus.io.ModbusTransaction;
 import net.wimpi.modbus.msg.ModbusRequest;
@@ -49,6 +49,7 @@ import net.wimpi.modbus.procimg.Register;
 import net.wimpi.modbus.util.BitVector;
 
 import org.openhab.binding.modbus.ModbusBindingProvider;
+import org.openhab.binding.modbus.internal.ModbusGenericBindingProvider.ModbusBindingConfig;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.IncreaseDecreaseType;
 import org.openhab.core.library.types.OnOffType;
@@ -264,47 +265,71 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 		}
 		
 		try {
+			setStorage(read(getStart(), getLength()));
+			updateItems(binding);
+		} catch (Exception e) {
+			resetConnection();
+			logger.info("ModbusSlave error getting responce from slave");
+		}
 
-		Object local = null;
+	}
 
+	/**
+	 * Reads a range of data of this slave's type from the connected device
+	 * 
+	 * @param start reference of the first coil or register to read
+	 * @param length number of coils or registers to read
+	 * @return the coils as {@link BitVector} or the registers as {@link InputRegister} array
+	 */
+	Object read(int start, int length) {
+		Object local = null;
 
-			if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
-				ModbusRequest request = new ReadCoilsRequest(getStart(), getLength());
-				if (this instanceof ModbusSerialSlave) {
-					request.setHeadless();
-				}
-				request.setUnitID(id);
-				ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
-				local = responce.getCoils();
-			} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-				ModbusRequest request = new ReadInputDiscretesRequest(getStart(), getLength());
-				ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
-				local = responce.getDiscretes();
-			} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
-				ModbusRequest request = new ReadMultipleRegistersRequest(getStart(), getLength());
-				ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
-				local = responce.getRegisters();
-			} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-				ModbusRequest request = new ReadInputRegistersRequest(getStart(), getLength());
-				ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
-				local = responce.getRegisters();
+		if (ModbusBindingProvider.TYPE_COIL.equals(getType())) {
+			ModbusRequest request = new ReadCoilsRequest(start, length);
+			if (this instanceof ModbusSerialSlave) {
+				request.setHeadless();
 			}
-			if (storage == null) 
+			request.setUnitID(id);
+			ReadCoilsResponse responce = (ReadCoilsResponse) getModbusData(request);
+			local = responce.getCoils();
+		} else if (ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
+			ModbusRequest request = new ReadInputDiscretesRequest(start, length);
+			ReadInputDiscretesResponse responce = (ReadInputDiscretesResponse) getModbusData(request);
+			local = responce.getDiscretes();
+		} else if (ModbusBindingProvider.TYPE_HOLDING.equals(getType())) {
+			ModbusRequest request = new ReadMultipleRegistersRequest(start, length);
+			ReadMultipleRegistersResponse responce = (ReadMultipleRegistersResponse) getModbusData(request);
+			local = responce.getRegisters();
+		} else if (ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
+			ModbusRequest request = new ReadInputRegistersRequest(start, length);
+			ReadInputRegistersResponse responce = (ReadInputRegistersResponse) getModbusData(request);
+			local = responce.getRegisters();
+		}
+		return local;
+	}
+
+	/**
+	 * Replaces the data last read from the device
+	 * @param local the new data
+	 */
+	void setStorage(Object local) {
+		if (storage == null) 
+			storage = local;
+		else {
+			synchronized(storage) {
 				storage = local;
-			else {
-				synchronized(storage) {
-					storage = local;
-				}
 			}
-			Collection<String> items = binding.getItemNames();
-			for (String item : items) {
-				updateItem(binding, item);
-			}
-		} catch (Exception e) {
-			resetConnection();
-			logger.info("ModbusSlave error getting responce from slave");
 		}
+	}
 
+	/**
+	 * Updates all OpenHAB items bound to this slave with the data last read from the device
+	 * @param binding ModbusBinding
+	 */
+	void updateItems(ModbusBinding binding) {
+		for (Map.Entry<String, ModbusBindingConfig> item : binding.getSlaveItems(name).entrySet()) {
+			updateItem(binding, item.getKey(), item.getValue());
+		}
 	}
 
 	/**
@@ -312,13 +337,14 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 	 * works only for type "coil" and "holding"
 	 * @param binding ModbusBinding
 	 * @param item item to update
+	 * @param config binding configuration of the item
 	 */
-	private void updateItem(ModbusBinding binding, String item) {
+	private void updateItem(ModbusBinding binding, String item, ModbusBindingConfig config) {
 		if (ModbusBindingProvider.TYPE_COIL.equals(getType()) || ModbusBindingProvider.TYPE_DISCRETE.equals(getType())) {
-			binding.internalUpdateItem(name, (BitVector)storage,	item);
+			binding.internalUpdateItem(config, (BitVector)storage,	item);
 		}
 		if (ModbusBindingProvider.TYPE_HOLDING.equals(getType()) || ModbusBindingProvider.TYPE_INPUT.equals(getType())) {
-			binding.internalUpdateItem(name, (InputRegister[])storage, item);
+			binding.internalUpdateItem(config, (InputRegister[])storage, item);
 		}
 	}
 
@@ -374,6 +400,12 @@ public abstract class ModbusSlave implements ModbusSlaveConnection {
 		return type;
 	}
 
+	/**
+	 * @return identifies the connection used by this slave, slaves with the same
+	 * key share the connection and must not be polled concurrently
+	 */
+	abstract String getConnectionKey();
+
 	void setType(String type) {
 		this.type = type;
 	}
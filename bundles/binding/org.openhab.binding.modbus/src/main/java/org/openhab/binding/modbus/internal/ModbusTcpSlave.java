@@ -48,6 +48,8 @@ public class ModbusTcpSlave extends ModbusSlave {
 
 	private static final Logger logger = LoggerFactory.getLogger(ModbusTcpSlave.class);
 
+	private static final String TCP_KEY_PREFIX = "tcp:";
+
 	/** host address */
 	private String host;
 
@@ -117,4 +119,9 @@ public class ModbusTcpSlave extends ModbusSlave {
 		this.port = port;
 	}
 
+	@Override
+	String getConnectionKey() {
+		return TCP_KEY_PREFIX + getHost() + ":" + getPort();
+	}
+
 }
@@ -29,6 +29,7 @@
 package org.openhab.binding.networkhealth;
 
 import org.openhab.core.binding.BindingProvider;
+import org.openhab.core.items.Item;
 
 
 
@@ -59,4 +60,15 @@ public interface NetworkHealthBindingProvider extends BindingProvider {
 	 */
 	public int getTimeout(String itemName);
 	
+	/**
+	 * @return the corresponding refresh interval of the given <code>itemName</code>,
+	 * 0 if the default refresh interval should be used
+	 */
+	public long getRefreshInterval(String itemName);
+	
+	/**
+	 * @return the type of the item with the given <code>itemName</code>
+	 */
+	public Class<? extends Item> getItemType(String itemName);
+	
 }
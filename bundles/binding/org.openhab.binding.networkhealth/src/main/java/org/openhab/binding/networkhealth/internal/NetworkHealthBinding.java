@@ -28,14 +28,20 @@
  */
 package org.openhab.binding.networkhealth.internal;
 
-import java.io.IOException;
-import java.net.SocketTimeoutException;
 import java.util.Dictionary;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.binding.networkhealth.NetworkHealthBindingProvider;
+import org.openhab.binding.networkhealth.internal.NetworkHealthProber.Probe;
 import org.openhab.core.binding.AbstractActiveBinding;
+import org.openhab.core.binding.BindingProvider;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
-import org.openhab.io.net.actions.Ping;
+import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -45,7 +51,11 @@ import org.slf4j.LoggerFactory;
 /**
  * The RefreshService polls all configured hostnames with a configurable 
  * interval and post all values to the internal event bus. The interval is 1 
- * minute by default and can be changed via openhab.cfg. 
+ * minute by default and can be changed via openhab.cfg or for single items
+ * in their binding configuration. All hosts which are due are checked
+ * concurrently by a {@link NetworkHealthProber}. Switch and String items are
+ * only updated if the vitality of their host changed, Number items receive the
+ * round trip time in milliseconds.
  * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
@@ -55,12 +65,23 @@ public class NetworkHealthBinding extends AbstractActiveBinding<NetworkHealthBin
 
 	private static final Logger logger = LoggerFactory.getLogger(NetworkHealthBinding.class);
 	
-	/** the port to use for connecting to a given host (defaults to 5000) */
+	/** the interval in milliseconds to look for hosts which are due for a check */
+	private static final long GRANULARITY = 1000;
+	
+	/** the default timeout to use for connecting to a given host (defaults to 5000) */
 	private int timeout = 5000;
 	
-	/** the refresh interval which is used to poll the vitality of the given hosts (defaults to 60000ms) */
+	/** the default refresh interval which is used to poll the vitality of the given hosts (defaults to 60000ms) */
 	private long refreshInterval = 60000;
 	
+	private final NetworkHealthProber prober = new NetworkHealthProber();
+	
+	/** the time of the last check of every item */
+	private final Map<String, Long> lastCheckMap = new ConcurrentHashMap<String, Long>();
+	
+	/** the vitality which has been posted last for every Switch and String item */
+	private final Map<String, Boolean> lastVitalityMap = new ConcurrentHashMap<String, Boolean>();
+	
 	
 	@Override
 	protected String getName() {
@@ -69,7 +90,7 @@ public class NetworkHealthBinding extends AbstractActiveBinding<NetworkHealthBin
 	
 	@Override
 	protected long getRefreshInterval() {
-		return refreshInterval;
+		return Math.min(GRANULARITY, refreshInterval);
 	}
 
 	@Override
@@ -78,36 +99,77 @@ public class NetworkHealthBinding extends AbstractActiveBinding<NetworkHealthBin
 		setProperlyConfigured(true);
 	}
 	
+	@Override
+	public void deactivate() {
+		prober.shutdown();
+		super.deactivate();
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void bindingChanged(BindingProvider provider, String itemName) {
+		lastCheckMap.remove(itemName);
+		lastVitalityMap.remove(itemName);
+		super.bindingChanged(provider, itemName);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void allBindingsChanged(BindingProvider provider) {
+		lastCheckMap.clear();
+		lastVitalityMap.clear();
+		super.allBindingsChanged(provider);
+	}
+	
 	/**
 	 * @{inheritDoc}
 	 */
 	@Override
 	public void execute() {
+		Map<String, Probe> probes = new LinkedHashMap<String, Probe>();
+		Map<String, Class<? extends Item>> itemTypes = new LinkedHashMap<String, Class<? extends Item>>();
+		long now = System.currentTimeMillis();
+		
 		for (NetworkHealthBindingProvider provider : providers) {
 			for (String itemName : provider.getItemNames()) {
-				
-				String hostname = provider.getHostname(itemName);
-				int port = provider.getPort(itemName);
-
-				if (provider.getTimeout(itemName) > 0) {
-					timeout = provider.getTimeout(itemName);
+				long itemRefreshInterval = provider.getRefreshInterval(itemName) > 0 ? 
+						provider.getRefreshInterval(itemName) : refreshInterval;
+				Long lastCheck = lastCheckMap.get(itemName);
+				if (lastCheck != null && now - lastCheck < itemRefreshInterval) {
+					continue;
 				}
+				lastCheckMap.put(itemName, now);
 				
-				boolean success = false;
-				
-				try {
-					success = Ping.checkVitality(hostname, port, timeout);
-
-					logger.debug("established connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
-				} 
-				catch (SocketTimeoutException se) {
-					logger.debug("timed out while connecting to host '{}' port '{}' timeout '{}'", new Object[] {hostname, port, timeout});
-				}
-				catch (IOException ioe) {
-					logger.debug("couldn't establish network connection [host '{}' port '{}' timeout '{}']", new Object[] {hostname, port, timeout});
-				}
-				if(eventPublisher!=null) {
-					eventPublisher.postUpdate(itemName, success ? OnOffType.ON : OnOffType.OFF);
+				int itemTimeout = provider.getTimeout(itemName) > 0 ? provider.getTimeout(itemName) : timeout;
+				probes.put(itemName, new Probe(provider.getHostname(itemName), provider.getPort(itemName), itemTimeout));
+				itemTypes.put(itemName, provider.getItemType(itemName));
+			}
+		}
+		
+		if (probes.isEmpty()) {
+			return;
+		}
+		prober.probe(probes.values());
+		
+		if (eventPublisher == null) {
+			return;
+		}
+		for (Map.Entry<String, Probe> entry : probes.entrySet()) {
+			String itemName = entry.getKey();
+			Probe probe = entry.getValue();
+			Class<? extends Item> itemType = itemTypes.get(itemName);
+			
+			if (itemType != null && NumberItem.class.isAssignableFrom(itemType)) {
+				eventPublisher.postUpdate(itemName, probe.isReachable() ? 
+						new DecimalType(probe.getRoundTripTime()) : UnDefType.UNDEF);
+			} else {
+				Boolean lastVitality = lastVitalityMap.put(itemName, probe.isReachable());
+				if (lastVitality == null || lastVitality.booleanValue() != probe.isReachable()) {
+					eventPublisher.postUpdate(itemName, probe.isReachable() ? OnOffType.ON : OnOffType.OFF);
 				}
 			}
 		}
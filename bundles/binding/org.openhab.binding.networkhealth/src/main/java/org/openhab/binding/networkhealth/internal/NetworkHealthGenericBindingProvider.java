@@ -31,6 +31,7 @@ package org.openhab.binding.networkhealth.internal;
 import org.openhab.binding.networkhealth.NetworkHealthBindingProvider;
 import org.openhab.core.binding.BindingConfig;
 import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.items.StringItem;
 import org.openhab.core.library.items.SwitchItem;
 import org.openhab.model.item.binding.AbstractGenericBindingProvider;
@@ -47,8 +48,11 @@ import org.openhab.model.item.binding.BindingConfigParseException;
  * 	<li><code>{ nh="192.168.1.100" }</code> - which checks if the given host allows connections on port 80 with a default timeout of 5000ms</li>
  * 	<li><code>{ nh="imap.email.com:993" }</code> - which checks if the given host allows connections on port 993 with a default timeout of 5000ms</li>
  * 	<li><code>{ nh="ssh.secureserver.com:22:10000" } -  - which checks if the given host allows connections on port 22 with a timeout of 10000ms</code></li>
+ * 	<li><code>{ nh="192.168.1.100:80:2000:10000" }</code> - which checks if the given host allows connections on port 80 with a timeout of 2000ms every 10000ms</li>
  * </ul>
  * 
+ * <p>For Number items the round trip time in milliseconds is posted instead of the ON/OFF state.</p>
+ * 
  * @author Thomas.Eichstaedt-Engelen
  * @author Kai Kreuzer
  * 
@@ -68,10 +72,10 @@ public class NetworkHealthGenericBindingProvider extends AbstractGenericBindingP
 	 */
 	@Override
 	public void validateItemType(Item item, String bindingConfig) throws BindingConfigParseException {
-		if (!(item instanceof SwitchItem || item instanceof StringItem)) {
+		if (!(item instanceof SwitchItem || item instanceof StringItem || item instanceof NumberItem)) {
 			throw new BindingConfigParseException("item '" + item.getName()
 					+ "' is of type '" + item.getClass().getSimpleName()
-					+ "', only Switch- and StringItems are allowed - please check your *.items configuration");
+					+ "', only Switch-, String- and NumberItems are allowed - please check your *.items configuration");
 		}
 	}
 	
@@ -84,8 +88,8 @@ public class NetworkHealthGenericBindingProvider extends AbstractGenericBindingP
 		super.processBindingConfiguration(context, item, bindingConfig);
 		
 		String[] configParts = bindingConfig.trim().split(":");
-		if (configParts.length > 3) {
-			throw new BindingConfigParseException("NetworkHealth configuration can contain three parts at max");
+		if (configParts.length > 4) {
+			throw new BindingConfigParseException("NetworkHealth configuration can contain four parts at max");
 		}
 		
 		NhBindingConfig config = new NhBindingConfig();
@@ -98,6 +102,10 @@ public class NetworkHealthGenericBindingProvider extends AbstractGenericBindingP
 		if (configParts.length > 2) {
 			config.timeout = Integer.valueOf(configParts[2]);
 		}
+		if (configParts.length > 3) {
+			config.refreshInterval = Long.valueOf(configParts[3]);
+		}
+		config.itemType = item.getClass();
 		addBindingConfig(item, config);
 	}
 	
@@ -124,6 +132,22 @@ public class NetworkHealthGenericBindingProvider extends AbstractGenericBindingP
 		NhBindingConfig config = (NhBindingConfig) bindingConfigs.get(itemName);
 		return config != null ? config.timeout : 0;
 	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getRefreshInterval(String itemName) {
+		NhBindingConfig config = (NhBindingConfig) bindingConfigs.get(itemName);
+		return config != null ? config.refreshInterval : 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Class<? extends Item> getItemType(String itemName) {
+		NhBindingConfig config = (NhBindingConfig) bindingConfigs.get(itemName);
+		return config != null ? config.itemType : null;
+	}
 	
 	
 	/**
@@ -135,6 +159,8 @@ public class NetworkHealthGenericBindingProvider extends AbstractGenericBindingP
 		public String hostname;
 		public int port;
 		public int timeout;
+		public long refreshInterval;
+		public Class<? extends Item> itemType;
 	}
 
 
@@ -0,0 +1,318 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.networkhealth.internal;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.UnresolvedAddressException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Checks the vitality of many hosts concurrently. Probes with a port open non-blocking
+ * TCP connections, which are all awaited by a single {@link Selector}, so that a round of
+ * probes takes as long as its slowest host and not as long as all hosts together.
+ * <p>
+ * Probes without a port use {@link InetAddress#isReachable(int)}, which can only be called
+ * blocking. Each of them runs on a thread of its own, taken from a pool which grows with the
+ * number of such probes, so that no probe has to wait for another one to finish.
+ *
+ * @since 1.4.0
+ */
+public class NetworkHealthProber {
+
+	private static final Logger logger = LoggerFactory.getLogger(NetworkHealthProber.class);
+
+	private ExecutorService executor;
+
+	/**
+	 * Checks all given probes concurrently and returns as soon as every probe either
+	 * succeeded, failed or exceeded its timeout.
+	 *
+	 * @param probes the probes to check
+	 */
+	public void probe(Collection<Probe> probes) {
+		List<Probe> tcpProbes = new ArrayList<Probe>();
+		List<Future<Long>> reachabilityChecks = new ArrayList<Future<Long>>();
+		List<Probe> reachabilityProbes = new ArrayList<Probe>();
+
+		for (final Probe probe : probes) {
+			probe.reachable = false;
+			probe.roundTripTime = -1;
+			probe.started = System.nanoTime();
+			if (probe.port == 0) {
+				reachabilityProbes.add(probe);
+				reachabilityChecks.add(getExecutor().submit(new Callable<Long>() {
+					public Long call() throws IOException {
+						// the round trip time only covers the check itself, not the time it was waiting for a thread
+						long started = System.nanoTime();
+						if (InetAddress.getByName(probe.hostname).isReachable(probe.timeout)) {
+							return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+						}
+						return -1L;
+					}
+				}));
+			} else {
+				tcpProbes.add(probe);
+			}
+		}
+
+		if (!tcpProbes.isEmpty()) {
+			probeConnections(tcpProbes);
+		}
+
+		for (int i = 0; i < reachabilityProbes.size(); i++) {
+			Probe probe = reachabilityProbes.get(i);
+			Future<Long> check = reachabilityChecks.get(i);
+			try {
+				long remaining = probe.timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - probe.started);
+				long roundTripTime = check.get(Math.max(1, remaining), TimeUnit.MILLISECONDS);
+				if (roundTripTime >= 0) {
+					probe.succeeded(roundTripTime);
+				} else {
+					logger.debug("host '{}' is not reachable [timeout '{}']", probe.hostname, probe.timeout);
+				}
+			} catch (TimeoutException e) {
+				check.cancel(true);
+				logger.debug("timed out while checking host '{}' [timeout '{}']", probe.hostname, probe.timeout);
+			} catch (ExecutionException e) {
+				logger.debug("couldn't check host '{}': {}", probe.hostname, e.getCause().getMessage());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Opens non-blocking connections for all given probes and waits until all of them
+	 * have been established, refused or timed out.
+	 */
+	private void probeConnections(List<Probe> probes) {
+		Selector selector;
+		try {
+			selector = Selector.open();
+		} catch (IOException e) {
+			logger.error("couldn't open selector to check hosts: {}", e.getMessage());
+			return;
+		}
+
+		try {
+			int pending = 0;
+			for (Probe probe : probes) {
+				SocketChannel channel = null;
+				try {
+					channel = SocketChannel.open();
+					channel.configureBlocking(false);
+					if (channel.connect(new InetSocketAddress(probe.hostname, probe.port))) {
+						probe.succeeded();
+						channel.close();
+					} else {
+						channel.register(selector, SelectionKey.OP_CONNECT, probe);
+						pending++;
+					}
+				} catch (IOException e) {
+					logger.debug("couldn't establish network connection [host '{}' port '{}']: {}",
+							new Object[] { probe.hostname, probe.port, e.getMessage() });
+					close(channel);
+				} catch (UnresolvedAddressException e) {
+					logger.debug("couldn't resolve host '{}'", probe.hostname);
+					close(channel);
+				}
+			}
+
+			while (pending > 0) {
+				long now = System.nanoTime();
+				long wait = Long.MAX_VALUE;
+
+				// close the connections which exceeded their timeout
+				for (SelectionKey key : selector.keys()) {
+					if (!key.isValid()) {
+						continue;
+					}
+					Probe probe = (Probe) key.attachment();
+					long remaining = probe.timeout - TimeUnit.NANOSECONDS.toMillis(now - probe.started);
+					if (remaining <= 0) {
+						logger.debug("timed out while connecting to host '{}' port '{}' timeout '{}'",
+								new Object[] { probe.hostname, probe.port, probe.timeout });
+						key.cancel();
+						close(key.channel());
+						pending--;
+					} else {
+						wait = Math.min(wait, remaining);
+					}
+				}
+				if (pending == 0) {
+					break;
+				}
+
+				selector.select(wait);
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					Probe probe = (Probe) key.attachment();
+					try {
+						if (((SocketChannel) key.channel()).finishConnect()) {
+							probe.succeeded();
+							logger.debug("established connection [host '{}' port '{}' timeout '{}']",
+									new Object[] { probe.hostname, probe.port, probe.timeout });
+						} else {
+							continue;
+						}
+					} catch (IOException e) {
+						logger.debug("couldn't establish network connection [host '{}' port '{}' timeout '{}']",
+								new Object[] { probe.hostname, probe.port, probe.timeout });
+					}
+					key.cancel();
+					close(key.channel());
+					pending--;
+				}
+			}
+		} catch (IOException e) {
+			logger.error("error while checking hosts: {}", e.getMessage());
+		} finally {
+			for (SelectionKey key : selector.keys()) {
+				close(key.channel());
+			}
+			try {
+				selector.close();
+			} catch (IOException e) {
+				logger.debug("couldn't close selector: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static void close(Channel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// nothing we can do about it
+			}
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			// idle threads are kept for a minute, so that they are reused by the next round of probes
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "NetworkHealth prober #" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * Stops the threads which check hosts without a port.
+	 */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+
+	/**
+	 * A single host to check, together with the result of the last check.
+	 */
+	public static class Probe {
+
+		final String hostname;
+		final int port;
+		final int timeout;
+
+		long started;
+		boolean reachable;
+		long roundTripTime;
+
+		/**
+		 * @param hostname the host to check
+		 * @param port the port to connect to, 0 to check the reachability of the host
+		 * @param timeout the timeout in milliseconds
+		 */
+		public Probe(String hostname, int port, int timeout) {
+			this.hostname = hostname;
+			this.port = port;
+			this.timeout = timeout;
+		}
+
+		void succeeded() {
+			succeeded(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+		}
+
+		void succeeded(long roundTripTime) {
+			reachable = true;
+			this.roundTripTime = roundTripTime;
+		}
+
+		/**
+		 * @return true, if the host was reachable during the last check
+		 */
+		public boolean isReachable() {
+			return reachable;
+		}
+
+		/**
+		 * @return the time in milliseconds it took to reach the host during the last check,
+		 * -1 if it was not reachable
+		 */
+		public long getRoundTripTime() {
+			return roundTripTime;
+		}
+	}
+
+}
@@ -29,8 +29,11 @@
 package org.openhab.binding.snmp.internal;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
@@ -97,6 +100,13 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 	private static int timeout = 1500;
 	private static int retries = 0;
 
+	/** The SNMP version to talk to the agents with */
+	private static int version = SnmpConstants.version1;
+
+	private static final int DEFAULT_MAX_VARBINDS = 20;
+	/** The maximum number of OIDs which are requested from an agent with a single GET request */
+	private static int maxVarBinds = DEFAULT_MAX_VARBINDS;
+
 	/**
 	 * the interval to find new refresh candidates (defaults to 1000
 	 * milliseconds)
@@ -225,7 +235,67 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 	 */
 	@Override
 	public void onResponse(ResponseEvent event) {
-		dispatchPdu(event.getPeerAddress(), event.getResponse());
+		// asynchronous requests have to be cancelled explicitly, otherwise snmp4j keeps them forever
+		((Snmp) event.getSource()).cancel(event.getRequest(), this);
+		
+		if (event.getUserObject() instanceof GetRequest) {
+			dispatchGetResponse((GetRequest) event.getUserObject(), event.getResponse());
+		} else {
+			dispatchPdu(event.getPeerAddress(), event.getResponse());
+		}
+	}
+
+	/**
+	 * Updates the items of the given GET request with the variables of its response. If the
+	 * agent could not answer the request as a whole, the request is split up and sent again.
+	 */
+	private void dispatchGetResponse(GetRequest request, PDU pdu) {
+		if (pdu == null) {
+			logger.debug("SNMP GET request to '{}' timed out", request.address);
+			return;
+		}
+		logger.debug("Received PDU from '{}' '{}'", request.address, pdu);
+		
+		if (pdu.getErrorStatus() == PDU.tooBig && request.items.size() > 1) {
+			// the response would not fit into a single PDU, so we ask for both halves separately
+			List<OID> oids = new ArrayList<OID>(request.items.keySet());
+			int half = oids.size() / 2;
+			sendGetRequest(request.subRequest(oids.subList(0, half)));
+			sendGetRequest(request.subRequest(oids.subList(half, oids.size())));
+			return;
+		}
+		if (pdu.getErrorStatus() == PDU.noSuchName && pdu.getErrorIndex() > 0 
+				&& pdu.getErrorIndex() <= request.items.size()) {
+			// SNMPv1 agents reject the whole request if a single OID is unknown, 
+			// so we send it again without this OID
+			List<OID> oids = new ArrayList<OID>(request.items.keySet());
+			OID unknownOid = oids.remove(pdu.getErrorIndex() - 1);
+			logger.debug("Agent '{}' does not know OID '{}'", request.address, unknownOid);
+			if (!oids.isEmpty()) {
+				sendGetRequest(request.subRequest(oids));
+			}
+			return;
+		}
+		if (pdu.getErrorStatus() != PDU.noError) {
+			logger.debug("SNMP GET request to '{}' failed: {}", request.address, pdu.getErrorStatusText());
+			return;
+		}
+		
+		for (VariableBinding variableBinding : pdu.getVariableBindings()) {
+			List<ItemReference> items = request.items.get(variableBinding.getOid());
+			if (items == null) {
+				continue;
+			}
+			Variable variable = variableBinding.getVariable();
+			if (variable == null || variable.isException()) {
+				logger.debug("Agent '{}' returned no value for OID '{}': {}", 
+						new Object[] { request.address, variableBinding.getOid(), variable });
+				continue;
+			}
+			for (ItemReference item : items) {
+				updateItem(item.provider, item.itemName, variable);
+			}
+		}
 	}
 
 	private void dispatchPdu(Address address, PDU pdu) {
@@ -242,33 +312,7 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 					OID oid = provider.getOID(itemName);
 					Variable variable = pdu.getVariable(oid);
 					if (variable != null) {
-						Class<? extends Item> itemType = provider.getItemType(itemName);
-
-						// Do any transformations
-						String value = variable.toString();
-						try {
-							value = provider.doTransformation(itemName, value);
-						} catch (TransformationException e) {
-							logger.error("Transformation error with item {}: {}", itemName, e);
-						}
-
-						// Change to a state
-						State state = null;
-						if (itemType.isAssignableFrom(StringItem.class)) {
-							state = StringType.valueOf(value);
-						} else if (itemType.isAssignableFrom(NumberItem.class)) {
-							state = DecimalType.valueOf(value);
-						} else if (itemType.isAssignableFrom(SwitchItem.class)) {
-							state = OnOffType.valueOf(value);
-						}
-
-						if (state != null) {
-							eventPublisher.postUpdate(itemName, state);
-						} else {
-							logger.debug(
-									"'{}' couldn't be parsed to a State. Valid State-Types are String and Number",
-									variable.toString());
-						}
+						updateItem(provider, itemName, variable);
 					} else {
 						logger.trace("PDU doesn't contain a variable with OID ‘{}‘", oid.toString());
 					}
@@ -277,6 +321,39 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 		}
 	}
 
+	/**
+	 * Transforms the given variable and posts it as a new state of the given item.
+	 */
+	private void updateItem(SnmpBindingProvider provider, String itemName, Variable variable) {
+		Class<? extends Item> itemType = provider.getItemType(itemName);
+
+		// Do any transformations
+		String value = variable.toString();
+		try {
+			value = provider.doTransformation(itemName, value);
+		} catch (TransformationException e) {
+			logger.error("Transformation error with item {}: {}", itemName, e);
+		}
+
+		// Change to a state
+		State state = null;
+		if (itemType.isAssignableFrom(StringItem.class)) {
+			state = StringType.valueOf(value);
+		} else if (itemType.isAssignableFrom(NumberItem.class)) {
+			state = DecimalType.valueOf(value);
+		} else if (itemType.isAssignableFrom(SwitchItem.class)) {
+			state = OnOffType.valueOf(value);
+		}
+
+		if (state != null) {
+			eventPublisher.postUpdate(itemName, state);
+		} else {
+			logger.debug(
+					"'{}' couldn't be parsed to a State. Valid State-Types are String and Number",
+					variable.toString());
+		}
+	}
+
 	/**
 	 * @{inheritDoc
 	 */
@@ -307,7 +384,7 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 			target.setAddress(providerCmd.getAddress(itemName, command));
 			target.setRetries(retries);
 			target.setTimeout(timeout);
-			target.setVersion(SnmpConstants.version1);
+			target.setVersion(version);
 
 		Variable var = providerCmd.getValue(itemName, command);
 		OID oid = providerCmd.getOID(itemName, command);
@@ -334,6 +411,9 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 	 */
 	@Override
 	public void execute() {
+		// the OIDs to refresh, grouped by the agent they are requested from
+		Map<String, GetRequest> requests = new LinkedHashMap<String, GetRequest>();
+		
 		for (SnmpBindingProvider provider : providers) {
 			for (String itemName : provider.getInBindingItemNames()) {
 				int refreshInterval = provider.getRefreshInterval(itemName);
@@ -354,32 +434,69 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 				if (needsUpdate) {
 					logger.debug("Item '{}' is about to be refreshed", itemName);
 
-					// Set up the target
-					CommunityTarget target = new CommunityTarget();
-						target.setCommunity(provider.getCommunity(itemName));
-						target.setAddress(provider.getAddress(itemName));
-						target.setRetries(retries);
-						target.setTimeout(timeout);
-						target.setVersion(SnmpConstants.version1);
-
-					// Create the PDU
-					PDU pdu = new PDU();
-						pdu.add(new VariableBinding(provider.getOID(itemName)));
-						pdu.setType(PDU.GET);
-
-					logger.debug("SNMP: Send PDU {} {}", provider.getAddress(itemName), pdu);
-
-					if (snmp == null) {
-						logger.error("SNMP: snmp not initialised - aborting request");
-					} else {
-						sendPDU(target, pdu);
+					Address address = provider.getAddress(itemName);
+					OctetString community = provider.getCommunity(itemName);
+					String key = address + "|" + community;
+					GetRequest request = requests.get(key);
+					if (request == null) {
+						request = new GetRequest(address, community);
+						requests.put(key, request);
 					}
+					request.add(provider.getOID(itemName), provider, itemName);
 
 					lastUpdateMap.put(itemName, System.currentTimeMillis());
 				}
 			}
 		}
 
+		if (requests.isEmpty()) {
+			return;
+		}
+		if (snmp == null) {
+			logger.error("SNMP: snmp not initialised - aborting request");
+			return;
+		}
+		for (GetRequest request : requests.values()) {
+			// split the OIDs of an agent into requests of at most maxVarBinds OIDs
+			List<OID> oids = new ArrayList<OID>(request.items.keySet());
+			if (oids.size() <= maxVarBinds) {
+				sendGetRequest(request);
+			} else {
+				for (int i = 0; i < oids.size(); i += maxVarBinds) {
+					sendGetRequest(request.subRequest(oids.subList(i, Math.min(i + maxVarBinds, oids.size()))));
+				}
+			}
+		}
+	}
+
+	private void sendGetRequest(GetRequest request) {
+		// Set up the target
+		CommunityTarget target = new CommunityTarget();
+			target.setCommunity(request.community);
+			target.setAddress(request.address);
+			target.setRetries(retries);
+			target.setTimeout(timeout);
+			target.setVersion(version);
+
+		// Create the PDU
+		PDU pdu = new PDU();
+		for (OID oid : request.items.keySet()) {
+			pdu.add(new VariableBinding(oid));
+		}
+		pdu.setType(PDU.GET);
+
+		logger.debug("SNMP: Send PDU {} {}", request.address, pdu);
+
+		Snmp snmp = this.snmp;
+		if (snmp == null) {
+			logger.error("SNMP: snmp not initialised - aborting request");
+			return;
+		}
+		try {
+			snmp.send(pdu, target, request, this);
+		} catch (IOException e) {
+			logger.error("Error sending PDU", e);
+		}
 	}
 
 	/**
@@ -439,6 +556,23 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 						SnmpBinding.retries);
 			}
 
+			String versionString = (String) config.get("version");
+			if (StringUtils.isBlank(versionString) || "v1".equalsIgnoreCase(versionString)) {
+				SnmpBinding.version = SnmpConstants.version1;
+			} else if ("v2c".equalsIgnoreCase(versionString)) {
+				SnmpBinding.version = SnmpConstants.version2c;
+			} else {
+				throw new ConfigurationException("version", "unknown SNMP version '" + versionString + "'! Known versions are 'v1' and 'v2c'");
+			}
+
+			String maxVarBindsString = (String) config.get("maxvarbinds");
+			if (StringUtils.isNotBlank(maxVarBindsString) && maxVarBindsString.matches("\\d+")
+					&& Integer.parseInt(maxVarBindsString) > 0) {
+				SnmpBinding.maxVarBinds = Integer.parseInt(maxVarBindsString);
+			} else {
+				SnmpBinding.maxVarBinds = DEFAULT_MAX_VARBINDS;
+			}
+
 		}
 
 		for (SnmpBindingProvider provider : providers) {
@@ -460,5 +594,53 @@ public class SnmpBinding extends AbstractActiveBinding<SnmpBindingProvider>
 			logger.error("Error sending PDU", e);
 		}
 	}
+
+
+	/**
+	 * The OIDs which are requested from a single agent with one GET request,
+	 * together with the items which are bound to them.
+	 */
+	private static class GetRequest {
+		
+		final Address address;
+		final OctetString community;
+		final Map<OID, List<ItemReference>> items = new LinkedHashMap<OID, List<ItemReference>>();
+
+		GetRequest(Address address, OctetString community) {
+			this.address = address;
+			this.community = community;
+		}
+
+		void add(OID oid, SnmpBindingProvider provider, String itemName) {
+			List<ItemReference> references = items.get(oid);
+			if (references == null) {
+				references = new ArrayList<ItemReference>(1);
+				items.put(oid, references);
+			}
+			references.add(new ItemReference(provider, itemName));
+		}
+
+		/**
+		 * @return a new request to the same agent for the given subset of OIDs 
+		 */
+		GetRequest subRequest(List<OID> oids) {
+			GetRequest request = new GetRequest(address, community);
+			for (OID oid : oids) {
+				request.items.put(oid, items.get(oid));
+			}
+			return request;
+		}
+	}
+
+	private static class ItemReference {
+		
+		final SnmpBindingProvider provider;
+		final String itemName;
+
+		ItemReference(SnmpBindingProvider provider, String itemName) {
+			this.provider = provider;
+			this.itemName = itemName;
+		}
+	}
 	
 }
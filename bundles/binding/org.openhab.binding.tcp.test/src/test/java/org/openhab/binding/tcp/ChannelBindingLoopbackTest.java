@@ -0,0 +1,392 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.tcp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.binding.BindingChangeListener;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * Measures the message rate and the latency of the TCP and UDP channel bindings against an
+ * echo server on the loopback interface.
+ *
+ * @since 1.4.0
+ */
+public class ChannelBindingLoopbackTest {
+
+	private static final String HOST = "127.0.0.1";
+	private static final String ITEM = "Loopback";
+	private static final Command COMMAND = StringType.valueOf("PING");
+
+	private static final int ROUND_TRIPS = 10000;
+	private static final int MESSAGES = 2000;
+	private static final int WINDOW = 64;
+	private static final int LARGE_MESSAGE_SIZE = 4 * 1024 * 1024;
+
+	private ServerSocket echoServer;
+	private DatagramSocket echoSocket;
+	private TestSocketBinding socketBinding;
+	private TestDatagramBinding datagramBinding;
+
+	@After
+	public void tearDown() throws IOException {
+		if (socketBinding != null) {
+			socketBinding.deactivate();
+		}
+		if (datagramBinding != null) {
+			datagramBinding.deactivate();
+		}
+		if (echoServer != null) {
+			echoServer.close();
+		}
+		if (echoSocket != null) {
+			echoSocket.close();
+		}
+	}
+
+	@Test
+	public void measureSocketRoundTrips() throws Exception {
+		AbstractSocketChannelBinding<TestProvider>.Channel channel = connectSocketBinding();
+
+		long[] latencies = new long[ROUND_TRIPS];
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUND_TRIPS; i++) {
+			byte[] message = ("PING " + i).getBytes("ASCII");
+			long sent = System.nanoTime();
+			ByteBuffer response = socketBinding.writeBuffer(ByteBuffer.wrap(message), channel, true, 1000);
+			latencies[i] = System.nanoTime() - sent;
+			assertNotNull("no response to message " + i, response);
+			assertArrayEquals(message, response.array());
+		}
+		report("TCP round trips", start, latencies);
+	}
+
+	@Test
+	public void measureSocketQueuedWrites() throws Exception {
+		AbstractSocketChannelBinding<TestProvider>.Channel channel = connectSocketBinding();
+
+		byte[] message = "PING".getBytes("ASCII");
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			socketBinding.writeBuffer(ByteBuffer.wrap(message), channel, false, 0);
+		}
+		awaitBytes(socketBinding.receivedBytes, MESSAGES * message.length);
+		assertEquals(MESSAGES * message.length, socketBinding.receivedBytes.get());
+		report("TCP queued writes", start, null);
+	}
+
+	@Test
+	public void socketWritesLargerThanTheSocketBufferAreComplete() throws Exception {
+		AbstractSocketChannelBinding<TestProvider>.Channel channel = connectSocketBinding();
+
+		// the socket buffer cannot take these at once, so they are written in several parts
+		byte[] message = new byte[LARGE_MESSAGE_SIZE];
+		Arrays.fill(message, (byte) 'x');
+		socketBinding.writeBuffer(ByteBuffer.wrap(message), channel, false, 0);
+		socketBinding.writeBuffer(ByteBuffer.wrap(message), channel, false, 0);
+		awaitBytes(socketBinding.receivedBytes, 2 * message.length);
+		assertEquals(2 * message.length, socketBinding.receivedBytes.get());
+	}
+
+	@Test
+	public void measureDatagramRoundTrips() throws Exception {
+		AbstractDatagramChannelBinding<TestProvider>.Channel channel = connectDatagramBinding();
+
+		long[] latencies = new long[ROUND_TRIPS];
+		long start = System.nanoTime();
+		for (int i = 0; i < ROUND_TRIPS; i++) {
+			byte[] message = ("PING " + i).getBytes("ASCII");
+			long sent = System.nanoTime();
+			ByteBuffer response = datagramBinding.writeBuffer(ByteBuffer.wrap(message), channel, true, 1000);
+			latencies[i] = System.nanoTime() - sent;
+			assertNotNull("no response to message " + i, response);
+			assertArrayEquals(message, response.array());
+		}
+		report("UDP round trips", start, latencies);
+	}
+
+	@Test
+	public void measureDatagramQueuedWrites() throws Exception {
+		AbstractDatagramChannelBinding<TestProvider>.Channel channel = connectDatagramBinding();
+
+		byte[] message = "PING".getBytes("ASCII");
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++) {
+			// limit the messages in flight, as datagrams would be dropped if the receive buffers overflow
+			awaitBytes(datagramBinding.receivedBytes, (i - WINDOW) * message.length);
+			datagramBinding.writeBuffer(ByteBuffer.wrap(message), channel, false, 0);
+		}
+		awaitBytes(datagramBinding.receivedBytes, MESSAGES * message.length);
+		assertEquals(MESSAGES * message.length, datagramBinding.receivedBytes.get());
+		report("UDP queued writes", start, null);
+	}
+
+	private AbstractSocketChannelBinding<TestProvider>.Channel connectSocketBinding() throws Exception {
+		int port = startSocketEcho();
+		socketBinding = new TestSocketBinding();
+		socketBinding.activate();
+		socketBinding.bindingChanged(new TestProvider(port), ITEM);
+
+		AbstractSocketChannelBinding<TestProvider>.Channel channel =
+				socketBinding.channels.get(ITEM, COMMAND, Direction.OUT, new InetSocketAddress(HOST, port));
+		assertNotNull(channel);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!channel.channel.isConnected() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(channel.channel.isConnected());
+		return channel;
+	}
+
+	private AbstractDatagramChannelBinding<TestProvider>.Channel connectDatagramBinding() throws Exception {
+		int port = startDatagramEcho();
+		datagramBinding = new TestDatagramBinding();
+		datagramBinding.activate();
+		datagramBinding.bindingChanged(new TestProvider(port), ITEM);
+
+		AbstractDatagramChannelBinding<TestProvider>.Channel channel =
+				datagramBinding.channels.get(ITEM, COMMAND, Direction.OUT, new InetSocketAddress(HOST, port));
+		assertNotNull(channel);
+		assertTrue(channel.channel.isConnected());
+		return channel;
+	}
+
+	private int startSocketEcho() throws IOException {
+		echoServer = new ServerSocket(0, 50, InetAddress.getByName(HOST));
+		startDaemon(new Runnable() {
+			public void run() {
+				try {
+					Socket socket = echoServer.accept();
+					InputStream in = socket.getInputStream();
+					OutputStream out = socket.getOutputStream();
+					byte[] buffer = new byte[1024];
+					int length;
+					while ((length = in.read(buffer)) != -1) {
+						out.write(buffer, 0, length);
+						out.flush();
+					}
+				} catch (IOException e) {
+					// the echo server has been closed
+				}
+			}
+		});
+		return echoServer.getLocalPort();
+	}
+
+	private int startDatagramEcho() throws IOException {
+		echoSocket = new DatagramSocket(0, InetAddress.getByName(HOST));
+		startDaemon(new Runnable() {
+			public void run() {
+				try {
+					DatagramPacket packet = new DatagramPacket(new byte[1024], 1024);
+					while (true) {
+						packet.setLength(1024);
+						echoSocket.receive(packet);
+						echoSocket.send(new DatagramPacket(packet.getData(), packet.getLength(), packet.getSocketAddress()));
+					}
+				} catch (IOException e) {
+					// the echo socket has been closed
+				}
+			}
+		});
+		return echoSocket.getLocalPort();
+	}
+
+	private static void startDaemon(Runnable runnable) {
+		Thread thread = new Thread(runnable, "Loopback echo");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private static void awaitBytes(AtomicInteger receivedBytes, int expected) {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (receivedBytes.get() < expected && System.currentTimeMillis() < deadline) {
+			Thread.yield();
+		}
+	}
+
+	/**
+	 * Prints the message rate and, if given, the median and 99th percentile of the latencies.
+	 */
+	private static void report(String name, long start, long[] latencies) {
+		long duration = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		int count = latencies != null ? latencies.length : MESSAGES;
+		String result = name + ": " + count + " messages in " + duration + "ms (" + (count * 1000L / duration) + " msgs/s";
+		if (latencies != null) {
+			long[] sorted = latencies.clone();
+			Arrays.sort(sorted);
+			result += ", p50=" + TimeUnit.NANOSECONDS.toMicros(percentile(sorted, 50)) + "us"
+					+ ", p99=" + TimeUnit.NANOSECONDS.toMicros(percentile(sorted, 99)) + "us";
+		}
+		System.out.println(result + ")");
+	}
+
+	private static long percentile(long[] sorted, int percentile) {
+		int index = (int) Math.ceil(sorted.length * percentile / 100d) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+
+	private static class TestSocketBinding extends AbstractSocketChannelBinding<TestProvider> {
+
+		final AtomicInteger receivedBytes = new AtomicInteger();
+
+		@Override
+		protected void parseBuffer(String itemName, Command aCommand, Direction theDirection, ByteBuffer byteBuffer) {
+			receivedBytes.addAndGet(byteBuffer.remaining());
+		}
+
+		@Override
+		protected void configureChannel(Channel channel) {
+		}
+
+		@Override
+		protected boolean internalReceiveChanneledCommand(String itemName, Command command, Channel reference,
+				String commandAsString) {
+			return false;
+		}
+	}
+
+	private static class TestDatagramBinding extends AbstractDatagramChannelBinding<TestProvider> {
+
+		final AtomicInteger receivedBytes = new AtomicInteger();
+
+		@Override
+		protected void parseBuffer(String itemName, Command aCommand, Direction theDirection, ByteBuffer byteBuffer) {
+			receivedBytes.addAndGet(byteBuffer.remaining());
+		}
+
+		@Override
+		protected void configureChannel(DatagramChannel channel) {
+		}
+
+		@Override
+		protected boolean internalReceiveChanneledCommand(String itemName, Command command, Channel reference,
+				String commandAsString) {
+			return false;
+		}
+	}
+
+	/**
+	 * Binds the loopback item to an outbound channel to the echo server.
+	 */
+	private static class TestProvider implements ChannelBindingProvider {
+
+		private final int port;
+
+		TestProvider(int port) {
+			this.port = port;
+		}
+
+		public void addBindingChangeListener(BindingChangeListener listener) {
+		}
+
+		public void removeBindingChangeListener(BindingChangeListener listener) {
+		}
+
+		public boolean providesBindingFor(String itemName) {
+			return ITEM.equals(itemName);
+		}
+
+		public boolean providesBinding() {
+			return true;
+		}
+
+		public Collection<String> getItemNames() {
+			return Collections.singleton(ITEM);
+		}
+
+		public List<InetSocketAddress> getInetSocketAddresses(String itemName) {
+			return Collections.singletonList(new InetSocketAddress(HOST, port));
+		}
+
+		public InetSocketAddress getInetSocketAddress(String itemName, Command command) {
+			return new InetSocketAddress(HOST, port);
+		}
+
+		public String getHost(String itemName, Command command) {
+			return HOST;
+		}
+
+		public int getPort(String itemName, Command command) {
+			return port;
+		}
+
+		public String getPortAsString(String itemName, Command command) {
+			return Integer.toString(port);
+		}
+
+		public Collection<String> getItemNames(String host, int port) {
+			return Collections.singleton(ITEM);
+		}
+
+		public List<Command> getQualifiedCommands(String itemName, Command command) {
+			return Collections.singletonList(COMMAND);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes(String itemName, Command command) {
+			return null;
+		}
+
+		public List<Command> getAllCommands(String itemName) {
+			return Collections.singletonList(COMMAND);
+		}
+
+		public Direction getDirection(String itemName, Command command) {
+			return Direction.OUT;
+		}
+	}
+
+}
@@ -31,7 +31,9 @@ package org.openhab.binding.tcp;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
@@ -39,10 +41,15 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractBinding;
 import org.openhab.core.binding.BindingProvider;
@@ -58,12 +65,10 @@ import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.quartz.JobListener;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.impl.matchers.KeyMatcher;
 import static org.quartz.DateBuilder.*;
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
@@ -108,8 +113,12 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	protected DatagramChannel listenerChannel = null;
 	protected SelectionKey listenerKey = null;
 
-	// Queue to store BufferElements that need to be written to the network
-	protected  List<WriteBufferElement> writeQueue =  Collections.synchronizedList(new ArrayList<WriteBufferElement>());
+	// BufferElements that need to be written to the network are queued on their Channel. Writers wake up the selector after adding an element
+	// numbers the BufferElements in the order they are queued, so that Channels sharing a DatagramChannel are written in that order
+	private final AtomicLong writeSequence = new AtomicLong();
+
+	// the thread that processes the SelectionKeys of all DatagramChannels
+	private SelectorThread selectorThread;
 
 	// Simple datastructure to track the state of Channels
 	protected ChannelTracker<Channel> channels = new ChannelTracker<Channel>();
@@ -134,6 +143,8 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		public boolean isBlocking;
 		// placeholder to store the received data as the result of a blocking write/read operation
 		public ByteBuffer buffer;
+		// the response of the pending blocking write/read operation, if any
+		public ResponseFuture response;
 		// flag to indicate if the channel is reconnecting / recovering from a previous communication error
 		public boolean isReconnecting;
 		// reference to the underlying Java NIO DatagramChannel that represents this UDP/IP connection
@@ -142,6 +153,8 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		public String host;
 		// remote port number to use. Could be "*" when using masked addresses
 		public String port;
+		// the data that is queued to be written to this channel, in the order it has been queued
+		public Queue<WriteBufferElement> writeQueue = new ConcurrentLinkedQueue<WriteBufferElement>();
 		// the address of the last remote host:ip that this Channel received data from
 		public InetSocketAddress lastRemote;
 
@@ -639,6 +652,44 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 			}
 		}
 
+		/**
+		 * Returns the element that has been queued first on any of the Channels using the given DatagramChannel,
+		 * without removing it from its queue
+		 */
+		public WriteBufferElement peekWriteQueue(DatagramChannel theDatagramChannel) {
+			synchronized(this) {
+				WriteBufferElement firstElement = null;
+				Iterator<C> it = iterator();
+				while(it.hasNext()) {
+					C aChannel = it.next();
+					if(theDatagramChannel.equals(aChannel.channel)) {
+						WriteBufferElement anElement = aChannel.writeQueue.peek();
+						if(anElement != null && (firstElement == null || anElement.sequence < firstElement.sequence)) {
+							firstElement = anElement;
+						}
+					}
+				}
+				return firstElement;
+			}
+		}
+
+		/**
+		 * Returns the DatagramChannels that have data queued on any of their Channels
+		 */
+		public List<DatagramChannel> getAllWithQueuedData() {
+			synchronized(this) {
+				List<DatagramChannel> selectedChannels = new ArrayList<DatagramChannel>();
+				Iterator<C> it = iterator();
+				while(it.hasNext()) {
+					C aChannel = it.next();
+					if(aChannel.channel != null && !aChannel.writeQueue.isEmpty() && !selectedChannels.contains(aChannel.channel)) {
+						selectedChannels.add(aChannel.channel);
+					}
+				}
+				return selectedChannels;
+			}
+		}
+
 		public boolean isBlocking(DatagramChannel theDatagramChannel) {
 			synchronized(this) {
 				Iterator<C> it = iterator();
@@ -679,12 +730,20 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		public Channel channel;
 		public ByteBuffer buffer;
 		public boolean isBlocking;
+		// the response of the remote end, only used for blocking write/read operations
+		public ResponseFuture response;
+		// the position of this element in the order all elements have been queued
+		public long sequence;
 
 		public WriteBufferElement(Channel channel, ByteBuffer buffer, boolean isBlocking) {
 			super();
 			this.channel = channel;
+			this.sequence = writeSequence.getAndIncrement();
 			this.buffer = buffer;
 			this.isBlocking = isBlocking;
+			if(isBlocking) {
+				this.response = new ResponseFuture();
+			}
 		}
 
 		@Override
@@ -720,39 +779,9 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 			logger.error("An exception occurred while registering the selector: {}",e.getMessage());
 		}	
 		
-		// Start the Quartz job
-		Scheduler scheduler = null;
-		try {
-			scheduler = StdSchedulerFactory.getDefaultScheduler();
-		} catch (SchedulerException e1) {
-			logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-		}
-
-		// Start the initial Selector job
-		JobDataMap map = new JobDataMap();
-		map.put("Binding", this);
-
-		JobDetail job = newJob(SelectorJob.class)
-				.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), this.toString())
-				.usingJobData(map)
-				.build();
-
-		Trigger trigger = newTrigger()
-				.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), this.toString())
-				.startNow()             
-				.build();
-
-		try {
-			scheduler.getListenerManager().addJobListener(new SelectorJobListener(), KeyMatcher.keyEquals(job.getKey()));
-		} catch (SchedulerException e1) {
-			logger.error("An exception occurred while getting a Quartz Listener Manager: {}",e1.getMessage());
-		}
-
-		try {
-			scheduler.scheduleJob(job, trigger);
-		} catch (SchedulerException e) {
-			logger.error("An exception occurred while scheduling a finish job with the Quartz Scheduler : {}",e.getMessage());
-		}
+		// Start the thread that processes the selection keys
+		selectorThread = new SelectorThread(this);
+		selectorThread.start();
 
 	}
 
@@ -769,7 +798,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 			synchronized(selector) {
 				selector.wakeup();
 				try {
-					listenerKey = listenerChannel.register(selector, listenerChannel.validOps());
+					listenerKey = listenerChannel.register(selector, SelectionKey.OP_READ);
 				} catch (ClosedChannelException e1) {
 					logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
 				}
@@ -791,6 +820,11 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	 */
 	public void deactivate() {
 
+		if(selectorThread != null) {
+			selectorThread.shutdown();
+			selectorThread = null;
+		}
+
 		try {
 			selector.close();
 		} catch (IOException e) {
@@ -798,7 +832,9 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		}
 
 		try {
-			listenerChannel.close();
+			if(listenerChannel != null) {
+				listenerChannel.close();
+			}
 		} catch (IOException e) {
 			logger.error("An exception occurred while closing the Listener Channel on port number {} ({})",listenerPort,e.getMessage());
 		}
@@ -990,7 +1026,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 								synchronized(selector) {
 									selector.wakeup();
 									try {
-										newDatagramChannel.register(selector, newDatagramChannel.validOps());
+										newDatagramChannel.register(selector, SelectionKey.OP_READ);
 									} catch (ClosedChannelException e1) {
 										logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
 									}
@@ -1270,24 +1306,32 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		if(isBlockingWriteRead) {
 
 			if(theBuffer != null) {
-				writeQueue.add(new WriteBufferElement(theChannel,theBuffer,true));
+				ByteBuffer responseBuffer = null;
 
-				long currentElapsedTimeMillis = System.currentTimeMillis();
+				WriteBufferElement theElement = new WriteBufferElement(theChannel,theBuffer,true);
+				theChannel.writeQueue.add(theElement);
+				selector.wakeup();
 
-				while(theChannel.buffer==null && (System.currentTimeMillis()-currentElapsedTimeMillis)<timeOut ) {
-					try {
-						Thread.sleep(50);
-					} catch (InterruptedException e) {
-						logger.warn("An Exception occurred while waiting waiting during a blocking buffer write");
-					}
+				try {
+					responseBuffer = theElement.response.get(timeOut, TimeUnit.MILLISECONDS);
+				} catch (TimeoutException e) {
+					// do not send the data anymore if it is still queued, as nobody waits for the response
+					theChannel.writeQueue.remove(theElement);
+					logger.debug("The remote end {} did not respond within {} ms",theChannel.remote,timeOut);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					// the response is never completed with an exception
 				}
 
-				ByteBuffer responseBuffer = null;
 				synchronized(this) {
-					responseBuffer = theChannel.buffer;
 					theChannel.buffer = null;
 					theChannel.isBlocking = false;
+					theChannel.response = null;
 				}
+
+				// the channel can be written to again
+				selector.wakeup();
 				return responseBuffer;
 			} else {
 				return theBuffer;
@@ -1296,13 +1340,47 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 		} else {
 
 			if(theBuffer != null) {
-				writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+				theChannel.writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+				selector.wakeup();
 			}
 
 			return theBuffer;
 		}
 	}
 
+	/**
+	 * Sets the interest to write on the SelectionKeys of all DatagramChannels that have data
+	 * queued and are not waiting for the response of a blocking write/read operation. Channels
+	 * without queued data are not selected for writing, as they would always be writable.
+	 * Must only be called by the selector thread.
+	 */
+	private void updateWriteInterest() {
+		for(DatagramChannel theDatagramChannel : channels.getAllWithQueuedData()) {
+			SelectionKey selKey = theDatagramChannel.keyFor(selector);
+			if(selKey != null && selKey.isValid() && (selKey.interestOps() & SelectionKey.OP_WRITE) == 0) {
+				if(theDatagramChannel.isOpen() && !channels.isBlocking(theDatagramChannel)) {
+					try {
+						selKey.interestOps(selKey.interestOps() | SelectionKey.OP_WRITE);
+					} catch (CancelledKeyException e) {
+						// the channel has been closed in the meantime
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the data which has been read into the given buffer into a new heap buffer of
+	 * exactly the received size, so that the given buffer can be reused for the next read.
+	 * The returned buffer is positioned just like the buffer that has been read into.
+	 */
+	private static ByteBuffer copyReceived(ByteBuffer directBuffer) {
+		directBuffer.flip();
+		ByteBuffer readBuffer = ByteBuffer.allocate(directBuffer.remaining());
+		readBuffer.put(directBuffer);
+		return readBuffer;
+	}
+
 
 	/**
 	 * Quartz Job to reconnect a channel
@@ -1358,7 +1436,7 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 							theBinding.selector.wakeup();
 							try {
 								if(theChannel.channel != null) {
-									theChannel.channel.register(theBinding.selector, theChannel.channel.validOps());
+									theChannel.channel.register(theBinding.selector, SelectionKey.OP_READ);
 								}
 							} catch (ClosedChannelException e1) {
 								logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
@@ -1427,393 +1505,381 @@ public abstract class AbstractDatagramChannelBinding<P extends ChannelBindingPro
 	}
 
 	/**
-	 * Quartz Job to process SelectKeys for all DatagramChannels
+	 * Event loop that processes the SelectionKeys of all DatagramChannels. The thread waits in
+	 * select() until a channel is ready or until it is woken up, either by a thread which
+	 * registers a channel or by {@link AbstractDatagramChannelBinding#writeBuffer}, so that queued
+	 * data is written right away.
 	 * 
 	 * @author Karel Goderis
-	 * @since  1.3.0
+	 * @since  1.4.0
 	 *
 	 */
-	public static class SelectorJob implements Job {
+	@SuppressWarnings("rawtypes")
+	public static class SelectorThread extends Thread {
 
-		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private final AbstractDatagramChannelBinding theBinding;
+
+		private volatile boolean running = true;
+
+		public SelectorThread(AbstractDatagramChannelBinding theBinding) {
+			super(theBinding.getClass().getSimpleName() + " selector");
+			this.theBinding = theBinding;
+			setDaemon(true);
+		}
+
+		/**
+		 * Stops the thread after the current select
+		 */
+		public void shutdown() {
+			running = false;
+			theBinding.selector.wakeup();
+		}
+
+		@SuppressWarnings("unchecked")
 		@Override
-		public void execute(JobExecutionContext context)
-				throws JobExecutionException {
+		public void run() {
 
-			JobDataMap dataMap = context.getJobDetail().getJobDataMap();
-			AbstractDatagramChannelBinding theBinding = (AbstractDatagramChannelBinding) dataMap.get("Binding");
+			// the buffer to read from the channels into, reused for all reads of this thread
+			ByteBuffer directBuffer = null;
 
-			boolean jobDone = false;
+			while(running) {
 
-			while(!jobDone) {
+				try {
+
+					// threads registering a channel wake up the selector while holding its lock, so let them go first
+					synchronized(theBinding.selector) {
+					}
+
+					theBinding.updateWriteInterest();
 
-				synchronized(theBinding.selector) {
 					try {
 						// Wait for an event
 						theBinding.selector.select(theBinding.selectTimeOut);
 					} catch (IOException e) {
-						// Handle error with selector
+						logger.error("An exception occurred while selecting the channels: {}",e.getMessage());
 					}
-				}
 
-				// Get list of selection keys with pending events
-				Iterator<SelectionKey> it = theBinding.selector.selectedKeys().iterator();
+					// Get list of selection keys with pending events
+					Iterator<SelectionKey> it = theBinding.selector.selectedKeys().iterator();
 
-				// Process each key at a time
-				while (it.hasNext()) {
-					SelectionKey selKey = (SelectionKey) it.next();
-					it.remove();
+					// Process each key at a time
+					while (it.hasNext()) {
+						SelectionKey selKey = (SelectionKey) it.next();
+						it.remove();
 
-					if (selKey.isValid()) {
-						DatagramChannel theDatagramChannel = (DatagramChannel) selKey.channel();
-						AbstractDatagramChannelBinding.Channel theChannel = theBinding.channels.get(theDatagramChannel);
+						if (selKey.isValid()) {
+							DatagramChannel theDatagramChannel = (DatagramChannel) selKey.channel();
+							AbstractDatagramChannelBinding.Channel theChannel = theBinding.channels.get(theDatagramChannel);
 
-						if (selKey.isReadable()) {
-							InetSocketAddress clientAddress = null;
-							ByteBuffer readBuffer = ByteBuffer.allocate(theBinding.maximumBufferSize);
-							int numberBytesRead = 0;
-							boolean error = false;
-
-							if(selKey == theBinding.listenerKey) {
-								try {
-									clientAddress = (InetSocketAddress) theDatagramChannel.receive(readBuffer);
-									logger.debug("Received {} on the listener port from {}",new String(readBuffer.array()),clientAddress);
-									numberBytesRead = readBuffer.position();
-								} catch (Exception e) {
-									error=true;
+							if (selKey.isReadable()) {
+								InetSocketAddress clientAddress = null;
+								if(directBuffer == null || directBuffer.capacity() != theBinding.maximumBufferSize) {
+									directBuffer = ByteBuffer.allocateDirect(theBinding.maximumBufferSize);
 								}
+								directBuffer.clear();
+								ByteBuffer readBuffer = null;
+								int numberBytesRead = 0;
+								boolean error = false;
 
-							} else {
-
-								try {
-									//TODO: Additional code to split readBuffer in multiple parts, in case the data send by the remote end is not correctly fragemented. Could be handed of to implementation class if for example, the buffer needs to be split based on a special character like line feed or carriage return
-									numberBytesRead = theDatagramChannel.read(readBuffer);
-									logger.debug("Received {} bytes ({}) on the channel {}->{}", new Object[]{numberBytesRead,new String(readBuffer.array()),theDatagramChannel.getLocalAddress(),theDatagramChannel.getRemoteAddress()});
-								} catch (NotYetConnectedException e) {
+								if(selKey == theBinding.listenerKey) {
 									try {
-										logger.warn("The channel for {} has no connection pending ({})",theDatagramChannel.getRemoteAddress(),e.getMessage());
-									} catch (IOException e1) {
-										logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										clientAddress = (InetSocketAddress) theDatagramChannel.receive(directBuffer);
+										readBuffer = copyReceived(directBuffer);
+										logger.debug("Received {} on the listener port from {}",new String(readBuffer.array()),clientAddress);
+										numberBytesRead = readBuffer.position();
+									} catch (Exception e) {
+										error=true;
 									}
-									error=true;
-								} catch (IOException e) {
-									// If some other I/O error occurs
+
+								} else {
+
 									try {
-										logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theDatagramChannel.getRemoteAddress(),e.getMessage());
-									} catch (IOException e1) {
-										logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										//TODO: Additional code to split readBuffer in multiple parts, in case the data send by the remote end is not correctly fragemented. Could be handed of to implementation class if for example, the buffer needs to be split based on a special character like line feed or carriage return
+										numberBytesRead = theDatagramChannel.read(directBuffer);
+										readBuffer = copyReceived(directBuffer);
+										logger.debug("Received {} bytes ({}) on the channel {}->{}", new Object[]{numberBytesRead,new String(readBuffer.array()),theDatagramChannel.getLocalAddress(),theDatagramChannel.getRemoteAddress()});
+									} catch (NotYetConnectedException e) {
+										try {
+											logger.warn("The channel for {} has no connection pending ({})",theDatagramChannel.getRemoteAddress(),e.getMessage());
+										} catch (IOException e1) {
+											logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										}
+										error=true;
+									} catch (IOException e) {
+										// If some other I/O error occurs
+										try {
+											logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theDatagramChannel.getRemoteAddress(),e.getMessage());
+										} catch (IOException e1) {
+											logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										}
+										error=true;
 									}
-									error=true;
 								}
-							}
 
-							if(numberBytesRead == -1) {
-								try {
-									if(selKey != theBinding.listenerKey) {
-										theDatagramChannel.close();
-									}
-								} catch (IOException e) {
+								if(numberBytesRead == -1) {
 									try {
-										logger.warn("The channel for {} is closed ({})",theDatagramChannel.getRemoteAddress(),e.getMessage());
-									} catch (IOException e1) {
-										logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										if(selKey != theBinding.listenerKey) {
+											theDatagramChannel.close();
+										}
+									} catch (IOException e) {
+										try {
+											logger.warn("The channel for {} is closed ({})",theDatagramChannel.getRemoteAddress(),e.getMessage());
+										} catch (IOException e1) {
+											logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e1.getMessage());
+										}
 									}
+									error = true;
 								}
-								error = true;
-							}
 
-							if(error) {
-								if(selKey != theBinding.listenerKey) {
+								if(error) {
+									if(selKey != theBinding.listenerKey) {
 
-									Scheduler scheduler = null;
-									try {
-										scheduler = StdSchedulerFactory.getDefaultScheduler();
-									} catch (SchedulerException e1) {
-										logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-									}
+										Scheduler scheduler = null;
+										try {
+											scheduler = StdSchedulerFactory.getDefaultScheduler();
+										} catch (SchedulerException e1) {
+											logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+										}
 
-									JobDataMap map = new JobDataMap();
-									map.put("Channel", theChannel);
-									map.put("Binding", theBinding);
+										JobDataMap map = new JobDataMap();
+										map.put("Channel", theChannel);
+										map.put("Binding", theBinding);
 
-									JobDetail job = null;
-									Trigger trigger = null;	
+										JobDetail job = null;
+										Trigger trigger = null;	
 
-									job = newJob(ReconnectJob.class)
-											.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-											.usingJobData(map)
-											.build();
+										job = newJob(ReconnectJob.class)
+												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+												.usingJobData(map)
+												.build();
 
-									trigger = newTrigger()
-											.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-											.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
-											.build();
+										trigger = newTrigger()
+												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+												.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
+												.build();
 
-									try {
-										if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-											if(!theChannel.isReconnecting) {
-												theBinding.channels.setAllReconnecting(theDatagramChannel,true);
-												scheduler.scheduleJob(job, trigger);
+										try {
+											if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+												if(!theChannel.isReconnecting) {
+													theBinding.channels.setAllReconnecting(theDatagramChannel,true);
+													scheduler.scheduleJob(job, trigger);
+												}
 											}
-										}
-									} catch (SchedulerException e) {
-										logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
-									}	
-								}
+										} catch (SchedulerException e) {
+											logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+										}	
+									}
 
-							} else {
+								} else {
 
-								ArrayList<AbstractDatagramChannelBinding.Channel> channelsToServe = new ArrayList<AbstractDatagramChannelBinding.Channel>();
+									ArrayList<AbstractDatagramChannelBinding.Channel> channelsToServe = new ArrayList<AbstractDatagramChannelBinding.Channel>();
 
-								if(selKey == theBinding.listenerKey) {
-									channelsToServe = theBinding.channels.getAll(Direction.IN,clientAddress);
-									if(channelsToServe.size()==0) {
-										logger.warn("Received data {} from an undefined remote end {}. We will not process it",new String(readBuffer.array()),clientAddress );
+									if(selKey == theBinding.listenerKey) {
+										channelsToServe = theBinding.channels.getAll(Direction.IN,clientAddress);
+										if(channelsToServe.size()==0) {
+											logger.warn("Received data {} from an undefined remote end {}. We will not process it",new String(readBuffer.array()),clientAddress );
+										}
+									} else {
+										channelsToServe = theBinding.channels.getAll(theDatagramChannel);
 									}
-								} else {
-									channelsToServe = theBinding.channels.getAll(theDatagramChannel);
-								}
 
 
-								if(channelsToServe.size() >0) {
+									if(channelsToServe.size() >0) {
 
-									readBuffer.flip();
+										readBuffer.flip();
 
-									if(theBinding.channels.isBlocking(theDatagramChannel)) {
-										// if we are in a blocking operation, we get are now finished and we have to reset the flag. The read buffer will be returned to the instance
-										// that initiated the write opreation - it has to parse the buffer itself
+										if(theBinding.channels.isBlocking(theDatagramChannel)) {
+											// if we are in a blocking operation, we get are now finished and we have to reset the flag. The read buffer will be returned to the instance
+											// that initiated the write opreation - it has to parse the buffer itself
 
-										//find the Channel with this DGC that is holding a Blocking flag
-										theChannel = theBinding.channels.getBlocking(theDatagramChannel);
-										theChannel.buffer = readBuffer;
+											//find the Channel with this DGC that is holding a Blocking flag
+											theChannel = theBinding.channels.getBlocking(theDatagramChannel);
+											theChannel.buffer = readBuffer;
 
-									} else {
-										for(AbstractDatagramChannelBinding.Channel aChannel : channelsToServe) {
-											if(theBinding.useAddressMask) {
-												aChannel.lastRemote = clientAddress;
+											ResponseFuture response = theChannel.response;
+											theChannel.response = null;
+											if(response != null) {
+												response.complete(readBuffer);
 											}
-											// if not, then we parse the buffer as ususal
-											theBinding.parseChanneledBuffer(aChannel,readBuffer);
-										}
-									}
-								} else {
-									try {
-										if(selKey == theBinding.listenerKey) {
-											logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",clientAddress);											
+
 										} else {
-											logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",theDatagramChannel.getRemoteAddress());
+											for(AbstractDatagramChannelBinding.Channel aChannel : channelsToServe) {
+												if(theBinding.useAddressMask) {
+													aChannel.lastRemote = clientAddress;
+												}
+												// if not, then we parse the buffer as ususal
+												theBinding.parseChanneledBuffer(aChannel,readBuffer);
+											}
 										}
-									} catch (IOException e) {
-										logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e.getMessage());
-									}
-								}
-							}
-						} else if (selKey.isWritable()) {
-
-							AbstractDatagramChannelBinding.WriteBufferElement theElement = null;
-
-							if(selKey == theBinding.listenerKey) {
-								Iterator<AbstractDatagramChannelBinding.WriteBufferElement> iterator = theBinding.writeQueue.iterator();
-								while (iterator.hasNext()) {
-									AbstractDatagramChannelBinding.WriteBufferElement anElement = iterator.next();
-									if(anElement.channel.channel.equals(theBinding.listenerChannel)) {
-										theElement = anElement;
-										break;
-									}
-								}
-							}
-
-							//check if any of the Channel using the DatagramChannel is blocking the DGC in a R/W operation
-							boolean isBlocking = theBinding.channels.isBlocking(theDatagramChannel);
-
-							if(isBlocking) {
-								// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
-							} else { 
-
-								if(selKey != theBinding.listenerKey) {									
-									Iterator<AbstractDatagramChannelBinding.WriteBufferElement> iterator = theBinding.writeQueue.iterator();
-									while (iterator.hasNext()) {
-										AbstractDatagramChannelBinding.WriteBufferElement anElement = iterator.next();
-										if(anElement.channel.channel.equals(theDatagramChannel)) {
-											theElement = anElement;
-											break;
+									} else {
+										try {
+											if(selKey == theBinding.listenerKey) {
+												logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",clientAddress);											
+											} else {
+												logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",theDatagramChannel.getRemoteAddress());
+											}
+										} catch (IOException e) {
+											logger.error("An exception occurred while getting the remote address of channel {} ({})",theDatagramChannel,e.getMessage());
 										}
 									}
 								}
+							} else if (selKey.isWritable()) {
 
+								// write all data queued for this channel, as long as the channel accepts it
+								boolean writeNext;
+								do {
+									writeNext = false;
 
-								if(theElement != null && theElement.buffer != null) {
-
-									logger.debug("Picked {} from the queue",theElement);
+									AbstractDatagramChannelBinding.WriteBufferElement theElement = null;
 
-									if(theElement.isBlocking) {
-										theElement.channel.isBlocking = true;
+									if(selKey == theBinding.listenerKey) {
+										theElement = theBinding.channels.peekWriteQueue(theBinding.listenerChannel);
 									}
 
-									boolean error=false;
+									//check if any of the Channel using the DatagramChannel is blocking the DGC in a R/W operation
+									boolean isBlocking = theBinding.channels.isBlocking(theDatagramChannel);
 
-									theElement.buffer.rewind();
+									if(isBlocking) {
+										// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
+										// until the response has been received
+										selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+									} else { 
 
-									if(selKey == theBinding.listenerKey) {
-										try {
-											if(theBinding.useAddressMask && theElement.channel.remote==null) {
-												if(theElement.channel.lastRemote!=null) {
-													logger.debug("Sending {} for the masked inbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.lastRemote});
-													theBinding.listenerChannel.send(theElement.buffer, theElement.channel.lastRemote);
-												} else {
-													logger.warn("I do not know where to send the data {}",new String(theElement.buffer.array()));
-												}
-											} else {
-												logger.debug("Sending {} for the inbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.remote});
-												theBinding.listenerChannel.send(theElement.buffer, theElement.channel.remote);
-											}
-										} catch (IOException e) {
-											if(theElement.channel.lastRemote!=null) {
-												logger.error("An exception occurred while sending data to the remote end {} ({})",theElement.channel.lastRemote,e.getMessage());
-											} else {
-												logger.error("An exception occurred while sending data to the remote end {} ({})",theElement.channel.remote,e.getMessage());												
-											}
+										if(selKey != theBinding.listenerKey) {
+											theElement = theBinding.channels.peekWriteQueue(theDatagramChannel);
 										}
-									} else {
 
-										try {
-											logger.debug("Sending {} for the outbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.remote});
-											theDatagramChannel.write(theElement.buffer);
-										} catch (NotYetConnectedException e) {
-											logger.warn("The channel for {} has no connection pending ({})",theElement.channel.remote,e.getMessage());
-											error=true;
-										} catch (ClosedChannelException e) {
-											// If some other I/O error occurs
-											logger.warn("The channel for {} is closed ({})",theElement.channel.remote,e.getMessage());
-											error=true;
-										} catch (IOException e) {
-											// If some other I/O error occurs
-											logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theElement.channel.remote,e.getMessage());
-											error=true;
+										if(theElement == null) {
+											// nothing left to write, so we stop selecting this channel for writing
+											selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
 										}
-									}
 
-									if(error) {
 
-										if(selKey != theBinding.listenerKey) {
+										if(theElement != null && theElement.buffer != null) {
+
+											logger.debug("Picked {} from the queue",theElement);
+
+											boolean error=false;
+											// true, if the channel had no room for the datagram, which is then sent later on
+											boolean unsent=false;
+
+											theElement.buffer.rewind();
+
+											if(selKey == theBinding.listenerKey) {
+												try {
+													if(theBinding.useAddressMask && theElement.channel.remote==null) {
+														if(theElement.channel.lastRemote!=null) {
+															if(logger.isDebugEnabled()) {
+																logger.debug("Sending {} for the masked inbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.lastRemote});
+															}
+															theBinding.listenerChannel.send(theElement.buffer, theElement.channel.lastRemote);
+															unsent = theElement.buffer.hasRemaining();
+														} else {
+															logger.warn("I do not know where to send the data {}",new String(theElement.buffer.array()));
+														}
+													} else {
+														if(logger.isDebugEnabled()) {
+															logger.debug("Sending {} for the inbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.remote});
+														}
+														theBinding.listenerChannel.send(theElement.buffer, theElement.channel.remote);
+														unsent = theElement.buffer.hasRemaining();
+													}
+												} catch (IOException e) {
+													if(theElement.channel.lastRemote!=null) {
+														logger.error("An exception occurred while sending data to the remote end {} ({})",theElement.channel.lastRemote,e.getMessage());
+													} else {
+														logger.error("An exception occurred while sending data to the remote end {} ({})",theElement.channel.remote,e.getMessage());												
+													}
+												}
+											} else {
 
-											Scheduler scheduler = null;
-											try {
-												scheduler = StdSchedulerFactory.getDefaultScheduler();
-											} catch (SchedulerException e1) {
-												logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+												try {
+													if(logger.isDebugEnabled()) {
+														logger.debug("Sending {} for the outbound channel {}:{} to the remote address {}", new Object[]{new String(theElement.buffer.array()),theElement.channel.host,theElement.channel.port,theElement.channel.remote});
+													}
+													theDatagramChannel.write(theElement.buffer);
+													unsent = theElement.buffer.hasRemaining();
+												} catch (NotYetConnectedException e) {
+													logger.warn("The channel for {} has no connection pending ({})",theElement.channel.remote,e.getMessage());
+													error=true;
+												} catch (ClosedChannelException e) {
+													// If some other I/O error occurs
+													logger.warn("The channel for {} is closed ({})",theElement.channel.remote,e.getMessage());
+													error=true;
+												} catch (IOException e) {
+													// If some other I/O error occurs
+													logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theElement.channel.remote,e.getMessage());
+													error=true;
+												}
 											}
 
-											JobDataMap map = new JobDataMap();
-											map.put("Channel", theElement.channel);
-											map.put("Binding", theBinding);
-
-											JobDetail job = null;
-											Trigger trigger = null;	
+											if(error) {
 
-											job = newJob(ReconnectJob.class)
-													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-													.usingJobData(map)
-													.build();
+												if(selKey != theBinding.listenerKey) {
 
-											trigger = newTrigger()
-													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-													.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
-													.build();
+													Scheduler scheduler = null;
+													try {
+														scheduler = StdSchedulerFactory.getDefaultScheduler();
+													} catch (SchedulerException e1) {
+														logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+													}
 
-											try {
-												if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-													if(!theElement.channel.isReconnecting) {
-														theBinding.channels.setAllReconnecting(theElement.channel.channel,true);
-														scheduler.scheduleJob(job, trigger);
+													JobDataMap map = new JobDataMap();
+													map.put("Channel", theElement.channel);
+													map.put("Binding", theBinding);
+
+													JobDetail job = null;
+													Trigger trigger = null;	
+
+													job = newJob(ReconnectJob.class)
+															.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+															.usingJobData(map)
+															.build();
+
+													trigger = newTrigger()
+															.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+															.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
+															.build();
+
+													try {
+														if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+															if(!theElement.channel.isReconnecting) {
+																theBinding.channels.setAllReconnecting(theElement.channel.channel,true);
+																scheduler.scheduleJob(job, trigger);
+															}
+														}
+													} catch (SchedulerException e) {
+														logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
 													}
 												}
-											} catch (SchedulerException e) {
-												logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+											} else if(!unsent) {
+												theElement.channel.writeQueue.remove(theElement);
+
+												if(theElement.isBlocking) {
+													theElement.channel.isBlocking = true;
+													theElement.channel.response = theElement.response;
+												}
+
+												// continue with the next element, unless we have to wait for a response
+												writeNext = !theElement.isBlocking;
 											}
+											// otherwise the socket buffer is full, so the element stays queued and is sent
+											// as soon as the channel is writable again
 										}
-									} else {
-										if(theElement != null ) {
-											theBinding.writeQueue.remove(theElement);
-										}
-
 									}
-								}
+								} while(writeNext);
 							}
 						}
 					}
+				} catch (ClosedSelectorException e) {
+					// the binding has been deactivated
+					break;
+				} catch (CancelledKeyException e) {
+					// a channel has been closed in the meantime, the remaining keys are processed in the next round
+				} catch (RuntimeException e) {
+					logger.error("An exception occurred while processing the selection keys: {}",e.getMessage());
 				}
 			}
-
-			jobDone = true;
-
-		}
-	}
-
-
-	/**
-	 * Quartz Job Listener that will schedule a new SelectorJob when the previous one is "done"
-	 * 
-	 * @author Karel Goderis
-	 * @since  1.3.0
-	 *
-	 */
-	public static class SelectorJobListener implements JobListener {
-
-		public SelectorJobListener() {
-		}
-
-		public void jobToBeExecuted(JobExecutionContext context) {
-			// do something with the event
-		}
-
-		public void jobWasExecuted(JobExecutionContext context,
-				JobExecutionException jobException) {
-
-			Scheduler scheduler = null;
-			try {
-				scheduler = StdSchedulerFactory.getDefaultScheduler();
-			} catch (SchedulerException e1) {
-				logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-			}
-
-			JobDataMap dataMap = context.getJobDetail().getJobDataMap();
-			@SuppressWarnings("rawtypes")
-			AbstractDatagramChannelBinding theBinding = (AbstractDatagramChannelBinding) dataMap.get("Binding");
-
-			JobDataMap map = new JobDataMap();
-			map.put("Binding", theBinding);
-
-			JobDetail job = newJob(SelectorJob.class)
-					.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-					.usingJobData(map)
-					.build();
-
-			Trigger trigger = newTrigger()
-					.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-					.startNow()         
-					.build();
-
-			try {
-				scheduler.getListenerManager().addJobListener(new SelectorJobListener(), KeyMatcher.keyEquals(job.getKey()));
-			} catch (SchedulerException e1) {
-				logger.error("An exception occurred while getting a Quartz Listener Manager: {}",e1.getMessage());
-			}
-
-			try {
-				scheduler.scheduleJob(job, trigger);
-			} catch (SchedulerException e) {
-				logger.error("Error scheduling a read job with the Quartz Scheduler");
-			}		   
-		}
-
-		public void jobExecutionVetoed(JobExecutionContext context) {
-			// do something with the event
-		}
-
-		@Override
-		public String getName() {
-			return Integer.toHexString(hashCode()) + "DatagramSelectorJobListener";
 		}
 	}
 
@@ -31,7 +31,9 @@ package org.openhab.binding.tcp;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.NoConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
 import java.nio.channels.SelectionKey;
@@ -40,10 +42,15 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.core.binding.AbstractBinding;
 import org.openhab.core.binding.BindingProvider;
@@ -59,12 +66,10 @@ import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
-import org.quartz.JobListener;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.impl.StdSchedulerFactory;
-import org.quartz.impl.matchers.KeyMatcher;
 import static org.quartz.DateBuilder.*;
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
@@ -113,8 +118,12 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	protected ServerSocketChannel listenerChannel = null;
 	protected SelectionKey listenerKey = null;
 
-	// Queue to store BufferElements that need to be written to the network
-	protected  List<WriteBufferElement> writeQueue =  Collections.synchronizedList(new ArrayList<WriteBufferElement>());
+	// BufferElements that need to be written to the network are queued on their Channel. Writers wake up the selector after adding an element
+	// numbers the BufferElements in the order they are queued, so that Channels sharing a SocketChannel are written in that order
+	private final AtomicLong writeSequence = new AtomicLong();
+
+	// the thread that processes the SelectionKeys of all SocketChannels
+	private SelectorThread selectorThread;
 
 	// Simple datastructure to track the state of Channels
 	protected ChannelTracker<Channel> channels = new ChannelTracker<Channel>();
@@ -139,6 +148,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		public boolean isBlocking;
 		// placeholder to store the received data as the result of a blocking write/read operation
 		public ByteBuffer buffer;
+		// the response of the pending blocking write/read operation, if any
+		public ResponseFuture response;
 		// flag to indicate if the channel is reconnecting / recovering from a previous communication error
 		public boolean isReconnecting;
 		// reference to the underlying Java NIO SocketChannel that represents this TCP/IP connection
@@ -147,6 +158,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		public String host;
 		// remote port number to use. Could be "*" when using masked addresses
 		public String port;
+		// the data that is queued to be written to this channel, in the order it has been queued
+		public Queue<WriteBufferElement> writeQueue = new ConcurrentLinkedQueue<WriteBufferElement>();
 
 		public Channel(String item, Command command, InetSocketAddress remote,
 				Direction direction, boolean isBlocking, ByteBuffer buffer,
@@ -616,6 +629,44 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			}
 		}
 
+		/**
+		 * Returns the element that has been queued first on any of the Channels using the given SocketChannel,
+		 * without removing it from its queue
+		 */
+		public WriteBufferElement peekWriteQueue(SocketChannel theSocketChannel) {
+			synchronized(this) {
+				WriteBufferElement firstElement = null;
+				Iterator<C> it = iterator();
+				while(it.hasNext()) {
+					C aChannel = it.next();
+					if(theSocketChannel.equals(aChannel.channel)) {
+						WriteBufferElement anElement = aChannel.writeQueue.peek();
+						if(anElement != null && (firstElement == null || anElement.sequence < firstElement.sequence)) {
+							firstElement = anElement;
+						}
+					}
+				}
+				return firstElement;
+			}
+		}
+
+		/**
+		 * Returns the SocketChannels that have data queued on any of their Channels
+		 */
+		public List<SocketChannel> getAllWithQueuedData() {
+			synchronized(this) {
+				List<SocketChannel> selectedChannels = new ArrayList<SocketChannel>();
+				Iterator<C> it = iterator();
+				while(it.hasNext()) {
+					C aChannel = it.next();
+					if(aChannel.channel != null && !aChannel.writeQueue.isEmpty() && !selectedChannels.contains(aChannel.channel)) {
+						selectedChannels.add(aChannel.channel);
+					}
+				}
+				return selectedChannels;
+			}
+		}
+
 		public boolean isBlocking(SocketChannel theSocketChannel) {
 			synchronized(this) {
 				Iterator<C> it = iterator();
@@ -656,12 +707,22 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		public Channel channel;
 		public ByteBuffer buffer;
 		public boolean isBlocking;
+		// the response of the remote end, only used for blocking write/read operations
+		public ResponseFuture response;
+		// true, if the channel accepted only a part of the buffer so far
+		public boolean isPartiallyWritten;
+		// the position of this element in the order all elements have been queued
+		public long sequence;
 
 		public WriteBufferElement(Channel channel, ByteBuffer buffer, boolean isBlocking) {
 			super();
 			this.channel = channel;
+			this.sequence = writeSequence.getAndIncrement();
 			this.buffer = buffer;
 			this.isBlocking = isBlocking;
+			if(isBlocking) {
+				this.response = new ResponseFuture();
+			}
 		}
 
 		@Override
@@ -697,39 +758,9 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 			logger.error("An exception occurred while registering the selector: {}",e.getMessage());
 		}
 
-		// Start the Quartz job
-		Scheduler scheduler = null;
-		try {
-			scheduler = StdSchedulerFactory.getDefaultScheduler();
-		} catch (SchedulerException e1) {
-			logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-		}
-
-		// Start the initial Selector job
-		JobDataMap map = new JobDataMap();
-		map.put("Binding", this);
-
-		JobDetail job = newJob(SelectorJob.class)
-				.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), this.toString())
-				.usingJobData(map)
-				.build();
-
-		Trigger trigger = newTrigger()
-				.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), this.toString())
-				.startNow()             
-				.build();
-
-		try {
-			scheduler.getListenerManager().addJobListener(new SelectorJobListener(), KeyMatcher.keyEquals(job.getKey()));
-		} catch (SchedulerException e1) {
-			logger.error("An exception occurred while getting a Quartz Listener Manager: {}",e1.getMessage());
-		}
-
-		try {
-			scheduler.scheduleJob(job, trigger);
-		} catch (SchedulerException e) {
-			logger.error("An exception occurred while scheduling a finish job with the Quartz Scheduler : {}",e.getMessage());
-		}
+		// Start the thread that processes the selection keys
+		selectorThread = new SelectorThread(this);
+		selectorThread.start();
 
 	}
 
@@ -769,6 +800,11 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	 */
 	public void deactivate() {
 
+		if(selectorThread != null) {
+			selectorThread.shutdown();
+			selectorThread = null;
+		}
+
 		try {
 			selector.close();
 		} catch (IOException e) {
@@ -776,7 +812,9 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		}
 
 		try {
-			listenerChannel.close();
+			if(listenerChannel != null) {
+				listenerChannel.close();
+			}
 		} catch (IOException e) {
 			logger.error("An exception occurred while closing the Listener Channel on port number {} ({})",listenerPort,e.getMessage());
 
@@ -961,7 +999,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 								synchronized(selector) {
 									selector.wakeup();
-									int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;    
+									int interestSet = SelectionKey.OP_READ | SelectionKey.OP_CONNECT;    
 									try {
 										newSocketChannel.register(selector, interestSet);
 									} catch (ClosedChannelException e1) {
@@ -1258,26 +1296,34 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		if(isBlockingWriteRead) {
 
 			if(theBuffer != null) {
-				if(theSocketChannel.isConnected() || queueUntilConnected) {
-					writeQueue.add(new WriteBufferElement(theChannel,theBuffer,true));
-				}
+				ByteBuffer responseBuffer = null;
 
-				long currentElapsedTimeMillis = System.currentTimeMillis();
+				if(theSocketChannel.isConnected() || queueUntilConnected) {
+					WriteBufferElement theElement = new WriteBufferElement(theChannel,theBuffer,true);
+					theChannel.writeQueue.add(theElement);
+					selector.wakeup();
 
-				while(theChannel.buffer==null && (System.currentTimeMillis()-currentElapsedTimeMillis)<timeOut ) {
 					try {
-						Thread.sleep(100);
+						responseBuffer = theElement.response.get(timeOut, TimeUnit.MILLISECONDS);
+					} catch (TimeoutException e) {
+						// do not send the data anymore if it is still queued, as nobody waits for the response
+						theChannel.writeQueue.remove(theElement);
+						logger.debug("The remote end {} did not respond within {} ms",theChannel.remote,timeOut);
 					} catch (InterruptedException e) {
-						logger.warn("Exception occurred while waiting waiting during a blocking buffer write");
+						Thread.currentThread().interrupt();
+					} catch (ExecutionException e) {
+						// the response is never completed with an exception
 					}
 				}
 
-				ByteBuffer responseBuffer = null;
 				synchronized(this) {
-					responseBuffer = theChannel.buffer;
 					theChannel.buffer = null;
 					theChannel.isBlocking = false;
+					theChannel.response = null;
 				}
+
+				// the channel can be written to again
+				selector.wakeup();
 				return responseBuffer;
 			} else {
 				return theBuffer;
@@ -1287,7 +1333,8 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 			if(theBuffer != null) {
 				if(theSocketChannel.isConnected() || queueUntilConnected) {
-					writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+					theChannel.writeQueue.add(new WriteBufferElement(theChannel,theBuffer,false));
+					selector.wakeup();
 				}
 			}
 
@@ -1295,6 +1342,39 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 		}
 	}
 
+	/**
+	 * Sets the interest to write on the SelectionKeys of all SocketChannels that have data
+	 * queued and are not waiting for the response of a blocking write/read operation. Channels
+	 * without queued data are not selected for writing, as they would always be writable.
+	 * Must only be called by the selector thread.
+	 */
+	private void updateWriteInterest() {
+		for(SocketChannel theSocketChannel : channels.getAllWithQueuedData()) {
+			SelectionKey selKey = theSocketChannel.keyFor(selector);
+			if(selKey != null && selKey.isValid() && (selKey.interestOps() & SelectionKey.OP_WRITE) == 0) {
+				if(theSocketChannel.isConnected() && !channels.isBlocking(theSocketChannel)) {
+					try {
+						selKey.interestOps(selKey.interestOps() | SelectionKey.OP_WRITE);
+					} catch (CancelledKeyException e) {
+						// the channel has been closed in the meantime
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the data which has been read into the given buffer into a new heap buffer of
+	 * exactly the received size, so that the given buffer can be reused for the next read.
+	 * The returned buffer is positioned just like the buffer that has been read into.
+	 */
+	private static ByteBuffer copyReceived(ByteBuffer directBuffer) {
+		directBuffer.flip();
+		ByteBuffer readBuffer = ByteBuffer.allocate(directBuffer.remaining());
+		readBuffer.put(directBuffer);
+		return readBuffer;
+	}
+
 
 	/**
 	 * Quartz Job to reconnect a channel
@@ -1347,7 +1427,7 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 
 					synchronized(theBinding.selector) {
 						theBinding.selector.wakeup();
-						int interestSet = SelectionKey.OP_READ | SelectionKey.OP_WRITE | SelectionKey.OP_CONNECT;    
+						int interestSet = SelectionKey.OP_READ | SelectionKey.OP_CONNECT;    
 						try {
 							if(theChannel.channel != null) {
 								theChannel.channel.register(theBinding.selector, interestSet);
@@ -1399,227 +1479,197 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 	}
 
 	/**
-	 * Quartz Job to process SelectKeys for all SocketChannels
+	 * Event loop that processes the SelectionKeys of all SocketChannels. The thread waits in
+	 * select() until a channel is ready or until it is woken up, either by a thread which
+	 * registers a channel or by {@link AbstractSocketChannelBinding#writeBuffer}, so that queued
+	 * data is written right away.
 	 * 
 	 * @author Karel Goderis
 	 * @since  1.4.0
 	 *
 	 */
-	public static class SelectorJob implements Job {
+	@SuppressWarnings("rawtypes")
+	public static class SelectorThread extends Thread {
 
-		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private final AbstractSocketChannelBinding theBinding;
+
+		private volatile boolean running = true;
+
+		public SelectorThread(AbstractSocketChannelBinding theBinding) {
+			super(theBinding.getClass().getSimpleName() + " selector");
+			this.theBinding = theBinding;
+			setDaemon(true);
+		}
+
+		/**
+		 * Stops the thread after the current select
+		 */
+		public void shutdown() {
+			running = false;
+			theBinding.selector.wakeup();
+		}
+
+		@SuppressWarnings("unchecked")
 		@Override
-		public void execute(JobExecutionContext context)
-				throws JobExecutionException {
+		public void run() {
 
-			JobDataMap dataMap = context.getJobDetail().getJobDataMap();
-			AbstractSocketChannelBinding theBinding = (AbstractSocketChannelBinding) dataMap.get("Binding");
+			// the buffer to read from the channels into, reused for all reads of this thread
+			ByteBuffer directBuffer = null;
+
+			while(running) {
 
-			boolean jobDone = false;
+				try {
+
+					// threads registering a channel wake up the selector while holding its lock, so let them go first
+					synchronized(theBinding.selector) {
+					}
 
-			while(!jobDone) {
+					theBinding.updateWriteInterest();
 
-				synchronized(theBinding.selector) {
 					try {
 						// Wait for an event
 						theBinding.selector.select(theBinding.selectTimeOut);
 					} catch (IOException e) {
-						// Handle error with selector
+						logger.error("An exception occurred while selecting the channels: {}",e.getMessage());
 					}
-				}
-
-				// Get list of selection keys with pending events
-				Iterator<SelectionKey> it = theBinding.selector.selectedKeys().iterator();
 
-				// Process each key at a time
-				while (it.hasNext()) {
-					SelectionKey selKey = (SelectionKey) it.next();
-					it.remove();
+					// Get list of selection keys with pending events
+					Iterator<SelectionKey> it = theBinding.selector.selectedKeys().iterator();
 
-					if (selKey.isValid()) {
-						if(selKey == theBinding.listenerKey) {
-							if(selKey.isAcceptable()) {
+					// Process each key at a time
+					while (it.hasNext()) {
+						SelectionKey selKey = (SelectionKey) it.next();
+						it.remove();
 
-								try {
-									SocketChannel newChannel = theBinding.listenerChannel.accept();
-									logger.info("Received connection request from {}",newChannel.getRemoteAddress());
+						if (selKey.isValid()) {
+							if(selKey == theBinding.listenerKey) {
+								if(selKey.isAcceptable()) {
 
-									AbstractSocketChannelBinding.Channel firstChannel = theBinding.channels.getFirstNotServed(Direction.IN,(InetSocketAddress) newChannel.getRemoteAddress());
+									try {
+										SocketChannel newChannel = theBinding.listenerChannel.accept();
+										logger.info("Received connection request from {}",newChannel.getRemoteAddress());
 
-									if(firstChannel != null) {
+										AbstractSocketChannelBinding.Channel firstChannel = theBinding.channels.getFirstNotServed(Direction.IN,(InetSocketAddress) newChannel.getRemoteAddress());
 
-										if(firstChannel.direction == Direction.IN) {
+										if(firstChannel != null) {
 
-											if(theBinding.useAddressMask && (firstChannel.host.equals("*") || firstChannel.port.equals("*"))) {
-												logger.info("{}:{} is an allowed masked remote end. The channel will now be configured", firstChannel.host,firstChannel.port);
-											} else {
-												logger.info("{} is an allowed remote end. The channel will now be configured", firstChannel.remote);
-											}
+											if(firstChannel.direction == Direction.IN) {
 
-											if(firstChannel.channel == null || !firstChannel.channel.isOpen()) {
+												if(theBinding.useAddressMask && (firstChannel.host.equals("*") || firstChannel.port.equals("*"))) {
+													logger.info("{}:{} is an allowed masked remote end. The channel will now be configured", firstChannel.host,firstChannel.port);
+												} else {
+													logger.info("{} is an allowed remote end. The channel will now be configured", firstChannel.remote);
+												}
 
-												firstChannel.channel = newChannel;
-												firstChannel.isBlocking = false;
-												firstChannel.buffer = null;
+												if(firstChannel.channel == null || !firstChannel.channel.isOpen()) {
 
-												if(theBinding.itemShareChannels) {
-													theBinding.channels.replace(firstChannel.item, firstChannel.direction, (InetSocketAddress)newChannel.getRemoteAddress(),firstChannel.channel);
-												}
+													firstChannel.channel = newChannel;
+													firstChannel.isBlocking = false;
+													firstChannel.buffer = null;
 
-												if(theBinding.bindingShareChannels) {
-													theBinding.channels.replace(firstChannel.direction, (InetSocketAddress)newChannel.getRemoteAddress(),firstChannel.channel);
-												}
+													if(theBinding.itemShareChannels) {
+														theBinding.channels.replace(firstChannel.item, firstChannel.direction, (InetSocketAddress)newChannel.getRemoteAddress(),firstChannel.channel);
+													}
 
-												if(theBinding.directionsShareChannels) {
-													theBinding.channels.replace((InetSocketAddress) newChannel.getRemoteAddress(),firstChannel.channel);
-												}
+													if(theBinding.bindingShareChannels) {
+														theBinding.channels.replace(firstChannel.direction, (InetSocketAddress)newChannel.getRemoteAddress(),firstChannel.channel);
+													}
 
-												try {
-													newChannel.configureBlocking(false);
-													//setKeepAlive(true);
-												} catch (IOException e) {
-													logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
-												}
+													if(theBinding.directionsShareChannels) {
+														theBinding.channels.replace((InetSocketAddress) newChannel.getRemoteAddress(),firstChannel.channel);
+													}
 
-												synchronized(theBinding.selector) {
-													theBinding.selector.wakeup();
 													try {
-														newChannel.register(theBinding.selector, newChannel.validOps());
-													} catch (ClosedChannelException e1) {
-														logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
-													}										
-												}
+														newChannel.configureBlocking(false);
+														//setKeepAlive(true);
+													} catch (IOException e) {
+														logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
+													}
 
+													synchronized(theBinding.selector) {
+														theBinding.selector.wakeup();
+														try {
+															newChannel.register(theBinding.selector, SelectionKey.OP_READ);
+														} catch (ClosedChannelException e1) {
+															logger.error("An exception occurred while registering a selector: {}",e1.getMessage());
+														}										
+													}
 
-												Scheduler scheduler = null;
-												try {
-													scheduler = StdSchedulerFactory.getDefaultScheduler();
-												} catch (SchedulerException e1) {
-													logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-												}
 
-												JobDataMap map = new JobDataMap();
-												map.put("Channel", firstChannel);
-												map.put("Binding", theBinding);
+													Scheduler scheduler = null;
+													try {
+														scheduler = StdSchedulerFactory.getDefaultScheduler();
+													} catch (SchedulerException e1) {
+														logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+													}
 
-												JobDetail job = newJob(ConfigureJob.class)
-														.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-														.usingJobData(map)
-														.build();
+													JobDataMap map = new JobDataMap();
+													map.put("Channel", firstChannel);
+													map.put("Binding", theBinding);
 
-												Trigger trigger = newTrigger()
-														.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-														.startNow()         
-														.build();
+													JobDetail job = newJob(ConfigureJob.class)
+															.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+															.usingJobData(map)
+															.build();
 
-												try {
-													if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-														scheduler.scheduleJob(job, trigger);
+													Trigger trigger = newTrigger()
+															.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+															.startNow()         
+															.build();
+
+													try {
+														if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+															scheduler.scheduleJob(job, trigger);
+														}
+													} catch (SchedulerException e) {
+														logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
 													}
-												} catch (SchedulerException e) {
-													logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
-												}
 
+												} else {
+													logger.info("We previously already accepted a connection from the remote end {} for this channel. Goodbye",firstChannel.remote);
+													newChannel.close();
+												}
 											} else {
-												logger.info("We previously already accepted a connection from the remote end {} for this channel. Goodbye",firstChannel.remote);
+												logger.info("Disconnecting the remote end {} that tries to connect an outbound only port",newChannel.getRemoteAddress());
 												newChannel.close();
 											}
 										} else {
-											logger.info("Disconnecting the remote end {} that tries to connect an outbound only port",newChannel.getRemoteAddress());
+											logger.info("Disconnecting the unallowed remote end {}",newChannel.getRemoteAddress());
 											newChannel.close();
 										}
-									} else {
-										logger.info("Disconnecting the unallowed remote end {}",newChannel.getRemoteAddress());
-										newChannel.close();
-									}
-
-								} catch (IOException e) {
-									logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
-								}
-							} 
-						} else {
 
-							SocketChannel theSocketChannel = (SocketChannel) selKey.channel();
-							AbstractSocketChannelBinding.Channel theChannel = theBinding.channels.get(theSocketChannel);
-
-							if(selKey.isConnectable()) {
-								theBinding.channels.setAllReconnecting(theSocketChannel, false);
-
-								boolean result = false;
-								boolean error = false;
-								try {
-									result = theSocketChannel.finishConnect();
-								} catch (NoConnectionPendingException e) {
-									// this channel is not connected and a connection operation
-									// has not been initiated
-									logger.warn("The channel  {} has no connection pending ({})",theSocketChannel,e.getMessage());
-									error=true;
-								} catch (ClosedChannelException e) {
-									// If some other I/O error occurs
-									logger.warn("The channel  {} is closed ({})",theSocketChannel,e.getMessage());
-									error=true;
-								} catch (IOException e) {
-									// If some other I/O error occurs
-									logger.warn("The channel {} has encountered an unknown IO Exception: {}",theSocketChannel,e.getMessage());
-									error=true;
-								}
-
-								if(error) {
-
-									Scheduler scheduler = null;
-									try {
-										scheduler = StdSchedulerFactory.getDefaultScheduler();
-									} catch (SchedulerException e1) {
-										logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+									} catch (IOException e) {
+										logger.error("An exception occurred while configuring a channel: {}",e.getMessage());
 									}
+								} 
+							} else {
 
-									JobDataMap map = new JobDataMap();
-									map.put("Channel", theChannel);
-									map.put("Binding", theBinding);
-
-									JobDetail job = newJob(ReconnectJob.class)
-											.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-											.usingJobData(map)
-											.build();
+								SocketChannel theSocketChannel = (SocketChannel) selKey.channel();
+								AbstractSocketChannelBinding.Channel theChannel = theBinding.channels.get(theSocketChannel);
 
-									Trigger trigger = newTrigger()
-											.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-											.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
-											.build();
+								if(selKey.isConnectable()) {
+									theBinding.channels.setAllReconnecting(theSocketChannel, false);
 
+									boolean result = false;
+									boolean error = false;
 									try {
-										if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-											if(!theChannel.isReconnecting) {
-												theBinding.channels.setAllReconnecting(theSocketChannel, true);
-												scheduler.scheduleJob(job, trigger);
-											}
-										}
-									} catch (SchedulerException e) {
-										logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+										result = theSocketChannel.finishConnect();
+									} catch (NoConnectionPendingException e) {
+										// this channel is not connected and a connection operation
+										// has not been initiated
+										logger.warn("The channel  {} has no connection pending ({})",theSocketChannel,e.getMessage());
+										error=true;
+									} catch (ClosedChannelException e) {
+										// If some other I/O error occurs
+										logger.warn("The channel  {} is closed ({})",theSocketChannel,e.getMessage());
+										error=true;
+									} catch (IOException e) {
+										// If some other I/O error occurs
+										logger.warn("The channel {} has encountered an unknown IO Exception: {}",theSocketChannel,e.getMessage());
+										error=true;
 									}
 
-								} else {
-									if(result) {
-										InetSocketAddress remote = null;
-										try {
-											remote = (InetSocketAddress) theSocketChannel.getRemoteAddress();
-										} catch (IOException e) {
-											logger.error("An exception occurred while getting the remote address of channel {} ({})",theSocketChannel,e.getMessage());
-										}
-
-										logger.info("The channel for {} is now connected",remote);
-
-										if(theBinding.itemShareChannels) {
-											theBinding.channels.replace(theChannel.item, theChannel.direction, remote, theChannel.channel);		
-										}
-
-										if(theBinding.bindingShareChannels) {
-											theBinding.channels.replace(theChannel.direction, remote, theChannel.channel);		
-										}
-
-										if(theBinding.directionsShareChannels) {
-											theBinding.channels.replace(remote, theChannel.channel);		
-										}
+									if(error) {
 
 										Scheduler scheduler = null;
 										try {
@@ -1632,322 +1682,343 @@ public abstract class AbstractSocketChannelBinding<P extends ChannelBindingProvi
 										map.put("Channel", theChannel);
 										map.put("Binding", theBinding);
 
-										JobDetail job = newJob(ConfigureJob.class)
-												.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+										JobDetail job = newJob(ReconnectJob.class)
+												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
 												.usingJobData(map)
 												.build();
 
 										Trigger trigger = newTrigger()
-												.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-												.startNow()         
+												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+												.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
 												.build();
 
 										try {
 											if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-												scheduler.scheduleJob(job, trigger);
+												if(!theChannel.isReconnecting) {
+													theBinding.channels.setAllReconnecting(theSocketChannel, true);
+													scheduler.scheduleJob(job, trigger);
+												}
 											}
 										} catch (SchedulerException e) {
 											logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
 										}
 
+									} else {
+										if(result) {
+											InetSocketAddress remote = null;
+											try {
+												remote = (InetSocketAddress) theSocketChannel.getRemoteAddress();
+											} catch (IOException e) {
+												logger.error("An exception occurred while getting the remote address of channel {} ({})",theSocketChannel,e.getMessage());
+											}
 
-										job = newJob(ReconnectJob.class)
-												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-												.usingJobData(map)
-												.build();
+											logger.info("The channel for {} is now connected",remote);
 
-										trigger = newTrigger()
-												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-												.withSchedule(cronSchedule(theBinding.reconnectCron))           
-												.build();
+											if(theBinding.itemShareChannels) {
+												theBinding.channels.replace(theChannel.item, theChannel.direction, remote, theChannel.channel);		
+											}
 
-										try {
-											if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-												scheduler.scheduleJob(job, trigger);
+											if(theBinding.bindingShareChannels) {
+												theBinding.channels.replace(theChannel.direction, remote, theChannel.channel);		
 											}
-										} catch (SchedulerException e) {
-											logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
-										}	
-									}
-								}
 
-							} else if (selKey.isReadable()) {
+											if(theBinding.directionsShareChannels) {
+												theBinding.channels.replace(remote, theChannel.channel);		
+											}
 
-								ByteBuffer readBuffer = ByteBuffer.allocate(theBinding.maximumBufferSize);
-								int numberBytesRead = 0;
-								boolean error = false;
+											Scheduler scheduler = null;
+											try {
+												scheduler = StdSchedulerFactory.getDefaultScheduler();
+											} catch (SchedulerException e1) {
+												logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+											}
 
-								try {
-									//TODO: Additional code to split readBuffer in multiple parts, in case the data send by the remote end is not correctly fragemented. Could be handed of to implementation class if for example, the buffer needs to be split based on a special character like line feed or carriage return
-									numberBytesRead = theSocketChannel.read(readBuffer);
-								} catch (NotYetConnectedException e) {
-									logger.warn("The channel for {} has no connection pending ({})",theChannel.remote,e.getMessage());
-									if(!theSocketChannel.isConnectionPending()) {
-										error=true;
-									}
-								} catch (IOException e) {
-									// If some other I/O error occurs
-									logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theChannel.remote,e.getMessage());
-									error=true;
-								}
+											JobDataMap map = new JobDataMap();
+											map.put("Channel", theChannel);
+											map.put("Binding", theBinding);
 
-								if(numberBytesRead == -1) {
-									try {
-										theSocketChannel.close();
-									} catch (IOException e) {
-										logger.warn("The channel for {} is closed ({})",theChannel.remote,e.getMessage());
-									}
-									error = true;
-								}
+											JobDetail job = newJob(ConfigureJob.class)
+													.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+													.usingJobData(map)
+													.build();
 
-								if(error) {
-									if(theChannel.direction == Direction.OUT) {
+											Trigger trigger = newTrigger()
+													.withIdentity(Integer.toHexString(hashCode()) +"-Configure-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+													.startNow()         
+													.build();
 
-										Scheduler scheduler = null;
-										try {
-											scheduler = StdSchedulerFactory.getDefaultScheduler();
-										} catch (SchedulerException e1) {
-											logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-										}
+											try {
+												if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+													scheduler.scheduleJob(job, trigger);
+												}
+											} catch (SchedulerException e) {
+												logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+											}
 
-										JobDataMap map = new JobDataMap();
-										map.put("Channel", theChannel);
-										map.put("Binding", theBinding);
 
-										JobDetail job = newJob(ReconnectJob.class)
-												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
-												.usingJobData(map)
-												.build();
+											job = newJob(ReconnectJob.class)
+													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+													.usingJobData(map)
+													.build();
 
-										Trigger trigger = newTrigger()
-												.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
-												.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
-												.build();
+											trigger = newTrigger()
+													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
+													.withSchedule(cronSchedule(theBinding.reconnectCron))           
+													.build();
 
-										try {
-											if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-												if(!theChannel.isReconnecting) {
-													theBinding.channels.setAllReconnecting(theSocketChannel, true);
+											try {
+												if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
 													scheduler.scheduleJob(job, trigger);
 												}
-											}
-										} catch (SchedulerException e) {
-											logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
-										}	
+											} catch (SchedulerException e) {
+												logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+											}	
+										}
+									}
 
-									} else {
-										theChannel.channel = null;
+								} else if (selKey.isReadable()) {
+
+									if(directBuffer == null || directBuffer.capacity() != theBinding.maximumBufferSize) {
+										directBuffer = ByteBuffer.allocateDirect(theBinding.maximumBufferSize);
 									}
-								} else {
+									directBuffer.clear();
+									int numberBytesRead = 0;
+									boolean error = false;
 
-									ArrayList<AbstractSocketChannelBinding.Channel> channelsToServe = new ArrayList<AbstractSocketChannelBinding.Channel>();
+									try {
+										//TODO: Additional code to split readBuffer in multiple parts, in case the data send by the remote end is not correctly fragemented. Could be handed of to implementation class if for example, the buffer needs to be split based on a special character like line feed or carriage return
+										numberBytesRead = theSocketChannel.read(directBuffer);
+									} catch (NotYetConnectedException e) {
+										logger.warn("The channel for {} has no connection pending ({})",theChannel.remote,e.getMessage());
+										if(!theSocketChannel.isConnectionPending()) {
+											error=true;
+										}
+									} catch (IOException e) {
+										// If some other I/O error occurs
+										logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theChannel.remote,e.getMessage());
+										error=true;
+									}
 
-									channelsToServe = theBinding.channels.getAll(theSocketChannel);
+									ByteBuffer readBuffer = copyReceived(directBuffer);
+
+									if(numberBytesRead == -1) {
+										try {
+											theSocketChannel.close();
+										} catch (IOException e) {
+											logger.warn("The channel for {} is closed ({})",theChannel.remote,e.getMessage());
+										}
+										error = true;
+									}
 
+									if(error) {
+										if(theChannel.direction == Direction.OUT) {
 
-									if(channelsToServe.size() >0) {
+											Scheduler scheduler = null;
+											try {
+												scheduler = StdSchedulerFactory.getDefaultScheduler();
+											} catch (SchedulerException e1) {
+												logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+											}
 
-										readBuffer.flip();
+											JobDataMap map = new JobDataMap();
+											map.put("Channel", theChannel);
+											map.put("Binding", theBinding);
 
-										boolean isBlocking = theBinding.channels.isBlocking(theSocketChannel);
+											JobDetail job = newJob(ReconnectJob.class)
+													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
+													.usingJobData(map)
+													.build();
 
-										if(isBlocking) {
-											// if we are in a blocking operation, we get are now finished and we have to reset the flag. The read buffer will be returned to the instance
-											// that initiated the write opreation - it has to parse the buffer itself
+											Trigger trigger = newTrigger()
+													.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
+													.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
+													.build();
 
-											theChannel = theBinding.channels.getBlocking(theSocketChannel);
-											theChannel.buffer = readBuffer;
-											theChannel.isBlocking = false;
+											try {
+												if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+													if(!theChannel.isReconnecting) {
+														theBinding.channels.setAllReconnecting(theSocketChannel, true);
+														scheduler.scheduleJob(job, trigger);
+													}
+												}
+											} catch (SchedulerException e) {
+												logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+											}	
 
 										} else {
-											for(AbstractSocketChannelBinding.Channel aChannel : channelsToServe) {
-												// if not, then we parse the buffer as ususal
-												theBinding.parseChanneledBuffer(aChannel,readBuffer);
-											}
+											theChannel.channel = null;
 										}
 									} else {
-										try {
-											logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",theSocketChannel.getRemoteAddress());
-										} catch (IOException e) {
-											logger.error("An exception occurred while getting the remote address of the channel {} ({})",theSocketChannel,e.getMessage());
-										}
-									}
-								}	
 
-							} else if (selKey.isWritable()) {
+										ArrayList<AbstractSocketChannelBinding.Channel> channelsToServe = new ArrayList<AbstractSocketChannelBinding.Channel>();
 
-								boolean isBlocking = theBinding.channels.isBlocking(theSocketChannel);
+										channelsToServe = theBinding.channels.getAll(theSocketChannel);
 
-								if(isBlocking) {
-									// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
-								} else { 
 
-									// pick up a QueueElement for this channel, if any
+										if(channelsToServe.size() >0) {
 
-									AbstractSocketChannelBinding.WriteBufferElement theElement = null;		
+											readBuffer.flip();
 
+											boolean isBlocking = theBinding.channels.isBlocking(theSocketChannel);
 
-									Iterator<AbstractSocketChannelBinding.WriteBufferElement> iterator = theBinding.writeQueue.iterator();
-									while (iterator.hasNext()) {
-										AbstractSocketChannelBinding.WriteBufferElement anElement = iterator.next();
-										if(anElement.channel.channel.equals(theSocketChannel)) {
-											theElement = anElement;
-											break;
+											if(isBlocking) {
+												// if we are in a blocking operation, we get are now finished and we have to reset the flag. The read buffer will be returned to the instance
+												// that initiated the write opreation - it has to parse the buffer itself
+
+												theChannel = theBinding.channels.getBlocking(theSocketChannel);
+												theChannel.buffer = readBuffer;
+												theChannel.isBlocking = false;
+
+												ResponseFuture response = theChannel.response;
+												theChannel.response = null;
+												if(response != null) {
+													response.complete(readBuffer);
+												}
+
+											} else {
+												for(AbstractSocketChannelBinding.Channel aChannel : channelsToServe) {
+													// if not, then we parse the buffer as ususal
+													theBinding.parseChanneledBuffer(aChannel,readBuffer);
+												}
+											}
+										} else {
+											try {
+												logger.warn("No channel is active or defined for the data we received from {}. It will be discarded.",theSocketChannel.getRemoteAddress());
+											} catch (IOException e) {
+												logger.error("An exception occurred while getting the remote address of the channel {} ({})",theSocketChannel,e.getMessage());
+											}
 										}
-									}
+									}	
 
+								} else if (selKey.isWritable()) {
 
-									if(theElement != null && theElement.buffer != null) {
+									boolean isBlocking = theBinding.channels.isBlocking(theSocketChannel);
 
-										logger.debug("Picked {} from the queue",theElement);
+									if(isBlocking) {
+										// if this channel is already flagged as being in a blocked write/read operation, we skip this selKey
+										// until the response has been received
+										selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
+									} else { 
 
-										if(theElement.isBlocking) {
-											theElement.channel.isBlocking = true;
-										}
+										// write all data queued for this channel, as long as the channel accepts it
+										boolean writeNext;
+										do {
+											writeNext = false;
 
-										boolean error=false;
+											// pick up a QueueElement for this channel, if any
 
-										theElement.buffer.rewind();
-										try {
-											logger.debug("Sending {} for the outbound channel {}->{}", new Object[]{new String(theElement.buffer.array()),theElement.channel.channel.getLocalAddress(),theElement.channel.channel.getRemoteAddress()});
-											theSocketChannel.write(theElement.buffer);
-										} catch (NotYetConnectedException e) {
-											logger.warn("The channel for {} has no connection pending ({})",theChannel.remote,e.getMessage());
-											if(!theSocketChannel.isConnectionPending()) {
-												error=true;
+											AbstractSocketChannelBinding.WriteBufferElement theElement = theBinding.channels.peekWriteQueue(theSocketChannel);
+
+											if(theElement == null) {
+												// nothing left to write, so we stop selecting this channel for writing
+												selKey.interestOps(selKey.interestOps() & ~SelectionKey.OP_WRITE);
 											}
-										} catch (ClosedChannelException e) {
-											// If some other I/O error occurs
-											logger.warn("The channel for {} is closed ({})",theChannel.remote,e.getMessage());
-											error=true;
-										} catch (IOException e) {
-											// If some other I/O error occurs
-											logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theChannel.remote,e.getMessage());
-											error=true;
-										}
 
-										if(error) {
 
-											if(theElement.channel.direction == Direction.OUT) {
+											if(theElement != null && theElement.buffer != null) {
+
+												logger.debug("Picked {} from the queue",theElement);
 
-												Scheduler scheduler = null;
+												boolean error=false;
+
+												// the rest of a partially written buffer must not be sent again from the start
+												if(!theElement.isPartiallyWritten) {
+													theElement.buffer.rewind();
+												}
 												try {
-													scheduler = StdSchedulerFactory.getDefaultScheduler();
-												} catch (SchedulerException e1) {
-													logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
+													if(logger.isDebugEnabled()) {
+														logger.debug("Sending {} for the outbound channel {}->{}", new Object[]{new String(theElement.buffer.array()),theElement.channel.channel.getLocalAddress(),theElement.channel.channel.getRemoteAddress()});
+													}
+													theSocketChannel.write(theElement.buffer);
+												} catch (NotYetConnectedException e) {
+													logger.warn("The channel for {} has no connection pending ({})",theChannel.remote,e.getMessage());
+													if(!theSocketChannel.isConnectionPending()) {
+														error=true;
+													}
+												} catch (ClosedChannelException e) {
+													// If some other I/O error occurs
+													logger.warn("The channel for {} is closed ({})",theChannel.remote,e.getMessage());
+													error=true;
+												} catch (IOException e) {
+													// If some other I/O error occurs
+													logger.warn("The channel for {} has encountered an unknown IO Exception: {}",theChannel.remote,e.getMessage());
+													error=true;
 												}
 
-												JobDataMap map = new JobDataMap();
-												map.put("Channel", theElement.channel);
-												map.put("Binding", theBinding);
+												if(error) {
 
-												JobDetail job = newJob(ReconnectJob.class)
-														.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
-														.usingJobData(map)
-														.build();
+													if(theElement.channel.direction == Direction.OUT) {
 
-												Trigger trigger = newTrigger()
-														.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
-														.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
-														.build();
-
-												try {
-													if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
-														if(!theElement.channel.isReconnecting) {
-															theBinding.channels.setAllReconnecting(theSocketChannel,true);
-															scheduler.scheduleJob(job, trigger);
+														Scheduler scheduler = null;
+														try {
+															scheduler = StdSchedulerFactory.getDefaultScheduler();
+														} catch (SchedulerException e1) {
+															logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
 														}
+
+														JobDataMap map = new JobDataMap();
+														map.put("Channel", theElement.channel);
+														map.put("Binding", theBinding);
+
+														JobDetail job = newJob(ReconnectJob.class)
+																.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
+																.usingJobData(map)
+																.build();
+
+														Trigger trigger = newTrigger()
+																.withIdentity(Integer.toHexString(hashCode()) +"-Reconnect-"+Long.toString(System.currentTimeMillis()), "AbstractSocketChannelBinding")
+																.startAt(futureDate(theBinding.reconnectInterval, IntervalUnit.SECOND))         
+																.build();
+
+														try {
+															if(job!= null && trigger != null && selKey!=theBinding.listenerKey) {
+																if(!theElement.channel.isReconnecting) {
+																	theBinding.channels.setAllReconnecting(theSocketChannel,true);
+																	scheduler.scheduleJob(job, trigger);
+																}
+															}
+														} catch (SchedulerException e) {
+															logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
+														}	
+
+													} else {
+														theElement.channel.channel = null;
+													}
+													theElement.isPartiallyWritten = false;
+												} else if(theElement.buffer.hasRemaining()) {
+													// the socket buffer is full, so the element stays queued and the rest of it
+													// is written as soon as the channel is writable again
+													theElement.isPartiallyWritten = theElement.buffer.position() > 0;
+												} else {
+													theElement.channel.writeQueue.remove(theElement);
+													theElement.isPartiallyWritten = false;
+
+													if(theElement.isBlocking) {
+														theElement.channel.isBlocking = true;
+														theElement.channel.response = theElement.response;
 													}
-												} catch (SchedulerException e) {
-													logger.error("An exception occurred while scheduling a job with the Quartz Scheduler {}",e.getMessage());
-												}	
 
-											} else {
-												theElement.channel.channel = null;
-											}
-										} else {
-											if(theElement != null ) {
-												theBinding.writeQueue.remove(theElement);
+													// continue with the next element, unless we have to wait for a response
+													writeNext = !theElement.isBlocking;
+												}
 											}
-
-										}
+										} while(writeNext);
 									}
 								}
-							}
 
+							}
 						}
 					}
-				}
-				
-				jobDone = true;
-
-			}
-		}
-	}
-
-	/**
-	 * Quartz Job Listener that will schedule a new SelectorJob when the previous one is "done"
-	 * 
-	 * @author Karel Goderis
-	 * @since  1.4.0
-	 *
-	 */
-	public static class SelectorJobListener implements JobListener {
-
-		public SelectorJobListener() {
-		}
-
-		public void jobToBeExecuted(JobExecutionContext context) {
-			// do something with the event
-		}
-
-		public void jobWasExecuted(JobExecutionContext context,
-				JobExecutionException jobException) {
-
-			Scheduler scheduler = null;
-			try {
-				scheduler = StdSchedulerFactory.getDefaultScheduler();
-			} catch (SchedulerException e1) {
-				logger.error("An exception occurred while getting the Quartz scheduler: {}",e1.getMessage());
-			}
 
-			JobDataMap dataMap = context.getJobDetail().getJobDataMap();
-			@SuppressWarnings("rawtypes")
-			AbstractSocketChannelBinding theBinding = (AbstractSocketChannelBinding) dataMap.get("Binding");
-			
-			JobDataMap map = new JobDataMap();
-			map.put("Binding", theBinding);
-
-			JobDetail job = newJob(SelectorJob.class)
-					.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-					.usingJobData(map)
-					.build();
-
-			Trigger trigger = newTrigger()
-					.withIdentity(Integer.toHexString(hashCode()) +"-Select-"+Long.toString(System.currentTimeMillis()), theBinding.toString())
-					.startNow()         
-					.build();
-
-			try {
-				scheduler.getListenerManager().addJobListener(new SelectorJobListener(), KeyMatcher.keyEquals(job.getKey()));
-			} catch (SchedulerException e1) {
-				logger.error("An exception occurred while getting a Quartz Listener Manager: {}",e1.getMessage());
+				} catch (ClosedSelectorException e) {
+					// the binding has been deactivated
+					break;
+				} catch (CancelledKeyException e) {
+					// a channel has been closed in the meantime, the remaining keys are processed in the next round
+				} catch (RuntimeException e) {
+					logger.error("An exception occurred while processing the selection keys: {}",e.getMessage());
+				}
 			}
-			
-			try {
-				scheduler.scheduleJob(job, trigger);
-			} catch (SchedulerException e) {
-				logger.error("Error scheduling a finish job with the Quartz Scheduler : {}",e.getMessage());
-			}	   
-		}
-
-		public void jobExecutionVetoed(JobExecutionContext context) {
-			// do something with the event
-		}
-
-		@Override
-		public String getName() {
-			return Integer.toHexString(hashCode()) + "SocketSelectorJobListener";
 		}
 	}
 
@@ -0,0 +1,61 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.tcp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The response to a blocking write/read operation. The thread that queued the data waits on
+ * this future, which is completed by the selector thread of the binding as soon as the remote
+ * end answers.
+ *
+ * @since 1.4.0
+ */
+public class ResponseFuture extends FutureTask<ByteBuffer> {
+
+	private static final Runnable NO_TASK = new Runnable() {
+		public void run() {
+		}
+	};
+
+	public ResponseFuture() {
+		super(NO_TASK, null);
+	}
+
+	/**
+	 * Completes this future with the data received from the remote end.
+	 *
+	 * @param response the received data
+	 */
+	public void complete(ByteBuffer response) {
+		set(response);
+	}
+
+}
@@ -0,0 +1,92 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @since 1.4.0
+ */
+public class ZWavePollSchedulerTest {
+
+	@Test
+	public void pollsNewNodesRightAway() {
+		ZWavePollScheduler scheduler = new ZWavePollScheduler(60000, 600000);
+		assertTrue(scheduler.isPollDue(2, true, 1000));
+		scheduler.polled(2, 1, 1000);
+		assertFalse(scheduler.isPollDue(2, true, 60999));
+		assertTrue(scheduler.isPollDue(2, true, 61000));
+	}
+
+	@Test
+	public void backsOffForReportingNodes() {
+		ZWavePollScheduler scheduler = new ZWavePollScheduler(60000, 200000);
+		scheduler.isPollDue(2, true, 0);
+		scheduler.polled(2, 2, 0);
+
+		// the responses to the poll don't change the interval
+		scheduler.reportReceived(2, 100);
+		scheduler.reportReceived(2, 200);
+		assertEquals(60000, scheduler.getPollInterval(2));
+
+		scheduler.reportReceived(2, 30000);
+		assertEquals(120000, scheduler.getPollInterval(2));
+		assertFalse(scheduler.isPollDue(2, true, 149999));
+		assertTrue(scheduler.isPollDue(2, true, 150000));
+
+		scheduler.reportReceived(2, 40000);
+		assertEquals(200000, scheduler.getPollInterval(2));
+
+		// a reporting node keeps its interval when it is polled
+		scheduler.polled(2, 1, 240000);
+		assertEquals(200000, scheduler.getPollInterval(2));
+
+		// and gets polled more often again once it stopped reporting
+		scheduler.reportReceived(2, 240100);
+		scheduler.polled(2, 1, 440000);
+		assertEquals(100000, scheduler.getPollInterval(2));
+		scheduler.polled(2, 1, 540000);
+		assertEquals(60000, scheduler.getPollInterval(2));
+	}
+
+	@Test
+	public void pollsBatteryNodesAtMaximumInterval() {
+		ZWavePollScheduler scheduler = new ZWavePollScheduler(60000, 600000);
+		assertTrue(scheduler.isPollDue(5, false, 0));
+		scheduler.polled(5, 1, 0);
+		assertFalse(scheduler.isPollDue(5, false, 599999));
+		assertEquals(600000, scheduler.getPollInterval(5));
+		assertTrue(scheduler.isPollDue(5, false, 600000));
+	}
+
+}
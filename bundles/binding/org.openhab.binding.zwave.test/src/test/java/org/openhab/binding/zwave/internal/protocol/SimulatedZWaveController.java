@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageClass;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessagePriority;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageType;
+
+/**
+ * Stands in for the serial port of a Z-Wave controller. The bytes queued with
+ * {@link #send(byte[])} are delivered through the input stream in chunks of at most
+ * <code>chunkSize</code> bytes, like a serial port with a receive timeout would deliver
+ * them. The responses of the receiver are captured from the output stream.
+ *
+ * @since 1.4.0
+ */
+public class SimulatedZWaveController {
+
+	private final LinkedBlockingQueue<byte[]> pending = new LinkedBlockingQueue<byte[]>();
+
+	private final ByteArrayOutputStream responses = new ByteArrayOutputStream();
+
+	private final int chunkSize;
+
+	private byte[] current;
+	private int position;
+
+	/**
+	 * @param chunkSize the maximum number of bytes returned by a single read
+	 */
+	public SimulatedZWaveController(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Creates a valid frame for an application command with the given payload.
+	 */
+	public static byte[] createFrame(byte... payload) {
+		SerialMessage message = new SerialMessage(SerialMessageClass.ApplicationCommandHandler,
+				SerialMessageType.Request, SerialMessageClass.ApplicationCommandHandler, SerialMessagePriority.Get);
+		message.setMessagePayload(payload);
+		return message.getMessageBuffer();
+	}
+
+	/**
+	 * Queues the given bytes to be read by the receiver.
+	 */
+	public void send(byte[] data) {
+		pending.add(data);
+	}
+
+	/**
+	 * @return the bytes the receiver wrote to the controller so far
+	 */
+	public byte[] getResponses() {
+		synchronized (responses) {
+			return responses.toByteArray();
+		}
+	}
+
+	/**
+	 * @return the number of times the given response has been written to the controller
+	 */
+	public int countResponses(int response) {
+		int count = 0;
+		for (byte b : getResponses()) {
+			if ((b & 0xFF) == response) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	public InputStream getInputStream() {
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) > 0 ? b[0] & 0xFF : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				if (current == null || position == current.length) {
+					try {
+						// behaves like a receive timeout if there is nothing to read
+						current = pending.poll(10, TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return 0;
+					}
+					position = 0;
+					if (current == null) {
+						return 0;
+					}
+				}
+				int count = Math.min(Math.min(len, chunkSize), current.length - position);
+				System.arraycopy(current, position, b, off, count);
+				position += count;
+				return count;
+			}
+		};
+	}
+
+	public OutputStream getOutputStream() {
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				synchronized (responses) {
+					responses.write(b);
+				}
+			}
+		};
+	}
+
+}
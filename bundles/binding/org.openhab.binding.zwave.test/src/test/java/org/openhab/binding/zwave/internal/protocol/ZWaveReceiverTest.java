@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @since 1.4.0
+ */
+public class ZWaveReceiverTest {
+
+	private ZWaveReceiver receiver;
+
+	@After
+	public void tearDown() {
+		if (receiver != null) {
+			receiver.stop();
+		}
+	}
+
+	@Test
+	public void receivesFramesSplitAcrossReads() throws InterruptedException {
+		SimulatedZWaveController controller = new SimulatedZWaveController(3);
+		TestListener listener = new TestListener(2);
+		start(controller, listener);
+
+		byte[] first = SimulatedZWaveController.createFrame((byte) 0x00, (byte) 0x05, (byte) 0x03, (byte) 0x25, (byte) 0x03, (byte) 0xFF);
+		byte[] second = SimulatedZWaveController.createFrame((byte) 0x00, (byte) 0x07, (byte) 0x02, (byte) 0x80, (byte) 0x03);
+		controller.send(first);
+		controller.send(second);
+
+		assertTrue(listener.await());
+		assertEquals(2, listener.messages.size());
+		assertArrayEquals(new byte[] { 0x00, 0x05, 0x03, 0x25, 0x03, (byte) 0xFF }, listener.messages.get(0).getMessagePayload());
+		assertEquals(SerialMessage.SerialMessageClass.ApplicationCommandHandler, listener.messages.get(1).getMessageClass());
+		assertEquals(2, controller.countResponses(ZWaveReceiver.ACK));
+		assertEquals(2, receiver.getSOFCount());
+	}
+
+	@Test
+	public void discardsFramesWithInvalidChecksum() throws InterruptedException {
+		SimulatedZWaveController controller = new SimulatedZWaveController(64);
+		TestListener listener = new TestListener(1);
+		start(controller, listener);
+
+		byte[] invalid = SimulatedZWaveController.createFrame((byte) 0x00, (byte) 0x05);
+		invalid[invalid.length - 1] ^= 0xFF;
+		controller.send(invalid);
+		controller.send(SimulatedZWaveController.createFrame((byte) 0x00, (byte) 0x06));
+
+		assertTrue(listener.await());
+		Thread.sleep(50);
+		assertEquals(1, listener.messages.size());
+		assertArrayEquals(new byte[] { 0x00, 0x06 }, listener.messages.get(0).getMessagePayload());
+		assertEquals(1, controller.countResponses(ZWaveReceiver.ACK));
+	}
+
+	@Test
+	public void reportsRefusedFramesAndOutOfFrameBytes() throws InterruptedException {
+		SimulatedZWaveController controller = new SimulatedZWaveController(64);
+		TestListener listener = new TestListener(1);
+		start(controller, listener);
+
+		controller.send(new byte[] { ZWaveReceiver.ACK, ZWaveReceiver.NAK, ZWaveReceiver.CAN, 0x42 });
+		controller.send(SimulatedZWaveController.createFrame((byte) 0x00));
+
+		assertTrue(listener.await());
+		assertEquals(1, receiver.getACKCount());
+		assertEquals(1, receiver.getNAKCount());
+		assertEquals(1, receiver.getCANCount());
+		assertEquals(1, receiver.getOOFCount());
+		assertEquals(2, listener.refused.size());
+		assertEquals(ZWaveReceiver.NAK, (int) listener.refused.get(0));
+		assertEquals(ZWaveReceiver.CAN, (int) listener.refused.get(1));
+		assertArrayEquals(new byte[] { ZWaveReceiver.NAK, ZWaveReceiver.ACK }, controller.getResponses());
+	}
+
+	@Test
+	public void acknowledgesFramesWhileListenerIsBusy() throws InterruptedException {
+		SimulatedZWaveController controller = new SimulatedZWaveController(16);
+		final CountDownLatch release = new CountDownLatch(1);
+		TestListener listener = new TestListener(10) {
+			@Override
+			public void messageReceived(SerialMessage message) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return;
+				}
+				super.messageReceived(message);
+			}
+		};
+		start(controller, listener);
+
+		for (int i = 0; i < 10; i++) {
+			controller.send(SimulatedZWaveController.createFrame((byte) 0x00, (byte) i));
+		}
+
+		// all frames are acknowledged although the listener has not even finished the first one
+		long deadline = System.currentTimeMillis() + 2000;
+		while (controller.countResponses(ZWaveReceiver.ACK) < 10 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(10, controller.countResponses(ZWaveReceiver.ACK));
+		assertEquals(0, listener.messages.size());
+
+		release.countDown();
+		assertTrue(listener.await());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, listener.messages.get(i).getMessagePayloadByte(1));
+		}
+	}
+
+	@Test
+	public void measureThroughput() throws InterruptedException {
+		final int frameCount = 20000;
+		SimulatedZWaveController controller = new SimulatedZWaveController(256);
+		TestListener listener = new TestListener(frameCount);
+		start(controller, listener);
+
+		byte[] frame = SimulatedZWaveController.createFrame((byte) 0x00, (byte) 0x05, (byte) 0x03, (byte) 0x25, (byte) 0x03, (byte) 0xFF);
+		byte[] burst = new byte[frame.length * 100];
+		for (int i = 0; i < 100; i++) {
+			System.arraycopy(frame, 0, burst, i * frame.length, frame.length);
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < frameCount / 100; i++) {
+			controller.send(burst);
+		}
+		assertTrue(listener.await());
+		long duration = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+		assertEquals(frameCount, listener.messages.size());
+		assertEquals(frameCount, controller.countResponses(ZWaveReceiver.ACK));
+		System.out.println("Received " + frameCount + " frames in " + duration + "ms (" 
+				+ (frameCount * 1000L / duration) + " frames/s)");
+	}
+
+	private void start(SimulatedZWaveController controller, TestListener listener) {
+		receiver = new ZWaveReceiver(listener);
+		receiver.start(controller.getInputStream(), controller.getOutputStream());
+	}
+
+
+	private static class TestListener implements ZWaveReceiver.Listener {
+
+		final List<SerialMessage> messages = new ArrayList<SerialMessage>();
+		final List<Integer> refused = new ArrayList<Integer>();
+		final CountDownLatch received;
+
+		TestListener(int expected) {
+			received = new CountDownLatch(expected);
+		}
+
+		public void messageReceived(SerialMessage message) {
+			synchronized (messages) {
+				messages.add(message);
+			}
+			received.countDown();
+		}
+
+		public void frameRefused(int response) {
+			refused.add(response);
+		}
+
+		boolean await() throws InterruptedException {
+			return received.await(10, TimeUnit.SECONDS);
+		}
+	}
+
+}
@@ -151,6 +151,21 @@ public enum ZWaveBindingAction {
 	 */
 	REPORT_ACK("ACK"),
 	
+	/**
+	 * Reports the number of messages waiting to be sent to the node.
+	 */
+	REPORT_QUEUE_DEPTH("QUEUE_DEPTH"),
+	
+	/**
+	 * Reports the average round trip time of the transactions with the node in milliseconds.
+	 */
+	REPORT_ROUND_TRIP_TIME("RTT"),
+	
+	/**
+	 * Reports the maximum round trip time of the transactions with the node in milliseconds.
+	 */
+	REPORT_MAX_ROUND_TRIP_TIME("MAX_RTT"),
+	
 	/**
 	 * Reports the wake up interval time in seconds.
 	 */
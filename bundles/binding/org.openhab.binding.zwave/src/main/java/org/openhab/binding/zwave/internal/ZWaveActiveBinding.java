@@ -31,6 +31,10 @@ package org.openhab.binding.zwave.internal;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.openhab.binding.zwave.ZWaveBindingAction;
@@ -87,7 +91,21 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 	 * that require Z-Wave network traffic. 
 	 */
 	private int refreshThreshold = 6;
-	private int refreshCount = 0;
+	
+	/**
+	 * The maximum time in milliseconds between two polls of a node (optional, defaults to 600,000ms).
+	 * Nodes which report their values on their own are polled less often, up to this interval.
+	 * Battery operated nodes are always polled at this interval.
+	 */
+	private long maxPollInterval = 600000;
+	
+	private volatile ZWavePollScheduler pollScheduler = new ZWavePollScheduler(refreshInterval * refreshThreshold, maxPollInterval);
+	
+	/**
+	 * The maximum number of transactions with different nodes that may be in flight
+	 * at the same time (optional, defaults to 4).
+	 */
+	private int maxTransactions = ZWaveController.DEFAULT_MAX_TRANSACTIONS;
 	
 	/**
 	 * {@inheritDoc}
@@ -107,7 +125,8 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 
 	/**
 	 * Working method that executes refreshing of the bound items. The method is executed
-	 * at every refresh interval. The nodes are polled only every 6 refreshes.
+	 * at every refresh interval. The values of a node are polled only if its poll interval
+	 * elapsed, see {@link ZWavePollScheduler}.
 	 */
 	@Override
 	protected void execute() {
@@ -119,13 +138,9 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 			return;
 		}
 		
-		refreshCount++;
-		if (refreshCount > refreshThreshold) {
-			logger.trace("Reseting Refresh Count to Zero");
-			refreshCount = 0;
-		} else {
-			logger.trace(String.format("Refresh Count: %d", refreshCount));
-		}
+		long now = System.currentTimeMillis();
+		ZWavePollScheduler pollScheduler = this.pollScheduler;
+		Map<Integer, Set<Integer>> polledNodes = new HashMap<Integer, Set<Integer>>();
 			
 		// loop all binding providers for the Z-wave binding.
 		for (ZWaveBindingProvider provider : providers) {
@@ -140,16 +155,15 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 				
 				ZWaveNode zNode = this.zController.getNode(nodeId);
 				
-				//TODO: implement a better means then polling to get values.
-				//JWS: Suggestion: use a binding action to indicate polling, do not poll other devices.
+				// values are updated by the events of the node, polling is only a fallback.
 				switch (action) {
 					case RESTORE_LAST_VALUE:
 					case NONE: // just a plain node; no reporting.
-						if (refreshCount == 0)
+						if (isPollDue(pollScheduler, zNode, endpoint, polledNodes, now))
 							this.zController.requestValue(zNode.getNodeId(), endpoint);
 						continue; // next item
 					case REPORT_BATTERY_LEVEL:
-						if (refreshCount == 0)
+						if (isPollDue(pollScheduler, zNode, -1 - endpoint, polledNodes, now))
 							this.zController.requestBatteryLevel(zNode.getNodeId(), endpoint);
 						continue; // next item
 					case REPORT_HOMEID:
@@ -212,6 +226,15 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 					case REPORT_OOF:
 						value = new StringType(String.format("%d", this.zController.getOOFCount()));
 						break;
+					case REPORT_QUEUE_DEPTH:
+						value = new StringType(String.format("%d", this.zController.getQueueDepth(nodeId)));
+						break;
+					case REPORT_ROUND_TRIP_TIME:
+						value = new StringType(String.format("%d", this.zController.getAverageRoundTripTime(nodeId)));
+						break;
+					case REPORT_MAX_ROUND_TRIP_TIME:
+						value = new StringType(String.format("%d", this.zController.getMaxRoundTripTime(nodeId)));
+						break;
 					case REPORT_LASTUPDATE:
 						value = new StringType(SIMPLE_DATE_FORMAT.format(zNode.getLastUpdated()).toString());
 						break;
@@ -228,7 +251,34 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 				// post update on the bus
 				eventPublisher.postUpdate(itemName, value);
 			}
-		}		
+		}
+		
+		for (Map.Entry<Integer, Set<Integer>> polledNode : polledNodes.entrySet()) {
+			pollScheduler.polled(polledNode.getKey(), polledNode.getValue().size(), now);
+		}
+	}
+	
+	/**
+	 * Checks whether a value of the node has to be polled during this refresh. 
+	 * Once a node is due, all of its values are polled, but every value only once.
+	 * @param pollScheduler the scheduler to ask.
+	 * @param node the node to check.
+	 * @param request identifies the value to poll, the endpoint for its value or 
+	 * -1 - endpoint for its battery level.
+	 * @param polledNodes the values polled during this refresh so far by their node.
+	 * @param now the time of this refresh.
+	 * @return true if the value has to be polled.
+	 */
+	private boolean isPollDue(ZWavePollScheduler pollScheduler, ZWaveNode node, int request, Map<Integer, Set<Integer>> polledNodes, long now) {
+		Set<Integer> requests = polledNodes.get(node.getNodeId());
+		if (requests == null) {
+			if (!pollScheduler.isPollDue(node.getNodeId(), node.isListening(), now))
+				return false;
+			requests = new HashSet<Integer>();
+			polledNodes.put(node.getNodeId(), requests);
+		}
+		
+		return requests.add(request);
 	}
 	
 	/**
@@ -338,6 +388,7 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 			this.zController = null;
 			controller.close();
 			controller.removeEventListener(this);
+			logger.debug("Z-Wave polling stopped: {}", pollScheduler.getStatistics());
 		}
 	}
 
@@ -371,6 +422,29 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 			}
 		}
 		
+		// Check the maximum poll interval.
+		String maxPollIntervalString = (String) config.get("maxPollInterval");
+		if (StringUtils.isNotBlank(maxPollIntervalString)) {
+			try {
+				maxPollInterval = Long.parseLong(maxPollIntervalString);
+			} catch (NumberFormatException ex) {
+				this.setProperlyConfigured(false);
+				throw new ConfigurationException("maxPollInterval", ex.getLocalizedMessage(), ex);
+			}
+		}
+		pollScheduler = new ZWavePollScheduler(refreshInterval * refreshThreshold, maxPollInterval);
+		
+		// Check the maximum number of concurrent transactions.
+		String maxTransactionsString = (String) config.get("maxTransactions");
+		if (StringUtils.isNotBlank(maxTransactionsString)) {
+			try {
+				maxTransactions = Integer.parseInt(maxTransactionsString);
+			} catch (NumberFormatException ex) {
+				this.setProperlyConfigured(false);
+				throw new ConfigurationException("maxTransactions", ex.getLocalizedMessage(), ex);
+			}
+		}
+		
 		// Check the serial port configuration value.
 		// This value is mandatory.
 		if (StringUtils.isNotBlank((String) config.get("port"))) {
@@ -379,7 +453,7 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 				logger.info("Update config, port = {}", port);
 				this.setProperlyConfigured(true);
 				this.deactivate();
-				this.zController = new ZWaveController(port);
+				this.zController = new ZWaveController(port, maxTransactions);
 				zController.initialize();
 				zController.addEventListener(this);
 				return;
@@ -432,6 +506,7 @@ public class ZWaveActiveBinding extends AbstractActiveBinding<ZWaveBindingProvid
 			case SENSOR_EVENT:
 			case BATTERY_EVENT:
 				logger.debug("Got a " + event.getEventType() + " event from Z-Wave network for nodeId = {}, state = {}, endpoint = {}", new Object[] { event.getNodeId(), event.getEventValue(), event.getEndpoint() } );
+				pollScheduler.reportReceived(event.getNodeId(), System.currentTimeMillis());
 				for (ZWaveBindingProvider provider : providers) {
 					logger.trace("Trying to find Item through {} provider", provider.toString());
 					for (String itemName : provider.getItemNames()) {
@@ -0,0 +1,174 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides when the values of a Z-Wave node have to be polled. Every node has its own poll
+ * interval, which starts at the minimum interval and adapts to the behaviour of the node:
+ * <ul>
+ * <li>every report the node sends on its own doubles the interval, up to the maximum
+ * interval, and postpones the next poll accordingly,</li>
+ * <li>every poll which is due although the node did not report on its own since the last
+ * poll halves the interval again, down to the minimum interval,</li>
+ * <li>battery operated nodes, which are not listening, are always polled at the maximum 
+ * interval, as their requests wait in the wake-up queue anyway.</li>
+ * </ul>
+ * 
+ * @since 1.4.0
+ */
+public class ZWavePollScheduler {
+	
+	private final long minInterval;
+	private final long maxInterval;
+	
+	private final Map<Integer, NodePollState> nodes = new HashMap<Integer, NodePollState>();
+	
+	private long pollCount = 0;
+	private long reportCount = 0;
+	private long unsolicitedReportCount = 0;
+	
+	/**
+	 * @param minInterval the minimum poll interval in milliseconds.
+	 * @param maxInterval the maximum poll interval in milliseconds.
+	 */
+	public ZWavePollScheduler(long minInterval, long maxInterval) {
+		this.minInterval = Math.max(0, minInterval);
+		this.maxInterval = Math.max(this.minInterval, maxInterval);
+	}
+	
+	/**
+	 * Checks whether the values of a node have to be polled.
+	 * @param nodeId the node to check.
+	 * @param listening true if the node is always listening, false if it is a battery operated node.
+	 * @param now the current time in milliseconds.
+	 * @return true if the node has to be polled.
+	 */
+	public synchronized boolean isPollDue(int nodeId, boolean listening, long now) {
+		NodePollState node = getNode(nodeId, now);
+		node.listening = listening;
+		return now >= node.lastPoll + getInterval(node);
+	}
+	
+	/**
+	 * Records that the values of a node have been polled.
+	 * @param nodeId the node which has been polled.
+	 * @param requests the number of requests sent to the node.
+	 * @param now the current time in milliseconds.
+	 */
+	public synchronized void polled(int nodeId, int requests, long now) {
+		NodePollState node = getNode(nodeId, now);
+		if (!node.reportedSinceLastPoll) {
+			// the node does not report on its own, so don't wait that long for the next poll
+			node.interval = Math.max(minInterval, node.interval / 2);
+		}
+		node.reportedSinceLastPoll = false;
+		node.awaitingResponses = requests;
+		node.lastPoll = now;
+		pollCount++;
+	}
+	
+	/**
+	 * Records that a node reported one of its values. As many reports after a poll as
+	 * requests have been sent are considered to be the responses to the poll, all other 
+	 * reports are considered to be sent by the node on its own.
+	 * @param nodeId the node which reported a value.
+	 * @param now the current time in milliseconds.
+	 */
+	public synchronized void reportReceived(int nodeId, long now) {
+		NodePollState node = getNode(nodeId, now);
+		reportCount++;
+		if (node.awaitingResponses > 0) {
+			node.awaitingResponses--;
+			return;
+		}
+		unsolicitedReportCount++;
+		node.reportedSinceLastPoll = true;
+		node.interval = Math.min(maxInterval, Math.max(1, node.interval * 2));
+		// the reported value is current, so the next poll can wait a full interval
+		node.lastPoll = now;
+	}
+	
+	/**
+	 * @param nodeId the node to get the poll interval for.
+	 * @return the current poll interval of the node in milliseconds.
+	 */
+	public synchronized long getPollInterval(int nodeId) {
+		NodePollState node = nodes.get(nodeId);
+		return node != null ? getInterval(node) : minInterval;
+	}
+	
+	/**
+	 * Forgets the poll state of all nodes.
+	 */
+	public synchronized void clear() {
+		nodes.clear();
+	}
+	
+	/**
+	 * @return a human readable summary of the polling metrics.
+	 */
+	public synchronized String getStatistics() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("polls=").append(pollCount).append(", reports=").append(reportCount)
+			.append(", unsolicitedReports=").append(unsolicitedReportCount);
+		for (Map.Entry<Integer, NodePollState> entry : nodes.entrySet()) {
+			sb.append(String.format("; node %d: interval=%dms", entry.getKey(), getInterval(entry.getValue())));
+		}
+		return sb.toString();
+	}
+	
+	private NodePollState getNode(int nodeId, long now) {
+		NodePollState node = nodes.get(nodeId);
+		if (node == null) {
+			node = new NodePollState();
+			node.interval = minInterval;
+			// poll new nodes right away
+			node.lastPoll = now - maxInterval;
+			nodes.put(nodeId, node);
+		}
+		return node;
+	}
+	
+	private long getInterval(NodePollState node) {
+		return node.listening ? node.interval : maxInterval;
+	}
+	
+	
+	private static class NodePollState {
+		long interval;
+		long lastPoll;
+		boolean listening = true;
+		int awaitingResponses;
+		boolean reportedSinceLastPoll;
+	}
+
+}
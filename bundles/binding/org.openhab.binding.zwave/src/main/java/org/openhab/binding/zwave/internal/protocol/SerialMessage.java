@@ -144,11 +144,36 @@ public class SerialMessage {
 	 * @param buffer the buffer to create the SerialMessage from.
 	 */
 	public SerialMessage(int nodeId, byte[] buffer) {
-		logger.debug("Creating new SerialMessage from buffer = " + SerialMessage.bb2hex(buffer));
-		messageLength = buffer.length - 2; // buffer[1];
-		byte messageCheckSumm = calculateChecksum(buffer);
+		this(nodeId, buffer, buffer.length);
+	}
+	
+	/**
+	 * Constructor. Creates a new instance of the SerialMessage class from the
+	 * first bytes of a specified buffer.
+	 * @param buffer the buffer to create the SerialMessage from.
+	 * @param length the length of the message in the buffer.
+	 * @since 1.4.0
+	 */
+	public SerialMessage(byte[] buffer, int length) {
+		this(255, buffer, length);
+	}
+	
+	/**
+	 * Constructor. Creates a new instance of the SerialMessage class from the
+	 * first bytes of a specified buffer, and subsequently sets the node ID.
+	 * @param nodeId the node the message is destined for
+	 * @param buffer the buffer to create the SerialMessage from.
+	 * @param length the length of the message in the buffer.
+	 * @since 1.4.0
+	 */
+	public SerialMessage(int nodeId, byte[] buffer, int length) {
+		if (logger.isDebugEnabled())
+			logger.debug("Creating new SerialMessage from buffer = " + SerialMessage.bb2hex(buffer, length));
+		messageLength = length - 2; // buffer[1];
+		byte messageCheckSumm = calculateChecksum(buffer, length);
 		byte messageCheckSummReceived = buffer[messageLength+1];
-		logger.debug(String.format("Message checksum calculated = 0x%02X, received = 0x%02X", messageCheckSumm, messageCheckSummReceived));
+		if (logger.isDebugEnabled())
+			logger.debug(String.format("Message checksum calculated = 0x%02X, received = 0x%02X", messageCheckSumm, messageCheckSummReceived));
 		if (messageCheckSumm == messageCheckSummReceived) {
 			logger.trace("Checksum matched");
 			isValid = true;
@@ -161,8 +186,10 @@ public class SerialMessage {
 		this.messageClass = SerialMessageClass.getMessageClass(buffer[3] & 0xFF);
 		this.messagePayload = ArrayUtils.subarray(buffer, 4, messageLength + 1);
 		this.messageNode = nodeId;
-		logger.debug("Message Node ID = " + getMessageNode());
-		logger.debug("Message payload = " + SerialMessage.bb2hex(messagePayload));
+		if (logger.isDebugEnabled()) {
+			logger.debug("Message Node ID = " + getMessageNode());
+			logger.debug("Message payload = " + SerialMessage.bb2hex(messagePayload));
+		}
 	}
 
     /**
@@ -171,11 +198,22 @@ public class SerialMessage {
      * @return string the string representation
      */
     static public String bb2hex(byte[] bb) {
-		String result = "";
-		for (int i=0; i<bb.length; i++) {
-			result = result + String.format("%02X ", bb[i]);
+		return bb2hex(bb, bb.length);
+	}
+    
+    /**
+     * Converts the first bytes of a byte array to a hexadecimal string representation    
+     * @param bb the byte array to convert
+     * @param length the number of bytes to convert
+     * @return string the string representation
+     * @since 1.4.0
+     */
+    static public String bb2hex(byte[] bb, int length) {
+		StringBuilder result = new StringBuilder(length * 3);
+		for (int i=0; i<length; i++) {
+			result.append(String.format("%02X ", bb[i]));
 		}
-		return result;
+		return result.toString();
 	}
 	
 	/**
@@ -184,13 +222,35 @@ public class SerialMessage {
 	 * @return the checksum value.
 	 */
 	private static byte calculateChecksum(byte[] buffer) {
+		return calculateChecksum(buffer, buffer.length);
+	}
+	
+	/**
+	 * Calculates a checksum for the first bytes of the specified buffer.
+	 * @param buffer the buffer to calculate.
+	 * @param length the length of the message in the buffer, including the checksum byte.
+	 * @return the checksum value.
+	 */
+	private static byte calculateChecksum(byte[] buffer, int length) {
 		byte checkSum = (byte)0xFF;
-		for (int i=1; i<buffer.length-1; i++) {
+		for (int i=1; i<length-1; i++) {
 			checkSum = (byte) (checkSum ^ buffer[i]);
 		}
-		logger.trace(String.format("Calculated checksum = 0x%02X", checkSum));
+		if (logger.isTraceEnabled())
+			logger.trace(String.format("Calculated checksum = 0x%02X", checkSum));
 		return checkSum;
 	}
+	
+	/**
+	 * Checks the checksum of a message received from the controller. 
+	 * @param buffer the buffer containing the message.
+	 * @param length the length of the message in the buffer.
+	 * @return true if the checksum of the message is valid.
+	 * @since 1.4.0
+	 */
+	public static boolean isChecksumValid(byte[] buffer, int length) {
+		return calculateChecksum(buffer, length) == buffer[length - 1];
+	}
 
 	/**
 	 * Returns a string representation of this SerialMessage object.
@@ -550,6 +610,23 @@ public class SerialMessage {
 		 */
 		@Override
 		public int compare(SerialMessage arg0, SerialMessage arg1) {
+			int res = compareUrgency(arg0, arg1);
+
+			if (res == 0 && arg0 != arg1)
+				res = (arg0.sequenceNumber < arg1.sequenceNumber ? -1 : 1);
+
+			return res;
+		}
+
+		/**
+		 * Compares the urgency of a serial message to another serial message,
+		 * without regard to the order in which they have been created.
+		 * @param arg0 the first serial message to compare the other to.
+		 * @param arg1 the other serial message to compare the first one to.
+		 * @return a negative integer, zero, or a positive integer as the first message
+		 * is more, equally or less urgent than the other one.
+		 */
+		public int compareUrgency(SerialMessage arg0, SerialMessage arg1) {
 
 			boolean arg0Awake = false;
 			boolean arg0Listening = true;
@@ -596,12 +673,7 @@ public class SerialMessage {
 			else if (arg1Listening && !arg0Listening)
 				return 1;
 
-			int res = arg0.priority.compareTo(arg1.priority);
-
-			if (res == 0 && arg0 != arg1)
-				res = (arg0.sequenceNumber < arg1.sequenceNumber ? -1 : 1);
-
-			return res;
+			return arg0.priority.compareTo(arg1.priority);
 		}
 	}
 
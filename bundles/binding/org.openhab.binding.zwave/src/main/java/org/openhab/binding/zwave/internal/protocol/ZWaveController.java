@@ -38,12 +38,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.openhab.binding.zwave.internal.commandclass.ZWaveBatteryCommandClass;
@@ -80,7 +78,7 @@ public class ZWaveController {
 	private static final int ZWAVE_RESPONSE_TIMEOUT = 5000; // 5000 ms ZWAVE_RESPONSE TIMEOUT
 	private static final int ZWAVE_RECEIVE_TIMEOUT = 1000; // 1000 ms ZWAVE_RECEIVE_TIMEOUT
 	private static final int NODE_BYTES = 29; // 29 bytes = 232 bits, one for each supported node by Z-Wave;
-	private static final int INITIAL_QUEUE_SIZE = 128; 
+	public static final int DEFAULT_MAX_TRANSACTIONS = 4;
 	private static final long WATCHDOG_TIMER_PERIOD = 10000; // 10 seconds watchdog timer
 
 	private static final int TRANSMIT_OPTION_ACK = 0x01;
@@ -89,12 +87,10 @@ public class ZWaveController {
 	
 	private final Map<Integer, ZWaveNode> zwaveNodes = new HashMap<Integer, ZWaveNode>();
 	private final ArrayList<ZWaveEventListener> zwaveEventListeners = new ArrayList<ZWaveEventListener>();
-	private final PriorityBlockingQueue<SerialMessage> sendQueue = new PriorityBlockingQueue<SerialMessage>(INITIAL_QUEUE_SIZE, new SerialMessage.SerialMessageComparator(this));
+	private final ZWaveTransactionScheduler scheduler;
 	private ZWaveSendThread sendThread;
-	private ZWaveReceiveThread receiveThread;
+	private final ZWaveReceiver receiver = new ZWaveReceiver(new ZWaveReceiverListener());
 	
-	private final Semaphore transactionCompleted = new Semaphore(1);
-	private volatile SerialMessage lastSentMessage = null;
 	private SerialPort serialPort;
 	private Timer watchdog;
 	
@@ -108,12 +104,6 @@ public class ZWaveController {
 	private int ZWaveLibraryType = 0;
 	private int sentDataPointer = 1;
 	
-	private int SOFCount = 0;
-	private int CANCount = 0;
-	private int NAKCount = 0;
-	private int ACKCount = 0;
-	private int OOFCount = 0;
-	
 	private boolean isConnected;
 	
 	// Constructors
@@ -125,7 +115,21 @@ public class ZWaveController {
 	 * @throws SerialInterfaceException when a connection error occurs.
 	 */
 	public ZWaveController(final String serialPortName) throws SerialInterfaceException {
+		this(serialPortName, DEFAULT_MAX_TRANSACTIONS);
+	}
+	
+	/**
+	 * Constructor. Creates a new instance of the Z-Wave controller class.
+	 * @param serialPortName the serial port name to use for 
+	 * communication with the Z-Wave controller stick.
+	 * @param maxTransactions the maximum number of transactions with different
+	 * nodes that may be in flight at the same time.
+	 * @throws SerialInterfaceException when a connection error occurs.
+	 * @since 1.4.0
+	 */
+	public ZWaveController(final String serialPortName, int maxTransactions) throws SerialInterfaceException {
 			logger.info("Starting Z-Wave controller");
+			this.scheduler = new ZWaveTransactionScheduler(new SerialMessage.SerialMessageComparator(this), maxTransactions, ZWAVE_RESPONSE_TIMEOUT);
 			connect(serialPortName);
 			
 			this.watchdog = new Timer(true);
@@ -220,10 +224,9 @@ public class ZWaveController {
 		logger.trace("Found Command Class {}, passing to handleApplicationCommandRequest", zwaveCommandClass.getCommandClass().getLabel());
 		zwaveCommandClass.handleApplicationCommandRequest(incomingMessage, 4, 1);
 
-		if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && nodeId == this.lastSentMessage.getMessageNode() && !incomingMessage.isTransActionCanceled()) {
-				notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-				transactionCompleted.release();
-				logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
+		SerialMessage transaction = scheduler.getTransaction(nodeId);
+		if (transaction != null && incomingMessage.getMessageClass() == transaction.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
+				completeTransaction(transaction);
 		}
 	}
 	
@@ -237,7 +240,6 @@ public class ZWaveController {
 		
 		int callbackId = incomingMessage.getMessagePayloadByte(0);
 		TransmissionState status = TransmissionState.getTransmissionState(incomingMessage.getMessagePayloadByte(1));
-		SerialMessage originalMessage = this.lastSentMessage;
 		
 		if (status == null) {
 			logger.warn("Transmission state not found, ignoring.");
@@ -247,7 +249,8 @@ public class ZWaveController {
 		logger.debug("CallBack ID = {}", callbackId);
 		logger.debug(String.format("Status = %s (0x%02x)", status.getLabel(), status.getKey()));
 		
-		if (originalMessage == null || originalMessage.getCallbackId() != callbackId) {
+		SerialMessage originalMessage = scheduler.transmitted(callbackId);
+		if (originalMessage == null) {
 			logger.warn("Already processed another send data request for this callback Id, ignoring.");
 			return;
 		}
@@ -262,21 +265,15 @@ public class ZWaveController {
 					node.advanceNodeStage();
 				}
 				if (incomingMessage.getMessageClass() == originalMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
+					completeTransaction(originalMessage);
 				}
 				return;
 			case COMPLETE_NO_ACK:
 			case COMPLETE_FAIL:
 			case COMPLETE_NOT_IDLE:
 			case COMPLETE_NOROUTE:
-				try {
-					handleFailedSendDataRequest(originalMessage);
-				} finally {
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				}
+				scheduler.fail(originalMessage);
+				handleFailedSendDataRequest(originalMessage);
 			default:
 		}
 	}
@@ -343,30 +340,29 @@ public class ZWaveController {
 				// advance node stage.
 				node.advanceNodeStage();
 				
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
+				SerialMessage transaction = scheduler.getTransaction(nodeId);
+				if (transaction != null && incomingMessage.getMessageClass() == transaction.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
+					completeTransaction(transaction);
 				}
 				break;
 			case NODE_INFO_REQ_FAILED:
 				logger.debug("Application update request, Node Info Request Failed, re-request node info.");
 				
-				SerialMessage requestInfoMessage = this.lastSentMessage;
+				SerialMessage requestInfoMessage = scheduler.getTransmission();
 				
-				if (requestInfoMessage.getMessageClass() != SerialMessageClass.RequestNodeInfo) {
+				if (requestInfoMessage == null || requestInfoMessage.getMessageClass() != SerialMessageClass.RequestNodeInfo) {
 					logger.warn("Got application update request without node info request, ignoring.");
 					return;
 				}
-					
+				
+				scheduler.fail(requestInfoMessage);
 				if (--requestInfoMessage.attempts >= 0) {
 					logger.error("Got Node Info Request Failed while sending this serial message. Requeueing");
 					this.enqueue(requestInfoMessage);
 				} else
 				{
-					logger.warn("Node Info Request Failed 3x. Discarding message: {}", lastSentMessage.toString());
+					logger.warn("Node Info Request Failed 3x. Discarding message: {}", requestInfoMessage.toString());
 				}
-				transactionCompleted.release();
 				break;
 			default:
 				logger.warn(String.format("TODO: Implement Application Update Request Handling of %s (0x%02X).", updateState.getLabel(), updateState.getKey()));
@@ -380,52 +376,37 @@ public class ZWaveController {
 	 */
 	private void handleIncomingResponseMessage(SerialMessage incomingMessage) {
 		logger.debug("Message type = RESPONSE");
+		SerialMessage request = scheduler.responseReceived(incomingMessage.getMessageClass());
 		switch (incomingMessage.getMessageClass()) {
 			case GetVersion:
 				handleGetVersionResponse(incomingMessage);
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				}
+				completeResponseTransaction(incomingMessage, request);
 				break;
 			case MemoryGetId:
 				handleMemoryGetId(incomingMessage);
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				}
+				completeResponseTransaction(incomingMessage, request);
 				break;
 			case SerialApiGetInitData:
 				handleSerialApiGetInitDataResponse(incomingMessage);
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				}
+				completeResponseTransaction(incomingMessage, request);
 				break;
 			case IdentifyNode:
-				handleIdentifyNodeResponse(incomingMessage);
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
+				if (request == null) {
+					logger.warn("Got IdentifyNode response without request, ignoring.");
+					break;
 				}
+				handleIdentifyNodeResponse(incomingMessage, request.getMessagePayloadByte(0));
+				completeResponseTransaction(incomingMessage, request);
 				break;
 			case RequestNodeInfo:
-				handleRequestNodeInfoResponse(incomingMessage);
+				handleRequestNodeInfoResponse(incomingMessage, request);
 				break;
 			case SerialApiGetCapabilities:
 				handleSerialAPIGetCapabilitiesResponse(incomingMessage);
-				if (incomingMessage.getMessageClass() == this.lastSentMessage.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
-					notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, this.lastSentMessage.getMessageNode(), 1, this.lastSentMessage));
-					transactionCompleted.release();
-					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				}
+				completeResponseTransaction(incomingMessage, request);
 				break;
 			case SendData:
-				handleSendDataResponse(incomingMessage);
+				handleSendDataResponse(incomingMessage, request);
 				break;
 			default:
 				logger.warn(String.format("TODO: Implement processing of Response Message = %s (0x%02X)",
@@ -435,6 +416,18 @@ public class ZWaveController {
 		}
 	}
 
+	/**
+	 * Completes the transaction of a request that is answered by the response
+	 * of the controller.
+	 * @param incomingMessage the response message.
+	 * @param request the request the response belongs to, or null if it is unknown.
+	 */
+	private void completeResponseTransaction(SerialMessage incomingMessage, SerialMessage request) {
+		if (request != null && incomingMessage.getMessageClass() == request.getExpectedReply() && !incomingMessage.isTransActionCanceled()) {
+			completeTransaction(request);
+		}
+	}
+
 	/**
 	 * Handles the response of the getVersion request.
 	 * @param incomingMessage the response message to process.
@@ -503,11 +496,11 @@ public class ZWaveController {
 	/**
 	 * Handles the response of the IdentifyNode request.
 	 * @param incomingMessage the response message to process.
+	 * @param nodeId the node which has been identified.
 	 */
-	private void handleIdentifyNodeResponse(SerialMessage incomingMessage) {
+	private void handleIdentifyNodeResponse(SerialMessage incomingMessage, int nodeId) {
 		logger.trace("Handle Message Get Node ProtocolInfo Response");
 		
-		int nodeId = lastSentMessage.getMessagePayloadByte(0);
 		logger.debug("ProtocolInfo for Node = " + nodeId);
 		
 		boolean listening = (incomingMessage.getMessagePayloadByte(0) & 0x80)!=0 ? true : false;
@@ -594,25 +587,64 @@ public class ZWaveController {
 	/**
 	 * Handles the response of the SendData request.
 	 * @param incomingMessage the response message to process.
+	 * @param request the request the response belongs to, or null if it is unknown.
 	 */
-	private void handleSendDataResponse(SerialMessage incomingMessage) {
+	private void handleSendDataResponse(SerialMessage incomingMessage, SerialMessage request) {
 		logger.trace("Handle Message Send Data Response");
 		if(incomingMessage.getMessageBuffer()[2] != 0x00)
 			logger.debug("Sent Data successfully placed on stack.");
-		else
+		else {
 			logger.error("Sent Data was not placed on stack due to error.");
+			// there won't be a callback for this message
+			if (request != null && scheduler.fail(request))
+				retryTransaction(request, "Sent Data was not placed on stack");
+		}
 	}
 	
 	/**
 	 * Handles the response of the Request node request.
 	 * @param incomingMessage the response message to process.
+	 * @param request the request the response belongs to, or null if it is unknown.
 	 */
-	private void handleRequestNodeInfoResponse(SerialMessage incomingMessage) {
+	private void handleRequestNodeInfoResponse(SerialMessage incomingMessage, SerialMessage request) {
 		logger.trace("Handle RequestNodeInfo Response");
 		if(incomingMessage.getMessageBuffer()[2] != 0x00)
 			logger.debug("Request node info successfully placed on stack.");
-		else
+		else {
 			logger.error("Request node info not placed on stack due to error.");
+			if (request != null && scheduler.fail(request))
+				retryTransaction(request, "Request node info was not placed on stack");
+		}
+	}
+	
+	/**
+	 * Ends a transaction successfully and notifies the event listeners.
+	 * @param message the message of the transaction.
+	 */
+	private void completeTransaction(SerialMessage message) {
+		if (scheduler.complete(message)) {
+			notifyEventListeners(new ZWaveEvent(ZWaveEventType.TRANSACTION_COMPLETED_EVENT, message.getMessageNode(), 1, message));
+			logger.trace("Transaction with node {} completed.", message.getMessageNode());
+		}
+	}
+	
+	/**
+	 * Sends the message of a failed transaction again, unless it has been
+	 * sent too many times already.
+	 * @param message the message of the failed transaction.
+	 * @param reason the reason why the transaction failed.
+	 */
+	private void retryTransaction(SerialMessage message, String reason) {
+		if (--message.attempts >= 0) {
+			logger.error("{} while sending message to node {}. Requeueing", reason, message.getMessageNode());
+			if (message.getMessageClass() == SerialMessageClass.SendData)
+				handleFailedSendDataRequest(message);
+			else
+				enqueue(message);
+		} else
+		{
+			logger.warn("Discarding message: {}", message.toString());
+		}
 	}
 
 	// Controller methods
@@ -632,8 +664,7 @@ public class ZWaveController {
 			this.serialPort.setSerialPortParams(115200,SerialPort.DATABITS_8,SerialPort.STOPBITS_1,SerialPort.PARITY_NONE);
 			this.serialPort.enableReceiveThreshold(1);
 			this.serialPort.enableReceiveTimeout(ZWAVE_RECEIVE_TIMEOUT);
-			this.receiveThread = new ZWaveReceiveThread();
-			this.receiveThread.start();
+			this.receiver.start(this.serialPort.getInputStream(), this.serialPort.getOutputStream());
 			this.sendThread = new ZWaveSendThread();
 			this.sendThread.start();
 
@@ -647,6 +678,9 @@ public class ZWaveController {
 		} catch (UnsupportedCommOperationException e) {
 			logger.error(e.getLocalizedMessage());
 			throw new SerialInterfaceException(e.getLocalizedMessage(), e);
+		} catch (IOException e) {
+			logger.error(e.getLocalizedMessage());
+			throw new SerialInterfaceException(e.getLocalizedMessage(), e);
 		}
 	}
 	
@@ -670,7 +704,8 @@ public class ZWaveController {
 		}
 		
 		this.zwaveNodes.clear();
-		this.sendQueue.clear();
+		this.scheduler.clear();
+		logger.debug("Z-Wave transaction statistics: {}", scheduler.getStatistics());
 		
 		logger.info("Stopped Z-Wave controller");
 	}
@@ -688,19 +723,10 @@ public class ZWaveController {
 			}
 			sendThread = null;
 		}
-		if (receiveThread != null) {
-			receiveThread.interrupt();
-			try {
-				receiveThread.join();
-			} catch (InterruptedException e) {
-			}
-			receiveThread = null;
-		}
-		if(transactionCompleted.availablePermits() < 0)
-			transactionCompleted.release(transactionCompleted.availablePermits());
-		
-		transactionCompleted.drainPermits();
-		logger.trace("Transaction completed permit count -> {}", transactionCompleted.availablePermits());
+		receiver.stop();
+		int aborted = scheduler.abort();
+		if (aborted > 0)
+			logger.debug("Aborted {} transactions in flight.", aborted);
 		if (this.serialPort != null) {
 			this.serialPort.close();
 			this.serialPort = null;
@@ -713,8 +739,8 @@ public class ZWaveController {
 	 * @param serialMessage the serial message to enqueue.
 	 */
 	public void enqueue(SerialMessage serialMessage) {
-		this.sendQueue.add(serialMessage);
-		logger.debug("Enqueueing message. Queue length = {}", this.sendQueue.size());
+		this.scheduler.add(serialMessage);
+		logger.debug("Enqueueing message. Queue length = {}", this.scheduler.size());
 	}
 		
 	/**
@@ -774,7 +800,7 @@ public class ZWaveController {
 		
 		// There are still nodes waiting to get a ping.
 		// So skip the dead node checking.
-		for (SerialMessage serialMessage : sendQueue) {
+		for (SerialMessage serialMessage : scheduler.getQueuedMessages()) {
 			if (serialMessage.getPriority() == SerialMessagePriority.Low)
 				return;
 		}
@@ -945,6 +971,11 @@ public class ZWaveController {
 			}
 		}
     	
+    	if (serialMessage.getPriority() == SerialMessagePriority.Get && this.scheduler.contains(serialMessage)) {
+    		logger.debug("Message already queued for node {}. Discarding.", node.getNodeId());
+    		return;
+    	}
+    	
     	serialMessage.setTransmitOptions(TRANSMIT_OPTION_ACK | TRANSMIT_OPTION_AUTO_ROUTE | TRANSMIT_OPTION_EXPLORE);
     	if (++sentDataPointer > 0xFF)
     		sentDataPointer = 1;
@@ -1065,7 +1096,7 @@ public class ZWaveController {
 	 * @return the sOFCount
 	 */
 	public int getSOFCount() {
-		return SOFCount;
+		return receiver.getSOFCount();
 	}
 
 	/**
@@ -1073,7 +1104,7 @@ public class ZWaveController {
 	 * @return the cANCount
 	 */
 	public int getCANCount() {
-		return CANCount;
+		return receiver.getCANCount();
 	}
 
 	/**
@@ -1081,7 +1112,7 @@ public class ZWaveController {
 	 * @return the nAKCount
 	 */
 	public int getNAKCount() {
-		return NAKCount;
+		return receiver.getNAKCount();
 	}
 
 	/**
@@ -1089,7 +1120,7 @@ public class ZWaveController {
 	 * @return the aCKCount
 	 */
 	public int getACKCount() {
-		return ACKCount;
+		return receiver.getACKCount();
 	}
 
 	/**
@@ -1097,14 +1128,45 @@ public class ZWaveController {
 	 * @return the oOFCount
 	 */
 	public int getOOFCount() {
-		return OOFCount;
+		return receiver.getOOFCount();
+	}
+	
+	/**
+	 * Returns the number of messages waiting to be sent to a node.
+	 * @param nodeId the node to get the queue depth for.
+	 * @return the number of pending messages.
+	 * @since 1.4.0
+	 */
+	public int getQueueDepth(int nodeId) {
+		return scheduler.getQueueDepth(nodeId);
+	}
+	
+	/**
+	 * Returns the average time it took a node to complete a transaction.
+	 * @param nodeId the node to get the round trip time for.
+	 * @return the average round trip time in milliseconds.
+	 * @since 1.4.0
+	 */
+	public long getAverageRoundTripTime(int nodeId) {
+		return scheduler.getAverageRoundTripTime(nodeId);
+	}
+	
+	/**
+	 * Returns the maximum time it took a node to complete a transaction.
+	 * @param nodeId the node to get the round trip time for.
+	 * @return the maximum round trip time in milliseconds.
+	 * @since 1.4.0
+	 */
+	public long getMaxRoundTripTime(int nodeId) {
+		return scheduler.getMaxRoundTripTime(nodeId);
 	}
 	
 	// Nested classes and enumerations
 	
 	/**
 	 * Z-Wave controller Send Thread. Takes care of sending all messages.
-	 * It uses a semaphore to synchronize communication with the receiving thread.
+	 * It takes the messages from the transaction scheduler, which tracks their 
+	 * transactions together with the receiving thread.
 	 * @author Jan-Willem Spuij
 	 * @since 1.3.0
 	 */
@@ -1118,179 +1180,73 @@ public class ZWaveController {
 		@Override
 		public void run() {
 			logger.debug("Starting Z-Wave send thread");
+			List<SerialMessage> timedOut = new ArrayList<SerialMessage>();
 			while (!interrupted()) {
-				
+				SerialMessage message;
 				try {
-					lastSentMessage = sendQueue.take();
-					logger.debug("Took message from queue for sending. Queue length = {}", sendQueue.size());
+					timedOut.clear();
+					message = scheduler.take(timedOut);
 				} catch (InterruptedException e1) {
 					break;
 				}
 				
-				if (lastSentMessage == null)
+				for (SerialMessage timedOutMessage : timedOut) {
+					retryTransaction(timedOutMessage, "Timeout");
+				}
+				
+				if (message == null)
 					continue;
 				
-				transactionCompleted.drainPermits();
+				logger.debug("Took message from queue for sending. Queue length = {}", scheduler.size());
 				
-				byte[] buffer = lastSentMessage.getMessageBuffer();
+				byte[] buffer = message.getMessageBuffer();
 				logger.debug("Sending Message = " + SerialMessage.bb2hex(buffer));
 				try {
 					serialPort.getOutputStream().write(buffer);
 				} catch (IOException e) {
 					logger.error("Got I/O exception {} during sending. exiting thread.", e.getLocalizedMessage());
+					scheduler.fail(message);
+					enqueue(message);
 					break;
 				}
-				
-				try {
-					if (!transactionCompleted.tryAcquire(1, ZWAVE_RESPONSE_TIMEOUT, TimeUnit.MILLISECONDS)) {
-						if (--lastSentMessage.attempts >= 0) {
-							logger.error("Timeout while sending message to node {}. Requeueing", lastSentMessage.getMessageNode());
-							if (lastSentMessage.getMessageClass() == SerialMessageClass.SendData)
-								handleFailedSendDataRequest(lastSentMessage);
-							else
-								enqueue(lastSentMessage);
-						} else
-						{
-							logger.warn("Discarding message: {}", lastSentMessage.toString());
-						}
-						continue;
-					}
-					logger.trace("Acquired. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-				} catch (InterruptedException e) {
-					break;
-				}
-				
 			}
 			logger.debug("Stopped Z-Wave send thread");
 		}
 	}
 
 	/**
-	 * Z-Wave controller Receive Thread. Takes care of receiving all messages.
-	 * It uses a semaphore to synchronize communication with the sending thread.
-	 * @author Jan-Willem Spuij
-	 * @since 1.3.0
+	 * Passes the messages received from the controller to the message handlers.
+	 * @since 1.4.0
 	 */	
-	private class ZWaveReceiveThread extends Thread {
-		
-		private static final int SOF = 0x01;
-		private static final int ACK = 0x06;
-		private static final int NAK = 0x15;
-		private static final int CAN = 0x18;
+	private class ZWaveReceiverListener implements ZWaveReceiver.Listener {
 		
-		private final Logger logger = LoggerFactory.getLogger(ZWaveReceiveThread.class);
-
 		/**
-    	 * Sends 1 byte frame response.
-    	 * @param response the response code to send.
-    	 */
-		private void sendResponse(int response) {
-			try {
-				serialPort.getOutputStream().write(response);
-				serialPort.getOutputStream().flush();
-			} catch (IOException e) {
-				logger.error(e.getMessage());
-			}
+		 * {@inheritDoc}
+		 */
+		public void messageReceived(SerialMessage message) {
+			handleIncomingMessage(message);
 		}
 		
 		/**
-    	 * Processes incoming message and notifies event handlers.
-    	 * @param buffer the buffer to process.
-    	 */
-    	private void processIncomingMessage(byte[] buffer) {
-    		SerialMessage serialMessage = new SerialMessage(buffer);
-    		if (serialMessage.isValid) {
-    			logger.trace("Message is valid, sending ACK");
-    			sendResponse(ACK);
-    		} else {
-    			logger.error("Message is not valid, discarding");
-    			return;
-    		}
-    		
-    		handleIncomingMessage(serialMessage);
-        }
-		
-		/**
-		 * Run method. Runs the actual receiving process.
+		 * {@inheritDoc}
 		 */
-		@Override
-		public void run() {
-			logger.debug("Starting Z-Wave receive thread");
-			while (!interrupted()) {
-				int nextByte;
-				
-				try {
-					nextByte = serialPort.getInputStream().read();
-					
-					if (nextByte == -1)
-						continue;
-					
-				} catch (IOException e) {
-					logger.error("Got I/O exception {} during receiving. exiting thread.", e.getLocalizedMessage());
-					break;
-				}
-				
-				switch (nextByte) {
-					case SOF:
-						int messageLength;
-						
-						try {
-							messageLength = serialPort.getInputStream().read();
-							
-						} catch (IOException e) {
-							logger.error("Got I/O exception {} during receiving. exiting thread.", e.getLocalizedMessage());
-							break;
-						}
-						
-						byte[] buffer = new byte[messageLength + 2];
-						buffer[0] = SOF;
-						buffer[1] = (byte)messageLength;
-						int total = 0;
-						
-						while (total < messageLength) {
-							try {
-								int read = serialPort.getInputStream().read(buffer, total + 2, messageLength - total); 
-								total += (read > 0 ? read : 0);
-							} catch (IOException e) {
-								logger.error("Got I/O exception {} during receiving. exiting thread.", e.getLocalizedMessage());
-								return;
-							}
-						}
-						
-						logger.trace("Reading message finished" );
-						logger.debug("Message = " + SerialMessage.bb2hex(buffer));
-						processIncomingMessage(buffer);
-						SOFCount++;
-						break;
-					case ACK:
-    					logger.trace("Received ACK");
-						ACKCount++;
-						break;
-					case NAK:
-    					logger.error("Message not acklowledged by controller (NAK), discarding");
-    					transactionCompleted.release();
-    					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-						NAKCount++;
-						break;
-					case CAN:
-    					logger.error("Message cancelled by controller (CAN), resending");
-						try {
-							Thread.sleep(100);
-						} catch (InterruptedException e) {
-							break;
-						}
-    					enqueue(lastSentMessage);
-    					transactionCompleted.release();
-    					logger.trace("Released. Transaction completed permit count -> {}", transactionCompleted.availablePermits());
-						CANCount++;
-						break;
-					default:
-						logger.warn(String.format("Out of Frame flow. Got 0x%02X. Sending NAK.", nextByte));
-    					sendResponse(NAK);
-    					OOFCount++;
-				}
+		public void frameRefused(int response) {
+			final SerialMessage refusedMessage = scheduler.frameRefused();
+			if (response != ZWaveReceiver.CAN || refusedMessage == null)
+				return;
+			
+			// resend the cancelled message after a short pause, without keeping the receiving thread waiting
+			Timer timer = watchdog;
+			if (timer == null) {
+				enqueue(refusedMessage);
+				return;
 			}
-			logger.debug("Stopped Z-Wave receive thread");
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					enqueue(refusedMessage);
+				}
+			}, 100);
 		}
 	}
 
@@ -1322,7 +1278,7 @@ public class ZWaveController {
 		@Override
 		public void run() {
 			logger.trace("Watchdog: Checking Serial threads");
-			if ((receiveThread != null && !receiveThread.isAlive()) ||
+			if (!receiver.isAlive() ||
 					(sendThread != null && !sendThread.isAlive()))
 			{
 				logger.warn("Threads not alive, respawning");
@@ -0,0 +1,422 @@
+/**
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Receives the frames sent by the Z-Wave controller. Receiving is split in two threads:
+ * the receive thread reads the serial input in chunks, decodes the frames and answers them
+ * with an ACK right away, while the dispatch thread parses the frames and hands them over
+ * to the {@link Listener}. A slow listener therefore does not delay the acknowledgement
+ * of the following frames, which would make the controller send them again.
+ * <p>
+ * The frames are decoded into a pool of buffers, so that receiving does not need to 
+ * allocate memory for every frame.
+ *
+ * @since 1.4.0
+ */
+public class ZWaveReceiver {
+
+	private static final Logger logger = LoggerFactory.getLogger(ZWaveReceiver.class);
+	
+	public static final int SOF = 0x01;
+	public static final int ACK = 0x06;
+	public static final int NAK = 0x15;
+	public static final int CAN = 0x18;
+	
+	/** the size of a frame with the maximum length of 255 bytes plus SOF and length byte */
+	private static final int MAX_FRAME_SIZE = 257;
+	
+	private static final int READ_BUFFER_SIZE = 256;
+	
+	private static final int DEFAULT_QUEUE_CAPACITY = 64;
+	
+	private final Listener listener;
+	
+	/** the decoded frames waiting to be dispatched */
+	private final BlockingQueue<Frame> frames;
+	
+	/** the frame buffers which are not in use */
+	private final BlockingQueue<Frame> pool;
+	
+	private ReceiveThread receiveThread;
+	private DispatchThread dispatchThread;
+	
+	private volatile int SOFCount = 0;
+	private volatile int CANCount = 0;
+	private volatile int NAKCount = 0;
+	private volatile int ACKCount = 0;
+	private volatile int OOFCount = 0;
+	
+	/**
+	 * Creates a new receiver with the default queue capacity.
+	 * @param listener the listener to hand the received messages over to.
+	 */
+	public ZWaveReceiver(Listener listener) {
+		this(listener, DEFAULT_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Creates a new receiver.
+	 * @param listener the listener to hand the received messages over to.
+	 * @param queueCapacity the maximum number of frames waiting to be dispatched. If the 
+	 * queue is full, receiving waits until the dispatch thread catches up.
+	 */
+	public ZWaveReceiver(Listener listener, int queueCapacity) {
+		this.listener = listener;
+		this.frames = new ArrayBlockingQueue<Frame>(queueCapacity);
+		this.pool = new ArrayBlockingQueue<Frame>(queueCapacity + 2);
+	}
+	
+	/**
+	 * Starts receiving frames.
+	 * @param inputStream the stream to read the frames from.
+	 * @param outputStream the stream to write the responses to.
+	 */
+	public synchronized void start(InputStream inputStream, OutputStream outputStream) {
+		frames.clear();
+		dispatchThread = new DispatchThread();
+		dispatchThread.start();
+		receiveThread = new ReceiveThread(inputStream, outputStream);
+		receiveThread.start();
+	}
+	
+	/**
+	 * Stops receiving frames and waits for the threads to terminate. Frames which have not
+	 * been dispatched yet are discarded.
+	 */
+	public synchronized void stop() {
+		if (receiveThread != null) {
+			receiveThread.interrupt();
+			try {
+				receiveThread.join();
+			} catch (InterruptedException e) {
+			}
+			receiveThread = null;
+		}
+		if (dispatchThread != null) {
+			dispatchThread.interrupt();
+			try {
+				dispatchThread.join();
+			} catch (InterruptedException e) {
+			}
+			dispatchThread = null;
+		}
+		frames.clear();
+	}
+	
+	/**
+	 * @return true if both the receive and the dispatch thread are running.
+	 */
+	public synchronized boolean isAlive() {
+		return receiveThread != null && receiveThread.isAlive() && dispatchThread != null && dispatchThread.isAlive();
+	}
+	
+	/**
+	 * @return the number of frames waiting to be dispatched.
+	 */
+	public int getQueueSize() {
+		return frames.size();
+	}
+	
+	/**
+	 * Gets the number of Start Of Frames received.
+	 * @return the sOFCount
+	 */
+	public int getSOFCount() {
+		return SOFCount;
+	}
+
+	/**
+	 * Gets the number of Canceled Frames received.
+	 * @return the cANCount
+	 */
+	public int getCANCount() {
+		return CANCount;
+	}
+
+	/**
+	 * Gets the number of Not Acknowledged Frames received.
+	 * @return the nAKCount
+	 */
+	public int getNAKCount() {
+		return NAKCount;
+	}
+
+	/**
+	 * Gets the number of Acknowledged Frames received.
+	 * @return the aCKCount
+	 */
+	public int getACKCount() {
+		return ACKCount;
+	}
+
+	/**
+	 * Returns the number of Out of Order frames received.
+	 * @return the oOFCount
+	 */
+	public int getOOFCount() {
+		return OOFCount;
+	}
+	
+	private Frame obtainFrame() {
+		Frame frame = pool.poll();
+		return frame != null ? frame : new Frame();
+	}
+	
+	private void releaseFrame(Frame frame) {
+		pool.offer(frame);
+	}
+	
+	
+	/**
+	 * Receives the messages and the answers to the frames sent to the controller.
+	 */
+	public interface Listener {
+		
+		/**
+		 * Called on the dispatch thread for every valid message received.
+		 * @param message the received message.
+		 */
+		void messageReceived(SerialMessage message);
+		
+		/**
+		 * Called on the receive thread when the controller refused the last frame sent to it.
+		 * @param response the response of the controller, either {@link ZWaveReceiver#NAK} 
+		 * or {@link ZWaveReceiver#CAN}.
+		 */
+		void frameRefused(int response);
+	}
+	
+	/**
+	 * A buffer for a single frame.
+	 */
+	private static class Frame {
+		final byte[] buffer = new byte[MAX_FRAME_SIZE];
+		int length;
+	}
+	
+	/**
+	 * Z-Wave controller Receive Thread. Reads the serial input, decodes the frames
+	 * and acknowledges them.
+	 */
+	private class ReceiveThread extends Thread {
+		
+		private final InputStream inputStream;
+		private final OutputStream outputStream;
+		
+		/** the frame which is currently decoded, null if waiting for the start of a frame */
+		private Frame frame = null;
+		private int position = 0;
+		
+		ReceiveThread(InputStream inputStream, OutputStream outputStream) {
+			super("ZWave receive thread");
+			this.inputStream = inputStream;
+			this.outputStream = outputStream;
+		}
+		
+		/**
+    	 * Sends 1 byte frame response.
+    	 * @param response the response code to send.
+    	 */
+		private void sendResponse(int response) {
+			try {
+				outputStream.write(response);
+				outputStream.flush();
+			} catch (IOException e) {
+				logger.error(e.getMessage());
+			}
+		}
+		
+		/**
+		 * Run method. Runs the actual receiving process.
+		 */
+		@Override
+		public void run() {
+			logger.debug("Starting Z-Wave receive thread");
+			byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+			try {
+				while (!interrupted()) {
+					int read;
+					try {
+						read = inputStream.read(readBuffer);
+					} catch (IOException e) {
+						logger.error("Got I/O exception {} during receiving. exiting thread.", e.getLocalizedMessage());
+						break;
+					}
+					
+					if (read <= 0) {
+						// the receive timeout elapsed
+						if (frame != null) {
+							logger.warn("Timeout while receiving a frame, discarding {} bytes.", position);
+							discardFrame();
+						}
+						continue;
+					}
+					
+					decode(readBuffer, read);
+				}
+			} catch (InterruptedException e) {
+				// stopped while waiting for the dispatch thread
+			}
+			if (frame != null) {
+				discardFrame();
+			}
+			logger.debug("Stopped Z-Wave receive thread");
+		}
+		
+		/**
+		 * Decodes the bytes read from the serial input.
+		 * @param data the bytes to decode.
+		 * @param length the number of bytes to decode.
+		 * @throws InterruptedException if the thread has been interrupted while
+		 * waiting for the dispatch thread.
+		 */
+		private void decode(byte[] data, int length) throws InterruptedException {
+			int offset = 0;
+			while (offset < length) {
+				if (frame == null) {
+					int nextByte = data[offset++] & 0xFF;
+					switch (nextByte) {
+						case SOF:
+							frame = obtainFrame();
+							frame.buffer[0] = SOF;
+							frame.length = 0;
+							position = 1;
+							break;
+						case ACK:
+	    					logger.trace("Received ACK");
+							ACKCount++;
+							break;
+						case NAK:
+	    					logger.error("Message not acklowledged by controller (NAK), discarding");
+							NAKCount++;
+							listener.frameRefused(NAK);
+							break;
+						case CAN:
+	    					logger.error("Message cancelled by controller (CAN), resending");
+							CANCount++;
+							listener.frameRefused(CAN);
+							break;
+						default:
+							logger.warn(String.format("Out of Frame flow. Got 0x%02X. Sending NAK.", nextByte));
+	    					sendResponse(NAK);
+	    					OOFCount++;
+					}
+				} else if (position == 1) {
+					int messageLength = data[offset++] & 0xFF;
+					frame.buffer[1] = (byte) messageLength;
+					frame.length = messageLength + 2;
+					position = 2;
+				} else {
+					int count = Math.min(length - offset, frame.length - position);
+					System.arraycopy(data, offset, frame.buffer, position, count);
+					offset += count;
+					position += count;
+				}
+				
+				if (frame != null && position > 1 && position == frame.length) {
+					frameReceived();
+				}
+			}
+		}
+		
+		/**
+		 * Acknowledges the completely received frame and hands it over to the dispatch thread.
+		 */
+		private void frameReceived() throws InterruptedException {
+			Frame received = frame;
+			frame = null;
+			logger.trace("Reading message finished" );
+			if (received.length < 5 || !SerialMessage.isChecksumValid(received.buffer, received.length)) {
+				logger.error("Message is not valid, discarding");
+				releaseFrame(received);
+				return;
+			}
+			logger.trace("Message is valid, sending ACK");
+			sendResponse(ACK);
+			SOFCount++;
+			frames.put(received);
+		}
+		
+		private void discardFrame() {
+			releaseFrame(frame);
+			frame = null;
+		}
+	}
+	
+	/**
+	 * Z-Wave controller Dispatch Thread. Parses the received frames and
+	 * passes them to the listener.
+	 */
+	private class DispatchThread extends Thread {
+		
+		DispatchThread() {
+			super("ZWave dispatch thread");
+		}
+		
+		/**
+		 * Run method. Runs the actual dispatching process.
+		 */
+		@Override
+		public void run() {
+			logger.debug("Starting Z-Wave dispatch thread");
+			while (!interrupted()) {
+				Frame frame;
+				try {
+					frame = frames.take();
+				} catch (InterruptedException e) {
+					break;
+				}
+				
+				SerialMessage message;
+				try {
+					message = new SerialMessage(frame.buffer, frame.length);
+				} finally {
+					releaseFrame(frame);
+				}
+				
+				try {
+					listener.messageReceived(message);
+				} catch (RuntimeException e) {
+					logger.error("Error while processing incoming message: {}", message, e);
+				}
+			}
+			logger.debug("Stopped Z-Wave dispatch thread");
+		}
+	}
+
+}
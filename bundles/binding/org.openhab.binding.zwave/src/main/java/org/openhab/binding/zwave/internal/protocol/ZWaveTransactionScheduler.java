@@ -0,0 +1,464 @@
+/**
+ * Copyright (C) 2010-2012, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.binding.zwave.internal.protocol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageClass;
+import org.openhab.binding.zwave.internal.protocol.SerialMessage.SerialMessageComparator;
+
+/**
+ * Schedules the serial messages which are sent to the Z-Wave controller and keeps track
+ * of their transactions. A transaction starts when its message is written to the controller
+ * and ends when the expected reply has been received, it failed or it timed out.
+ * <p>
+ * Every node has at most one transaction in flight, so that the replies of a node can
+ * always be correlated with the request they belong to. Transactions of different nodes
+ * overlap, so a node which does not answer does not stall the other nodes. The controller
+ * itself imposes two more limits, which are respected as well: a new frame must not be
+ * written before the controller answered the previous one with its response, and only
+ * one message is transmitted over the air at a time, i.e. a SendData message has to be
+ * confirmed by its callback before the next one is sent.
+ * <p>
+ * The pending messages of every node are ordered by the {@link SerialMessageComparator}.
+ * Among the nodes whose next message is equally urgent, the node which has been served
+ * least recently goes first.
+ *
+ * @since 1.4.0
+ */
+public class ZWaveTransactionScheduler {
+
+	/** the time in milliseconds the controller has to answer a frame with its response */
+	private static final long CONTROLLER_RESPONSE_TIMEOUT = 1600;
+	
+	private final SerialMessageComparator comparator;
+	
+	private final int maxTransactions;
+	
+	private final long transactionTimeout;
+	
+	/** the pending messages by their node */
+	private final Map<Integer, PriorityQueue<SerialMessage>> queues = new LinkedHashMap<Integer, PriorityQueue<SerialMessage>>();
+	
+	private int queueSize = 0;
+	
+	/** the transactions in flight by their node */
+	private final Map<Integer, Transaction> transactions = new HashMap<Integer, Transaction>();
+	
+	/** the transaction whose frame has not been answered with a response by the controller yet */
+	private Transaction awaitingResponse = null;
+	
+	/** the transaction whose message is currently transmitted over the air by the controller */
+	private Transaction transmitting = null;
+	
+	private final Map<Integer, NodeStatistics> statistics = new HashMap<Integer, NodeStatistics>();
+	
+	private long served = 0;
+	
+	/**
+	 * @param comparator the comparator to order the pending messages of a node by
+	 * @param maxTransactions the maximum number of transactions in flight
+	 * @param transactionTimeout the time in milliseconds after which a transaction times out
+	 */
+	public ZWaveTransactionScheduler(SerialMessageComparator comparator, int maxTransactions, long transactionTimeout) {
+		this.comparator = comparator;
+		this.maxTransactions = Math.max(1, maxTransactions);
+		this.transactionTimeout = transactionTimeout;
+	}
+	
+	/**
+	 * Queues a message for sending.
+	 * @param message the message to send.
+	 */
+	public synchronized void add(SerialMessage message) {
+		PriorityQueue<SerialMessage> queue = queues.get(message.getMessageNode());
+		if (queue == null) {
+			queue = new PriorityQueue<SerialMessage>(11, comparator);
+			queues.put(message.getMessageNode(), queue);
+		}
+		queue.add(message);
+		queueSize++;
+		notifyAll();
+	}
+	
+	/**
+	 * Checks whether an equal message is pending or in flight.
+	 * @param message the message to look for.
+	 * @return true if an equal message is pending or its transaction is in flight.
+	 */
+	public synchronized boolean contains(SerialMessage message) {
+		Transaction transaction = transactions.get(message.getMessageNode());
+		if (transaction != null && transaction.message.equals(message)) {
+			return true;
+		}
+		PriorityQueue<SerialMessage> queue = queues.get(message.getMessageNode());
+		return queue != null && queue.contains(message);
+	}
+	
+	/**
+	 * Removes all pending messages.
+	 */
+	public synchronized void clear() {
+		queues.clear();
+		queueSize = 0;
+	}
+	
+	/**
+	 * @return the number of pending messages
+	 */
+	public synchronized int size() {
+		return queueSize;
+	}
+	
+	/**
+	 * @return a copy of all pending messages
+	 */
+	public synchronized List<SerialMessage> getQueuedMessages() {
+		List<SerialMessage> messages = new ArrayList<SerialMessage>(queueSize);
+		for (PriorityQueue<SerialMessage> queue : queues.values()) {
+			messages.addAll(queue);
+		}
+		return messages;
+	}
+	
+	/**
+	 * Waits until a message can be sent and starts its transaction. Transactions which time
+	 * out while waiting are ended and returned to the caller, which has to decide whether
+	 * to send them again.
+	 * @param timedOut the list to add the timed out messages to.
+	 * @return the message to write to the controller, or null if transactions timed out.
+	 * @throws InterruptedException if the thread has been interrupted while waiting.
+	 */
+	public synchronized SerialMessage take(List<SerialMessage> timedOut) throws InterruptedException {
+		while (true) {
+			long now = System.nanoTime();
+			long wait = expire(now, timedOut);
+			if (!timedOut.isEmpty()) {
+				return null;
+			}
+			
+			SerialMessage message = awaitingResponse == null ? poll() : null;
+			if (message != null) {
+				Transaction transaction = new Transaction(message, now);
+				transactions.put(message.getMessageNode(), transaction);
+				awaitingResponse = transaction;
+				if (isTransmission(message)) {
+					transmitting = transaction;
+				}
+				getStatistics(message.getMessageNode()).lastServed = ++served;
+				return message;
+			}
+			
+			if (wait == Long.MAX_VALUE) {
+				wait();
+			} else {
+				wait(Math.max(1, wait));
+			}
+		}
+	}
+	
+	/**
+	 * Ends the transactions which timed out and releases the controller if it did not
+	 * respond in time.
+	 * @return the time in milliseconds until the next transaction times out, Long.MAX_VALUE
+	 * if there are no transactions in flight.
+	 */
+	private long expire(long now, List<SerialMessage> timedOut) {
+		long wait = Long.MAX_VALUE;
+		for (Iterator<Transaction> it = transactions.values().iterator(); it.hasNext();) {
+			Transaction transaction = it.next();
+			long remaining = transactionTimeout - TimeUnit.NANOSECONDS.toMillis(now - transaction.started);
+			if (remaining <= 0) {
+				it.remove();
+				release(transaction);
+				getStatistics(transaction.message.getMessageNode()).timeouts++;
+				timedOut.add(transaction.message);
+			} else {
+				wait = Math.min(wait, remaining);
+			}
+		}
+		if (awaitingResponse != null) {
+			long remaining = CONTROLLER_RESPONSE_TIMEOUT - TimeUnit.NANOSECONDS.toMillis(now - awaitingResponse.started);
+			if (remaining <= 0) {
+				awaitingResponse = null;
+			} else {
+				wait = Math.min(wait, remaining);
+			}
+		}
+		return wait;
+	}
+	
+	/**
+	 * Removes the next message which can be sent from the queues. 
+	 * @return the message, or null if no message can be sent right now.
+	 */
+	private SerialMessage poll() {
+		if (transactions.size() >= maxTransactions) {
+			return null;
+		}
+		
+		PriorityQueue<SerialMessage> selected = null;
+		long selectedServed = 0;
+		for (Map.Entry<Integer, PriorityQueue<SerialMessage>> entry : queues.entrySet()) {
+			SerialMessage head = entry.getValue().peek();
+			if (head == null || transactions.containsKey(entry.getKey()) || (transmitting != null && isTransmission(head))) {
+				continue;
+			}
+			long lastServed = getStatistics(entry.getKey()).lastServed;
+			if (selected != null) {
+				int res = comparator.compareUrgency(head, selected.peek());
+				if (res > 0 || (res == 0 && lastServed >= selectedServed)) {
+					continue;
+				}
+			}
+			selected = entry.getValue();
+			selectedServed = lastServed;
+		}
+		
+		if (selected == null) {
+			return null;
+		}
+		queueSize--;
+		return selected.poll();
+	}
+	
+	/**
+	 * Returns the message of the transaction in flight for a node.
+	 * @param nodeId the node to get the transaction for.
+	 * @return the message, or null if there is no transaction in flight for the node.
+	 */
+	public synchronized SerialMessage getTransaction(int nodeId) {
+		Transaction transaction = transactions.get(nodeId);
+		return transaction != null ? transaction.message : null;
+	}
+	
+	/**
+	 * @return the message which is currently transmitted over the air by the controller,
+	 * or null if there is none.
+	 */
+	public synchronized SerialMessage getTransmission() {
+		return transmitting != null ? transmitting.message : null;
+	}
+	
+	/**
+	 * Releases the controller after it answered the last frame with a response.
+	 * @param messageClass the message class of the response.
+	 * @return the message the response belongs to, or null if the response is unexpected.
+	 */
+	public synchronized SerialMessage responseReceived(SerialMessageClass messageClass) {
+		if (awaitingResponse == null || awaitingResponse.message.getMessageClass() != messageClass) {
+			return null;
+		}
+		SerialMessage message = awaitingResponse.message;
+		awaitingResponse = null;
+		notifyAll();
+		return message;
+	}
+	
+	/**
+	 * Ends the transaction of the last frame, after the controller refused to process it.
+	 * @return the message of the refused frame, or null if there is none.
+	 */
+	public synchronized SerialMessage frameRefused() {
+		if (awaitingResponse == null) {
+			return null;
+		}
+		SerialMessage message = awaitingResponse.message;
+		fail(message);
+		return message;
+	}
+	
+	/**
+	 * Marks the transmission with the given callback id as finished. 
+	 * @param callbackId the callback id the controller reported.
+	 * @return the message which has been transmitted, or null if there is no transmission
+	 * with this callback id.
+	 */
+	public synchronized SerialMessage transmitted(int callbackId) {
+		if (transmitting == null || transmitting.message.getCallbackId() != callbackId) {
+			return null;
+		}
+		SerialMessage message = transmitting.message;
+		transmitting = null;
+		notifyAll();
+		return message;
+	}
+	
+	/**
+	 * Ends a transaction successfully.
+	 * @param message the message of the transaction.
+	 * @return true if the transaction was in flight, false if it has already been ended.
+	 */
+	public synchronized boolean complete(SerialMessage message) {
+		Transaction transaction = remove(message);
+		if (transaction == null) {
+			return false;
+		}
+		long roundTripTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - transaction.started);
+		NodeStatistics nodeStatistics = getStatistics(message.getMessageNode());
+		nodeStatistics.completed++;
+		nodeStatistics.totalRoundTripTime += roundTripTime;
+		nodeStatistics.maxRoundTripTime = Math.max(nodeStatistics.maxRoundTripTime, roundTripTime);
+		return true;
+	}
+	
+	/**
+	 * Ends a transaction which failed.
+	 * @param message the message of the transaction.
+	 * @return true if the transaction was in flight, false if it has already been ended.
+	 */
+	public synchronized boolean fail(SerialMessage message) {
+		if (remove(message) == null) {
+			return false;
+		}
+		getStatistics(message.getMessageNode()).failures++;
+		return true;
+	}
+	
+	/**
+	 * Ends all transactions in flight without sending them again, e.g. because 
+	 * the connection to the controller has been lost.
+	 * @return the number of ended transactions.
+	 */
+	public synchronized int abort() {
+		int count = transactions.size();
+		transactions.clear();
+		awaitingResponse = null;
+		transmitting = null;
+		notifyAll();
+		return count;
+	}
+	
+	private Transaction remove(SerialMessage message) {
+		Transaction transaction = transactions.get(message.getMessageNode());
+		if (transaction == null || transaction.message != message) {
+			return null;
+		}
+		transactions.remove(message.getMessageNode());
+		release(transaction);
+		notifyAll();
+		return transaction;
+	}
+	
+	private void release(Transaction transaction) {
+		if (awaitingResponse == transaction) {
+			awaitingResponse = null;
+		}
+		if (transmitting == transaction) {
+			transmitting = null;
+		}
+	}
+	
+	private static boolean isTransmission(SerialMessage message) {
+		return message.getMessageClass() == SerialMessageClass.SendData
+			|| message.getMessageClass() == SerialMessageClass.RequestNodeInfo;
+	}
+	
+	private NodeStatistics getStatistics(int nodeId) {
+		NodeStatistics nodeStatistics = statistics.get(nodeId);
+		if (nodeStatistics == null) {
+			nodeStatistics = new NodeStatistics();
+			statistics.put(nodeId, nodeStatistics);
+		}
+		return nodeStatistics;
+	}
+	
+	/**
+	 * @param nodeId the node to get the queue depth for.
+	 * @return the number of pending messages for the node.
+	 */
+	public synchronized int getQueueDepth(int nodeId) {
+		PriorityQueue<SerialMessage> queue = queues.get(nodeId);
+		return queue != null ? queue.size() : 0;
+	}
+	
+	/**
+	 * @param nodeId the node to get the round trip time for.
+	 * @return the average time in milliseconds from sending a message to the node until 
+	 * its transaction completed, 0 if no transaction completed yet.
+	 */
+	public synchronized long getAverageRoundTripTime(int nodeId) {
+		NodeStatistics nodeStatistics = statistics.get(nodeId);
+		return nodeStatistics != null && nodeStatistics.completed > 0 ? 
+				nodeStatistics.totalRoundTripTime / nodeStatistics.completed : 0;
+	}
+	
+	/**
+	 * @param nodeId the node to get the round trip time for.
+	 * @return the maximum time in milliseconds from sending a message to the node until 
+	 * its transaction completed.
+	 */
+	public synchronized long getMaxRoundTripTime(int nodeId) {
+		NodeStatistics nodeStatistics = statistics.get(nodeId);
+		return nodeStatistics != null ? nodeStatistics.maxRoundTripTime : 0;
+	}
+	
+	/**
+	 * @return a human readable summary of the transaction metrics of all nodes.
+	 */
+	public synchronized String getStatistics() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("queued=").append(queueSize).append(", inFlight=").append(transactions.size());
+		for (Map.Entry<Integer, NodeStatistics> entry : statistics.entrySet()) {
+			int nodeId = entry.getKey();
+			NodeStatistics nodeStatistics = entry.getValue();
+			sb.append(String.format("; node %d: queued=%d, completed=%d, failed=%d, timeouts=%d, avgRtt=%dms, maxRtt=%dms",
+				nodeId, getQueueDepth(nodeId), nodeStatistics.completed, nodeStatistics.failures, nodeStatistics.timeouts,
+				getAverageRoundTripTime(nodeId), nodeStatistics.maxRoundTripTime));
+		}
+		return sb.toString();
+	}
+	
+	
+	private static class Transaction {
+		final SerialMessage message;
+		final long started;
+		
+		Transaction(SerialMessage message, long started) {
+			this.message = message;
+			this.started = started;
+		}
+	}
+	
+	private static class NodeStatistics {
+		long lastServed;
+		long completed;
+		long failures;
+		long timeouts;
+		long totalRoundTripTime;
+		long maxRoundTripTime;
+	}
+
+}
@@ -33,11 +33,16 @@ import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.apache.commons.lang.StringUtils;
 import org.drools.KnowledgeBase;
@@ -58,6 +63,7 @@ import org.drools.runtime.rule.FactHandle;
 import org.openhab.core.drools.event.CommandEvent;
 import org.openhab.core.drools.event.RuleEvent;
 import org.openhab.core.drools.event.StateEvent;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -75,6 +81,12 @@ import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Evaluates the Drools rules. Item states, state changes and commands are queued as
+ * {@link RuleEvent}s and inserted into the knowledge session in batches of at most
+ * <code>drools:maxBatchSize</code> events per rule evaluation. If more than
+ * <code>drools:maxQueueSize</code> events are waiting, new events are dropped.
+ */
 public class RuleService extends AbstractActiveService implements ManagedService, EventHandler, ItemRegistryChangeListener, StateChangeListener {
 
 	private static final String RULES_CHANGESET = "org/openhab/core/drools/changeset.xml";
@@ -84,12 +96,35 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	private ItemRegistry itemRegistry = null;
 	
 	private long refreshInterval = 200;
+	
+	private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+	
+	private static final int DEFAULT_MAX_QUEUE_SIZE = 10000;
+	
+	/** the upper bounds in milliseconds of the buckets of the event latency histogram */
+	private static final long[] LATENCY_BUCKETS = { 1, 5, 10, 50, 100, 500, 1000, Long.MAX_VALUE };
+	
+	/** the maximum number of events which are inserted into the session for one rule evaluation */
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
 		
 	private StatefulKnowledgeSession ksession = null;
 	
 	private Map<String, FactHandle> factHandleMap = new HashMap<String, FactHandle>();
 	
-	private List<RuleEvent> eventQueue = Collections.synchronizedList(new ArrayList<RuleEvent>());
+	/** the maximum number of events which are waiting for the rule evaluation */
+	private volatile int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+	
+	private final BlockingQueue<QueuedEvent> eventQueue = new LinkedBlockingQueue<QueuedEvent>();
+	
+	/** the number of events in the queue, which is bounded by <code>maxQueueSize</code> */
+	private final AtomicInteger queuedCount = new AtomicInteger();
+	
+	private final AtomicLong processedCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong laggingCount = new AtomicLong();
+	
+	/** the number of events by the time in milliseconds it took from their creation to the rule evaluation */
+	private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS.length);
 	
 	public void activate() {
 		
@@ -141,6 +176,7 @@ public class RuleService extends AbstractActiveService implements ManagedService
 		}
 		factHandleMap.clear();
 		shutdown();
+		logger.debug("Rule evaluation stopped: {}", getStatistics());
 	}
 	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -163,6 +199,17 @@ public class RuleService extends AbstractActiveService implements ManagedService
 			if (StringUtils.isNotBlank(evalIntervalString)) {
 				refreshInterval = Long.parseLong(evalIntervalString);
 			}
+			
+			String maxBatchSizeString = (String) config.get("maxBatchSize");
+			if (StringUtils.isNotBlank(maxBatchSizeString)) {
+				maxBatchSize = Math.max(1, Integer.parseInt(maxBatchSizeString));
+			}
+			
+			String maxQueueSizeString = (String) config.get("maxQueueSize");
+			if (StringUtils.isNotBlank(maxQueueSizeString)) {
+				// the events which are already queued are kept, even if they exceed a smaller limit
+				maxQueueSize = Math.max(1, Integer.parseInt(maxQueueSizeString));
+			}
 		}
 	}
 
@@ -210,23 +257,35 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 * {@inheritDoc}
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		eventQueue.add(new StateEvent(item, oldState, newState));
+		enqueue(new QueuedEvent(new StateEvent(item, oldState, newState)));
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public void stateUpdated(Item item, State state) {
-		eventQueue.add(new StateEvent(item, state));
+		enqueue(new QueuedEvent(new StateEvent(item, state)));
 	}
 
 	public void receiveCommand(String itemName, Command command) {
 		try {
 			Item item = itemRegistry.getItem(itemName);
-			eventQueue.add(new CommandEvent(item, command));
+			enqueue(new QueuedEvent(new CommandEvent(item, command)));
 		} catch (ItemNotFoundException e) {}
 	}
 	
+	private void enqueue(QueuedEvent event) {
+		if (queuedCount.incrementAndGet() <= maxQueueSize) {
+			eventQueue.offer(event);
+		} else {
+			queuedCount.decrementAndGet();
+			long dropped = droppedCount.incrementAndGet();
+			if (dropped == 1 || dropped % 1000 == 0) {
+				logger.warn("Rule event queue is full, {} events have been dropped so far.", dropped);
+			}
+		}
+	}
+	
 	private void internalItemAdded(Item item) {
 		if(item==null) {
 			logger.debug("Item must not be null here!");
@@ -265,6 +324,27 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 */
 	@Override
 	protected synchronized void execute() {
+		if(ksession==null) {
+			return;
+		}
+		
+		// only process the events which are already queued, so that a constant flow
+		// of new events cannot keep us in here forever
+		int pending = eventQueue.size();
+		List<QueuedEvent> batch = new ArrayList<QueuedEvent>(Math.min(pending, maxBatchSize));
+		do {
+			batch.clear();
+			eventQueue.drainTo(batch, maxBatchSize);
+			queuedCount.addAndGet(-batch.size());
+			pending -= batch.size();
+			evaluate(batch);
+		} while(pending > 0 && !batch.isEmpty());
+	}
+	
+	/**
+	 * Replaces the events in the session by the given ones and runs the rule evaluation.
+	 */
+	private void evaluate(List<QueuedEvent> batch) {
 		// remove all previous events from the session
 		Collection<FactHandle> handles = ksession.getFactHandles(new ObjectFilter() {			
 			public boolean accept(Object obj) {
@@ -278,13 +358,11 @@ public class RuleService extends AbstractActiveService implements ManagedService
 			ksession.retract(handle);
 		}
 
-		ArrayList<RuleEvent> clonedQueue = new ArrayList<RuleEvent>(eventQueue);
-		eventQueue.clear();
-		
 		// now add all recent events to the session
-		for(RuleEvent event : clonedQueue) {
+		for(QueuedEvent queuedEvent : batch) {
+			RuleEvent event = queuedEvent.event;
 			Item item = event.getItem();
-			if(ksession!=null && item!=null) {
+			if(item!=null) {
 				FactHandle factHandle = factHandleMap.get(item.getName());
 				if(factHandle!=null) {
 					ksession.update(factHandle, item);
@@ -295,7 +373,89 @@ public class RuleService extends AbstractActiveService implements ManagedService
 		
 		// run the rule evaluation
 		ksession.fireAllRules();
-			
+		
+		long now = System.nanoTime();
+		for(QueuedEvent queuedEvent : batch) {
+			recordLatency(TimeUnit.NANOSECONDS.toMillis(now - queuedEvent.created));
+		}
+		processedCount.addAndGet(batch.size());
+	}
+	
+	private void recordLatency(long latency) {
+		if(latency > refreshInterval) {
+			// the event had to wait for more than one evaluation cycle
+			laggingCount.incrementAndGet();
+		}
+		for(int i = 0; i < LATENCY_BUCKETS.length; i++) {
+			if(latency < LATENCY_BUCKETS[i]) {
+				latencyHistogram.incrementAndGet(i);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @return the number of events which have been inserted into the session
+	 */
+	public long getProcessedCount() {
+		return processedCount.get();
+	}
+	
+	/**
+	 * @return the number of events which have been dropped as the queue was full
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+	
+	/**
+	 * @return the number of events which waited longer than one evaluation interval 
+	 * for the rule evaluation
+	 */
+	public long getLaggingCount() {
+		return laggingCount.get();
+	}
+	
+	/**
+	 * @return the number of events which are waiting for the rule evaluation
+	 */
+	public int getQueueSize() {
+		return eventQueue.size();
+	}
+	
+	/**
+	 * Returns the histogram of the times from the creation of the events to the end of 
+	 * their rule evaluation. The value at index <code>i</code> is the number of events
+	 * with a latency below {@link #LATENCY_BUCKETS}<code>[i]</code> milliseconds and
+	 * at least the bound of the previous bucket.
+	 * 
+	 * @return the number of events per latency bucket
+	 */
+	public long[] getLatencyHistogram() {
+		long[] histogram = new long[LATENCY_BUCKETS.length];
+		for(int i = 0; i < histogram.length; i++) {
+			histogram[i] = latencyHistogram.get(i);
+		}
+		return histogram;
+	}
+	
+	/**
+	 * @return a human readable summary of the event queue metrics
+	 */
+	public String getStatistics() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("queued=").append(getQueueSize()).append(", processed=").append(getProcessedCount())
+			.append(", dropped=").append(getDroppedCount()).append(", lagging=").append(getLaggingCount())
+			.append(", latency=[");
+		long[] histogram = getLatencyHistogram();
+		for(int i = 0; i < histogram.length; i++) {
+			if(i > 0) {
+				sb.append(", ");
+			}
+			sb.append(LATENCY_BUCKETS[i] == Long.MAX_VALUE ? ">=" + LATENCY_BUCKETS[i - 1] : "<" + LATENCY_BUCKETS[i])
+				.append("ms:").append(histogram[i]);
+		}
+		return sb.append("]").toString();
 	}
 
 	@Override
@@ -312,6 +472,15 @@ public class RuleService extends AbstractActiveService implements ManagedService
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(event instanceof ItemEvent) {
+			// the event already carries its type and payload, so there is no need to parse the topic
+			ItemEvent itemEvent = (ItemEvent) event;
+			if(itemEvent.getType() == EventType.COMMAND) {
+				receiveCommand(itemEvent.getItemName(), itemEvent.getCommand());
+			}
+			return;
+		}
+		
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -328,6 +497,19 @@ public class RuleService extends AbstractActiveService implements ManagedService
 		}
 	}
 
+	/**
+	 * A rule event together with the time it has been created.
+	 */
+	static private final class QueuedEvent {
+		
+		final RuleEvent event;
+		final long created = System.nanoTime();
+		
+		QueuedEvent(RuleEvent event) {
+			this.event = event;
+		}
+	}
+
 	static private final class RuleEventListener implements SystemEventListener {
 		
 		private final Logger logger = LoggerFactory.getLogger(SystemEventListener.class);
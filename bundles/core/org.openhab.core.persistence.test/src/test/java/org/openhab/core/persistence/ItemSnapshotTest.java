@@ -0,0 +1,118 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.4.0
+ */
+public class ItemSnapshotTest {
+
+	@Test
+	public void testKeepsStateAndConversion() {
+		TestItem item = new TestItem("Item");
+		item.setState(new StringType("1"));
+		ItemSnapshot snapshot = new ItemSnapshot(item);
+		item.setState(new StringType("2"));
+
+		assertEquals(new StringType("1"), snapshot.getState());
+		assertEquals(new DecimalType(1), snapshot.getStateAs(DecimalType.class));
+		assertSame(item, ItemSnapshot.unwrap(snapshot));
+		assertSame(item, ItemSnapshot.unwrap(item));
+	}
+
+	@Test
+	public void testKeepsConversionOfGroup() {
+		TestItem member = new TestItem("Member");
+		GroupItem group = new GroupItem("Group", member, new CountFunction());
+		group.addMember(member);
+		group.setState(new StringType("one"));
+		ItemSnapshot snapshot = new ItemSnapshot(group);
+		group.addMember(new TestItem("Other"));
+		group.setState(new StringType("two"));
+
+		assertEquals(new DecimalType(1), snapshot.getStateAs(DecimalType.class));
+	}
+
+
+	/**
+	 * An item which converts numeric strings to {@link DecimalType}.
+	 */
+	static class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public State getStateAs(Class<? extends State> typeClass) {
+			if(typeClass==DecimalType.class && state instanceof StringType) {
+				return new DecimalType(state.toString());
+			}
+			return super.getStateAs(typeClass);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+	}
+
+	/**
+	 * A group function which counts the members.
+	 */
+	static class CountFunction implements GroupFunction {
+
+		public State calculate(List<Item> items) {
+			return new DecimalType(items.size());
+		}
+
+		public State getStateAs(List<Item> items, Class<? extends State> stateClass) {
+			return stateClass==DecimalType.class ? calculate(items) : null;
+		}
+	}
+
+}
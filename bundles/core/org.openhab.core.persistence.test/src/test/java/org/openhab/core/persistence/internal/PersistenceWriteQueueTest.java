@@ -0,0 +1,307 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.ItemSnapshot;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.internal.PersistenceWriteQueue.OverflowPolicy;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.4.0
+ */
+public class PersistenceWriteQueueTest {
+	
+	private PersistenceWriteQueue queue;
+	
+	@After
+	public void tearDown() {
+		if(queue!=null) {
+			queue.shutdown(1000);
+		}
+	}
+
+	@Test
+	public void testStoresAllEntries() throws InterruptedException {
+		RecordingPersistenceService service = new RecordingPersistenceService(null);
+		queue = new PersistenceWriteQueue(service, 10, 1, 5, 0, OverflowPolicy.BLOCK);
+		
+		queue.store(new TestItem("Item1"), null);
+		queue.store(new TestItem("Item2"), "alias");
+		queue.shutdown(1000);
+		
+		assertEquals(2, service.stored.size());
+		assertEquals("Item1", service.stored.get(0));
+		assertEquals("Item2|alias", service.stored.get(1));
+		assertEquals(2, queue.getStoredCount());
+		assertEquals(0, queue.getQueueSize());
+	}
+
+	@Test
+	public void testCoalescesPendingEntriesIfFull() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 1, 1, 1, 0, OverflowPolicy.COALESCE);
+		
+		Item blocker = new TestItem("Blocker");
+		Item item = new TestItem("Item");
+		queue.store(blocker, null);
+		service.awaitFirstStore();
+		// the worker is now blocked in the service, so these remain pending
+		queue.store(item, null);
+		queue.store(item, null);
+		queue.store(item, null);
+		assertEquals(1, queue.getQueueSize());
+		assertEquals(2, queue.getCoalescedCount());
+		assertEquals(0, queue.getDroppedCount());
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals(2, service.stored.size());
+	}
+
+	@Test
+	public void testDoesNotCoalesceIfNotFull() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 10, 1, 1, 0, OverflowPolicy.COALESCE);
+		
+		queue.store(new TestItem("Blocker"), null);
+		service.awaitFirstStore();
+		TestItem item = new TestItem("Item");
+		item.setState(new TestState("1"));
+		queue.store(item, null);
+		item.setState(new TestState("2"));
+		queue.store(item, null);
+		assertEquals(2, queue.getQueueSize());
+		assertEquals(0, queue.getCoalescedCount());
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals(3, service.states.size());
+		assertEquals(new TestState("1"), service.states.get(1));
+		assertEquals(new TestState("2"), service.states.get(2));
+	}
+
+	@Test
+	public void testStoresStateAtEnqueueTime() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 10, 1, 1, 0, OverflowPolicy.BLOCK);
+		
+		TestItem item = new TestItem("Item");
+		item.setState(new TestState("1"));
+		queue.store(item, null);
+		service.awaitFirstStore();
+		// the worker is now blocked in the service, so these remain pending
+		item.setState(new TestState("2"));
+		queue.store(item, null);
+		item.setState(new TestState("3"));
+		queue.store(item, null);
+		item.setState(new TestState("4"));
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals(3, service.states.size());
+		assertEquals(new TestState("1"), service.states.get(0));
+		assertEquals(new TestState("2"), service.states.get(1));
+		assertEquals(new TestState("3"), service.states.get(2));
+		assertEquals(TestItem.class, service.itemClasses.get(1));
+		assertTrue(service.items.get(1) instanceof ItemSnapshot);
+	}
+
+	@Test
+	public void testCoalescedEntryStoresLatestState() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 2, 1, 1, 0, OverflowPolicy.COALESCE);
+		
+		queue.store(new TestItem("Blocker"), null);
+		service.awaitFirstStore();
+		TestItem item = new TestItem("Item");
+		queue.store(new TestItem("Other"), null);
+		item.setState(new TestState("1"));
+		queue.store(item, null);
+		item.setState(new TestState("2"));
+		queue.store(item, null);
+		item.setState(new TestState("3"));
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals(3, service.states.size());
+		assertEquals(new TestState("2"), service.states.get(2));
+	}
+
+	@Test
+	public void testStoresStateOfGroupAtEnqueueTime() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 10, 1, 1, 0, OverflowPolicy.BLOCK);
+		
+		GroupItem group = new GroupItem("Group", new TestItem("Base"));
+		queue.store(new TestItem("Blocker"), null);
+		service.awaitFirstStore();
+		queue.store(group, null);
+		group.setState(new TestState("1"));
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals(2, service.states.size());
+		assertEquals(UnDefType.NULL, service.states.get(1));
+	}
+
+	@Test
+	public void testDropsOldestEntriesIfFull() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(1);
+		RecordingPersistenceService service = new RecordingPersistenceService(latch);
+		queue = new PersistenceWriteQueue(service, 2, 1, 1, 0, OverflowPolicy.DROP_OLDEST);
+		
+		queue.store(new TestItem("Blocker"), null);
+		service.awaitFirstStore();
+		queue.store(new TestItem("Item1"), null);
+		queue.store(new TestItem("Item2"), null);
+		queue.store(new TestItem("Item3"), null);
+		assertEquals(2, queue.getQueueSize());
+		assertEquals(1, queue.getDroppedCount());
+		
+		latch.countDown();
+		queue.shutdown(1000);
+		assertEquals("Item2", service.stored.get(1));
+		assertEquals("Item3", service.stored.get(2));
+	}
+	
+	
+	class RecordingPersistenceService implements PersistenceService {
+		
+		final List<String> stored = Collections.synchronizedList(new ArrayList<String>());
+		
+		final List<State> states = Collections.synchronizedList(new ArrayList<State>());
+		
+		final List<Class<?>> itemClasses = Collections.synchronizedList(new ArrayList<Class<?>>());
+		
+		final List<Item> items = Collections.synchronizedList(new ArrayList<Item>());
+		
+		private final CountDownLatch latch;
+		
+		private final CountDownLatch firstStore = new CountDownLatch(1);
+		
+		RecordingPersistenceService(CountDownLatch latch) {
+			this.latch = latch;
+		}
+		
+		void awaitFirstStore() throws InterruptedException {
+			firstStore.await(1, TimeUnit.SECONDS);
+		}
+
+		public String getName() {
+			return "recording";
+		}
+
+		public void store(Item item, String alias) {
+			stored.add(alias!=null ? item.getName() + "|" + alias : item.getName());
+			states.add(item.getState());
+			itemClasses.add(ItemSnapshot.unwrap(item).getClass());
+			items.add(item);
+			firstStore.countDown();
+			if(latch!=null) {
+				try {
+					latch.await(1, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		public void store(Item item) {
+			store(item, null);
+		}
+		
+	}
+	
+	static class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+		
+	}
+	
+	static class TestState implements State {
+		
+		private final String value;
+		
+		TestState(String value) {
+			this.value = value;
+		}
+		
+		public String format(String pattern) {
+			return value;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof TestState && value.equals(((TestState) obj).value);
+		}
+		
+		@Override
+		public int hashCode() {
+			return value.hashCode();
+		}
+		
+		@Override
+		public String toString() {
+			return value;
+		}
+	}
+
+}
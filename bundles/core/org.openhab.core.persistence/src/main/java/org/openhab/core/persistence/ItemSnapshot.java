@@ -0,0 +1,171 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * An immutable view on an item, which keeps the state the item had when the snapshot
+ * was taken. Persistence services may be called with such a snapshot instead of the
+ * item itself, if the item is persisted asynchronously.
+ *
+ * <p>The conversions of the state to {@link DecimalType} and to the accepted data types
+ * of the item are taken together with the state, so that {@link #getStateAs(Class)}
+ * still answers them after the state of the item has moved on. Services which check
+ * the type of an item must do so on {@link #unwrap(Item)}.</p>
+ *
+ * @since 1.4.0
+ */
+public class ItemSnapshot implements Item {
+
+	private final Item item;
+
+	private final State state;
+
+	/** the conversions of the state, which are not already covered by the state itself */
+	private final List<State> conversions = new ArrayList<State>(2);
+
+	/**
+	 * Takes a snapshot of the current state of the given item.
+	 *
+	 * @param item the item to take the snapshot of
+	 */
+	public ItemSnapshot(Item item) {
+		this.item = item;
+		this.state = item.getState();
+		addConversion(DecimalType.class);
+		List<Class<? extends State>> acceptedTypes = item.getAcceptedDataTypes();
+		if(acceptedTypes!=null) {
+			for(Class<? extends State> acceptedType : acceptedTypes) {
+				addConversion(acceptedType);
+			}
+		}
+	}
+
+	private void addConversion(Class<? extends State> typeClass) {
+		if(typeClass.isInstance(state) || findConversion(typeClass)!=null) {
+			return;
+		}
+		State conversion = item.getStateAs(typeClass);
+		if(conversion!=null && !conversion.equals(state)) {
+			conversions.add(conversion);
+		}
+	}
+
+	private State findConversion(Class<? extends State> typeClass) {
+		for(State conversion : conversions) {
+			if(typeClass.isInstance(conversion)) {
+				return conversion;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the item this snapshot has been taken of
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * Returns the item a snapshot has been taken of, so that its type can be checked.
+	 *
+	 * @param item an item or a snapshot of an item
+	 * @return the item itself, if it is not a snapshot
+	 */
+	public static Item unwrap(Item item) {
+		return item instanceof ItemSnapshot ? ((ItemSnapshot) item).getItem() : item;
+	}
+
+	/**
+	 * @return the state of the item at the time the snapshot has been taken
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public State getStateAs(Class<? extends State> typeClass) {
+		if(typeClass==null) {
+			return null;
+		}
+		if(typeClass.isInstance(state)) {
+			return state;
+		}
+		State conversion = findConversion(typeClass);
+		if(conversion==null && state!=null && state.equals(item.getState())) {
+			// a type which is not accepted by the item, but the state did not change yet
+			conversion = item.getStateAs(typeClass);
+		}
+		return conversion;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getName() {
+		return item.getName();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Class<? extends State>> getAcceptedDataTypes() {
+		return item.getAcceptedDataTypes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<Class<? extends Command>> getAcceptedCommandTypes() {
+		return item.getAcceptedCommandTypes();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<String> getGroupNames() {
+		return item.getGroupNames();
+	}
+
+	@Override
+	public String toString() {
+		return item.getName() + " (Type=" + item.getClass().getSimpleName() + ", State=" + state + ")";
+	}
+
+}
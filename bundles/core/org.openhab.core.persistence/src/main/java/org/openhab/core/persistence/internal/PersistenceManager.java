@@ -32,8 +32,10 @@ import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -43,6 +45,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
@@ -56,6 +59,7 @@ import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.internal.PersistenceWriteQueue.OverflowPolicy;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.core.EventType;
@@ -69,6 +73,8 @@ import org.openhab.model.persistence.persistence.PersistenceConfiguration;
 import org.openhab.model.persistence.persistence.PersistenceModel;
 import org.openhab.model.persistence.persistence.Strategy;
 import org.openhab.model.persistence.scoping.GlobalStrategies;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobDetail;
@@ -89,10 +95,13 @@ import org.slf4j.LoggerFactory;
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, ManagedService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
 
+	/** the time in milliseconds we wait for pending writes when a persistence service goes away */
+	private static final long WRITE_QUEUE_SHUTDOWN_TIMEOUT = 5000;
+
 	private static PersistenceManager instance;
 	
 	// the scheduler used for timer events
@@ -111,6 +120,30 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** 
+	 * maps item names to the persistence configurations which apply to them; it is built lazily
+	 * and reset to <code>null</code> whenever the persistence models or the items change
+	 */
+	private volatile Map<String, List<PersistenceRoute>> routingTable = null;
+	
+	/** keeps the write queue for each persistence service */
+	protected Map<String, PersistenceWriteQueue> writeQueues = new ConcurrentHashMap<String, PersistenceWriteQueue>();
+	
+	/** the maximum number of pending writes per persistence service */
+	private int queueCapacity = 1000;
+	
+	/** the number of threads writing to each persistence service */
+	private int queueWorkers = 1;
+
+	/** the number of pending writes a worker takes from the queue in one go */
+	private int queueBatchSize = 50;
+
+	/** the maximum time in milliseconds a pending write waits for its batch to fill up */
+	private long queueMaxAge = 0;
+
+	/** what to do if the write queue of a persistence service is full */
+	private OverflowPolicy queuePolicy = OverflowPolicy.BLOCK;
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -130,6 +163,9 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		for(String serviceName : writeQueues.keySet()) {
+			stopWriteQueue(serviceName);
+		}
 	}
 	
 	
@@ -160,11 +196,14 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		invalidateRoutingTable();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		invalidateRoutingTable();
+		startWriteQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
@@ -172,6 +211,74 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
+		invalidateRoutingTable();
+		stopWriteQueue(persistenceService.getName());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		if (config != null) {
+			queueCapacity = parseInt(config, "capacity", queueCapacity);
+			queueWorkers = parseInt(config, "workers", queueWorkers);
+			queueBatchSize = parseInt(config, "batchsize", queueBatchSize);
+			queueMaxAge = parseInt(config, "maxage", (int) queueMaxAge);
+			String policyString = (String) config.get("policy");
+			if (StringUtils.isNotBlank(policyString)) {
+				try {
+					queuePolicy = OverflowPolicy.valueOf(policyString.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException("policy", "Unknown overflow policy '" + policyString 
+							+ "', valid values are " + StringUtils.join(OverflowPolicy.values(), ", "));
+				}
+			}
+			
+			// replace the queues by ones with the new settings
+			for(PersistenceService service : persistenceServices.values()) {
+				startWriteQueue(service);
+			}
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static int parseInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if (StringUtils.isNotBlank(value)) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+			}
+		}
+		return defaultValue;
+	}
+	
+	private void startWriteQueue(PersistenceService service) {
+		PersistenceWriteQueue queue = new PersistenceWriteQueue(service, 
+				queueCapacity, queueWorkers, queueBatchSize, queueMaxAge, queuePolicy);
+		PersistenceWriteQueue oldQueue = writeQueues.put(service.getName(), queue);
+		if(oldQueue!=null) {
+			oldQueue.shutdown(WRITE_QUEUE_SHUTDOWN_TIMEOUT);
+		}
+	}
+	
+	private void stopWriteQueue(String serviceName) {
+		PersistenceWriteQueue queue = writeQueues.remove(serviceName);
+		if(queue!=null) {
+			queue.shutdown(WRITE_QUEUE_SHUTDOWN_TIMEOUT);
+		}
+	}
+	
+	/**
+	 * Returns the write queue of the given persistence service, e.g. to inspect its metrics.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @return the write queue or <code>null</code>, if there is no such service
+	 */
+	public PersistenceWriteQueue getWriteQueue(String serviceName) {
+		return writeQueues.get(serviceName);
 	}
 	
 	
@@ -200,6 +307,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			invalidateRoutingTable();
 			for(PersistenceConfiguration config : model.getConfigs()) {
 				if(hasStrategy(modelName, config, GlobalStrategies.RESTORE)) {
 					for(Item item : getAllItems(config)) {
@@ -219,6 +327,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		invalidateRoutingTable();
 		removeTimers(modelName);
 	}
 
@@ -231,28 +340,92 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	/**
-	 * Calls all persistence services which use change or update policy for the given item
+	 * Calls all persistence services which use change or update policy for the given item.
+	 * The actual writes are handed over to the write queue of the respective service, so 
+	 * that a slow service does not block the event delivery.
 	 * 
 	 * @param item the item to persist
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
-							}
-						}
+		List<PersistenceRoute> routes = getRoutingTable().get(item.getName());
+		if(routes==null) {
+			return;
+		}
+		for(PersistenceRoute route : routes) {
+			if(onlyChanges ? route.onChange : route.onUpdate) {
+				PersistenceWriteQueue queue = writeQueues.get(route.serviceName);
+				if(queue!=null) {
+					queue.store(item, route.alias);
+				} else {
+					PersistenceService service = persistenceServices.get(route.serviceName);
+					if(service!=null) {
+						service.store(item, route.alias);
 					}
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Returns the routing table from item names to the persistence configurations which apply 
+	 * to them. If there is no valid table, it is rebuilt from the current persistence models
+	 * and items, so that resolving groups is only done once and not for every single event.
+	 * 
+	 * @return the current routing table
+	 */
+	protected Map<String, List<PersistenceRoute>> getRoutingTable() {
+		Map<String, List<PersistenceRoute>> table = routingTable;
+		if(table==null) {
+			synchronized (persistenceConfigurations) {
+				table = routingTable;
+				if(table==null) {
+					table = buildRoutingTable();
+					routingTable = table;
+				}
+			}
+		}
+		return table;
+	}
+	
+	private Map<String, List<PersistenceRoute>> buildRoutingTable() {
+		Map<String, List<PersistenceRoute>> table = new HashMap<String, List<PersistenceRoute>>();
+		if(itemRegistry==null) {
+			return table;
+		}
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			String serviceName = entry.getKey();
+			if(!persistenceServices.containsKey(serviceName)) {
+				continue;
+			}
+			for(PersistenceConfiguration config : entry.getValue()) {
+				PersistenceRoute route = new PersistenceRoute(serviceName, config.getAlias(), 
+						hasStrategy(serviceName, config, GlobalStrategies.CHANGE), 
+						hasStrategy(serviceName, config, GlobalStrategies.UPDATE));
+				if(!route.onChange && !route.onUpdate) {
+					continue;
+				}
+				for(Item item : getAllItems(config)) {
+					List<PersistenceRoute> routes = table.get(item.getName());
+					if(routes==null) {
+						routes = new ArrayList<PersistenceRoute>(1);
+						table.put(item.getName(), routes);
+					}
+					routes.add(route);
+				}
+			}
+		}
+		logger.debug("Rebuilt persistence routing table for {} items.", table.size());
+		return table;
+	}
+	
+	private void invalidateRoutingTable() {
+		// synchronize with a possibly running rebuild, so that it cannot publish an outdated table
+		synchronized (persistenceConfigurations) {
+			routingTable = null;
+		}
+	}
+	
 	/**
 	 * Checks if a given persistence configuration entry has a certain strategy for the given service
 	 * 
@@ -353,12 +526,19 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
+		// the routing table is invalidated only once for all items
+		invalidateRoutingTable();
 		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+			internalItemAdded(item);
 		}
 	}
 
 	public void itemAdded(Item item) {
+		invalidateRoutingTable();
+		internalItemAdded(item);
+	}
+
+	private void internalItemAdded(Item item) {
 		initialize(item);
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
@@ -410,6 +590,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void itemRemoved(Item item) {
+		invalidateRoutingTable();
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
@@ -480,4 +661,22 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 		
 
+	/**
+	 * A single entry of the routing table, which tells that an item has to be persisted
+	 * by a certain service under a certain alias.
+	 */
+	protected static class PersistenceRoute {
+		final String serviceName;
+		final String alias;
+		final boolean onChange;
+		final boolean onUpdate;
+		
+		PersistenceRoute(String serviceName, String alias, boolean onChange, boolean onUpdate) {
+			this.serviceName = serviceName;
+			this.alias = alias;
+			this.onChange = onChange;
+			this.onUpdate = onUpdate;
+		}
+	}
+
 }
@@ -0,0 +1,372 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.ItemSnapshot;
+import org.openhab.core.persistence.PersistenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded write queue in front of a single {@link PersistenceService}. Store requests
+ * are enqueued by the event delivery thread and written by a number of worker threads,
+ * so that a slow persistence service does not stall the item updates of the whole system.
+ * <p>
+ * Workers flush the queue in batches, either as soon as <code>batchSize</code> entries are
+ * pending or when the oldest pending entry is older than <code>maxAge</code> milliseconds.
+ * What happens if the queue is full is defined by the {@link OverflowPolicy}.
+ * <p>
+ * Every entry keeps a snapshot of the item state at the time it has been enqueued (see
+ * {@link ItemSnapshot}), so that later changes of the item do not alter what is persisted.
+ * As long as the queue is not full, every state is persisted, whatever the policy.
+ *
+ * @since 1.4.0
+ */
+public class PersistenceWriteQueue {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceWriteQueue.class);
+
+	/** defines how the queue behaves if a new entry is added while it is full */
+	public enum OverflowPolicy {
+		/** the caller waits until there is space in the queue again */
+		BLOCK,
+		/** the oldest pending entry is discarded */
+		DROP_OLDEST,
+		/** if the queue is full, an entry for an item and alias which is already pending is updated with the new state; otherwise like DROP_OLDEST */
+		COALESCE
+	}
+
+	private final PersistenceService service;
+
+	private final int capacity;
+
+	private final int batchSize;
+
+	private final long maxAge;
+
+	private final OverflowPolicy policy;
+
+	/** the pending entries in the order of their arrival */
+	private final LinkedList<Entry> queue = new LinkedList<Entry>();
+
+	/** the most recent pending entry by its item and alias, only maintained for {@link OverflowPolicy#COALESCE} */
+	private final Map<String, Entry> pending = new HashMap<String, Entry>();
+
+	private final List<Thread> workers = new ArrayList<Thread>();
+
+	private volatile boolean running = true;
+
+	private final AtomicLong storedCount = new AtomicLong();
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong coalescedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong totalStoreTime = new AtomicLong();
+	private final AtomicLong maxStoreTime = new AtomicLong();
+
+	/**
+	 * Creates a new write queue for the given service and starts its worker threads.
+	 *
+	 * @param service the persistence service to write to
+	 * @param capacity the maximum number of pending entries
+	 * @param workerCount the number of worker threads
+	 * @param batchSize the number of entries a worker writes in one go
+	 * @param maxAge the maximum time in milliseconds an entry waits for a batch to fill up
+	 * @param policy what to do if the queue is full
+	 */
+	public PersistenceWriteQueue(PersistenceService service, int capacity, int workerCount,
+			int batchSize, long maxAge, OverflowPolicy policy) {
+		this.service = service;
+		this.capacity = Math.max(1, capacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.maxAge = Math.max(0, maxAge);
+		this.policy = policy;
+
+		for(int i = 0; i < Math.max(1, workerCount); i++) {
+			Thread worker = new Thread(new Worker(), "Persistence writer '" + service.getName() + "' #" + i);
+			worker.setDaemon(true);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Enqueues the current state of the given item to be stored by the persistence service.
+	 *
+	 * @param item the item to store
+	 * @param alias the alias to store the item under, may be <code>null</code>
+	 */
+	public void store(Item item, String alias) {
+		String key = alias != null ? item.getName() + "|" + alias : item.getName();
+		synchronized (queue) {
+			if(!running) {
+				droppedCount.incrementAndGet();
+				return;
+			}
+			while(queue.size() >= capacity) {
+				if(policy == OverflowPolicy.BLOCK) {
+					try {
+						queue.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						droppedCount.incrementAndGet();
+						return;
+					}
+					if(!running) {
+						droppedCount.incrementAndGet();
+						return;
+					}
+				} else {
+					if(policy == OverflowPolicy.COALESCE) {
+						Entry entry = pending.get(key);
+						if(entry != null) {
+							// the pending entry has not been taken by a worker yet, so it is
+							// updated to persist the most recent state instead of evicting another one
+							entry.item = new ItemSnapshot(item);
+							coalescedCount.incrementAndGet();
+							return;
+						}
+					}
+					Entry oldest = queue.removeFirst();
+					removePending(oldest);
+					droppedCount.incrementAndGet();
+					logger.debug("Write queue of persistence service '{}' is full, dropped entry for item '{}'.",
+							service.getName(), oldest.item.getName());
+				}
+			}
+			Entry entry = new Entry(key, item, alias);
+			queue.addLast(entry);
+			if(policy == OverflowPolicy.COALESCE) {
+				pending.put(key, entry);
+			}
+			queue.notifyAll();
+		}
+	}
+
+	/**
+	 * Stops all worker threads. Entries which are still pending are written before
+	 * the workers terminate, unless this takes longer than the given timeout.
+	 *
+	 * @param timeout the maximum time in milliseconds to wait for the workers
+	 */
+	public void shutdown(long timeout) {
+		synchronized (queue) {
+			running = false;
+			queue.notifyAll();
+		}
+		long deadline = System.currentTimeMillis() + timeout;
+		for(Thread worker : workers) {
+			try {
+				worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		synchronized (queue) {
+			if(!queue.isEmpty()) {
+				logger.warn("Discarded {} pending entries of persistence service '{}'.", queue.size(), service.getName());
+				droppedCount.addAndGet(queue.size());
+				queue.clear();
+				pending.clear();
+			}
+		}
+		logger.debug("Write queue of persistence service '{}' stopped: {}", service.getName(), getStatistics());
+	}
+
+	/**
+	 * Takes the next batch of entries from the queue. Blocks until either a full batch
+	 * is available, the oldest entry exceeded its maximum age or the queue has been shut down.
+	 *
+	 * @return the next batch of entries, an empty list if the queue has been shut down
+	 * @throws InterruptedException if the worker has been interrupted while waiting
+	 */
+	private List<Entry> takeBatch() throws InterruptedException {
+		synchronized (queue) {
+			while(true) {
+				if(queue.isEmpty()) {
+					if(!running) {
+						return new ArrayList<Entry>(0);
+					}
+					queue.wait();
+					continue;
+				}
+				long age = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queue.getFirst().enqueued);
+				if(queue.size() >= batchSize || age >= maxAge || !running) {
+					break;
+				}
+				queue.wait(maxAge - age);
+			}
+			List<Entry> batch = new ArrayList<Entry>(Math.min(batchSize, queue.size()));
+			while(!queue.isEmpty() && batch.size() < batchSize) {
+				Entry entry = queue.removeFirst();
+				removePending(entry);
+				batch.add(entry);
+			}
+			// wake up producers waiting for free space
+			queue.notifyAll();
+			return batch;
+		}
+	}
+
+	/**
+	 * Removes the given entry from the pending entries, unless there is a more recent one
+	 * for the same item and alias. Must be called while holding the lock of the queue.
+	 */
+	private void removePending(Entry entry) {
+		if(pending.get(entry.key) == entry) {
+			pending.remove(entry.key);
+		}
+	}
+
+	private void write(Entry entry) {
+		long startTime = System.nanoTime();
+		try {
+			service.store(entry.item, entry.alias);
+			storedCount.incrementAndGet();
+		} catch (RuntimeException e) {
+			failedCount.incrementAndGet();
+			logger.error("Persistence service '{}' failed to store item '{}'.",
+					new Object[] { service.getName(), entry.item.getName(), e });
+		}
+		long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+		totalStoreTime.addAndGet(duration);
+		long max = maxStoreTime.get();
+		while(duration > max && !maxStoreTime.compareAndSet(max, duration)) {
+			max = maxStoreTime.get();
+		}
+		logger.trace("Storing item '{}' with persistence service '{}' took {}ms",
+				new Object[] { entry.item.getName(), service.getName(), duration });
+	}
+
+	/**
+	 * @return the number of entries currently waiting to be written
+	 */
+	public int getQueueSize() {
+		synchronized (queue) {
+			return queue.size();
+		}
+	}
+
+	/**
+	 * @return the number of entries successfully written to the service
+	 */
+	public long getStoredCount() {
+		return storedCount.get();
+	}
+
+	/**
+	 * @return the number of entries discarded because the queue was full or shut down
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of entries merged into an already pending entry
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of entries for which the service threw an exception
+	 */
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds a call to the service took
+	 */
+	public long getAverageStoreTime() {
+		long count = storedCount.get() + failedCount.get();
+		return count > 0 ? totalStoreTime.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds a call to the service took
+	 */
+	public long getMaxStoreTime() {
+		return maxStoreTime.get();
+	}
+
+	/**
+	 * @return a human readable summary of the queue metrics
+	 */
+	public String getStatistics() {
+		return "queued=" + getQueueSize() + ", stored=" + getStoredCount() + ", dropped=" + getDroppedCount()
+			+ ", coalesced=" + getCoalescedCount() + ", failed=" + getFailedCount()
+			+ ", avgStoreTime=" + getAverageStoreTime() + "ms, maxStoreTime=" + getMaxStoreTime() + "ms";
+	}
+
+
+	private static class Entry {
+		final String key;
+		/** the snapshot of the item to store, guarded by the queue as long as the entry is pending */
+		Item item;
+		final String alias;
+		final long enqueued;
+
+		Entry(String key, Item item, String alias) {
+			this.key = key;
+			this.item = new ItemSnapshot(item);
+			this.alias = alias;
+			this.enqueued = System.nanoTime();
+		}
+	}
+
+	private class Worker implements Runnable {
+		public void run() {
+			while(true) {
+				List<Entry> batch;
+				try {
+					batch = takeBatch();
+				} catch (InterruptedException e) {
+					return;
+				}
+				if(batch.isEmpty()) {
+					return;
+				}
+				for(Entry entry : batch) {
+					write(entry);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,182 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.internal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.events.AbstractEventSubscriber;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+
+/**
+ * @since 1.4.0
+ */
+public class EventPublisherImplTest {
+	
+	private EventPublisherImpl publisher;
+	
+	private TestEventAdmin eventAdmin;
+	
+	@Before
+	public void setup() {
+		publisher = new EventPublisherImpl();
+		eventAdmin = new TestEventAdmin();
+		publisher.setEventAdmin(eventAdmin);
+	}
+	
+	@Test
+	public void testUpdateEvent() {
+		publisher.postUpdate("Light", TestType.ON);
+		
+		ItemEvent event = (ItemEvent) eventAdmin.events.get(0);
+		assertEquals("openhab/update/Light", event.getTopic());
+		assertEquals("Light", event.getProperty("item"));
+		assertEquals(TestType.ON, event.getProperty("state"));
+		assertEquals(EventType.UPDATE, event.getType());
+		assertEquals("Light", event.getItemName());
+		assertEquals(TestType.ON, event.getState());
+		assertNull(event.getCommand());
+	}
+
+	@Test
+	public void testCommandEvent() {
+		publisher.sendCommand("Light", TestType.OFF);
+		
+		ItemEvent event = (ItemEvent) eventAdmin.events.get(0);
+		assertEquals("openhab/command/Light", event.getTopic());
+		assertEquals("Light", event.getProperty("item"));
+		assertEquals(TestType.OFF, event.getProperty("command"));
+		assertEquals(EventType.COMMAND, event.getType());
+		assertEquals(TestType.OFF, event.getCommand());
+		assertNull(event.getState());
+	}
+
+	@Test
+	public void testTopicsAreReused() {
+		publisher.postUpdate("Light", TestType.ON);
+		publisher.postUpdate("Light", TestType.OFF);
+		publisher.postCommand("Light", TestType.ON);
+		
+		assertSame(eventAdmin.events.get(0).getTopic(), eventAdmin.events.get(1).getTopic());
+		assertEquals("openhab/command/Light", eventAdmin.events.get(2).getTopic());
+	}
+	
+	@Test
+	public void testSubscriberReceivesTypedAndPlainEvents() {
+		TestSubscriber subscriber = new TestSubscriber();
+		
+		publisher.postUpdate("Light", TestType.ON);
+		publisher.sendCommand("Light", TestType.OFF);
+		subscriber.handleEvent(eventAdmin.events.get(0));
+		subscriber.handleEvent(eventAdmin.events.get(1));
+		
+		// events which are not sent through the publisher must still be understood
+		subscriber.handleEvent(new Event(eventAdmin.events.get(0).getTopic(), copyProperties(eventAdmin.events.get(0))));
+		subscriber.handleEvent(new Event(eventAdmin.events.get(1).getTopic(), copyProperties(eventAdmin.events.get(1))));
+		
+		assertEquals(2, subscriber.updates.size());
+		assertEquals(2, subscriber.commands.size());
+		for(Object received : subscriber.updates) {
+			assertEquals(TestType.ON, received);
+		}
+		for(Object received : subscriber.commands) {
+			assertEquals(TestType.OFF, received);
+		}
+	}
+	
+	@Test
+	public void testNullIsNotPublished() {
+		publisher.postUpdate("Light", null);
+		publisher.sendCommand("Light", null);
+		assertTrue(eventAdmin.events.isEmpty());
+	}
+	
+	private static Dictionary<String, Object> copyProperties(Event event) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		for(String name : event.getPropertyNames()) {
+			properties.put(name, event.getProperty(name));
+		}
+		return properties;
+	}
+
+	
+	private enum TestType implements State, Command {
+		ON, OFF;
+
+		public String format(String pattern) {
+			return String.format(pattern, toString());
+		}
+	}
+	
+	private static class TestEventAdmin implements EventAdmin {
+		
+		List<Event> events = new ArrayList<Event>();
+
+		public void postEvent(Event event) {
+			events.add(event);
+		}
+
+		public void sendEvent(Event event) {
+			events.add(event);
+		}
+	}
+	
+	private static class TestSubscriber extends AbstractEventSubscriber {
+		
+		List<State> updates = new ArrayList<State>();
+		
+		List<Command> commands = new ArrayList<Command>();
+
+		@Override
+		public void receiveUpdate(String itemName, State newState) {
+			updates.add(newState);
+		}
+		
+		@Override
+		public void receiveCommand(String itemName, Command command) {
+			commands.add(command);
+		}
+	}
+
+}
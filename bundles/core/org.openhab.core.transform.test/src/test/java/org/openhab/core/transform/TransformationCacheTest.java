@@ -0,0 +1,118 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.transform;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * @since 1.4.0
+ */
+public class TransformationCacheTest {
+
+	private TransformationCache<String> cache;
+	
+	private int loadCount;
+	
+	@Before
+	public void init() {
+		cache = new TransformationCache<String>(2);
+		loadCount = 0;
+	}
+	
+	@Test
+	public void testGet_expression() throws TransformationException {
+		Assert.assertEquals("a1", cache.get("a", new CountingLoader("a")));
+		Assert.assertEquals("a1", cache.get("a", new CountingLoader("a")));
+		
+		Assert.assertEquals(1, cache.getMissCount());
+		Assert.assertEquals(1, cache.getHitCount());
+	}
+	
+	@Test
+	public void testGet_evictsLeastRecentlyUsed() throws TransformationException {
+		cache.get("a", new CountingLoader("a"));
+		cache.get("b", new CountingLoader("b"));
+		// 'a' becomes the most recently used entry, so 'b' is evicted
+		cache.get("a", new CountingLoader("a"));
+		cache.get("c", new CountingLoader("c"));
+		
+		Assert.assertEquals(2, cache.size());
+		Assert.assertEquals("a1", cache.get("a", new CountingLoader("a")));
+		Assert.assertEquals("b4", cache.get("b", new CountingLoader("b")));
+	}
+	
+	@Test
+	public void testGet_fileModified() throws TransformationException, IOException {
+		File file = File.createTempFile("transform", ".map");
+		file.deleteOnExit();
+		FileUtils.writeStringToFile(file, "key=value");
+		
+		Assert.assertEquals("f1", cache.get(file, new CountingLoader("f")));
+		Assert.assertEquals("f1", cache.get(file, new CountingLoader("f")));
+		
+		file.setLastModified(file.lastModified() - 10000);
+		Assert.assertEquals("f2", cache.get(file, new CountingLoader("f")));
+		Assert.assertEquals(2, cache.getMissCount());
+	}
+	
+	@Test(expected=TransformationException.class)
+	public void testGet_loaderFails() throws TransformationException {
+		try {
+			cache.get("a", new TransformationCache.Loader<String>() {
+				public String load() throws TransformationException {
+					throw new TransformationException("failed");
+				}
+			});
+		} finally {
+			Assert.assertEquals(0, cache.size());
+		}
+	}
+	
+	private class CountingLoader implements TransformationCache.Loader<String> {
+		
+		private final String value;
+		
+		CountingLoader(String value) {
+			this.value = value;
+		}
+		
+		public String load() {
+			return value + (++loadCount);
+		}
+	}
+
+}
@@ -79,4 +79,18 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
 		Assert.assertEquals("8", transformedResponse);
 	}
 
+	@Test
+	public void testTransformByRegex_cachesPattern() throws TransformationException {
+		String regex = ".*?<current_conditions>.*?<temp_c data=\"(.*?)\".*";
+
+		// method under test
+		processor.transform(regex, source);
+		String transformedResponse = processor.transform(regex, source);
+		
+		// Asserts
+		Assert.assertEquals("8", transformedResponse);
+		Assert.assertEquals(1, processor.getCache().getMissCount());
+		Assert.assertEquals(1, processor.getCache().getHitCount());
+	}
+
 }
@@ -0,0 +1,191 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.transform;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache for the compiled artifacts of transformations, e.g. parsed mapping
+ * files, XSLT templates or compiled regular expressions, so that they do not have to be
+ * created again for every single transformation. If the cache is full, the least
+ * recently used entry is discarded.
+ * <p>
+ * Artifacts which are created from an expression are cached by the expression itself,
+ * artifacts which are read from a file are cached by the path of the file and discarded
+ * as soon as the modification time of the file changes.
+ * <p>
+ * The cached artifacts are shared by all callers, so they must be safe for concurrent use
+ * or be guarded by the caller.
+ * 
+ * @param <V> the type of the cached artifacts
+ * 
+ * @since 1.4.0
+ */
+public class TransformationCache<V> {
+	
+	/** the default maximum number of cached artifacts */
+	public static final int DEFAULT_CAPACITY = 100;
+	
+	/**
+	 * Creates the artifact for a cache entry which is missing or outdated.
+	 * 
+	 * @param <V> the type of the artifact
+	 */
+	public interface Loader<V> {
+		
+		/**
+		 * @return the artifact to cache, never <code>null</code>
+		 * @throws TransformationException if the artifact cannot be created
+		 */
+		V load() throws TransformationException;
+	}
+	
+	private final int capacity;
+	
+	private final LinkedHashMap<String, Entry<V>> entries;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	
+	public TransformationCache() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * @param capacity the maximum number of cached artifacts
+	 */
+	public TransformationCache(int capacity) {
+		this.capacity = Math.max(1, capacity);
+		this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				return size() > TransformationCache.this.capacity;
+			}
+		};
+	}
+	
+	/**
+	 * Returns the artifact for the given expression, which is created by the given 
+	 * loader if it is not cached yet.
+	 * 
+	 * @param expression the expression the artifact is created from
+	 * @param loader the loader to create the artifact with
+	 * @return the cached or newly created artifact
+	 * @throws TransformationException if the artifact cannot be created
+	 */
+	public V get(String expression, Loader<V> loader) throws TransformationException {
+		return get(expression, 0, loader);
+	}
+	
+	/**
+	 * Returns the artifact for the given file, which is created by the given loader if
+	 * it is not cached yet or if the file has been modified since.
+	 * 
+	 * @param file the file the artifact is read from
+	 * @param loader the loader to create the artifact with
+	 * @return the cached or newly created artifact
+	 * @throws TransformationException if the artifact cannot be created
+	 */
+	public V get(File file, Loader<V> loader) throws TransformationException {
+		return get(file.getAbsolutePath(), file.lastModified(), loader);
+	}
+	
+	private V get(String key, long lastModified, Loader<V> loader) throws TransformationException {
+		synchronized (entries) {
+			Entry<V> entry = entries.get(key);
+			if (entry != null && entry.lastModified == lastModified) {
+				hitCount.incrementAndGet();
+				return entry.value;
+			}
+		}
+		missCount.incrementAndGet();
+		// the artifact is created outside of the lock, as this might take a while; 
+		// if two threads miss at the same time, the artifact is simply created twice
+		V value = loader.load();
+		synchronized (entries) {
+			entries.put(key, new Entry<V>(value, lastModified));
+		}
+		return value;
+	}
+	
+	/**
+	 * Discards all cached artifacts.
+	 */
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+	
+	/**
+	 * @return the number of cached artifacts
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+	
+	/**
+	 * @return the number of requests which have been served from the cache
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	/**
+	 * @return the number of requests which required the artifact to be created
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	/**
+	 * @return a human readable summary of the cache metrics
+	 */
+	public String getStatistics() {
+		return "size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount();
+	}
+	
+	
+	private static class Entry<V> {
+		final V value;
+		final long lastModified;
+		
+		Entry(V value, long lastModified) {
+			this.value = value;
+			this.lastModified = lastModified;
+		}
+	}
+
+}
@@ -30,16 +30,20 @@ package org.openhab.core.transform.internal.service;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.apache.commons.io.IOUtils;
 import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationCache;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.transform.internal.TransformationActivator;
@@ -58,6 +62,12 @@ public class JavaScriptTransformationService implements TransformationService {
 	static final Logger logger = 
 		LoggerFactory.getLogger(JavaScriptTransformationService.class);
 	
+	/** the engine which executes all scripts; every execution gets its own bindings */
+	private ScriptEngine engine;
+	
+	/** the compiled scripts, which are compiled again as soon as their file is modified */
+	private final TransformationCache<Script> cache = new TransformationCache<Script>();
+	
 	/**
 	 * Transforms the input <code>source</code> by Java Script. It expects the
 	 * transformation rule to be read from a file which is stored under the
@@ -80,32 +90,32 @@ public class JavaScriptTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the Java Script '{}'", source, filename);
 
-		Reader reader;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() 
-				+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
-				+ File.separator + filename;
-			reader = new InputStreamReader(new FileInputStream(path));
-		} catch (FileNotFoundException e) {
-			throw new TransformationException("An error occured while loading script.", e);
-		}
-
-		ScriptEngineManager manager = new ScriptEngineManager();
+		String path = ConfigDispatcher.getConfigFolder() 
+			+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
+			+ File.separator + filename;
+		final File file = new File(path);
+		final ScriptEngine engine = getEngine();
 		
-		ScriptEngine engine = manager.getEngineByName("javascript");
-		engine.put("input", source);
+		Script script = cache.get(file, new TransformationCache.Loader<Script>() {
+			public Script load() throws TransformationException {
+				return loadScript(engine, file);
+			}
+		});
 
 		Object result = null;
 
 		long startTime = System.currentTimeMillis();
 
 		try {
-			result = engine.eval(reader);
+			Bindings bindings = engine.createBindings();
+			bindings.put("input", source);
+			if (script.compiledScript != null) {
+				result = script.compiledScript.eval(bindings);
+			} else {
+				result = engine.eval(script.source, bindings);
+			}
 		} catch (ScriptException e) {
 			throw new TransformationException("An error occured while executing script.", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 
 		logger.trace("JavaScript execution elapsed {} ms", System.currentTimeMillis() - startTime);
@@ -113,4 +123,51 @@ public class JavaScriptTransformationService implements TransformationService {
 		return String.valueOf(result);
 	}
 
+	/**
+	 * @return the cache of the compiled scripts
+	 */
+	public TransformationCache<Script> getCache() {
+		return cache;
+	}
+	
+	private synchronized ScriptEngine getEngine() {
+		if (engine == null) {
+			engine = new ScriptEngineManager().getEngineByName("javascript");
+		}
+		return engine;
+	}
+	
+	private static Script loadScript(ScriptEngine engine, File file) throws TransformationException {
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file));
+			String source = IOUtils.toString(reader);
+			if (engine instanceof Compilable) {
+				return new Script(source, ((Compilable) engine).compile(source));
+			} else {
+				return new Script(source, null);
+			}
+		} catch (IOException e) {
+			throw new TransformationException("An error occured while loading script.", e);
+		} catch (ScriptException e) {
+			throw new TransformationException("An error occured while compiling script.", e);
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+	}
+	
+	/**
+	 * The source of a script file together with its compiled form, if the 
+	 * script engine supports compilation.
+	 */
+	public static class Script {
+		final String source;
+		final CompiledScript compiledScript;
+		
+		Script(String source, CompiledScript compiledScript) {
+			this.source = source;
+			this.compiledScript = compiledScript;
+		}
+	}
+
 }
@@ -36,6 +36,7 @@ import java.util.Properties;
 
 import org.apache.commons.io.IOUtils;
 import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationCache;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.transform.internal.TransformationActivator;
@@ -53,6 +54,9 @@ import org.slf4j.LoggerFactory;
 public class MapTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(MapTransformationService.class);
+	
+	/** the parsed mapping files, which are read again as soon as they are modified */
+	private final TransformationCache<Properties> cache = new TransformationCache<Properties>();
 
 	/**
 	 * <p>
@@ -76,26 +80,52 @@ public class MapTransformationService implements TransformationService {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Reader reader = null;
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			Properties properties = new Properties();
-			reader = new FileReader(path);
-			properties.load(reader);
-			String target = properties.getProperty(source);
-			if(target!=null) {
-				logger.debug("transformation resulted in '{}'", target);
-				return target;
-			} else {
-				logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
-				return "";
+		String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
+		Properties properties = cache.get(new File(path), new MappingLoader(path, filename));
+		String target = properties.getProperty(source);
+		if(target!=null) {
+			logger.debug("transformation resulted in '{}'", target);
+			return target;
+		} else {
+			logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
+			return "";
+		}
+	}
+	
+	/**
+	 * @return the cache of the parsed mapping files
+	 */
+	public TransformationCache<Properties> getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Reads the key value pairs of a mapping file.
+	 */
+	private static class MappingLoader implements TransformationCache.Loader<Properties> {
+		
+		private final String path;
+		private final String filename;
+		
+		public MappingLoader(String path, String filename) {
+			this.path = path;
+			this.filename = filename;
+		}
+
+		public Properties load() throws TransformationException {
+			Reader reader = null;
+			try {
+				Properties properties = new Properties();
+				reader = new FileReader(path);
+				properties.load(reader);
+				return properties;
+			} catch (IOException e) {
+				String message = "opening file '" + filename + "' throws exception";
+				logger.error(message, e);
+				throw new TransformationException(message, e);
+			} finally {
+				IOUtils.closeQuietly(reader);
 			}
-		} catch (IOException e) {
-			String message = "opening file '" + filename + "' throws exception";
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 	}
 
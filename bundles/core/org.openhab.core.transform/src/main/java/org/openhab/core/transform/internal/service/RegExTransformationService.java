@@ -31,6 +31,7 @@ package org.openhab.core.transform.internal.service;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.openhab.core.transform.TransformationCache;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -49,11 +50,14 @@ import org.slf4j.LoggerFactory;
 public class RegExTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(RegExTransformationService.class);
+	
+	/** the compiled patterns by their regular expression */
+	private final TransformationCache<Pattern> cache = new TransformationCache<Pattern>();
 
 	/**
 	 * @{inheritDoc
 	 */
-	public String transform(String regExpression, String source) throws TransformationException {
+	public String transform(final String regExpression, String source) throws TransformationException {
 		
 		if (regExpression == null || source == null) {
 			throw new TransformationException("the given parameters 'regex' and 'source' must not be null");
@@ -61,7 +65,12 @@ public class RegExTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
 
-		Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+		Pattern pattern = cache.get(regExpression, new TransformationCache.Loader<Pattern>() {
+			public Pattern load() {
+				return Pattern.compile("^" + regExpression + "$", Pattern.DOTALL);
+			}
+		});
+		Matcher matcher = pattern.matcher(source.trim());
 		if (!matcher.matches()) {
 			logger.debug("the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation", regExpression, source);
 			return null;
@@ -85,5 +94,12 @@ public class RegExTransformationService implements TransformationService {
 
 		return result;
 	}
+	
+	/**
+	 * @return the cache of the compiled patterns
+	 */
+	public TransformationCache<Pattern> getCache() {
+		return cache;
+	}
 
 }
@@ -35,8 +35,10 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.openhab.core.transform.TransformationCache;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -55,11 +57,17 @@ import org.xml.sax.InputSource;
 public class XPathTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
+	
+	/** 
+	 * the compiled expressions by their XPath; note that an {@link XPathExpression} must not be 
+	 * evaluated concurrently, so its evaluation is synchronized on the expression
+	 */
+	private final TransformationCache<XPathExpression> cache = new TransformationCache<XPathExpression>();
 
 	/**
 	 * @{inheritDoc
 	 */
-	public String transform(String xpathExpression, String source) throws TransformationException {
+	public String transform(final String xpathExpression, String source) throws TransformationException {
 
 		if (xpathExpression == null || source == null) {
 			throw new TransformationException("the given parameters 'xpath' and 'source' must not be null");
@@ -81,14 +89,27 @@ public class XPathTransformationService implements TransformationService {
 
 			Document doc = builder.parse(inputSource);
 
-			XPath xpath = XPathFactory.newInstance().newXPath();
-			XPathExpression expr = xpath.compile(xpathExpression);
-
-			String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			XPathExpression expr = cache.get(xpathExpression, new TransformationCache.Loader<XPathExpression>() {
+				public XPathExpression load() throws TransformationException {
+					try {
+						XPath xpath = XPathFactory.newInstance().newXPath();
+						return xpath.compile(xpathExpression);
+					} catch (XPathExpressionException e) {
+						throw new TransformationException("transformation throws exceptions", e);
+					}
+				}
+			});
+
+			String transformationResult;
+			synchronized (expr) {
+				transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			}
 
 			logger.debug("transformation resulted in '{}'", transformationResult);
 
 			return transformationResult;
+		} catch (TransformationException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new TransformationException("transformation throws exceptions", e);
 		} finally {
@@ -99,4 +120,11 @@ public class XPathTransformationService implements TransformationService {
 
 	}
 
+	/**
+	 * @return the cache of the compiled expressions
+	 */
+	public TransformationCache<XPathExpression> getCache() {
+		return cache;
+	}
+
 }
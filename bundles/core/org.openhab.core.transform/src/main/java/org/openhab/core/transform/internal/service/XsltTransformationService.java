@@ -32,13 +32,14 @@ import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
 
-import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationCache;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.transform.internal.TransformationActivator;
@@ -56,6 +57,9 @@ import org.slf4j.LoggerFactory;
 public class XsltTransformationService implements TransformationService {
 
 	static final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
+	
+	/** the compiled stylesheets, which are compiled again as soon as their file is modified */
+	private final TransformationCache<Templates> cache = new TransformationCache<Templates>();
 
 	/**
 	 * <p>
@@ -79,27 +83,30 @@ public class XsltTransformationService implements TransformationService {
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 
-		Source xsl = null;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
-			xsl = new StreamSource(new File(path));
-		} catch (Exception e) {
-			String message = "opening file '" + filename + "' throws exception";
-
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		}
+		String path = ConfigDispatcher.getConfigFolder() + File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME + File.separator + filename;
+		final File xsl = new File(path);
 
 		logger.debug("about to transform '{}' by the function '{}'", source, xsl);
 
+		Templates templates = cache.get(xsl, new TransformationCache.Loader<Templates>() {
+			public Templates load() throws TransformationException {
+				try {
+					return TransformerFactory.newInstance().newTemplates(new StreamSource(xsl));
+				} catch (Exception e) {
+					logger.error("transformation throws exception", e);
+					throw new TransformationException("transformation throws exception", e);
+				}
+			}
+		});
+
 		StringReader xml = new StringReader(source);
 		StringWriter out = new StringWriter();
 
 		Transformer transformer;
 
 		try {
-			transformer = TransformerFactory.newInstance().newTransformer(xsl);
+			// templates are thread-safe, but the transformers created from them are not
+			transformer = templates.newTransformer();
 			transformer.transform(new StreamSource(xml), new StreamResult(out));
 		} catch (Exception e) {
 			logger.error("transformation throws exception", e);
@@ -111,4 +118,11 @@ public class XsltTransformationService implements TransformationService {
 		return out.toString();
 	}
 
+	/**
+	 * @return the cache of the compiled stylesheets
+	 */
+	public TransformationCache<Templates> getCache() {
+		return cache;
+	}
+
 }
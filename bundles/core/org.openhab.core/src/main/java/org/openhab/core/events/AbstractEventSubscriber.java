@@ -43,6 +43,17 @@ abstract public class AbstractEventSubscriber implements EventSubscriber, EventH
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(event instanceof ItemEvent) {
+			// the event already carries its type and payload, so there is no need to parse the topic
+			ItemEvent itemEvent = (ItemEvent) event;
+			if(itemEvent.getType() == EventType.UPDATE) {
+				receiveUpdate(itemEvent.getItemName(), itemEvent.getState());
+			} else {
+				receiveCommand(itemEvent.getItemName(), itemEvent.getCommand());
+			}
+			return;
+		}
+		
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -0,0 +1,133 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.core.events;
+
+import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
+import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.openhab.core.types.Type;
+import org.osgi.service.event.Event;
+
+/**
+ * An item update or command as it is sent through the OSGi EventAdmin service by the
+ * {@link EventPublisher}. Besides the usual topic and properties, it carries the event
+ * type, the item name and the state or command as typed fields, so that subscribers
+ * do not have to parse the topic of every event.
+ * <p>
+ * Subscribers must still accept plain {@link Event}s with the same topic and properties,
+ * as these might be sent by other bundles.
+ * 
+ * @since 1.4.0
+ */
+public class ItemEvent extends Event {
+
+	private final EventType type;
+	
+	private final String itemName;
+	
+	private final Type payload;
+	
+	/**
+	 * @param topic the topic of the event, see {@link #createTopic(EventType, String)}
+	 * @param itemName the name of the item
+	 * @param state the new state of the item
+	 */
+	public ItemEvent(String topic, String itemName, State state) {
+		super(topic, createProperties(itemName, "state", state));
+		this.type = EventType.UPDATE;
+		this.itemName = itemName;
+		this.payload = state;
+	}
+
+	/**
+	 * @param topic the topic of the event, see {@link #createTopic(EventType, String)}
+	 * @param itemName the name of the item
+	 * @param command the command for the item
+	 */
+	public ItemEvent(String topic, String itemName, Command command) {
+		super(topic, createProperties(itemName, "command", command));
+		this.type = EventType.COMMAND;
+		this.itemName = itemName;
+		this.payload = command;
+	}
+	
+	/**
+	 * @return whether this is an update or a command
+	 */
+	public EventType getType() {
+		return type;
+	}
+	
+	/**
+	 * @return the name of the item this event refers to
+	 */
+	public String getItemName() {
+		return itemName;
+	}
+	
+	/**
+	 * @return the new state of the item, <code>null</code> if this is a command
+	 */
+	public State getState() {
+		return type == EventType.UPDATE ? (State) payload : null;
+	}
+
+	/**
+	 * @return the command for the item, <code>null</code> if this is an update
+	 */
+	public Command getCommand() {
+		return type == EventType.COMMAND ? (Command) payload : null;
+	}
+	
+	/**
+	 * Creates the topic for an event of the given type and item, e.g. 
+	 * <code>openhab/command/Light</code>.
+	 * 
+	 * @param type the type of the event
+	 * @param itemName the name of the item
+	 * @return the topic of the event
+	 */
+	public static String createTopic(EventType type, String itemName) {
+		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+	}
+	
+	private static Dictionary<String, Object> createProperties(String itemName, String key, Type payload) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>(4);
+		properties.put("item", itemName);
+		properties.put(key, payload);
+		return properties;
+	}
+	
+}
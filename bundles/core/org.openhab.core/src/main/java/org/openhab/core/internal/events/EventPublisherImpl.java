@@ -28,13 +28,11 @@
  */
 package org.openhab.core.internal.events;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
-
-import java.util.Dictionary;
-import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
@@ -47,6 +45,9 @@ import org.slf4j.LoggerFactory;
  * This is the main implementation of the {@link EventPublisher} interface.
  * Through it, openHAB events can be sent to the OSGi EventAdmin service
  * in order to broadcast them.
+ * <p>
+ * The events are sent as {@link ItemEvent}s, whose topics are created only once per item
+ * and event type and then reused.
  * 
  * @author Kai Kreuzer
  *
@@ -56,8 +57,15 @@ public class EventPublisherImpl implements EventPublisher {
 	private static final Logger logger = 
 		LoggerFactory.getLogger(EventPublisherImpl.class);
 		
+	/** the maximum number of topics which are cached per event type */
+	private static final int MAX_CACHED_TOPICS = 10000;
+		
 	private EventAdmin eventAdmin;
 	
+	private final Map<String, String> updateTopics = new ConcurrentHashMap<String, String>();
+	
+	private final Map<String, String> commandTopics = new ConcurrentHashMap<String, String>();
+	
 	
 	public void setEventAdmin(EventAdmin eventAdmin) {
 		this.eventAdmin = eventAdmin;
@@ -102,21 +110,24 @@ public class EventPublisherImpl implements EventPublisher {
 	}
 	
 	private Event createUpdateEvent(String itemName, State newState) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
+		return new ItemEvent(getTopic(updateTopics, EventType.UPDATE, itemName), itemName, newState);
 	}
 
 	private Event createCommandEvent(String itemName, Command command) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
+		return new ItemEvent(getTopic(commandTopics, EventType.COMMAND, itemName), itemName, command);
 	}
 
-	private String createTopic(EventType type, String itemName) {
-		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+	private String getTopic(Map<String, String> topics, EventType type, String itemName) {
+		String topic = topics.get(itemName);
+		if (topic == null) {
+			if (topics.size() >= MAX_CACHED_TOPICS) {
+				// items are never unregistered from the cache, so make sure it does not grow forever
+				topics.clear();
+			}
+			topic = ItemEvent.createTopic(type, itemName);
+			topics.put(itemName, topic);
+		}
+		return topic;
 	}
 	
 	
@@ -35,6 +35,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.GenericItem;
@@ -70,6 +71,15 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** name-keyed index over all items of all providers, used for exact name lookups */
+	protected Map<String, Item> itemIndex = new ConcurrentHashMap<String, Item>();
+
+	/** cache of compiled patterns for {@link #getItems(String)}, keyed by the glob pattern */
+	protected Map<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
+	
+	/** the maximum number of compiled patterns we keep in the pattern cache */
+	private static final int MAX_CACHED_PATTERNS = 256;
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
@@ -83,6 +93,8 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemIndex.clear();
+		patternCache.clear();
     }
 
 	/* (non-Javadoc)
@@ -90,10 +102,18 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().matches(name)) {
-					return item;
+		Item item = itemIndex.get(name);
+		if(item!=null) {
+			return item;
+		}
+		// item names are plain identifiers, so only a name which isn't a valid
+		// item name by itself can match anything else as a regular expression
+		if(!isValidItemName(name)) {
+			for(Collection<Item> items : itemMap.values()) {
+				for(Item candidate : items) {
+					if(candidate.getName().matches(name)) {
+						return candidate;
+					}
 				}
 			}
 		}
@@ -136,17 +156,39 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
+		Pattern regex = getCompiledPattern(pattern);
 		Collection<Item> matchedItems = new ArrayList<Item>();
 		for(Collection<Item> items : itemMap.values()) {
 			for(Item item : items) {
-				if(item.getName().matches(regex)) {
+				if(regex.matcher(item.getName()).matches()) {
 					matchedItems.add(item);
 				}
 			}
 		}
         return matchedItems;
 	}
+	
+	/**
+	 * Returns the compiled regular expression for the given glob pattern. Compiled
+	 * patterns are cached, so that repeated lookups with the same pattern do not
+	 * need to compile it again.
+	 * 
+	 * @param pattern the glob pattern, which may contain '?' and '*' as wildcards
+	 * @return the compiled pattern
+	 */
+	protected Pattern getCompiledPattern(String pattern) {
+		Pattern regex = patternCache.get(pattern);
+		if(regex==null) {
+			regex = Pattern.compile(pattern.replace("?", ".?").replace("*", ".*?"));
+			if(patternCache.size() >= MAX_CACHED_PATTERNS) {
+				// patterns usually come from static configuration, so simply
+				// starting over is sufficient if someone floods the cache
+				patternCache.clear();
+			}
+			patternCache.put(pattern, regex);
+		}
+		return regex;
+	}
 
 	public void addItemProvider(ItemProvider itemProvider) {
 		// only add this provider if it does not already exist
@@ -172,6 +214,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 				if(item instanceof GenericItem) {
 					((GenericItem) item).dispose();
 				}
+				removeFromIndex(itemProvider, item);
 			}
 			itemMap.remove(itemProvider);
 
@@ -209,11 +252,19 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 			}
 		}
 
+		Collection<Item> oldItems = itemMap.get(provider);
+		if(oldItems!=null) {
+			for(Item oldItem : oldItems) {
+				removeFromIndex(provider, oldItem);
+			}
+		}
+
 		Collection<Item> items = new CopyOnWriteArrayList<Item>();
     	itemMap.put(provider, items);
 		for(Item item : provider.getItems()) {
 			if(initializeItem(item)) {
 				items.add(item);
+				addToIndex(item);
 			}
 		}
 
@@ -229,6 +280,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				addToIndex(item);
 			} else {
 				return;
 			}
@@ -244,6 +296,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			removeFromIndex(provider, item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -260,6 +313,44 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Adds the given item to the name index. If another provider already
+	 * registered an item with the same name, the existing entry is kept.
+	 * 
+	 * @param item the item to index
+	 */
+	private void addToIndex(Item item) {
+		if(itemIndex.containsKey(item.getName())) {
+			logger.debug("Item '{}' is provided more than once, keeping the existing one.", item.getName());
+			return;
+		}
+		itemIndex.put(item.getName(), item);
+	}
+
+	/**
+	 * Removes the given item from the name index. If another provider still
+	 * provides an item with the same name, this one takes over the entry.
+	 * 
+	 * @param provider the provider the item belongs to
+	 * @param item the item to remove from the index
+	 */
+	private void removeFromIndex(ItemProvider provider, Item item) {
+		if(itemIndex.get(item.getName())==item) {
+			itemIndex.remove(item.getName());
+			for(Map.Entry<ItemProvider, Collection<Item>> entry : itemMap.entrySet()) {
+				if(entry.getKey()==provider) {
+					continue;
+				}
+				for(Item candidate : entry.getValue()) {
+					if(candidate.getName().equals(item.getName())) {
+						itemIndex.put(candidate.getName(), candidate);
+						return;
+					}
+				}
+			}
+		}
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -0,0 +1,92 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.io.net.http;
+
+import org.apache.commons.httpclient.HttpStatus;
+
+
+/**
+ * The response to a request executed by {@link HttpUtil}, including the headers
+ * needed for subsequent conditional requests.
+ * 
+ * @since 1.4.0
+ */
+public class HttpResponse {
+	
+	private final int statusCode;
+	
+	private final String body;
+	
+	private final String eTag;
+	
+	private final String lastModified;
+	
+	public HttpResponse(int statusCode, String body, String eTag, String lastModified) {
+		this.statusCode = statusCode;
+		this.body = body;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+	
+	/**
+	 * @return the HTTP status code of the response
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+	
+	/**
+	 * @return the response body or <code>null</code>, if the resource has not been modified
+	 */
+	public String getBody() {
+		return body;
+	}
+	
+	/**
+	 * @return the <code>ETag</code> header of the response or <code>null</code>
+	 */
+	public String getETag() {
+		return eTag;
+	}
+	
+	/**
+	 * @return the <code>Last-Modified</code> header of the response or <code>null</code>
+	 */
+	public String getLastModified() {
+		return lastModified;
+	}
+	
+	/**
+	 * @return true, if the server answered a conditional request with <code>304 Not Modified</code>
+	 */
+	public boolean isNotModified() {
+		return statusCode == HttpStatus.SC_NOT_MODIFIED;
+	}
+
+}
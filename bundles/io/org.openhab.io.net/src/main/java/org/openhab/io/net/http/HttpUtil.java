@@ -33,15 +33,25 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.commons.httpclient.Credentials;
 import org.apache.commons.httpclient.DefaultHttpMethodRetryHandler;
 import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpState;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.HttpStatus;
 import org.apache.commons.httpclient.URIException;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
@@ -52,7 +62,9 @@ import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.InputStreamRequestEntity;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
@@ -73,6 +85,99 @@ public class HttpUtil {
 	/** {@link Pattern} which matches the credentials out of an URL */ 
 	private static final Pattern URL_CREDENTIALS_PATTERN = Pattern.compile("http://(.*?):(.*?)@.*");
 	
+	/** the default maximum number of open connections to a single host */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+	
+	/** the default maximum number of open connections to all hosts */
+	public static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 50;
+	
+	/** the default time in milliseconds after which an unused connection is closed */
+	public static final long DEFAULT_IDLE_TIMEOUT = 60000;
+	
+	/** the pool of (keep-alive) connections shared by all requests */
+	private static final MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+	
+	/** the client which is shared by all requests; proxy and credentials are passed with every single request */
+	private static final HttpClient client = new HttpClient(connectionManager);
+	
+	private static volatile IdleConnectionTimeoutThread idleConnectionThread;
+	
+	private static long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	
+	/** executes the requests of {@link #executeUrlAsync(String, String, Properties, InputStream, String, int)} */
+	private static ThreadPoolExecutor asyncExecutor;
+	
+	static {
+		configureConnections(DEFAULT_MAX_CONNECTIONS_PER_HOST, DEFAULT_MAX_TOTAL_CONNECTIONS, DEFAULT_IDLE_TIMEOUT);
+	}
+	
+	/**
+	 * Configures the pool of connections which is shared by all requests.
+	 * 
+	 * @param maxConnectionsPerHost the maximum number of open connections to a single host
+	 * @param maxTotalConnections the maximum number of open connections to all hosts
+	 * @param idleTimeout the time in milliseconds after which an unused connection is closed
+	 */
+	public static synchronized void configureConnections(int maxConnectionsPerHost, int maxTotalConnections, long idleTimeout) {
+		HttpConnectionManagerParams params = connectionManager.getParams();
+		params.setDefaultMaxConnectionsPerHost(Math.max(1, maxConnectionsPerHost));
+		params.setMaxTotalConnections(Math.max(1, maxTotalConnections));
+		HttpUtil.idleTimeout = Math.max(1000, idleTimeout);
+		if (idleConnectionThread != null) {
+			idleConnectionThread.shutdown();
+			idleConnectionThread = null;
+		}
+		startIdleConnectionThread();
+		if (asyncExecutor != null) {
+			asyncExecutor.setCorePoolSize(params.getMaxTotalConnections());
+			asyncExecutor.setMaximumPoolSize(params.getMaxTotalConnections());
+		}
+	}
+	
+	/**
+	 * Closes all pooled connections and stops the threads used for closing idle connections
+	 * and for asynchronous requests. The pool is set up again by the next request.
+	 */
+	public static synchronized void shutdown() {
+		if (idleConnectionThread != null) {
+			idleConnectionThread.shutdown();
+			idleConnectionThread = null;
+		}
+		if (asyncExecutor != null) {
+			asyncExecutor.shutdown();
+			asyncExecutor = null;
+		}
+		connectionManager.closeIdleConnections(0);
+	}
+	
+	private static synchronized void startIdleConnectionThread() {
+		if (idleConnectionThread == null) {
+			idleConnectionThread = new IdleConnectionTimeoutThread();
+			idleConnectionThread.setName("HTTP idle connection closer");
+			idleConnectionThread.setConnectionTimeout(idleTimeout);
+			idleConnectionThread.setTimeoutInterval(Math.max(1000, idleTimeout / 2));
+			idleConnectionThread.addConnectionManager(connectionManager);
+			idleConnectionThread.start();
+		}
+	}
+	
+	private static synchronized ThreadPoolExecutor getAsyncExecutor() {
+		if (asyncExecutor == null) {
+			int threads = connectionManager.getParams().getMaxTotalConnections();
+			asyncExecutor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, 
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "HTTP request #" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+			asyncExecutor.allowCoreThreadTimeOut(true);
+		}
+		return asyncExecutor;
+	}
+	
 
 	/**
 	 * Executes the given <code>url</code> with the given <code>httpMethod</code>.
@@ -124,6 +229,29 @@ public class HttpUtil {
 	 * @return the response body or <code>NULL</code> when the request went wrong
 	 */
 	public static String executeUrl(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout) {
+		return getBody(execute(httpMethod, url, httpHeaders, content, contentType, timeout, null, null));
+	}
+	
+	/**
+	 * Executes a conditional GET request for the given <code>url</code>. If an entity tag
+	 * or a modification date of a previous response is given, the server may answer with 
+	 * <code>304 Not Modified</code> instead of sending the unchanged body again.
+	 * Furthermore the <code>http.proxyXXX</code> System variables are read and
+	 * set into the {@link HttpClient}.
+	 * 
+	 * @param url the url to execute
+	 * @param httpHeaders optional http request headers which has to be sent within request 
+	 * @param timeout the socket timeout to wait for data (in milliseconds)
+	 * @param eTag the <code>ETag</code> header of the previous response or <code>null</code>
+	 * @param lastModified the <code>Last-Modified</code> header of the previous response or <code>null</code>
+	 * 
+	 * @return the response or <code>NULL</code> when the request went wrong
+	 */
+	public static HttpResponse executeConditionalGet(String url, Properties httpHeaders, int timeout, String eTag, String lastModified) {
+		return execute("GET", url, httpHeaders, null, null, timeout, eTag, lastModified);
+	}
+	
+	private static HttpResponse execute(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String eTag, String lastModified) {
 		String proxySet = System.getProperty("http.proxySet");
 		
 		String proxyHost = null;
@@ -147,10 +275,49 @@ public class HttpUtil {
 			nonProxyHosts = System.getProperty("http.nonProxyHosts");
 		}
 		
-		return executeUrl(httpMethod, url, httpHeaders, content, contentType, timeout, proxyHost, proxyPort, proxyUser, proxyPassword, nonProxyHosts);
+		return execute(httpMethod, url, httpHeaders, content, contentType, timeout, proxyHost, proxyPort, proxyUser, proxyPassword, nonProxyHosts, eTag, lastModified);
 
 	}
 	
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code> 
+	 * asynchronously, so that the calling thread does not wait for the response.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute (in milliseconds)
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @see #executeUrl(String, String, int)
+	 */
+	public static Future<String> executeUrlAsync(String httpMethod, String url, int timeout) {
+		return executeUrlAsync(httpMethod, url, null, null, null, timeout);
+	}
+	
+	/**
+	 * Executes the given <code>url</code> with the given <code>httpMethod</code> 
+	 * asynchronously, so that the calling thread does not wait for the response.
+	 * 
+	 * @param httpMethod the HTTP method to use
+	 * @param url the url to execute (in milliseconds)
+	 * @param httpHeaders optional http request headers which has to be sent within request 
+	 * @param content the content to be send to the given <code>url</code> or 
+	 * <code>null</code> if no content should be send.
+	 * @param contentType the content type of the given <code>content</code>
+	 * @param timeout the socket timeout to wait for data
+	 * 
+	 * @return the future response body, which is <code>NULL</code> when the request went wrong
+	 * @see #executeUrl(String, String, Properties, InputStream, String, int)
+	 */
+	public static Future<String> executeUrlAsync(final String httpMethod, final String url, final Properties httpHeaders, 
+			final InputStream content, final String contentType, final int timeout) {
+		return getAsyncExecutor().submit(new Callable<String>() {
+			public String call() throws Exception {
+				return executeUrl(httpMethod, url, httpHeaders, content, contentType, timeout);
+			}
+		});
+	}
+	
 	/**
 	 * Executes the given <code>url</code> with the given <code>httpMethod</code>
 	 * 
@@ -169,14 +336,29 @@ public class HttpUtil {
 	 * @return the response body or <code>NULL</code> when the request went wrong
 	 */
 	public static String executeUrl(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String proxyHost, Integer proxyPort, String proxyUser, String proxyPassword, String nonProxyHosts) {
+		return getBody(execute(httpMethod, url, httpHeaders, content, contentType, timeout, proxyHost, proxyPort, proxyUser, proxyPassword, nonProxyHosts, null, null));
+	}
+	
+	private static String getBody(HttpResponse response) {
+		return response != null ? response.getBody() : null;
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static HttpResponse execute(String httpMethod, String url, Properties httpHeaders, InputStream content, String contentType, int timeout, String proxyHost, Integer proxyPort, String proxyUser, String proxyPassword, String nonProxyHosts, String eTag, String lastModified) {
 		
-		HttpClient client = new HttpClient();
+		if (idleConnectionThread == null) {
+			startIdleConnectionThread();
+		}
+		
+		// the client is shared, so the proxy and the credentials are kept per request
+		HostConfiguration hostConfiguration = new HostConfiguration();
+		HttpState state = new HttpState();
 		
 		// only configure a proxy if a host is provided
 		if (StringUtils.isNotBlank(proxyHost) && proxyPort != null && shouldUseProxy(url, nonProxyHosts)) {
-			client.getHostConfiguration().setProxy(proxyHost, proxyPort);
+			hostConfiguration.setProxy(proxyHost, proxyPort);
 			if (StringUtils.isNotBlank(proxyUser)) {
-				client.getState().setProxyCredentials(AuthScope.ANY,
+				state.setProxyCredentials(AuthScope.ANY,
 					new UsernamePasswordCredentials(proxyUser, proxyPassword));
 			}
 		}
@@ -190,6 +372,12 @@ public class HttpUtil {
 				method.addRequestHeader(new Header(httpHeaderKey,httpHeaders.getProperty(httpHeaderKey)));
 			}
 		}
+		if (eTag != null) {
+			method.setRequestHeader("If-None-Match", eTag);
+		}
+		if (lastModified != null) {
+			method.setRequestHeader("If-Modified-Since", lastModified);
+		}
 		// add content if a valid method is given ...
 		if (method instanceof EntityEnclosingMethod && content != null ) {
 			EntityEnclosingMethod eeMethod = (EntityEnclosingMethod) method;
@@ -198,8 +386,8 @@ public class HttpUtil {
 
 		Credentials credentials = extractCredentials(url);
 		if (credentials != null) {
-			client.getParams().setAuthenticationPreemptive(true); 
-			client.getState().setCredentials(AuthScope.ANY, credentials);			
+			state.setAuthenticationPreemptive(true); 
+			state.setCredentials(AuthScope.ANY, credentials);			
 		}
 
 		if (logger.isDebugEnabled()) {
@@ -212,17 +400,23 @@ public class HttpUtil {
 
 		try {
 			
-			int statusCode = client.executeMethod(method);
+			int statusCode = client.executeMethod(hostConfiguration, method, state);
+			if (statusCode == HttpStatus.SC_NOT_MODIFIED && (eTag != null || lastModified != null)) {
+				logger.debug("'{}' has not been modified", url);
+				return new HttpResponse(statusCode, null, eTag, lastModified);
+			}
 			if (statusCode != HttpStatus.SC_OK) {
 				logger.warn("Method failed: " + method.getStatusLine());
 			}
 
+			// the body is always read completely, so that the connection can be reused
 			String responseBody = IOUtils.toString(method.getResponseBodyAsStream());
 			if (!responseBody.isEmpty()) {
 				logger.debug(responseBody);
 			}
 			
-			return responseBody;
+			return new HttpResponse(statusCode, responseBody, 
+				getResponseHeader(method, "ETag"), getResponseHeader(method, "Last-Modified"));
 		}
 		catch (HttpException he) {
 			logger.error("Fatal protocol violation: {}", he.toString());
@@ -237,6 +431,11 @@ public class HttpUtil {
 		return null;
 	}
 
+	private static String getResponseHeader(HttpMethod method, String name) {
+		Header header = method.getResponseHeader(name);
+		return header != null ? header.getValue() : null;
+	}
+
 	/**
 	 * Determines whether the list of <code>nonProxyHosts</code> contains the
 	 * host (which is part of the given <code>urlString</code> or not.
@@ -0,0 +1,87 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.io.net.internal;
+
+import java.util.Dictionary;
+
+import org.apache.commons.lang.StringUtils;
+import org.openhab.io.net.http.HttpUtil;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+	
+
+/**
+ * This class configures the connection pool which is shared by all HTTP requests
+ * of {@link HttpUtil}.
+ * 
+ * @since 1.4.0
+ */
+public class HttpClientConfiguration implements ManagedService {
+
+	public void activate() {
+	}
+	
+	public void deactivate() {
+		HttpUtil.shutdown();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int maxConnectionsPerHost = HttpUtil.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+		int maxTotalConnections = HttpUtil.DEFAULT_MAX_TOTAL_CONNECTIONS;
+		long idleTimeout = HttpUtil.DEFAULT_IDLE_TIMEOUT;
+		if (config != null) {
+			String maxConnectionsPerHostString = (String) config.get("maxconnectionsperhost");
+			if (StringUtils.isNotBlank(maxConnectionsPerHostString)) {
+				maxConnectionsPerHost = (int) parseNumber("maxconnectionsperhost", maxConnectionsPerHostString);
+			}
+			String maxTotalConnectionsString = (String) config.get("maxconnections");
+			if (StringUtils.isNotBlank(maxTotalConnectionsString)) {
+				maxTotalConnections = (int) parseNumber("maxconnections", maxTotalConnectionsString);
+			}
+			String idleTimeoutString = (String) config.get("idletimeout");
+			if (StringUtils.isNotBlank(idleTimeoutString)) {
+				idleTimeout = parseNumber("idletimeout", idleTimeoutString);
+			}
+		}
+		HttpUtil.configureConnections(maxConnectionsPerHost, maxTotalConnections, idleTimeout);
+	}
+	
+	private long parseNumber(String key, String value) throws ConfigurationException {
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+		}
+	}
+
+}
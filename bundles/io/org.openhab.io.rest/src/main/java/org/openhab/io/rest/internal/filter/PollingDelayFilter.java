@@ -28,7 +28,14 @@
  */
 package org.openhab.io.rest.internal.filter;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -46,7 +53,10 @@ import org.slf4j.LoggerFactory;
 /**
  * This Filter delays the broadcast to polling connections. 
  * The delay is necessary for the completion of group events.
- *   
+ * <p>
+ * All delayed broadcasts are scheduled on a single shared thread. Further item changes
+ * of a page while a broadcast to a resource is already pending are coalesced into it,
+ * as the page is rendered again anyway when the delayed broadcast is sent.
  *  
  * @author Oliver Mazur
  * @since 1.0
@@ -57,6 +67,17 @@ import org.slf4j.LoggerFactory;
 public class PollingDelayFilter implements PerRequestBroadcastFilter {
 	private static final Logger logger = LoggerFactory.getLogger(PollingDelayFilter.class);
 	
+	/** the delay in milliseconds before a broadcast is sent to a polling connection */
+	private static final long DELAY = 300;
+	
+	private static ScheduledExecutorService scheduler;
+	
+	/** the resources for which a delayed broadcast is currently pending */
+	private static final Set<AtmosphereResource> pendingResources = 
+			Collections.newSetFromMap(new ConcurrentHashMap<AtmosphereResource, Boolean>());
+	
+	private static final AtomicLong coalescedBroadcasts = new AtomicLong();
+	
 	@Override
 	public BroadcastAction filter(Object arg0, Object message) {
 		return new BroadcastAction(ACTION.CONTINUE, message);
@@ -68,11 +89,16 @@ public class PollingDelayFilter implements PerRequestBroadcastFilter {
 		try {	
 			// delay first broadcast for long-polling and other polling transports
 			if(!ResponseTypeHelper.isStreamingTransport(request) && message instanceof PageBean && originalMessage instanceof Item) {
+				if(!pendingResources.add(resource)) {
+					// there is already a broadcast pending for this resource, which will contain this change as well
+					coalescedBroadcasts.incrementAndGet();
+					return new BroadcastAction(ACTION.ABORT,  message);
+				}
 				final String delayedBroadcasterName = resource.getRequest().getPathInfo();
-				Executors.newSingleThreadExecutor().submit(new Runnable() {
+				getScheduler().schedule(new Runnable() {
 		            public void run() {
 		                try {
-		                    Thread.sleep(300);
+		                	pendingResources.remove(resource);
 							GeneralBroadcaster delayedBroadcaster = (GeneralBroadcaster) BroadcasterFactory.getDefault().lookup(GeneralBroadcaster.class, delayedBroadcasterName);
 							delayedBroadcaster.broadcast(message, resource);
 							
@@ -80,16 +106,50 @@ public class PollingDelayFilter implements PerRequestBroadcastFilter {
 							logger.error(e.getMessage());
 						} 
 		            }
-		        });
+		        }, DELAY, TimeUnit.MILLISECONDS);
 			} else {
 				//pass message to next filter
 				return new BroadcastAction(ACTION.CONTINUE,  message);
 			}
 			
 		} catch (Exception e) {
+			pendingResources.remove(resource);
 			logger.error(e.getMessage());
 		} 
 		return new BroadcastAction(ACTION.ABORT,  message);
 		
 	}
+	
+	/**
+	 * Returns the number of broadcasts which have been merged into an already pending broadcast.
+	 * 
+	 * @return the number of coalesced broadcasts
+	 */
+	public static long getCoalescedBroadcastCount() {
+		return coalescedBroadcasts.get();
+	}
+	
+	/**
+	 * Stops the scheduler of the delayed broadcasts. Pending broadcasts are discarded.
+	 */
+	public static synchronized void shutdown() {
+		if(scheduler!=null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+		pendingResources.clear();
+	}
+	
+	private static synchronized ScheduledExecutorService getScheduler() {
+		if(scheduler==null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "REST polling delay");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
 }
@@ -38,10 +38,16 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.events.ItemEvent;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -51,7 +57,6 @@ import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
@@ -59,6 +64,8 @@ import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
 import org.openhab.model.rule.rules.Rule;
 import org.openhab.model.rule.rules.RuleModel;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -77,18 +84,36 @@ import com.google.common.collect.Lists;
  *
  */
 @SuppressWarnings("restriction")
-public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener {
+public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener, ManagedService {
 
 		static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 		
+		/** the time in milliseconds we wait for running rules when the rule engine is stopped */
+		private static final long EXECUTOR_SHUTDOWN_TIMEOUT = 10000;
+		
 		private ItemRegistry itemRegistry;
 		private ModelRepository modelRepository;
 		private ScriptEngine scriptEngine;
 
 		private RuleTriggerManager triggerManager;
+		
+		/** the number of threads which execute rules */
+		private int threads = 10;
+		
+		/** the maximum number of rule executions waiting for a free thread */
+		private int queueSize = 1000;
+		
+		/** true, if the executions of a single rule must not overlap */
+		private boolean serialize = false;
+		
+		private volatile RuleExecutor executor;
+		
+		/** the prepared scripts and global contexts of the rules, so that they are not created again for every execution */
+		private final Map<Rule, PreparedRule> preparedRules = new ConcurrentHashMap<Rule, PreparedRule>();
 						
 		public void activate() {
 			triggerManager = new RuleTriggerManager();
+			executor = new RuleExecutor(threads, queueSize, serialize);
 
 			if(!isEnabled()) {
 				logger.info("Rule engine is disabled.");
@@ -120,6 +145,50 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			executeRules(triggerManager.getRules(SHUTDOWN));
 			triggerManager.clearAll();
 			triggerManager = null;
+			preparedRules.clear();
+			executor.shutdown(EXECUTOR_SHUTDOWN_TIMEOUT);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public void updated(Dictionary config) throws ConfigurationException {
+			if (config != null) {
+				String threadsString = (String) config.get("threads");
+				if (StringUtils.isNotBlank(threadsString)) {
+					threads = parseInt("threads", threadsString);
+				}
+				String queueSizeString = (String) config.get("queuesize");
+				if (StringUtils.isNotBlank(queueSizeString)) {
+					queueSize = parseInt("queuesize", queueSizeString);
+				}
+				String serializeString = (String) config.get("serialize");
+				if (StringUtils.isNotBlank(serializeString)) {
+					serialize = Boolean.parseBoolean(serializeString.trim());
+				}
+				
+				RuleExecutor oldExecutor = executor;
+				if (oldExecutor != null) {
+					executor = new RuleExecutor(threads, queueSize, serialize);
+					oldExecutor.shutdown(EXECUTOR_SHUTDOWN_TIMEOUT);
+				}
+			}
+		}
+		
+		private int parseInt(String key, String value) throws ConfigurationException {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				throw new ConfigurationException(key, "'" + value + "' is not a valid number");
+			}
+		}
+		
+		/**
+		 * @return the executor which runs the triggered rules, e.g. to inspect its metrics
+		 */
+		public RuleExecutor getExecutor() {
+			return executor;
 		}
 		
 		public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -148,6 +217,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 
 		public void unsetScriptEngine(ScriptEngine scriptEngine) {
 			this.scriptEngine = null;
+			preparedRules.clear();
 		}
 
 		/**
@@ -186,9 +256,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		public void stateChanged(Item item, State oldState, State newState) {			
 			if(triggerManager!=null) {
 				Iterable<Rule> rules = triggerManager.getRules(CHANGE, item, oldState, newState);
-				RuleEvaluationContext context = new RuleEvaluationContext();
-				context.newValue(QualifiedName.create(RuleContextHelper.VAR_PREVIOUS_STATE), oldState);
-				executeRules(rules, context);
+				executeRules(rules, QualifiedName.create(RuleContextHelper.VAR_PREVIOUS_STATE), oldState);
 			}
 		}
 
@@ -207,9 +275,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 				try {
 					Item item = itemRegistry.getItem(itemName);
 					Iterable<Rule> rules = triggerManager.getRules(COMMAND, item, command);
-					RuleEvaluationContext context = new RuleEvaluationContext();
-					context.newValue(QualifiedName.create(RuleContextHelper.VAR_RECEIVED_COMMAND), command);
-					executeRules(rules, context);
+					executeRules(rules, QualifiedName.create(RuleContextHelper.VAR_RECEIVED_COMMAND), command);
 				} catch (ItemNotFoundException e) {
 					// ignore commands for non-existent items
 				}
@@ -227,6 +293,15 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		 * {@inheritDoc}
 		 */
 		public void handleEvent(Event event) {  
+			if(event instanceof ItemEvent) {
+				// the event already carries its type and payload, so there is no need to parse the topic
+				ItemEvent itemEvent = (ItemEvent) event;
+				if(itemEvent.getType() == EventType.COMMAND) {
+					receiveCommand(itemEvent.getItemName(), itemEvent.getCommand());
+				}
+				return;
+			}
+			
 			String itemName = (String) event.getProperty("item");
 			
 			String topic = event.getTopic();
@@ -247,6 +322,9 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			if (triggerManager != null) {
 				if(isEnabled() && modelName.endsWith("rules")) {
 					RuleModel model = (RuleModel) modelRepository.getModel(modelName);
+					
+					// the rules of the model have been replaced, so their prepared scripts are stale
+					preparedRules.clear();
 	
 					// remove the rules from the trigger sets
 					if(type == org.openhab.model.core.EventType.REMOVED ||
@@ -295,27 +373,48 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			}
 		}
 
-		protected synchronized void executeRule(Rule rule) {
+		protected void executeRule(Rule rule) {
 			executeRule(rule, new RuleEvaluationContext());
 		}
 			
-		protected synchronized void executeRule(Rule rule, RuleEvaluationContext context) {
-			Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
+		protected void executeRule(Rule rule, RuleEvaluationContext context) {
+			PreparedRule preparedRule = getPreparedRule(rule);
 			
 			logger.debug("Executing rule '{}'", rule.getName());
 			
-			context.setGlobalContext(RuleContextHelper.getContext(rule));
+			context.setGlobalContext(preparedRule.globalContext);
 			
-			ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-			thread.start();
+			executor.execute(rule, preparedRule.script, context);
+		}
+		
+		/**
+		 * Returns the script and the global evaluation context of the given rule. Both are 
+		 * created on the first execution of the rule and reused until the rule model changes.
+		 * 
+		 * @param rule the rule to get the script and context for
+		 * @return the prepared rule
+		 */
+		private PreparedRule getPreparedRule(Rule rule) {
+			PreparedRule preparedRule = preparedRules.get(rule);
+			if(preparedRule==null) {
+				Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
+				preparedRule = new PreparedRule(script, RuleContextHelper.getContext(rule));
+				preparedRules.put(rule, preparedRule);
+			}
+			return preparedRule;
 		}
 
-		protected synchronized void executeRules(Iterable<Rule> rules) {
-			executeRules(rules, new RuleEvaluationContext());
+		protected void executeRules(Iterable<Rule> rules) {
+			for(Rule rule : rules) {
+				executeRule(rule, new RuleEvaluationContext());
+			}
 		}
 		
-		protected synchronized void executeRules(Iterable<Rule> rules, RuleEvaluationContext context) {
+		protected void executeRules(Iterable<Rule> rules, QualifiedName variable, Object value) {
 			for(Rule rule : rules) {
+				// every rule gets its own context, as they might be executed concurrently
+				RuleEvaluationContext context = new RuleEvaluationContext();
+				context.newValue(variable, value);
 				executeRule(rule, context);
 			}
 		}
@@ -330,4 +429,19 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			return !"true".equalsIgnoreCase(System.getProperty("noRules"));
 		}
 		
+		/**
+		 * The script of a rule together with the evaluation context of its rule model.
+		 * Scripts do not keep any state between executions, so a single instance can
+		 * be executed concurrently with different local contexts.
+		 */
+		private static class PreparedRule {
+			final Script script;
+			final IEvaluationContext globalContext;
+			
+			PreparedRule(Script script, IEvaluationContext globalContext) {
+				this.script = script;
+				this.globalContext = globalContext;
+			}
+		}
+		
 }
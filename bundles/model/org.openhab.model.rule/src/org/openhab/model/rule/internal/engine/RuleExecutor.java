@@ -0,0 +1,290 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.xtext.xbase.interpreter.IEvaluationContext;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptExecutionException;
+import org.openhab.model.rule.rules.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the scripts of triggered rules on a bounded pool of worker threads instead of
+ * starting a new thread for every execution.
+ * <p>
+ * If <code>serialize</code> is set, executions of the same rule never overlap: an execution
+ * which is triggered while the rule is still running is queued and started as soon as the
+ * previous one has finished.
+ *
+ * @since 1.4.0
+ */
+@SuppressWarnings("restriction")
+public class RuleExecutor {
+
+	static private final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	private final ThreadPoolExecutor executor;
+
+	private final boolean serialize;
+
+	/** the pending executions of rules which are currently running, only used if <code>serialize</code> is set */
+	private final Map<Rule, LinkedList<RuleExecution>> runningRules = new HashMap<Rule, LinkedList<RuleExecution>>();
+
+	private final AtomicLong executedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong totalLatency = new AtomicLong();
+	private final AtomicLong maxLatency = new AtomicLong();
+	private final AtomicLong totalDispatchLatency = new AtomicLong();
+	private final AtomicLong maxDispatchLatency = new AtomicLong();
+
+	/**
+	 * @param threads the number of worker threads
+	 * @param queueSize the maximum number of executions waiting for a worker thread
+	 * @param serialize true, if executions of the same rule must not overlap
+	 */
+	public RuleExecutor(int threads, int queueSize, boolean serialize) {
+		this.serialize = serialize;
+		this.executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads),
+				60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(Math.max(1, queueSize)),
+				new RuleThreadFactory(), new RejectedExecutionHandler() {
+					public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+						rejectedCount.incrementAndGet();
+						throw new RejectedExecutionException();
+					}
+				});
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Schedules the given script of a rule for execution.
+	 *
+	 * @param rule the rule to execute
+	 * @param script the script of the rule
+	 * @param context the evaluation context to execute the script with
+	 */
+	public void execute(Rule rule, Script script, IEvaluationContext context) {
+		RuleExecution execution = new RuleExecution(rule, script, context);
+		if(serialize) {
+			synchronized (runningRules) {
+				LinkedList<RuleExecution> pending = runningRules.get(rule);
+				if(pending!=null) {
+					// the rule is currently running, so it is started again when it has finished
+					pending.add(execution);
+					return;
+				}
+				runningRules.put(rule, new LinkedList<RuleExecution>());
+			}
+		}
+		submit(execution);
+	}
+
+	/**
+	 * Stops accepting new executions and waits for the pending ones to finish.
+	 *
+	 * @param timeout the maximum time in milliseconds to wait
+	 */
+	public void shutdown(long timeout) {
+		executor.shutdown();
+		try {
+			if(!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+				logger.warn("{} rule executions did not finish in time.", executor.getActiveCount() + executor.getQueue().size());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.debug("Rule executor stopped: {}", getStatistics());
+	}
+
+	/**
+	 * @return the number of rule executions waiting for a worker thread
+	 */
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	/**
+	 * @return the number of rule executions which have been completed
+	 */
+	public long getExecutedCount() {
+		return executedCount.get();
+	}
+
+	/**
+	 * @return the number of rule executions which have been rejected as the queue was full
+	 */
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+
+	/**
+	 * @return the average time in milliseconds from triggering a rule to the end of its execution
+	 */
+	public long getAverageLatency() {
+		long count = executedCount.get();
+		return count > 0 ? totalLatency.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum time in milliseconds from triggering a rule to the end of its execution
+	 */
+	public long getMaxLatency() {
+		return maxLatency.get();
+	}
+
+	/**
+	 * @return the average time in microseconds from triggering a rule to the start of its script
+	 */
+	public long getAverageDispatchLatency() {
+		long count = executedCount.get();
+		return count > 0 ? totalDispatchLatency.get() / count : 0;
+	}
+
+	/**
+	 * @return the maximum time in microseconds from triggering a rule to the start of its script
+	 */
+	public long getMaxDispatchLatency() {
+		return maxDispatchLatency.get();
+	}
+
+	/**
+	 * @return a human readable summary of the executor metrics
+	 */
+	public String getStatistics() {
+		return "queued=" + getQueueSize() + ", executed=" + getExecutedCount() + ", rejected=" + getRejectedCount()
+			+ ", avgDispatchLatency=" + getAverageDispatchLatency() + "us, maxDispatchLatency=" + getMaxDispatchLatency() + "us"
+			+ ", avgLatency=" + getAverageLatency() + "ms, maxLatency=" + getMaxLatency() + "ms";
+	}
+
+	private void submit(RuleExecution execution) {
+		try {
+			executor.execute(execution);
+		} catch (RejectedExecutionException e) {
+			logger.warn("Rule '{}' could not be executed as too many rules are waiting for execution.",
+					execution.rule.getName());
+			finished(execution);
+		}
+	}
+
+	/**
+	 * Starts the next pending execution of the rule of the given execution, if there is any.
+	 */
+	private void finished(RuleExecution execution) {
+		if(serialize) {
+			RuleExecution next = null;
+			synchronized (runningRules) {
+				LinkedList<RuleExecution> pending = runningRules.get(execution.rule);
+				if(pending!=null) {
+					next = pending.poll();
+					if(next==null) {
+						runningRules.remove(execution.rule);
+					}
+				}
+			}
+			if(next!=null) {
+				submit(next);
+			}
+		}
+	}
+
+	private void recordLatency(long triggered, long started) {
+		long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - triggered);
+		long dispatchLatency = TimeUnit.NANOSECONDS.toMicros(started - triggered);
+		executedCount.incrementAndGet();
+		totalLatency.addAndGet(latency);
+		totalDispatchLatency.addAndGet(dispatchLatency);
+		updateMax(maxLatency, latency);
+		updateMax(maxDispatchLatency, dispatchLatency);
+	}
+
+	private static void updateMax(AtomicLong max, long value) {
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+
+
+	private class RuleExecution implements Runnable {
+
+		final Rule rule;
+		final Script script;
+		final IEvaluationContext context;
+		final long triggered = System.nanoTime();
+
+		RuleExecution(Rule rule, Script script, IEvaluationContext context) {
+			this.rule = rule;
+			this.script = script;
+			this.context = context;
+		}
+
+		public void run() {
+			long started = System.nanoTime();
+			try {
+				script.execute(context);
+			} catch (ScriptExecutionException e) {
+				String msg = e.getCause().getMessage();
+				if (msg==null) {
+					logger.error("Error during the execution of rule '{}'", rule.getName(), e.getCause());
+				} else {
+					logger.error("Error during the execution of rule '{}': {}", new String[] { rule.getName(), msg });
+				}
+			} catch (RuntimeException e) {
+				logger.error("Error during the execution of rule '{}'", rule.getName(), e);
+			} finally {
+				recordLatency(triggered, started);
+				finished(this);
+			}
+		}
+	}
+
+	private static class RuleThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "Rule executor #" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -37,12 +37,14 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.openhab.core.items.Item;
@@ -105,6 +107,10 @@ public class RuleTriggerManager {
 	private List<Rule> systemStartupTriggeredRules = Lists.newArrayList();
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
+	
+	// the trigger conditions of the event triggered rules, with their states already parsed for the item type; 
+	// the key is made up of the trigger type and the item name
+	private Map<String, ResolvedTriggers> resolvedTriggers = new ConcurrentHashMap<String, ResolvedTriggers>();
 
 	// the scheduler used for timer events
 	private Scheduler scheduler;
@@ -186,83 +192,122 @@ public class RuleTriggerManager {
 	}
 
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
-			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+			if(!(newType instanceof State)) {
+				return Collections.emptyList();
 			}
 			break;
 		case CHANGE:
-			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+			if(!(newType instanceof State) || !(oldType instanceof State)) {
+				return Collections.emptyList();
 			}
 			break;
 		case COMMAND:  
-			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
-							}
+			if(!(newType instanceof Command)) {
+				return Collections.emptyList();
+			}
+			break;
+		}
+		
+		ResolvedTriggers triggers = getResolvedTriggers(triggerType, item);
+		if(triggers.triggers.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Rule> result = Lists.newArrayList();
+		for(ResolvedTrigger trigger : triggers.triggers) {
+			if(trigger.matches(oldType, newType)) {
+				result.add(trigger.rule);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns the trigger conditions of all rules that have a trigger of the given type for the given item.
+	 * The states of the conditions are parsed only once and reused for all subsequent events, as long as 
+	 * the accepted types of the item do not change. Items without any such rule are cached as well, 
+	 * so that their events neither lock nor scan the rules again.
+	 * 
+	 * @param triggerType the trigger type (UPDATE, CHANGE or COMMAND)
+	 * @param item the item to get the trigger conditions for
+	 * @return the trigger conditions, which are empty if no rule has such a trigger
+	 */
+	private ResolvedTriggers getResolvedTriggers(TriggerTypes triggerType, Item item) {
+		String key = triggerType + ":" + item.getName();
+		List<?> acceptedTypes = triggerType==COMMAND ? 
+				item.getAcceptedCommandTypes() : item.getAcceptedDataTypes();
+		ResolvedTriggers triggers = resolvedTriggers.get(key);
+		if(triggers==null || !triggers.isResolvedFor(acceptedTypes)) {
+			synchronized (this) {
+				// another thread might have resolved them in the meantime
+				triggers = resolvedTriggers.get(key);
+				if(triggers==null || !triggers.isResolvedFor(acceptedTypes)) {
+					Iterable<Rule> rules = getAllRules(triggerType, item.getName());
+					if(rules==null) {
+						rules = Collections.emptyList();
+					}
+					triggers = resolveTriggers(triggerType, item, acceptedTypes, rules);
+					resolvedTriggers.put(key, triggers);
+				}
+			}
+		}
+		return triggers;
+	}
+	
+	private ResolvedTriggers resolveTriggers(TriggerTypes triggerType, Item item, 
+			List<?> acceptedTypes, Iterable<Rule> rules) {
+		List<ResolvedTrigger> result = new ArrayList<ResolvedTrigger>();
+		for(Rule rule : rules) {
+			for(EventTrigger t : rule.getEventtrigger()) {
+				if (triggerType==UPDATE && t instanceof UpdateEventTrigger) {
+					UpdateEventTrigger ut = (UpdateEventTrigger) t;
+					if(ut.getItem().equals(item.getName())) {
+						ResolvedTrigger trigger = new ResolvedTrigger(rule);
+						if(ut.getState()!=null) {
+							trigger.newState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
+							trigger.newStateRequired = true;
+						}
+						result.add(trigger);
+					}
+				} else if (triggerType==CHANGE && t instanceof ChangedEventTrigger) {
+					ChangedEventTrigger ct = (ChangedEventTrigger) t;						
+					if(ct.getItem().equals(item.getName())) {
+						ResolvedTrigger trigger = new ResolvedTrigger(rule);
+						if(ct.getOldState()!=null) {
+							trigger.oldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
+							trigger.oldStateRequired = true;
 						}
+						if(ct.getNewState()!=null) {
+							trigger.newState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
+							trigger.newStateRequired = true;
+						}
+						result.add(trigger);
+					}
+				} else if (triggerType==COMMAND && t instanceof CommandEventTrigger) {
+					CommandEventTrigger ct = (CommandEventTrigger) t;
+					if(ct.getItem().equals(item.getName())) {
+						ResolvedTrigger trigger = new ResolvedTrigger(rule);
+						trigger.newState = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
+						// a command which cannot be parsed matches all commands
+						trigger.newStateRequired = trigger.newState!=null;
+						result.add(trigger);
 					}
 				}
 			}
-			break;
 		}
-		return result;
+		return new ResolvedTriggers(acceptedTypes, result);
+	}
+
+	/**
+	 * Discards all parsed trigger conditions, so that they are resolved again on the next event.
+	 * This must be called after the rules of event triggers have been modified.
+	 */
+	private synchronized void clearResolvedTriggers() {
+		resolvedTriggers.clear();
 	}
 
 	/**
@@ -274,9 +319,9 @@ public class RuleTriggerManager {
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
-			case UPDATE:   	updateEventTriggeredRules.clear(); break;
-			case CHANGE:   	changedEventTriggeredRules.clear(); break;
-			case COMMAND:  	commandEventTriggeredRules.clear(); break;
+			case UPDATE:   	updateEventTriggeredRules.clear(); clearResolvedTriggers(); break;
+			case CHANGE:   	changedEventTriggeredRules.clear(); clearResolvedTriggers(); break;
+			case COMMAND:  	commandEventTriggeredRules.clear(); clearResolvedTriggers(); break;
 			case TIMER:    	for(Rule rule : timerEventTriggeredRules) {
 								removeTimerRule(rule);
 							}
@@ -302,6 +347,7 @@ public class RuleTriggerManager {
 	 * @param rule the rule to add
 	 */
 	public synchronized void addRule(Rule rule) {
+		clearResolvedTriggers();
 		for(EventTrigger t : rule.getEventtrigger()) {
 			// add the rule to the lookup map for the trigger kind
 			if(t instanceof SystemOnStartupTrigger) {
@@ -353,9 +399,9 @@ public class RuleTriggerManager {
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.remove(rule); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.remove(rule); break;
-			case UPDATE:   	updateEventTriggeredRules.remove(rule); break;
-			case CHANGE:   	changedEventTriggeredRules.remove(rule); break;
-			case COMMAND:  	commandEventTriggeredRules.remove(rule); break;
+			case UPDATE:   	updateEventTriggeredRules.remove(rule); clearResolvedTriggers(); break;
+			case CHANGE:   	changedEventTriggeredRules.remove(rule); clearResolvedTriggers(); break;
+			case COMMAND:  	commandEventTriggeredRules.remove(rule); clearResolvedTriggers(); break;
 			case TIMER:    	timerEventTriggeredRules.remove(rule); 
 							removeTimerRule(rule);
 							break;
@@ -382,6 +428,7 @@ public class RuleTriggerManager {
 		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
 		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
 		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
+		clearResolvedTriggers();
 		removeRules(STARTUP, Collections.singletonList(systemStartupTriggeredRules), ruleModel);
 		removeRules(SHUTDOWN, Collections.singletonList(systemShutdownTriggeredRules), ruleModel);		
 		removeRules(TIMER, Collections.singletonList(timerEventTriggeredRules), ruleModel);		
@@ -494,4 +541,48 @@ public class RuleTriggerManager {
 		}
 		return jobIdentity;
 	}
+	
+	/**
+	 * The parsed trigger conditions of a trigger type for a single item, together with
+	 * the accepted types of the item they have been parsed for.
+	 */
+	private static class ResolvedTriggers {
+		final List<?> acceptedTypes;
+		final List<ResolvedTrigger> triggers;
+		
+		ResolvedTriggers(List<?> acceptedTypes, List<ResolvedTrigger> triggers) {
+			this.acceptedTypes = acceptedTypes==null ? null : new ArrayList<Object>(acceptedTypes);
+			this.triggers = triggers;
+		}
+		
+		boolean isResolvedFor(List<?> types) {
+			return acceptedTypes==null ? types==null : acceptedTypes.equals(types);
+		}
+	}
+	
+	/**
+	 * A single trigger condition of a rule with its states already parsed. A required state 
+	 * which could not be parsed is kept as <code>null</code> and never matches.
+	 */
+	private static class ResolvedTrigger {
+		final Rule rule;
+		Type oldState;
+		boolean oldStateRequired;
+		Type newState;
+		boolean newStateRequired;
+		
+		ResolvedTrigger(Rule rule) {
+			this.rule = rule;
+		}
+		
+		boolean matches(Type oldType, Type newType) {
+			if(oldStateRequired && !oldType.equals(oldState)) {
+				return false;
+			}
+			if(newStateRequired && !newType.equals(newState)) {
+				return false;
+			}
+			return true;
+		}
+	}
 }
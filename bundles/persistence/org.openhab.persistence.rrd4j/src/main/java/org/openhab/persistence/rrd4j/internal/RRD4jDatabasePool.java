@@ -0,0 +1,225 @@
+/**
+ * openHAB, the open Home Automation Bus.
+ * Copyright (C) 2010-2013, openHAB.org <admin@openhab.org>
+ *
+ * See the contributors.txt file in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation; either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, see <http://www.gnu.org/licenses>.
+ *
+ * Additional permission under GNU GPL version 3 section 7
+ *
+ * If you modify this Program, or any covered work, by linking or
+ * combining it with Eclipse (or a modified version of that library),
+ * containing parts covered by the terms of the Eclipse Public License
+ * (EPL), the licensors of this Program grant you additional permission
+ * to convey the resulting work.
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.rrd4j.core.RrdBackendFactory;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded pool of open {@link RrdDb} instances, so that the rrd files do not have to
+ * be opened and closed again for every single sample. When the pool is full, the least
+ * recently used database which is not in use is closed.
+ * <p>
+ * Every database is guarded by its own lock: {@link #acquire(String, RrdDef)} returns
+ * the database locked for the calling thread and {@link #release(String)} unlocks it again,
+ * so that writes to different files do not block each other.
+ *
+ * @since 1.4.0
+ */
+public class RRD4jDatabasePool {
+
+	private static final Logger logger = LoggerFactory.getLogger(RRD4jDatabasePool.class);
+
+	private final int capacity;
+
+	private final RrdBackendFactory backendFactory;
+
+	/** the open databases by their file path, in the order of their last use */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	/**
+	 * @param capacity the maximum number of databases to keep open
+	 * @param backendFactory the rrd4j backend to open the databases with,
+	 * <code>null</code> for the rrd4j default backend
+	 */
+	public RRD4jDatabasePool(int capacity, RrdBackendFactory backendFactory) {
+		this.capacity = Math.max(1, capacity);
+		this.backendFactory = backendFactory;
+	}
+
+	/**
+	 * Returns the open database for the given file and locks it for the calling thread.
+	 * If the database is not yet open, it is opened or, if the file does not exist yet,
+	 * created from the given definition. Every successful call must be followed by a
+	 * call to {@link #release(String)}.
+	 *
+	 * @param path the absolute path of the rrd file
+	 * @param rrdDef the definition used to create a new file, <code>null</code> if the file must exist
+	 * @return the locked database
+	 * @throws IOException if the database cannot be opened or created
+	 */
+	public RrdDb acquire(String path, RrdDef rrdDef) throws IOException {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(path);
+			if(entry==null) {
+				entry = new Entry();
+				entries.put(path, entry);
+				entry.users++;
+				evict();
+			} else {
+				entry.users++;
+			}
+		}
+		entry.lock.lock();
+		try {
+			if(entry.db==null || entry.db.isClosed()) {
+				entry.db = open(path, rrdDef);
+			}
+			return entry.db;
+		} catch (IOException e) {
+			release(path, entry);
+			throw e;
+		} catch (RuntimeException e) {
+			release(path, entry);
+			throw e;
+		}
+	}
+
+	/**
+	 * Releases a database which has been returned by {@link #acquire(String, RrdDef)}.
+	 * The database stays open for subsequent calls.
+	 *
+	 * @param path the path the database has been acquired with
+	 */
+	public void release(String path) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(path);
+		}
+		if(entry!=null) {
+			release(path, entry);
+		}
+	}
+
+	/**
+	 * Closes all open databases. Databases which are currently in use are closed
+	 * as soon as they are released.
+	 */
+	public void close() {
+		List<Entry> closing = new ArrayList<Entry>();
+		synchronized (entries) {
+			for(Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+				Entry entry = it.next().getValue();
+				if(entry.users == 0) {
+					closing.add(entry);
+					it.remove();
+				} else {
+					entry.evicted = true;
+				}
+			}
+		}
+		for(Entry entry : closing) {
+			closeDb(entry);
+		}
+	}
+
+	/**
+	 * @return the number of databases which are currently open
+	 */
+	public int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private RrdDb open(String path, RrdDef rrdDef) throws IOException {
+		if(rrdDef!=null) {
+			return backendFactory!=null ? new RrdDb(rrdDef, backendFactory) : new RrdDb(rrdDef);
+		} else {
+			return backendFactory!=null ? new RrdDb(path, backendFactory) : new RrdDb(path);
+		}
+	}
+
+	private void release(String path, Entry entry) {
+		boolean close;
+		synchronized (entries) {
+			entry.users--;
+			close = entry.evicted && entry.users == 0;
+			if(close) {
+				entries.remove(path);
+			}
+		}
+		entry.lock.unlock();
+		if(close) {
+			closeDb(entry);
+		}
+	}
+
+	/**
+	 * Closes the least recently used databases which are not in use, until the pool
+	 * does not exceed its capacity anymore. Must be called while holding the lock on
+	 * {@link #entries}.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+		while(entries.size() > capacity && it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			Entry entry = eldest.getValue();
+			if(entry.users == 0) {
+				it.remove();
+				// nobody uses this entry and it cannot be acquired anymore, so we can close it right away
+				closeDb(entry);
+				logger.trace("Evicted rrd4j database '{}' from pool", eldest.getKey());
+			}
+		}
+	}
+
+	private void closeDb(Entry entry) {
+		RrdDb db = entry.db;
+		entry.db = null;
+		if(db!=null && !db.isClosed()) {
+			try {
+				db.close();
+			} catch (IOException e) {
+				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+			}
+		}
+	}
+
+
+	private static class Entry {
+		final ReentrantLock lock = new ReentrantLock();
+		RrdDb db;
+		int users;
+		boolean evicted;
+	}
+
+}
@@ -33,13 +33,18 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Dictionary;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.lang.StringUtils;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
@@ -53,13 +58,17 @@ import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ItemSnapshot;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
 import org.rrd4j.core.FetchData;
 import org.rrd4j.core.FetchRequest;
+import org.rrd4j.core.RrdBackendFactory;
 import org.rrd4j.core.RrdDb;
 import org.rrd4j.core.RrdDef;
 import org.rrd4j.core.Sample;
@@ -74,18 +83,43 @@ import org.slf4j.LoggerFactory;
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements QueryablePersistenceService, ManagedService {
 
 	private static final String DATASOURCE_STATE = "state";
 
 	protected final static String DB_FOLDER = "etc/rrd4j";
 	
+	private static final int DEFAULT_POOL_SIZE = 64;
+	
 	private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-	private Map<String,Timer> timers = new HashMap<String,Timer>();
+	/** the samples which wait for the next step of their database, by database name */
+	private Map<String, Item> pendingSamples = new ConcurrentHashMap<String, Item>();
+	
+	/** the number of samples which have been merged into an already pending sample */
+	private AtomicLong coalescedSamples = new AtomicLong();
+	
+	/** writes the deferred samples of all databases */
+	private ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "RRD4j deferred sample writer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
 	
 	protected ItemRegistry itemRegistry;
 	
+	/** keeps the most recently used databases open, so that they do not have to be reopened for every sample */
+	private volatile RRD4jDatabasePool pool = new RRD4jDatabasePool(DEFAULT_POOL_SIZE, null);
+	
+	public void deactivate() {
+		scheduler.shutdownNow();
+		pendingSamples.clear();
+		pool.close();
+		logger.debug("Coalesced {} samples which arrived within the same step.", coalescedSamples.get());
+	}
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -94,6 +128,38 @@ public class RRD4jService implements QueryablePersistenceService {
 		this.itemRegistry = null;
 	}
 
+	/**
+	 * @{inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		if (config != null) {
+			int poolSize = DEFAULT_POOL_SIZE;
+			String poolSizeString = (String) config.get("poolsize");
+			if (StringUtils.isNotBlank(poolSizeString)) {
+				try {
+					poolSize = Integer.parseInt(poolSizeString.trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationException("poolsize", "'" + poolSizeString + "' is not a valid number");
+				}
+			}
+			
+			RrdBackendFactory backendFactory = null;
+			String backendString = (String) config.get("backend");
+			if (StringUtils.isNotBlank(backendString)) {
+				try {
+					backendFactory = RrdBackendFactory.getFactory(backendString.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException("backend", e.getMessage());
+				}
+			}
+			
+			RRD4jDatabasePool oldPool = pool;
+			pool = new RRD4jDatabasePool(poolSize, backendFactory);
+			oldPool.close();
+		}
+	}
+
 	/**
 	 * @{inheritDoc}
 	 */
@@ -107,70 +173,104 @@ public class RRD4jService implements QueryablePersistenceService {
 	public void store(final Item item, final String alias) {
 		final String name = alias==null ? item.getName() : alias;
 		ConsolFun function = getConsolidationFunction(item);
-		RrdDb db = getDB(name, function);
+		RRD4jDatabasePool pool = this.pool;
+		RrdDb db = getDB(pool, name, function);
 		if(db!=null) {
-			long now = System.currentTimeMillis()/1000;
-			if(function!=ConsolFun.AVERAGE) {
-				try {
-					// we store the last value again, so that the value change in the database is not interpolated, but
-					// happens right at this spot
-					if(now - 1 > db.getLastUpdateTime()) {
-						// only do it if there is not already a value
-						double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-						if(!Double.isNaN(lastValue)) {
-							Sample sample = db.createSample();
-				            sample.setTime(now - 1);
-				            sample.setValue(DATASOURCE_STATE, lastValue);
-				            sample.update();
-		                    logger.debug("Stored '{}' with state '{}' in rrd4j database", name, mapToState(lastValue, item.getName()));
+			try {
+				long now = System.currentTimeMillis()/1000;
+				if(isWithinLastStep(db, now)) {
+					// rrd4j requires at least one second between two samples
+					deferSample(item, name);
+					return;
+				}
+				if(function!=ConsolFun.AVERAGE) {
+					try {
+						// we store the last value again, so that the value change in the database is not interpolated, but
+						// happens right at this spot
+						if(now - 1 > db.getLastUpdateTime()) {
+							// only do it if there is not already a value
+							double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+							if(!Double.isNaN(lastValue)) {
+								Sample sample = db.createSample();
+					            sample.setTime(now - 1);
+					            sample.setValue(DATASOURCE_STATE, lastValue);
+					            sample.update();
+			                    logger.debug("Stored '{}' with state '{}' in rrd4j database", name, mapToState(lastValue, item.getName()));
+							}
 						}
+					} catch (IOException e) {
+						logger.debug("Error re-storing last value: {}", e.getMessage());
 					}
-				} catch (IOException e) {
-					logger.debug("Error re-storing last value: {}", e.getMessage());
 				}
-			}
-			try {
-				Sample sample = db.createSample();
-	            sample.setTime(now);
+				try {
+					Sample sample = db.createSample();
+		            sample.setTime(now);
 	            
-	            DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
-	            if (state!=null) {
-                    double value = state.toBigDecimal().doubleValue();
-                    sample.setValue(DATASOURCE_STATE, value);
-                    sample.update();
-                    logger.debug("Stored '{}' with state '{}' in rrd4j database", name, item.getState());
-	            }
-			} catch (IllegalArgumentException e) {
-				if(e.getMessage().contains("at least one second step is required")) {
-
-					// we try to store the value one second later
-					TimerTask task = new TimerTask() {
-						public void run() {
-							store(item, name);
-						}
-					};
-					Timer timer = timers.get(name);
-					if(timer!=null) {
-						timer.cancel();
-						timers.remove(name);
+		            DecimalType state = (DecimalType) item.getStateAs(DecimalType.class);
+		            if (state!=null) {
+	                    double value = state.toBigDecimal().doubleValue();
+	                    sample.setValue(DATASOURCE_STATE, value);
+	                    sample.update();
+	                    logger.debug("Stored '{}' with state '{}' in rrd4j database", name, item.getState());
+		            }
+				} catch (IllegalArgumentException e) {
+					if(e.getMessage().contains("at least one second step is required")) {
+						deferSample(item, name);
+					} else {
+						logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 					}
-					timer = new Timer();
-					timers.put(name, timer);
-					timer.schedule(task, 1000);
-				} else {
+				} catch (Exception e) {
 					logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 				}
-			} catch (Exception e) {
-				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
-			}
-            try {
-				db.close();
-			} catch (IOException e) {
-				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+			} finally {
+				releaseDB(pool, name);
 			}
 		}
 	}
 
+	private boolean isWithinLastStep(RrdDb db, long now) {
+		try {
+			return now <= db.getLastUpdateTime();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Stores the given item one second later. If there is already a sample pending for
+	 * the same database, no further write is scheduled, as the pending one will store the
+	 * most recent state of the item anyway.
+	 * 
+	 * @param item the item to store
+	 * @param name the name of the database
+	 */
+	private void deferSample(final Item item, final String name) {
+		if(pendingSamples.put(name, item)!=null) {
+			coalescedSamples.incrementAndGet();
+			return;
+		}
+		try {
+			scheduler.schedule(new Runnable() {
+				public void run() {
+					Item pendingItem = pendingSamples.remove(name);
+					if(pendingItem!=null) {
+						store(pendingItem, name);
+					}
+				}
+			}, 1, TimeUnit.SECONDS);
+		} catch (RejectedExecutionException e) {
+			// this happens if the service is shut down
+			pendingSamples.remove(name);
+		}
+	}
+	
+	/**
+	 * @return the number of samples which have been merged into an already pending sample
+	 */
+	public long getCoalescedSampleCount() {
+		return coalescedSamples.get();
+	}
+
 	/**
 	 * @{inheritDoc}
 	 */
@@ -182,7 +282,8 @@ public class RRD4jService implements QueryablePersistenceService {
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		String itemName = filter.getItemName();
 		ConsolFun consolidationFunction = getConsolidationFunction(itemName);
-		RrdDb db = getDB(itemName, consolidationFunction);
+		RRD4jDatabasePool pool = this.pool;
+		RrdDb db = getDB(pool, itemName, consolidationFunction);
 		if(db!=null) {
 			long start = 0L;
 			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 - 1 : filter.getEndDate().getTime()/1000;
@@ -228,25 +329,36 @@ public class RRD4jService implements QueryablePersistenceService {
 				return items;
 			} catch (IOException e) {
 				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
-			}	
+			} finally {
+				releaseDB(pool, itemName);
+			}
 		}
 		return Collections.emptyList();
 	}
 
-	protected synchronized RrdDb getDB(String alias, ConsolFun function) {
+	/**
+	 * Returns the database for the given alias from the pool and locks it for the calling
+	 * thread. It must be given back by {@link #releaseDB(RRD4jDatabasePool, String)}.
+	 * 
+	 * @param pool the pool to take the database from
+	 * @param alias the name of the database
+	 * @param function the consolidation function to use if the database has to be created
+	 * @return the locked database or <code>null</code>, if it could not be opened
+	 */
+	protected RrdDb getDB(RRD4jDatabasePool pool, String alias, ConsolFun function) {
 		RrdDb db = null;
-        File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
+        File file = getFile(alias);
     	try {
             if (file.exists()) {
-            	// recreate the RrdDb instance from the file
-            	db = new RrdDb(file.getAbsolutePath());
+            	// reuse the RrdDb instance of the file or recreate it
+            	db = pool.acquire(file.getAbsolutePath(), null);
             } else {
             	File folder = new File(DB_FOLDER);
             	if(!folder.exists()) {
             		folder.mkdir();
             	}
             	// create a new database file
-                db = new RrdDb(getRrdDef(function, file));
+                db = pool.acquire(file.getAbsolutePath(), getRrdDef(function, file));
             }
 		} catch (IOException e) {
 			logger.error("Could not create rrd4j database file '{}': {}", new String[] { file.getAbsolutePath(), e.getMessage() });
@@ -256,6 +368,14 @@ public class RRD4jService implements QueryablePersistenceService {
 		}
 		return db;
 	}
+	
+	protected void releaseDB(RRD4jDatabasePool pool, String alias) {
+		pool.release(getFile(alias).getAbsolutePath());
+	}
+	
+	private File getFile(String alias) {
+		return new File(DB_FOLDER + File.separator + alias + ".rrd");
+	}
 
 	private RrdDef getRrdDef(ConsolFun function, File file) {
     	RrdDef rrdDef = new RrdDef(file.getAbsolutePath());
@@ -286,7 +406,8 @@ public class RRD4jService implements QueryablePersistenceService {
 	}
 
 	static public ConsolFun getConsolidationFunction(Item item) {
-		if(item instanceof NumberItem) {
+		// the item might be a snapshot taken by an asynchronous write
+		if(ItemSnapshot.unwrap(item) instanceof NumberItem) {
 			return ConsolFun.AVERAGE;
 		} else {
 			// for all other values (like ON/OFF etc.) use the maximum value for consolidation
@@ -51,6 +51,7 @@ import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.ItemSnapshot;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
@@ -174,7 +175,8 @@ public class SqlPersistenceService implements QueryablePersistenceService, Manag
 
 		// Default the type to double
 		String mysqlType = new String("DOUBLE");
-		String itemType = item.getClass().toString().toUpperCase();
+		// the item might be a snapshot taken by an asynchronous write
+		String itemType = ItemSnapshot.unwrap(item).getClass().toString().toUpperCase();
 		itemType = itemType.substring(itemType.lastIndexOf('.')+1);
 		if(sqlTypes.get(itemType) != null) {
 			mysqlType = sqlTypes.get(itemType);
@@ -29,9 +29,11 @@
 package org.openhab.ui.webapp.internal.servlet;
 
 import java.io.IOException;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.ServletException;
@@ -39,6 +41,9 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationListener;
+import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -77,6 +82,9 @@ public class WebAppServlet extends BaseServlet {
 	private PageRenderer renderer;
 	protected SitemapProvider sitemapProvider;
 	
+	/** the listeners for the pages which are currently polled, shared by all clients polling the same page */
+	private final Map<String, PageChangeListener> pageListeners = new HashMap<String, PageChangeListener>();
+	
 	
 	public void setSitemapProvider(SitemapProvider sitemapProvider) {
 		this.sitemapProvider = sitemapProvider;
@@ -107,6 +115,12 @@ public class WebAppServlet extends BaseServlet {
 	protected void deactivate() {
 		httpService.unregister(WEBAPP_ALIAS + SERVLET_NAME);
 		httpService.unregister(WEBAPP_ALIAS);
+		synchronized (pageListeners) {
+			for(PageChangeListener listener : pageListeners.values()) {
+				listener.unregister();
+			}
+			pageListeners.clear();
+		}
 		logger.info("Stopped Classic UI");
 	}
 	
@@ -138,9 +152,8 @@ public class WebAppServlet extends BaseServlet {
 				// we are at the homepage, so we render the children of the sitemap root node
 				String label = sitemap.getLabel()!=null ? sitemap.getLabel() : sitemapName;
 				EList<Widget> children = sitemap.getChildren();
-				if(poll && waitForChanges(children)==false) {
-					// we have reached the timeout, so we do not return any content as nothing has changed
-					res.getWriter().append(getTimeoutResponse()).close();
+				if(poll && waitForChanges(req, res, sitemapName + ":Home", children)==false) {
+					// the request has been suspended or has timed out, so there is nothing to render yet
 					return;
 				}
 				result.append(renderer.processPage("Home", sitemapName, label, sitemap.getChildren(), async));
@@ -154,9 +167,8 @@ public class WebAppServlet extends BaseServlet {
 						throw new RenderException("Widget '" + w + "' can not have any content");
 					}
 					EList<Widget> children = renderer.getItemUIRegistry().getChildren((LinkableWidget) w);
-					if(poll && waitForChanges(children)==false) {
-						// we have reached the timeout, so we do not return any content as nothing has changed
-						res.getWriter().append(getTimeoutResponse()).close();
+					if(poll && waitForChanges(req, res, sitemapName + ":" + widgetId, children)==false) {
+						// the request has been suspended or has timed out, so there is nothing to render yet
 						return;
 					}
 					result.append(renderer.processPage(renderer.getItemUIRegistry().getWidgetId(w), sitemapName, label, children, async));
@@ -184,32 +196,51 @@ public class WebAppServlet extends BaseServlet {
 	}
 
 	/**
-	 * This method only returns when a change has occurred to any item on the page to display
+	 * Waits for a change to any item on the page to display. Instead of blocking the calling thread,
+	 * the request is suspended and resumed by the state change of an item, which dispatches it to
+	 * this servlet again. If no item changes within {@link #TIMEOUT_IN_MS}, the timeout response is 
+	 * written.
 	 * 
+	 * @param req the polling request
+	 * @param res the response to write the timeout response to
+	 * @param pageId the unique id of the page, consisting of the sitemap name and the widget id
 	 * @param widgets the widgets of the page to observe
+	 * @return true, if a change has occurred and the page should be rendered, false if the request
+	 * has been suspended or the timeout response has already been written
 	 */
-	private boolean waitForChanges(EList<Widget> widgets) {
-		long startTime = (new Date()).getTime();
-		boolean timeout = false;
-		BlockingStateChangeListener listener = new BlockingStateChangeListener();
-		// let's get all items for these widgets
-		Set<GenericItem> items = getAllItems(widgets);
-		for(GenericItem item : items) {			
-			item.addStateChangeListener(listener);
+	private boolean waitForChanges(ServletRequest req, ServletResponse res, String pageId, EList<Widget> widgets) throws IOException {
+		Continuation continuation = ContinuationSupport.getContinuation(req);
+		if(continuation.isExpired()) {
+			// we have reached the timeout, so we do not return any content as nothing has changed
+			res.getWriter().append(getTimeoutResponse()).close();
+			return false;
 		}
-		while(!listener.hasChangeOccurred() && !timeout) {
-			timeout = (new Date()).getTime() - startTime > TIMEOUT_IN_MS;
-			try {
-				Thread.sleep(300);
-			} catch (InterruptedException e) {
-				timeout = true;
-				break;
-			}
+		if(continuation.isResumed()) {
+			return true;
 		}
-		for(GenericItem item : items) {
-			item.removeStateChangeListener(listener);
+		
+		continuation.setTimeout(TIMEOUT_IN_MS);
+		continuation.suspend();
+		final PageChangeListener listener;
+		synchronized (pageListeners) {
+			PageChangeListener pageListener = pageListeners.get(pageId);
+			if(pageListener==null) {
+				pageListener = new PageChangeListener(pageId, getAllItems(widgets));
+				pageListeners.put(pageId, pageListener);
+				pageListener.register();
+			}
+			pageListener.continuations.add(continuation);
+			listener = pageListener;
 		}
-		return !timeout;
+		continuation.addContinuationListener(new ContinuationListener() {
+			public void onTimeout(Continuation continuation) {
+				listener.removeContinuation(continuation);
+			}
+			public void onComplete(Continuation continuation) {
+				listener.removeContinuation(continuation);
+			}
+		});
+		return false;
 	}
 
 	/**
@@ -244,30 +275,44 @@ public class WebAppServlet extends BaseServlet {
 	}
 
 	/**
-	 * This is a state change listener, which is merely used to determine, if a state
-	 * change has occurred on one of a list of items.
+	 * This is a state change listener, which is registered on all items of a page as long as
+	 * there are clients polling this page. On a state change, all suspended requests for 
+	 * the page are resumed.
 	 * 
 	 * @author Kai Kreuzer
 	 *
 	 */
-	private static class BlockingStateChangeListener implements StateChangeListener {
+	private class PageChangeListener implements StateChangeListener {
 		
-		private boolean changed = false;
+		private final String pageId;
 		
-		/**
-		 * {@inheritDoc}
-		 */
-		public void stateChanged(Item item, State oldState, State newState) {
-			changed = true;
+		private final Set<GenericItem> items;
+		
+		/** the suspended requests, guarded by the lock on {@link WebAppServlet#pageListeners} */
+		private final Set<Continuation> continuations = new LinkedHashSet<Continuation>();
+		
+		public PageChangeListener(String pageId, Set<GenericItem> items) {
+			this.pageId = pageId;
+			this.items = items;
 		}
 
 		/**
-		 * determines, whether a state change has occurred since its creation
-		 * 
-		 * @return true, if a state has changed
+		 * {@inheritDoc}
 		 */
-		public boolean hasChangeOccurred() {
-			return changed;
+		public void stateChanged(Item item, State oldState, State newState) {
+			Set<Continuation> changed;
+			synchronized (pageListeners) {
+				changed = new HashSet<Continuation>(continuations);
+				continuations.clear();
+				release();
+			}
+			for(Continuation continuation : changed) {
+				try {
+					continuation.resume();
+				} catch (IllegalStateException e) {
+					// the request has already been resumed or has timed out
+				}
+			}
 		}
 
 		/**
@@ -276,6 +321,37 @@ public class WebAppServlet extends BaseServlet {
 		public void stateUpdated(Item item, State state) {
 			// ignore if the state did not change
 		}
+		
+		private void removeContinuation(Continuation continuation) {
+			synchronized (pageListeners) {
+				if(continuations.remove(continuation) && continuations.isEmpty()) {
+					release();
+				}
+			}
+		}
+		
+		/**
+		 * Stops listening to the items of the page, if nobody polls the page anymore. 
+		 * Must be called while holding the lock on {@link WebAppServlet#pageListeners}.
+		 */
+		private void release() {
+			if(continuations.isEmpty() && pageListeners.get(pageId)==this) {
+				pageListeners.remove(pageId);
+				unregister();
+			}
+		}
+		
+		private void register() {
+			for(GenericItem item : items) {
+				item.addStateChangeListener(this);
+			}
+		}
+		
+		private void unregister() {
+			for(GenericItem item : items) {
+				item.removeStateChangeListener(this);
+			}
+		}
 	}
 	
 	